@@ -0,0 +1,188 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.DiarySummary;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 对DAO发出的每一条查询执行 EXPLAIN QUERY PLAN，
+ * 出现全表扫描（SCAN）或临时排序（TEMP B-TREE）即判定失败。
+ */
+@RunWith(AndroidJUnit4.class)
+public class DaoQueryPlanTest {
+
+    private static final String SQL_PREFIX = "SQLiteQuery: ";
+
+    private final List<String> recordedSql = new ArrayList<>();
+    private boolean recording;
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().cursorFactory(this::newCursor);
+
+    private DiaryDAO diaryDAO;
+    private NotebookDAO notebookDAO;
+    private FavoriteDAO favoriteDAO;
+    private SearchHistoryDAO searchHistoryDAO;
+    private UserDAO userDAO;
+    private ThumbnailDAO thumbnailDAO;
+    private ImageStoreDAO imageStoreDAO;
+
+    // 记录所有经过CursorFactory的查询SQL
+    private Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver driver, String editTable, SQLiteQuery query) {
+        if (recording) {
+            String sql = query.toString();
+            recordedSql.add(sql.startsWith(SQL_PREFIX) ? sql.substring(SQL_PREFIX.length()) : sql);
+        }
+        return new SQLiteCursor(driver, editTable, query);
+    }
+
+    @Before
+    public void setUp() {
+        Context context = database.getContext();
+        diaryDAO = new DiaryDAO(context);
+        notebookDAO = new NotebookDAO(context);
+        favoriteDAO = new FavoriteDAO(context);
+        searchHistoryDAO = new SearchHistoryDAO(context);
+        userDAO = new UserDAO(context);
+        thumbnailDAO = new ThumbnailDAO(context);
+        imageStoreDAO = new ImageStoreDAO(context);
+    }
+
+    @Test
+    public void diaryQueriesUseIndexes() {
+        assertIndexed(() -> diaryDAO.getDiaryById(1));
+        assertIndexed(() -> diaryDAO.getDiariesByUserId(1, false));
+        assertIndexed(() -> diaryDAO.getDiariesByUserId(1, true));
+        assertIndexed(() -> diaryDAO.getDiariesByNotebookId(1));
+        assertIndexed(() -> diaryDAO.searchDiaries("海", 0));
+        assertIndexed(() -> diaryDAO.searchDiaries("海", 1));
+        assertIndexed(() -> diaryDAO.searchDiaries("海", 2));
+        assertIndexed(() -> diaryDAO.searchDiaries("海", 3));
+        assertIndexed(() -> diaryDAO.searchDiariesByUser("海", 1));
+        assertIndexed(() -> diaryDAO.searchByAuthor("海", 1));
+        assertIndexed(() -> diaryDAO.searchByTitle("海", 1));
+        assertIndexed(() -> diaryDAO.searchByCategory("国内游", 1));
+        // 拼音：另查拼音索引，类别拼音在内存中转换为类别代码
+        assertIndexed(() -> diaryDAO.searchDiariesByUser("haibian", 1));
+        assertIndexed(() -> diaryDAO.searchByTitle("hbrc", 1));
+        assertIndexed(() -> diaryDAO.searchByCategory("zhilv", 1));
+        assertIndexed(() -> diaryDAO.query(new DiaryQuery().author(1).published().text("haibian").pageSize(20)));
+        assertIndexed(() -> diaryDAO.getUserDrafts(1));
+        assertIndexed(() -> diaryDAO.getDiaryPageByUserId(1, false, null, 20));
+        assertIndexed(() -> diaryDAO.getDiaryPageByUserId(1, false, pageKey(), 20));
+        assertIndexed(() -> diaryDAO.getDiaryPageByUserId(1, true, pageKey(), 20));
+        assertIndexed(() -> diaryDAO.getDiaryPageByNotebookId(1, pageKey(), 20));
+        assertIndexed(() -> diaryDAO.query(new DiaryQuery().author(1).published().category("1")
+                .createdBetween(0L, 1L).pageSize(20)));
+        assertIndexed(() -> diaryDAO.query(new DiaryQuery().author(1).favoritesOf(1).after(pageKey()).pageSize(20)));
+        assertIndexed(() -> diaryDAO.query(new DiaryQuery().author(1).published()
+                .sortBy(DiaryQuery.Sort.UPDATE_TIME_ASC).after(pageKey()).pageSize(20)));
+        assertIndexed(() -> diaryDAO.getDiaryCountByUser(1, false));
+        assertIndexed(() -> diaryDAO.getDiaryCountByUser(1, true));
+    }
+
+    @Test
+    public void notebookQueriesUseIndexes() {
+        assertIndexed(() -> notebookDAO.getNotebookById(1));
+        assertIndexed(() -> notebookDAO.getNotebooksByUser(1));
+        assertIndexed(() -> notebookDAO.getNotebookCountByUser(1));
+        assertIndexed(() -> notebookDAO.isNotebookNameExists("我的日记本", 1));
+        assertIndexed(() -> notebookDAO.updateNotebookDiaryCount(1));
+    }
+
+    @Test
+    public void favoriteQueriesUseIndexes() {
+        assertIndexed(() -> favoriteDAO.isFavorite(1, 1));
+        assertIndexed(() -> favoriteDAO.getFavoritesByUserId(1));
+        assertIndexed(() -> favoriteDAO.getFavoriteCount(1));
+    }
+
+    @Test
+    public void searchHistoryQueriesUseIndexes() {
+        assertIndexed(() -> searchHistoryDAO.getRecentSearchHistory(1));
+        assertIndexed(() -> searchHistoryDAO.getSearchHistoryByUser(1, 10));
+        assertIndexed(() -> searchHistoryDAO.getKeywordStats(1));
+        // getPopularKeywords / getTrendingKeywords 按热度索引倒序读取前N项，计划显示为 SCAN ... USING COVERING INDEX，不在此列
+    }
+
+    @Test
+    public void userQueriesUseIndexes() {
+        assertIndexed(() -> userDAO.getUserById(1));
+        assertIndexed(() -> userDAO.getUserByPhone("13800000000"));
+        assertIndexed(() -> userDAO.login("trail", "pwd"));
+        assertIndexed(() -> userDAO.isTrailNumberExists("trail"));
+        assertIndexed(() -> userDAO.isNicknameExists("nick"));
+        assertIndexed(() -> userDAO.isPhoneExists("13800000000"));
+        assertIndexed(() -> userDAO.getUserAvatarBytes(1));
+        // getAllUsers / searchUsers 本身就是全表浏览和模糊匹配，不在此列
+    }
+
+    @Test
+    public void thumbnailQueriesUseIndexes() {
+        assertIndexed(() -> thumbnailDAO.getDiaryImagePaths(1));
+        assertIndexed(() -> thumbnailDAO.getDiariesWithoutCoverThumbnail(0, 20));
+        assertIndexed(() -> thumbnailDAO.getThumbnails("/sdcard/a.jpg"));
+    }
+
+    @Test
+    public void imageStoreQueriesUseIndexes() {
+        assertIndexed(() -> imageStoreDAO.getUnreferencedImages(1700000000000L));
+    }
+
+    // 分页起点（上一页最后一条）
+    private static DiarySummary pageKey() {
+        DiarySummary key = new DiarySummary();
+        key.setDiaryId(100);
+        key.setCreateTimeMillis(1700000000000L);
+        return key;
+    }
+
+    // 执行DAO调用，检查期间发出的每条查询的执行计划
+    private void assertIndexed(Runnable daoCall) {
+        recordedSql.clear();
+        recording = true;
+        try {
+            daoCall.run();
+        } finally {
+            recording = false;
+        }
+        assertFalse("DAO调用未发出任何查询", recordedSql.isEmpty());
+
+        SQLiteDatabase db = database.getHelper().getReadableDatabase();
+        for (String sql : new ArrayList<>(recordedSql)) {
+            // 未绑定的参数按NULL处理，不影响执行计划
+            Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+            try {
+                int detailIndex = cursor.getColumnIndexOrThrow("detail");
+                while (cursor.moveToNext()) {
+                    String detail = cursor.getString(detailIndex);
+                    // 全文索引的MATCH在计划中显示为虚拟表SCAN（INDEX 0 才是全表扫描）
+                    boolean ftsMatch = detail.contains("VIRTUAL TABLE INDEX") && !detail.contains("INDEX 0:");
+                    assertFalse("全表扫描: " + detail + "\n" + sql, detail.startsWith("SCAN") && !ftsMatch);
+                    assertFalse("临时排序: " + detail + "\n" + sql, detail.contains("TEMP B-TREE"));
+                }
+                assertTrue(cursor.getCount() > 0);
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+}
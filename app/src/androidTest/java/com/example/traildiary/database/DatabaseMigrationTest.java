@@ -0,0 +1,225 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.traildiary.database.migration.MigrationRunner;
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.DateUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.threeten.bp.LocalDateTime;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用10万篇日记的旧版本数据库验证逐版本迁移：数据不丢失，新列与索引齐全
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseMigrationTest {
+
+    private static final String TEST_DB = "migration_test.db";
+    private static final int DIARY_COUNT = 100_000;
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        if (dbHelper != null) {
+            dbHelper.close();
+        }
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void migrateFromVersion1KeepsAllDiaries() {
+        createVersion1Fixture();
+
+        dbHelper = new DatabaseHelper(context, TEST_DB, null);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+
+        assertEquals(DIARY_COUNT, count(db, DatabaseHelper.TABLE_DIARY));
+        assertEquals(1, count(db, DatabaseHelper.TABLE_USER));
+        assertTrue(hasColumn(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_IMAGES));
+        assertTrue(hasColumn(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_LIKE_COUNT));
+        assertTrue(hasTable(db, DatabaseHelper.TABLE_FAVORITE));
+        assertTrue(hasIndex(db, "idx_diary_author_draft_time"));
+
+        // 后台回填：文本时间全部转换为epoch毫秒
+        MigrationRunner.runPendingBackfills(db);
+        long expected = DateUtil.toEpochMillis(LocalDateTime.of(2024, 5, 1, 8, 30, 0));
+        assertEquals(0, countWhere(db, DatabaseHelper.TABLE_DIARY,
+                DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " IS NULL"));
+        assertEquals(DIARY_COUNT, countWhere(db, DatabaseHelper.TABLE_DIARY,
+                DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " = " + expected));
+        assertEquals(0, countWhere(db, MigrationRunner.TABLE_MIGRATION_STATE,
+                MigrationRunner.COLUMN_DONE + " = 0"));
+        // 已有日记全部补建全文索引和拼音索引，已有用户补算昵称拼音
+        assertEquals(DIARY_COUNT, count(db, DiarySearchIndex.TABLE_DIARY_FTS));
+        assertEquals(DIARY_COUNT, count(db, DiarySearchIndex.TABLE_DIARY_PINYIN));
+        assertEquals(1, countWhere(db, DatabaseHelper.TABLE_USER,
+                DatabaseHelper.COLUMN_NICKNAME_PINYIN + " = 'u'"));
+
+        // 搜索历史去重后只保留最新的 MAX_SEARCH_HISTORY 条，重复搜索合并为次数
+        assertEquals(Constants.MAX_SEARCH_HISTORY, count(db, DatabaseHelper.TABLE_SEARCH_HISTORY));
+        assertEquals(1, countWhere(db, DatabaseHelper.TABLE_SEARCH_HISTORY,
+                DatabaseHelper.COLUMN_KEYWORD + " = 'k0' AND " + DatabaseHelper.COLUMN_SEARCH_COUNT + " = 4"));
+        assertEquals(0, countWhere(db, DatabaseHelper.TABLE_SEARCH_HISTORY,
+                DatabaseHelper.COLUMN_KEYWORD + " IN ('k1', 'k2')"));
+        assertTrue(hasIndex(db, "idx_search_history_user_keyword_type"));
+        assertEquals(sum(db, DatabaseHelper.TABLE_SEARCH_HISTORY), sum(db, DatabaseHelper.TABLE_SEARCH_KEYWORD));
+        // 热搜表由搜索历史初始化，每个关键词一行
+        assertEquals(count(db, DatabaseHelper.TABLE_SEARCH_KEYWORD), count(db, DatabaseHelper.TABLE_TRENDING_KEYWORD));
+        assertTrue(hasIndex(db, "idx_trending_keyword_score"));
+        // 已有日记的封面缩略图为NULL，由 ThumbnailGenerator 在应用启动后补生成
+        assertTrue(hasTable(db, DatabaseHelper.TABLE_IMAGE_THUMBNAIL));
+        assertEquals(DIARY_COUNT, countWhere(db, DatabaseHelper.TABLE_DIARY,
+                DatabaseHelper.COLUMN_COVER_THUMB_LARGE + " IS NULL"));
+        assertTrue(hasIndex(db, "idx_diary_missing_thumbnail"));
+        // 图片库从空开始，升级前的插图不计引用
+        assertTrue(hasTable(db, DatabaseHelper.TABLE_STORED_IMAGE));
+        assertTrue(hasTable(db, DatabaseHelper.TABLE_DIARY_IMAGE));
+        assertTrue(hasIndex(db, "idx_stored_image_unreferenced"));
+    }
+
+    @Test
+    public void migrateFromVersion3KeepsFavorites() {
+        // 先生成最新结构，再回退版本号模拟v3数据库
+        dbHelper = new DatabaseHelper(context, TEST_DB, null);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.execSQL("INSERT INTO user(user_id, nickname, trail_number, password) VALUES(1, 'u', 't', 'p')");
+        db.execSQL("INSERT INTO diary(diary_id, title, author_id, is_draft) VALUES(1, 'd', 1, 0)");
+        db.execSQL("INSERT INTO favorite(user_id, diary_id) VALUES(1, 1)");
+        db.execSQL("DROP INDEX idx_diary_author_draft_time");
+        db.setVersion(3);
+        dbHelper.close();
+
+        dbHelper = new DatabaseHelper(context, TEST_DB, null);
+        db = dbHelper.getWritableDatabase();
+
+        assertEquals(1, count(db, DatabaseHelper.TABLE_FAVORITE));
+        assertTrue(hasIndex(db, "idx_diary_author_draft_time"));
+    }
+
+    // 按版本1的表结构生成数据（日记表没有作者名、图片、计数等字段，也没有收藏表；时间为文本）
+    private void createVersion1Fixture() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(TEST_DB), null);
+        try {
+            db.execSQL("CREATE TABLE user(user_id INTEGER PRIMARY KEY AUTOINCREMENT, avatar TEXT," +
+                    " nickname TEXT UNIQUE NOT NULL, trail_number TEXT UNIQUE NOT NULL, password TEXT NOT NULL," +
+                    " phone TEXT, signature TEXT, gender TEXT, birthday TEXT, create_time TEXT)");
+            db.execSQL("CREATE TABLE notebook(notebook_id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    " notebook_name TEXT NOT NULL, user_id INTEGER NOT NULL)");
+            db.execSQL("CREATE TABLE diary(diary_id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT NOT NULL," +
+                    " content TEXT, category TEXT, author_id INTEGER NOT NULL, notebook_id INTEGER," +
+                    " create_time_diary TEXT)");
+            db.execSQL("CREATE TABLE search_history(search_id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    " keyword TEXT NOT NULL, user_id INTEGER NOT NULL, create_time TEXT)");
+
+            db.beginTransaction();
+            try {
+                db.execSQL("INSERT INTO user(user_id, nickname, trail_number, password) VALUES(1, 'u', 't', 'p')");
+                db.execSQL("INSERT INTO notebook(notebook_id, notebook_name, user_id) VALUES(1, 'n', 1)");
+                SQLiteStatement insert = db.compileStatement(
+                        "INSERT INTO diary(title, content, category, author_id, notebook_id, create_time_diary)" +
+                                " VALUES(?, ?, '1', 1, 1, '2024-05-01 08:30:00')");
+                for (int i = 0; i < DIARY_COUNT; i++) {
+                    insert.bindString(1, "日记" + i);
+                    insert.bindString(2, "内容" + i);
+                    insert.executeInsert();
+                }
+                insert.close();
+                // 旧版本每次搜索都插入一行：12个关键词，k0 又重复搜索了3次
+                for (int i = 0; i < 12; i++) {
+                    db.execSQL("INSERT INTO search_history(keyword, user_id, create_time)" +
+                            " VALUES('k" + i + "', 1, '2024-05-01 08:30:00')");
+                }
+                for (int i = 0; i < 3; i++) {
+                    db.execSQL("INSERT INTO search_history(keyword, user_id, create_time)" +
+                            " VALUES('k0', 1, '2024-05-02 08:30:00')");
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            db.setVersion(1);
+        } finally {
+            db.close();
+        }
+    }
+
+    private static long count(SQLiteDatabase db, String table) {
+        return countWhere(db, table, "1");
+    }
+
+    private static long countWhere(SQLiteDatabase db, String table, String where) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table + " WHERE " + where, null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long sum(SQLiteDatabase db, String table) {
+        Cursor cursor = db.rawQuery("SELECT SUM(" + DatabaseHelper.COLUMN_SEARCH_COUNT + ") FROM " + table, null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static boolean hasColumn(SQLiteDatabase db, String table, String column) {
+        Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+        try {
+            int nameIndex = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                if (column.equals(cursor.getString(nameIndex))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static boolean hasTable(SQLiteDatabase db, String table) {
+        return hasSchemaEntry(db, "table", table);
+    }
+
+    private static boolean hasIndex(SQLiteDatabase db, String index) {
+        return hasSchemaEntry(db, "index", index);
+    }
+
+    private static boolean hasSchemaEntry(SQLiteDatabase db, String type, String name) {
+        Cursor cursor = db.rawQuery("SELECT 1 FROM sqlite_master WHERE type = ? AND name = ?",
+                new String[]{type, name});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+}
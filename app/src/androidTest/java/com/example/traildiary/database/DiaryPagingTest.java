@@ -0,0 +1,131 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.DiarySummary;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用10万篇日记验证键集分页：遍历结果不重不漏，第1页和第500页耗时相同
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiaryPagingTest {
+
+    private static final int DIARY_COUNT = 100_000;
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int NOTEBOOK_ID = InMemoryDatabaseRule.NOTEBOOK_ID;
+    private static final int PAGE_SIZE = 20;
+    private static final int TIMING_RUNS = 51;
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().withNotebook();
+
+    private DiaryDAO diaryDAO;
+
+    @Before
+    public void setUp() {
+        diaryDAO = new DiaryDAO(database.getContext());
+
+        SQLiteDatabase db = database.getWritableDatabase();
+
+        // 每3篇共用一个创建时间，覆盖时间相同时按ID排序的情况
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                DatabaseHelper.COLUMN_CATEGORY + ", " + DatabaseHelper.COLUMN_AUTHOR_ID + ", " +
+                DatabaseHelper.COLUMN_NOTEBOOK_ID + ", " + DatabaseHelper.COLUMN_IS_DRAFT + ", " +
+                DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ", " + DatabaseHelper.COLUMN_UPDATE_TIME + ") " +
+                "WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + DIARY_COUNT + ") " +
+                "SELECT '日记' || n, '正文', '1', " + USER_ID + ", " + NOTEBOOK_ID + ", 0, " +
+                "1700000000000 + (n / 3) * 1000, 1700000000000 + (n / 3) * 1000 FROM seq");
+    }
+
+    @Test
+    public void walkingAllPagesReturnsEveryDiaryOnceInOrder() {
+        Set<Integer> seen = new HashSet<>();
+        DiarySummary after = null;
+        List<DiarySummary> page;
+        do {
+            page = diaryDAO.getDiaryPageByUserId(USER_ID, false, after, 1000);
+            for (DiarySummary diary : page) {
+                if (after != null) {
+                    assertTrue("分页顺序错误", compareKey(diary, after) < 0);
+                }
+                assertTrue("重复的日记: " + diary.getDiaryId(), seen.add(diary.getDiaryId()));
+                after = diary;
+            }
+        } while (!page.isEmpty());
+
+        assertEquals(DIARY_COUNT, seen.size());
+    }
+
+    @Test
+    public void page500IsAsFastAsPage1() {
+        DiarySummary page500Key = keyBeforePage(500);
+
+        long page1 = medianNanos(() -> diaryDAO.getDiaryPageByUserId(USER_ID, false, null, PAGE_SIZE));
+        long page500 = medianNanos(() -> diaryDAO.getDiaryPageByUserId(USER_ID, false, page500Key, PAGE_SIZE));
+        assertSameCost("用户日记", page1, page500);
+
+        long notebookPage1 = medianNanos(() -> diaryDAO.getDiaryPageByNotebookId(NOTEBOOK_ID, null, PAGE_SIZE));
+        long notebookPage500 = medianNanos(() -> diaryDAO.getDiaryPageByNotebookId(NOTEBOOK_ID, page500Key, PAGE_SIZE));
+        assertSameCost("日记本日记", notebookPage1, notebookPage500);
+    }
+
+    // 第 page 页之前的最后一条（用OFFSET直接定位，仅用于准备数据，不计时）
+    private DiarySummary keyBeforePage(int page) {
+        Cursor cursor = database.getHelper().getReadableDatabase().rawQuery("SELECT " +
+                DatabaseHelper.COLUMN_DIARY_ID + ", " + DatabaseHelper.COLUMN_CREATE_TIME_DIARY +
+                " FROM " + DatabaseHelper.TABLE_DIARY +
+                " ORDER BY " + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC, " +
+                DatabaseHelper.COLUMN_DIARY_ID + " DESC LIMIT 1 OFFSET " + ((page - 1) * PAGE_SIZE - 1), null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            DiarySummary key = new DiarySummary();
+            key.setDiaryId(cursor.getInt(0));
+            key.setCreateTimeMillis(cursor.getLong(1));
+            return key;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private long medianNanos(Runnable query) {
+        query.run(); // 预热，排除首次编译和页缓存的影响
+        long[] samples = new long[TIMING_RUNS];
+        for (int i = 0; i < TIMING_RUNS; i++) {
+            long start = System.nanoTime();
+            query.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[TIMING_RUNS / 2];
+    }
+
+    // 允许2倍加1毫秒的抖动；OFFSET分页在第500页要多跳过约1万行，会远超这个范围
+    private static void assertSameCost(String name, long firstPageNanos, long laterPageNanos) {
+        long limit = firstPageNanos * 2 + TimeUnit.MILLISECONDS.toNanos(1);
+        assertTrue(name + " 第500页耗时 " + laterPageNanos + "ns，第1页 " + firstPageNanos + "ns",
+                laterPageNanos <= limit);
+    }
+
+    private static int compareKey(DiarySummary a, DiarySummary b) {
+        int byTime = Long.compare(a.getCreateTimeMillis(), b.getCreateTimeMillis());
+        return byTime != 0 ? byTime : Integer.compare(a.getDiaryId(), b.getDiaryId());
+    }
+}
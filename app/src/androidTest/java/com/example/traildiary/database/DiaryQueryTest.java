@@ -0,0 +1,192 @@
+package com.example.traildiary.database;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.DiarySummary;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * DiaryQuery 的各种筛选、排序组合按页遍历的结果，与在内存中对全部日记逐条筛选、排序的结果一致
+ * （部分日记的创建、更新时间为NULL，在内存中按0比较，与SQLite把NULL排在最小一致）
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiaryQueryTest {
+
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int OTHER_USER_ID = 2;
+    private static final int DIARY_COUNT = 300;
+    private static final int PAGE_SIZE = 7;
+    private static final long BASE_TIME = 1700000000000L;
+
+    private static final String[] TITLES = {"海边日出", "kyoto 红叶", "Kyoto 古寺", "雪山", "alpha", "Beta", "古镇"};
+    private static final String[] CONTENTS = {"清晨的海边格外宁静", "在 Kyoto 看到了红叶", "海拔五千米", "夜市小吃"};
+    private static final String[] KEYWORDS = {null, "海边", "Kyoto"};
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule();
+
+    private DiaryDAO diaryDAO;
+    private final List<Row> rows = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        diaryDAO = new DiaryDAO(database.getContext());
+        database.addUser(OTHER_USER_ID, "u2");
+
+        SQLiteDatabase db = database.getWritableDatabase();
+
+        // 时间取值范围小，覆盖排序列相同时按ID排序的情况
+        Random random = new Random(18);
+        for (int i = 0; i < DIARY_COUNT; i++) {
+            Row row = new Row();
+            row.authorId = random.nextInt(5) == 0 ? OTHER_USER_ID : USER_ID;
+            row.title = TITLES[random.nextInt(TITLES.length)];
+            row.content = CONTENTS[random.nextInt(CONTENTS.length)];
+            row.category = String.valueOf(1 + random.nextInt(3));
+            row.draft = random.nextInt(4) == 0;
+            row.createTime = BASE_TIME + random.nextInt(50) * 1000L;
+            row.updateTime = row.createTime + random.nextInt(5) * 1000L;
+            // 时间为0表示数据库中为NULL（如升级后尚未回填、从未修改）
+            if (random.nextInt(10) == 0) {
+                row.createTime = 0;
+            }
+            if (random.nextInt(8) == 0) {
+                row.updateTime = 0;
+            }
+
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COLUMN_TITLE, row.title);
+            values.put(DatabaseHelper.COLUMN_CONTENT, row.content);
+            values.put(DatabaseHelper.COLUMN_CATEGORY, row.category);
+            values.put(DatabaseHelper.COLUMN_AUTHOR_ID, row.authorId);
+            values.put(DatabaseHelper.COLUMN_IS_DRAFT, row.draft ? 1 : 0);
+            values.put(DatabaseHelper.COLUMN_CREATE_TIME_DIARY, row.createTime == 0 ? null : row.createTime);
+            values.put(DatabaseHelper.COLUMN_UPDATE_TIME, row.updateTime == 0 ? null : row.updateTime);
+            row.id = (int) db.insert(DatabaseHelper.TABLE_DIARY, null, values);
+
+            if (random.nextInt(3) == 0) {
+                row.favorite = true;
+                db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_FAVORITE + "(" + DatabaseHelper.COLUMN_USER_ID +
+                        ", " + DatabaseHelper.COLUMN_DIARY_ID + ") VALUES(" + USER_ID + ", " + row.id + ")");
+            }
+            rows.add(row);
+        }
+        // 直接写表绕过了DAO，手动补建关键词检索用的索引
+        DiarySearchIndex.syncPending(db);
+    }
+
+    @Test
+    public void pagedResultsMatchInMemoryFiltering() {
+        String[] categories = {null, "2"};
+        Boolean[] drafts = {null, false, true};
+        Long[][] ranges = {{null, null}, {BASE_TIME + 10_000, BASE_TIME + 30_000}};
+        for (DiaryQuery.Sort sort : DiaryQuery.Sort.values()) {
+            for (String category : categories) {
+                for (Boolean draft : drafts) {
+                    for (Long[] range : ranges) {
+                        for (boolean favorites : new boolean[]{false, true}) {
+                            for (String keyword : KEYWORDS) {
+                                check(sort, category, draft, range[0], range[1], favorites, keyword);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void check(DiaryQuery.Sort sort, String category, Boolean draft, Long from, Long to,
+                       boolean favorites, String keyword) {
+        List<Integer> expected = new ArrayList<>();
+        List<Row> matching = new ArrayList<>();
+        for (Row row : rows) {
+            if (row.authorId == USER_ID && (category == null || category.equals(row.category))
+                    && (draft == null || draft == row.draft)
+                    && (from == null || row.createTime >= from) && (to == null || row.createTime < to)
+                    && (!favorites || row.favorite)
+                    && (keyword == null || SearchTokenizer.likeContains(row.title, keyword)
+                    || SearchTokenizer.likeContains(row.content, keyword))) {
+                matching.add(row);
+            }
+        }
+        matching.sort(comparator(sort));
+        for (Row row : matching) {
+            expected.add(row.id);
+        }
+
+        // 按页遍历
+        List<Integer> actual = new ArrayList<>();
+        DiarySummary after = null;
+        List<DiarySummary> page;
+        do {
+            DiaryQuery query = new DiaryQuery().author(USER_ID).category(category).createdBetween(from, to)
+                    .text(keyword).sortBy(sort).after(after).pageSize(PAGE_SIZE);
+            if (draft != null) {
+                if (draft) {
+                    query.drafts();
+                } else {
+                    query.published();
+                }
+            }
+            if (favorites) {
+                query.favoritesOf(USER_ID);
+            }
+            page = diaryDAO.query(query);
+            for (DiarySummary diary : page) {
+                actual.add(diary.getDiaryId());
+            }
+            after = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == PAGE_SIZE);
+
+        assertEquals(sort + " 类别" + category + " 草稿" + draft + " 时间" + from + "-" + to +
+                " 收藏" + favorites + " 关键词" + keyword, expected, actual);
+    }
+
+    // 与 DiaryQuery.Sort 一致：排序列（标题不区分ASCII大小写）+ 日记ID，方向相同
+    private static Comparator<Row> comparator(DiaryQuery.Sort sort) {
+        Comparator<Row> comparator;
+        switch (sort) {
+            case CREATE_TIME_DESC:
+            case CREATE_TIME_ASC:
+                comparator = Comparator.comparingLong(row -> row.createTime);
+                break;
+            case UPDATE_TIME_DESC:
+            case UPDATE_TIME_ASC:
+                comparator = Comparator.comparingLong(row -> row.updateTime);
+                break;
+            default:
+                comparator = Comparator.comparing(row -> SearchTokenizer.asciiLowerCase(row.title));
+                break;
+        }
+        comparator = comparator.thenComparingInt(row -> row.id);
+        boolean descending = sort == DiaryQuery.Sort.CREATE_TIME_DESC || sort == DiaryQuery.Sort.UPDATE_TIME_DESC
+                || sort == DiaryQuery.Sort.TITLE_DESC;
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    private static final class Row {
+        int id;
+        int authorId;
+        String title;
+        String content;
+        String category;
+        boolean draft;
+        boolean favorite;
+        long createTime;
+        long updateTime;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySearchHit;
+import com.example.traildiary.utils.Constants;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 5万篇正常篇幅（约600字）的日记上，对比全文索引与原 LIKE '%关键词%' 扫描的搜索结果和耗时（耗时只记录日志）
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiarySearchBenchmarkTest {
+
+    private static final String TAG = "DiarySearchBenchmark";
+    private static final int DIARY_COUNT = 50_000;
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int CONTENT_LENGTH = 600;
+    private static final int TIMING_RUNS = 21;
+    private static final int RETAINED_PAGES = 50; // 测量内存时同时持有的结果页数，减小GC统计误差
+
+    private static final String[] SENTENCES = {
+            "清晨的海边格外宁静，潮水一遍遍拍打着礁石。",
+            "沿着山间小路徒步三个小时，终于看到了云海。",
+            "古镇的石板路被雨水打湿，屋檐下挂着红灯笼。",
+            "在夜市里尝了烤鱿鱼和椰子冻，味道非常地道。",
+            "博物馆里陈列着千年前的青铜器，讲解员讲得很生动。",
+            "孩子们在草原上放风筝，笑声传得很远。",
+            "傍晚的江面上有渔船归来，天空被染成了橘红色。",
+            "高铁穿过一片片稻田，窗外的风景不断变换。"
+    };
+    private static final String[] PLACES = {"Kyoto", "Paris", "Chiang Mai", "Reykjavik", "Cusco", "Hallstatt"};
+    private static final String RARE_PLACE = "Lhasa"; // 约1%的日记提到
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule();
+
+    private DiaryDAO diaryDAO;
+
+    @Before
+    public void setUp() {
+        diaryDAO = new DiaryDAO(database.getContext());
+
+        SQLiteDatabase db = database.getWritableDatabase();
+
+        Random random = new Random(42);
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                DatabaseHelper.COLUMN_CATEGORY + ", " + DatabaseHelper.COLUMN_AUTHOR_ID + ", " +
+                DatabaseHelper.COLUMN_IS_DRAFT + ", " + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ") " +
+                "VALUES (?, ?, '1', " + USER_ID + ", 0, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < DIARY_COUNT; i++) {
+                insert.bindString(1, "旅行日记 " + PLACES[random.nextInt(PLACES.length)] + " 第" + i + "篇");
+                insert.bindString(2, randomContent(random, i % 100 == 0));
+                insert.bindLong(3, 1700000000000L + i * 1000L);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        DiarySearchIndex.syncPending(db);
+    }
+
+    @Test
+    public void fullTextSearchMatchesLikeScan() {
+        int expected = DIARY_COUNT / 100;
+        assertEquals(expected, diaryDAO.searchDiariesByUser(RARE_PLACE, USER_ID).size());
+        assertEquals(expected, legacyLikeSearch(RARE_PLACE));
+
+        // 每次先清空搜索结果缓存，测量的是实际查询
+        long ftsNanos = medianNanos(() -> {
+            database.getProvider().getSearchResultCache().clear();
+            diaryDAO.searchDiariesByUser(RARE_PLACE, USER_ID);
+        });
+        long likeNanos = medianNanos(() -> legacyLikeSearch(RARE_PLACE));
+        Log.i(TAG, DIARY_COUNT + "篇日记，全文索引 " + ftsNanos / 1000 + "us，LIKE扫描 " + likeNanos / 1000 + "us");
+    }
+
+    @Test
+    public void searchHitPageUsesLessMemoryThanFullDiaries() {
+        List<DiarySearchHit> firstPage = page(diaryDAO.searchByType(RARE_PLACE, 0, USER_ID, null));
+        assertEquals(Constants.DIARY_PAGE_SIZE, firstPage.size());
+        assertTrue(firstPage.get(0).getSnippet().contains(RARE_PLACE));
+
+        // 改动前：结果页按ID加载完整日记
+        List<Object> fullPages = new ArrayList<>();
+        long fullBytes = retainedBytes(() -> {
+            List<Diary> diaries = new ArrayList<>();
+            for (DiarySearchHit hit : firstPage) {
+                diaries.add(diaryDAO.getDiaryById(hit.getDiaryId()));
+            }
+            fullPages.add(diaries);
+        });
+        fullPages.clear();
+
+        // 改动后：结果页只有标题和摘要
+        List<Object> hitPages = new ArrayList<>();
+        long hitBytes = retainedBytes(() -> hitPages.add(page(diaryDAO.searchByType(RARE_PLACE, 0, USER_ID, null))));
+        Log.i(TAG, "每页" + Constants.DIARY_PAGE_SIZE + "条结果，完整日记约 " + fullBytes / RETAINED_PAGES +
+                "B，摘要约 " + hitBytes / RETAINED_PAGES + "B");
+
+        assertTrue("摘要 " + hitBytes + "B 不少于完整日记 " + fullBytes + "B", hitBytes < fullBytes);
+    }
+
+    private static List<DiarySearchHit> page(List<DiarySearchHit> hits) {
+        return new ArrayList<>(hits.subList(0, Math.min(Constants.DIARY_PAGE_SIZE, hits.size())));
+    }
+
+    // 执行 RETAINED_PAGES 次加载（由 loadPage 自行持有结果）后GC，返回堆内存的增长量
+    private static long retainedBytes(Runnable loadPage) {
+        long before = usedMemoryAfterGc();
+        for (int i = 0; i < RETAINED_PAGES; i++) {
+            loadPage.run();
+        }
+        return usedMemoryAfterGc() - before;
+    }
+
+    private static long usedMemoryAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // 原来的 LIKE '%关键词%' 查询（对比基准）
+    private int legacyLikeSearch(String keyword) {
+        String pattern = "%" + keyword + "%";
+        Cursor cursor = database.getHelper().getReadableDatabase().rawQuery("SELECT d." + DatabaseHelper.COLUMN_DIARY_ID +
+                " FROM " + DatabaseHelper.TABLE_DIARY + " d WHERE (d." + DatabaseHelper.COLUMN_TITLE +
+                " LIKE ? OR d." + DatabaseHelper.COLUMN_CONTENT + " LIKE ?) AND d." +
+                DatabaseHelper.COLUMN_AUTHOR_ID + " = ?", new String[]{pattern, pattern, String.valueOf(USER_ID)});
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String randomContent(Random random, boolean mentionRarePlace) {
+        StringBuilder content = new StringBuilder();
+        if (mentionRarePlace) {
+            content.append("这次终于来到了 ").append(RARE_PLACE).append(" 。");
+        }
+        while (content.length() < CONTENT_LENGTH) {
+            content.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+            if (random.nextInt(5) == 0) {
+                content.append(' ').append(PLACES[random.nextInt(PLACES.length)]).append(' ');
+            }
+        }
+        return content.toString();
+    }
+
+    private long medianNanos(Runnable query) {
+        query.run(); // 预热
+        long[] samples = new long[TIMING_RUNS];
+        for (int i = 0; i < TIMING_RUNS; i++) {
+            long start = System.nanoTime();
+            query.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[TIMING_RUNS / 2];
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.traildiary.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.DiarySearchHit;
+import com.example.traildiary.model.DiarySummary;
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.PinyinUtil;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 全文索引的召回率：中英文混排的关键词，搜索结果应与原来 searchAll 的 LIKE '%关键词%' 查询一致
+ * （字母数字从词首开始匹配，关键词不从词中间开始）；
+ * 按作者、标题、类别搜索（searchByType）只返回在对应列命中的日记
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiarySearchRecallTest {
+
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int DIARY_COUNT = 300;
+    private static final int RANDOM_QUERY_COUNT = 500;
+    private static final String NICKNAME = "海边旅人Kyoto";
+
+    private static final String[] FRAGMENTS = {
+            "海边日出", "山间徒步", "古镇", "夜市小吃", "红叶", "雪山", "清迈", "京都", "拉萨", "布达拉宫",
+            "Kyoto", "Chiang Mai", "Lhasa", "Paris", "2023年", "5月", "day3", "Café",
+            "，", "。", "！", " ", "、", "（", "）"
+    };
+    private static final String[] QUERIES = {
+            "海边", "海边日出", "边日", "日出", "海", "出", "京都Kyoto", "京都 Kyoto", "Kyoto", "kyoto", "Kyo",
+            "Chiang Mai", "chiang", "清迈Chiang", "Lhasa布达拉宫", "2023年", "2023", "年5月", "day3", "Café",
+            "红叶，", "，雪山", "古镇夜市", "不存在的地方", "Tokyo"
+    };
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().nickname(NICKNAME);
+
+    private DiaryDAO diaryDAO;
+    private final List<String> texts = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        diaryDAO = new DiaryDAO(database.getContext());
+
+        SQLiteDatabase db = database.getWritableDatabase();
+
+        Random random = new Random(7);
+        for (int i = 0; i < DIARY_COUNT; i++) {
+            String title = randomText(random, 3);
+            String content = randomText(random, 20);
+            texts.add(title);
+            texts.add(content);
+            insertDiary(db, title, content, String.valueOf(1 + random.nextInt(6)));
+        }
+        // 直接写表绕过了DAO，手动补建索引
+        DiarySearchIndex.syncPending(db);
+    }
+
+    @Test
+    public void mixedQueriesMatchLikeSearch() {
+        for (String query : QUERIES) {
+            assertSameResults(query);
+        }
+    }
+
+    @Test
+    public void randomSubstringsMatchLikeSearch() {
+        Random random = new Random(11);
+        int checked = 0;
+        while (checked < RANDOM_QUERY_COUNT) {
+            String text = texts.get(random.nextInt(texts.size()));
+            int start = random.nextInt(text.length());
+            int end = start + 1 + random.nextInt(Math.min(8, text.length() - start));
+            // 字母数字只支持从词首开始匹配
+            if (start > 0 && isWordChar(text.codePointAt(start)) && isWordChar(text.codePointBefore(start))) {
+                continue;
+            }
+            String query = text.substring(start, end).trim();
+            if (SearchTokenizer.queryTokens(query).isEmpty()) {
+                continue;
+            }
+            assertSameResults(query);
+            checked++;
+        }
+    }
+
+    @Test
+    public void updatedAndDeletedDiariesAreReindexed() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        long diaryId = insertDiary(db, "鼓浪屿", "Xiamen 的海风", "1");
+        DiarySearchIndex.syncPending(db);
+        assertEquals(1, diaryDAO.searchAll("鼓浪", USER_ID).size());
+        assertEquals(1, diaryDAO.searchAll("xiamen", USER_ID).size());
+
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_TITLE, "武夷山");
+        db.update(DatabaseHelper.TABLE_DIARY, values, DatabaseHelper.COLUMN_DIARY_ID + " = ?",
+                new String[]{String.valueOf(diaryId)});
+        DiarySearchIndex.syncPending(db);
+        assertTrue(diaryDAO.searchAll("鼓浪", USER_ID).isEmpty());
+        assertEquals(1, diaryDAO.searchAll("武夷", USER_ID).size());
+
+        db.delete(DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_DIARY_ID + " = ?",
+                new String[]{String.valueOf(diaryId)});
+        assertTrue(diaryDAO.searchAll("武夷", USER_ID).isEmpty());
+    }
+
+    @Test
+    public void titleSearchOnlyMatchesTitles() {
+        int checked = 0;
+        for (String query : QUERIES) {
+            Set<Integer> expected = legacyIds(DatabaseHelper.COLUMN_TITLE + " LIKE ?", "%" + query + "%");
+            // 没有结果时改为容错搜索标题，不与 LIKE 比较
+            if (expected.isEmpty()) {
+                continue;
+            }
+            Set<Integer> actual = searchByType(query, Constants.SEARCH_BY_TITLE);
+            if (PinyinUtil.normalizeQuery(query) == null) {
+                assertEquals("关键词: " + query, expected, actual);
+            } else {
+                // 全是字母的关键词另按标题拼音检索，可能多出拼音命中的日记
+                assertTrue("关键词: " + query, actual.containsAll(expected));
+            }
+            checked++;
+        }
+        assertTrue(checked > QUERIES.length / 2);
+    }
+
+    @Test
+    public void authorSearchOnlyMatchesNickname() {
+        Set<Integer> all = legacyIds("1");
+        assertEquals(all, searchByType("旅人", Constants.SEARCH_BY_AUTHOR));
+        assertEquals(all, searchByType("海边旅人", Constants.SEARCH_BY_AUTHOR));
+        assertEquals(all, searchByType("kyoto", Constants.SEARCH_BY_AUTHOR));
+        // 只在标题、正文中出现的关键词不算作者命中
+        assertTrue(searchByType("日出", Constants.SEARCH_BY_AUTHOR).isEmpty());
+        assertTrue(searchByType("京都", Constants.SEARCH_BY_AUTHOR).isEmpty());
+        assertTrue(searchByType("Chiang Mai", Constants.SEARCH_BY_AUTHOR).isEmpty());
+    }
+
+    @Test
+    public void categorySearchMatchesCategoryCode() {
+        String[] names = {"国内游", "国际游", "亲子游", "美食之旅", "探险之旅", "文化之旅"};
+        for (int i = 0; i < names.length; i++) {
+            Set<Integer> expected = legacyIds(DatabaseHelper.COLUMN_CATEGORY + " = ?", String.valueOf(i + 1));
+            assertEquals("类别: " + names[i], expected, searchByType(names[i], Constants.SEARCH_BY_CATEGORY));
+        }
+        // 按拼音前缀匹配到三个"之旅"类别
+        assertEquals(legacyIds(DatabaseHelper.COLUMN_CATEGORY + " IN ('4', '5', '6')"),
+                searchByType("zhilv", Constants.SEARCH_BY_CATEGORY));
+    }
+
+    private Set<Integer> searchByType(String query, int searchType) {
+        Set<Integer> ids = new HashSet<>();
+        for (DiarySearchHit hit : diaryDAO.searchByType(query, searchType, USER_ID, null)) {
+            ids.add(hit.getDiaryId());
+        }
+        return ids;
+    }
+
+    private void assertSameResults(String query) {
+        Set<Integer> actual = new HashSet<>();
+        for (DiarySummary summary : diaryDAO.searchAll(query, USER_ID)) {
+            actual.add(summary.getDiaryId());
+        }
+        assertEquals("关键词: " + query, legacyLikeSearch(query), actual);
+    }
+
+    // 原来 searchAll 的 LIKE 查询（类别列保存的是类别代码，不参与比较）
+    private Set<Integer> legacyLikeSearch(String keyword) {
+        String pattern = "%" + keyword + "%";
+        return legacyIds("(" + DatabaseHelper.COLUMN_TITLE + " LIKE ? OR " + DatabaseHelper.COLUMN_CONTENT +
+                " LIKE ?)", pattern, pattern);
+    }
+
+    // 用户日记中满足条件的日记ID
+    private Set<Integer> legacyIds(String condition, String... conditionArgs) {
+        String[] args = new String[conditionArgs.length + 1];
+        System.arraycopy(conditionArgs, 0, args, 0, conditionArgs.length);
+        args[conditionArgs.length] = String.valueOf(USER_ID);
+        Set<Integer> ids = new HashSet<>();
+        Cursor cursor = database.getHelper().getReadableDatabase().rawQuery("SELECT " + DatabaseHelper.COLUMN_DIARY_ID +
+                " FROM " + DatabaseHelper.TABLE_DIARY + " WHERE " + condition + " AND " +
+                DatabaseHelper.COLUMN_AUTHOR_ID + " = ?", args);
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    private static long insertDiary(SQLiteDatabase db, String title, String content, String category) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_TITLE, title);
+        values.put(DatabaseHelper.COLUMN_CONTENT, content);
+        values.put(DatabaseHelper.COLUMN_CATEGORY, category);
+        values.put(DatabaseHelper.COLUMN_AUTHOR_ID, USER_ID);
+        values.put(DatabaseHelper.COLUMN_IS_DRAFT, 0);
+        values.put(DatabaseHelper.COLUMN_CREATE_TIME_DIARY, System.currentTimeMillis());
+        return db.insertOrThrow(DatabaseHelper.TABLE_DIARY, null, values);
+    }
+
+    private static String randomText(Random random, int fragmentCount) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < fragmentCount; i++) {
+            String fragment = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+            // 相邻的英文单词之间按书写习惯用空格隔开
+            if (text.length() > 0 && isWordChar(text.codePointBefore(text.length()))
+                    && isWordChar(fragment.codePointAt(0))) {
+                text.append(' ');
+            }
+            text.append(fragment);
+        }
+        return text.toString();
+    }
+
+    // 非中日韩的字母数字（同一个词内部）
+    private static boolean isWordChar(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return Character.isLetterOrDigit(codePoint) && script != Character.UnicodeScript.HAN;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.traildiary.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySummary;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 5000篇日记的用户加载日记列表：改动前 SELECT d.* 读出完整日记，改动后只读取 DiarySummary 需要的列
+ * 对比查询耗时（只记录日志）和列表占用的内存
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiarySummaryBenchmarkTest {
+
+    private static final String TAG = "DiarySummaryBench";
+    private static final int DIARY_COUNT = 5_000;
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int NOTEBOOK_ID = InMemoryDatabaseRule.NOTEBOOK_ID;
+    private static final int CONTENT_LENGTH = 600;
+    private static final int IMAGES_PER_DIARY = 6;
+    private static final int TIMING_RUNS = 7;
+    private static final int RETAINED_LISTS = 3; // 测量内存时同时持有的列表数，减小GC统计误差
+
+    private static final String[] SENTENCES = {
+            "清晨的海边格外宁静，潮水一遍遍拍打着礁石。",
+            "沿着山间小路徒步三个小时，终于看到了云海。",
+            "古镇的石板路被雨水打湿，屋檐下挂着红灯笼。",
+            "傍晚的江面上有渔船归来，天空被染成了橘红色。"
+    };
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().withNotebook();
+
+    private DiaryDAO diaryDAO;
+
+    @Before
+    public void setUp() {
+        diaryDAO = new DiaryDAO(database.getContext());
+
+        SQLiteDatabase db = database.getWritableDatabase();
+        Random random = new Random(8);
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                DatabaseHelper.COLUMN_CATEGORY + ", " + DatabaseHelper.COLUMN_AUTHOR_ID + ", " +
+                DatabaseHelper.COLUMN_NOTEBOOK_ID + ", " + DatabaseHelper.COLUMN_IS_DRAFT + ", " +
+                DatabaseHelper.COLUMN_IMAGES + ", " + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ", " +
+                DatabaseHelper.COLUMN_UPDATE_TIME + ") VALUES (?, ?, '1', " + USER_ID + ", " + NOTEBOOK_ID + ", 0, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < DIARY_COUNT; i++) {
+                insert.bindString(1, "旅行日记 第" + i + "篇");
+                insert.bindString(2, randomContent(random));
+                insert.bindString(3, imagesJson(i));
+                insert.bindLong(4, 1700000000000L + i * 1000L);
+                insert.bindLong(5, 1700000000000L + i * 1000L);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    @Test
+    public void summaryListIsSmallerThanFullDiaries() {
+        assertEquals(DIARY_COUNT, legacyDiariesByUser().size());
+        List<DiarySummary> summaries = diaryDAO.getDiariesByUserId(USER_ID, false);
+        assertEquals(DIARY_COUNT, summaries.size());
+        assertEquals("/images/" + (DIARY_COUNT - 1) + "_0.jpg", summaries.get(0).getCoverImagePath());
+
+        long fullNanos = medianNanos(this::legacyDiariesByUser);
+        long summaryNanos = medianNanos(() -> diaryDAO.getDiariesByUserId(USER_ID, false));
+
+        List<Object> fullLists = new ArrayList<>();
+        long fullBytes = retainedBytes(() -> fullLists.add(legacyDiariesByUser()));
+        fullLists.clear();
+        List<Object> summaryLists = new ArrayList<>();
+        long summaryBytes = retainedBytes(() -> summaryLists.add(diaryDAO.getDiariesByUserId(USER_ID, false)));
+
+        Log.i(TAG, String.format("%d篇日记的列表：完整日记 %dms、约%dKB；摘要 %dms、约%dKB",
+                DIARY_COUNT, fullNanos / 1_000_000, fullBytes / RETAINED_LISTS / 1024,
+                summaryNanos / 1_000_000, summaryBytes / RETAINED_LISTS / 1024));
+        assertTrue("摘要 " + summaryBytes + "B 不少于完整日记 " + fullBytes + "B", summaryBytes < fullBytes);
+    }
+
+    // 改动前的 getDiariesByUserId：SELECT d.* 读出正文和完整插图JSON
+    private List<Diary> legacyDiariesByUser() {
+        String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
+                "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
+                "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
+                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
+                DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
+                " WHERE d." + DatabaseHelper.COLUMN_AUTHOR_ID + " = ? AND d." + DatabaseHelper.COLUMN_IS_DRAFT + " = 0" +
+                " ORDER BY d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
+        return RowMapper.readList(database.getHelper().getReadableDatabase().rawQuery(query,
+                new String[]{String.valueOf(USER_ID)}), DiaryRowMapper::new);
+    }
+
+    private static String imagesJson(int diary) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < IMAGES_PER_DIARY; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"/images/").append(diary).append('_').append(i).append(".jpg\"");
+        }
+        return json.append(']').toString();
+    }
+
+    private static String randomContent(Random random) {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < CONTENT_LENGTH) {
+            content.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+        }
+        return content.toString();
+    }
+
+    // 执行 RETAINED_LISTS 次加载（由 loadList 自行持有结果）后GC，返回堆内存的增长量
+    private static long retainedBytes(Runnable loadList) {
+        long before = usedMemoryAfterGc();
+        for (int i = 0; i < RETAINED_LISTS; i++) {
+            loadList.run();
+        }
+        return usedMemoryAfterGc() - before;
+    }
+
+    private static long usedMemoryAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private long medianNanos(Runnable load) {
+        load.run(); // 预热
+        long[] samples = new long[TIMING_RUNS];
+        for (int i = 0; i < TIMING_RUNS; i++) {
+            long start = System.nanoTime();
+            load.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[TIMING_RUNS / 2];
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.format.DateTimeFormatter;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 5万行时间列的读取转换耗时：改动前的 "yyyy-MM-dd HH:mm:ss" 文本逐行解析为 LocalDateTime，
+ * 改动后直接读取epoch毫秒（耗时只记录日志，不作断言）
+ */
+@RunWith(AndroidJUnit4.class)
+public class EpochMillisBenchmarkTest {
+
+    private static final String TAG = "EpochMillisBench";
+    private static final int DIARY_COUNT = 50_000;
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int TIMING_RUNS = 5;
+    private static final String LEGACY_TABLE = "legacy_diary_time";
+
+    // 改动前DAO使用的时间格式
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule();
+
+    @Before
+    public void setUp() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                DatabaseHelper.COLUMN_AUTHOR_ID + ", " + DatabaseHelper.COLUMN_IS_DRAFT + ", " +
+                DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ", " + DatabaseHelper.COLUMN_UPDATE_TIME + ") " +
+                "WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + DIARY_COUNT + ") " +
+                "SELECT '日记' || n, '正文', " + USER_ID + ", 0, " +
+                "1700000000000 + n * 60000, 1700000000000 + n * 60000 + 3600000 FROM seq");
+
+        // 同样的时间按改动前的文本格式另存一份
+        db.execSQL("CREATE TEMP TABLE " + LEGACY_TABLE + " AS SELECT " +
+                "strftime('%Y-%m-%d %H:%M:%S', " + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " / 1000, 'unixepoch', 'localtime') AS " +
+                DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ", " +
+                "strftime('%Y-%m-%d %H:%M:%S', " + DatabaseHelper.COLUMN_UPDATE_TIME + " / 1000, 'unixepoch', 'localtime') AS " +
+                DatabaseHelper.COLUMN_UPDATE_TIME + " FROM " + DatabaseHelper.TABLE_DIARY);
+    }
+
+    @Test
+    public void timeColumnReadCost() {
+        assertEquals(DIARY_COUNT, readLegacyTimes());
+        assertEquals(DIARY_COUNT, readEpochMillis());
+
+        long legacyNanos = medianNanos(this::readLegacyTimes);
+        long epochNanos = medianNanos(this::readEpochMillis);
+        Log.i(TAG, String.format("%d行创建/更新时间：文本解析 %dms，epoch毫秒 %dms",
+                DIARY_COUNT, legacyNanos / 1_000_000, epochNanos / 1_000_000));
+    }
+
+    // 改动前：每行用 DateTimeFormatter 解析两个时间文本
+    private int readLegacyTimes() {
+        Cursor cursor = database.getHelper().getReadableDatabase().rawQuery("SELECT " +
+                DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ", " + DatabaseHelper.COLUMN_UPDATE_TIME +
+                " FROM " + LEGACY_TABLE, null);
+        int rows = 0;
+        try {
+            while (cursor.moveToNext()) {
+                LocalDateTime createTime = LocalDateTime.parse(cursor.getString(0), FORMATTER);
+                LocalDateTime updateTime = LocalDateTime.parse(cursor.getString(1), FORMATTER);
+                if (!updateTime.isBefore(createTime)) {
+                    rows++;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
+    // 改动后：直接读取整数，需要显示时才转换
+    private int readEpochMillis() {
+        Cursor cursor = database.getHelper().getReadableDatabase().rawQuery("SELECT " +
+                DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ", " + DatabaseHelper.COLUMN_UPDATE_TIME +
+                " FROM " + DatabaseHelper.TABLE_DIARY, null);
+        int rows = 0;
+        try {
+            while (cursor.moveToNext()) {
+                long createTime = cursor.getLong(0);
+                long updateTime = cursor.getLong(1);
+                if (updateTime >= createTime) {
+                    rows++;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
+    private static long medianNanos(Runnable read) {
+        read.run(); // 预热
+        long[] samples = new long[TIMING_RUNS];
+        for (int i = 0; i < TIMING_RUNS; i++) {
+            long start = System.nanoTime();
+            read.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[TIMING_RUNS / 2];
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.traildiary.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySearchHit;
+import com.example.traildiary.model.User;
+import com.example.traildiary.utils.Constants;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 容错搜索：精确搜索没有结果时，错一两个字的标题/昵称也能搜到，增删改日记后索引随之更新；
+ * 并测量5万个标题中容错查询的耗时（只记录日志，不作断言）
+ */
+@RunWith(AndroidJUnit4.class)
+public class FuzzySearchBenchmarkTest {
+
+    private static final String TAG = "FuzzySearchBenchmark";
+    private static final int TITLE_COUNT = 50_000;
+    private static final int QUERY_COUNT = 200;
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int NOTEBOOK_ID = InMemoryDatabaseRule.NOTEBOOK_ID;
+
+    // 随机标题用字
+    private static final String CHARS = "山水海湖江河溪岛湾港城镇村乡街巷桥塔寺庙宫殿园林花草树竹松梅" +
+            "春夏秋冬日月星云雨雪风霜晨暮夜游记行旅途路走看听尝吃住品茶酒饭面米鱼虾蟹鸡鸭" +
+            "古新老旧大小高低远近东西南北中上下前后左右红黄蓝绿白黑金银青紫一二三四五六七八九十";
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().nickname("旅行的小王").withNotebook();
+
+    private DiaryDAO diaryDAO;
+    private UserDAO userDAO;
+    private final List<String> titles = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        diaryDAO = new DiaryDAO(database.getContext());
+        userDAO = new UserDAO(database.getContext());
+
+        SQLiteDatabase db = database.getWritableDatabase();
+
+        Random random = new Random(20);
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                DatabaseHelper.COLUMN_AUTHOR_ID + ", " + DatabaseHelper.COLUMN_IS_DRAFT + ", " +
+                DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ") VALUES (?, '正文', " + USER_ID + ", 0, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < TITLE_COUNT; i++) {
+                String title = i == 0 ? "古镇游记" : randomTitle(random);
+                titles.add(title);
+                insert.bindString(1, title);
+                insert.bindLong(2, 1700000000000L + i * 1000L);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        DiarySearchIndex.syncPending(db);
+    }
+
+    @Test
+    public void typoFindsSimilarTitlesAndNicknames() {
+        List<DiarySearchHit> hits = diaryDAO.searchByType("古振游记", Constants.SEARCH_BY_TITLE, USER_ID, null);
+        assertFalse(hits.isEmpty());
+        assertEquals("古镇游记", hits.get(0).getTitle());
+        assertFalse(diaryDAO.searchByType("古振游记", 0, USER_ID, null).isEmpty());
+        // 太短的关键词不做容错
+        assertTrue(diaryDAO.searchByType("古振", Constants.SEARCH_BY_TITLE, USER_ID, null).isEmpty());
+
+        // 索引建好后随写入更新
+        Diary diary = new Diary(USER_ID, "洱海骑行, 大理三日", "正文", "1", NOTEBOOK_ID, false);
+        int diaryId = (int) diaryDAO.addDiary(diary);
+        diary.setDiaryId(diaryId);
+        assertEquals(diaryId, firstHitId("洱海骑形"));
+        diary.setTitle("苍山徒步");
+        diaryDAO.updateDiary(diary);
+        assertEquals(-1, firstHitId("洱海骑形"));
+        assertEquals(diaryId, firstHitId("仓山徒步"));
+        diaryDAO.deleteDiary(diaryId);
+        assertEquals(-1, firstHitId("仓山徒步"));
+
+        List<User> users = userDAO.searchUsers("旅行的小黄");
+        assertEquals(1, users.size());
+        assertEquals("旅行的小王", users.get(0).getNickname());
+        User user = users.get(0);
+        user.setNickname("徒步的老李");
+        userDAO.updateUser(user);
+        assertEquals(1, userDAO.searchUsers("徒步的老张").size());
+        assertTrue(userDAO.searchUsers("旅行的小黄").isEmpty());
+    }
+
+    @Test
+    public void fuzzyLookupLatency() {
+        FuzzySearchIndex index = database.getProvider().getFuzzySearchIndex();
+        long start = System.nanoTime();
+        index.searchTitles(USER_ID, "古振游记");
+        Log.i(TAG, TITLE_COUNT + "个标题载入容错索引 " + (System.nanoTime() - start) / 1_000_000 + "ms");
+
+        // 每个查询是随机一个标题替换其中一个字
+        Random random = new Random(21);
+        long[] nanos = new long[QUERY_COUNT];
+        int found = 0;
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            char[] chars = titles.get(random.nextInt(titles.size())).toCharArray();
+            chars[random.nextInt(chars.length)] = '振';
+            String query = new String(chars);
+            long queryStart = System.nanoTime();
+            if (!index.searchTitles(USER_ID, query).isEmpty()) {
+                found++;
+            }
+            nanos[i] = System.nanoTime() - queryStart;
+        }
+        Arrays.sort(nanos);
+        double medianMillis = nanos[QUERY_COUNT / 2] / 1e6;
+        Log.i(TAG, QUERY_COUNT + "次容错查询 中位数 " + medianMillis + "ms，P95 " +
+                nanos[QUERY_COUNT * 95 / 100] / 1e6 + "ms");
+        assertEquals(QUERY_COUNT, found);
+    }
+
+    // 没有结果时返回-1
+    private int firstHitId(String keyword) {
+        List<DiarySearchHit> hits = diaryDAO.searchByType(keyword, Constants.SEARCH_BY_TITLE, USER_ID, null);
+        return hits.isEmpty() ? -1 : hits.get(0).getDiaryId();
+    }
+
+    private static String randomTitle(Random random) {
+        int length = 4 + random.nextInt(7);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return sb.toString();
+    }
+}
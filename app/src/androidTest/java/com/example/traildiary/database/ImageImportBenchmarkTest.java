@@ -0,0 +1,153 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.utils.ImageUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 图片导入吞吐量：50张照片分别用原来的1KB缓冲区逐张复制、FileChannel直接传输逐张复制、
+ * 图片库并行导入（线程数等于CPU核数，含哈希去重），比较耗时和MB/s
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageImportBenchmarkTest {
+
+    private static final String TAG = "ImageImportBenchmark";
+    private static final int PHOTO_COUNT = 50;
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().withoutUser();
+
+    private Context context;
+    private File galleryDir;
+    private File copyDir;
+    private File storeDir;
+    private final List<Uri> photos = new ArrayList<>();
+    private long totalBytes;
+
+    @Before
+    public void setUp() throws IOException {
+        context = database.getContext();
+
+        galleryDir = new File(context.getCacheDir(), "import_bench_gallery");
+        copyDir = new File(context.getCacheDir(), "import_bench_copy");
+        storeDir = new File(context.getCacheDir(), "import_bench_store");
+        galleryDir.mkdirs();
+        copyDir.mkdirs();
+
+        // 一张约照片大小的噪声JPEG，末尾追加序号得到50张内容不同的照片（解码器忽略结束标记后的数据）
+        Random random = new Random(25);
+        int width = 2000;
+        int height = 1500;
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        Bitmap bitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 90, jpeg);
+        bitmap.recycle();
+        byte[] base = jpeg.toByteArray();
+        for (int i = 0; i < PHOTO_COUNT; i++) {
+            File photo = new File(galleryDir, "photo_" + i + ".jpg");
+            try (FileOutputStream out = new FileOutputStream(photo)) {
+                out.write(base);
+                out.write(new byte[]{(byte) (i >> 24), (byte) (i >> 16), (byte) (i >> 8), (byte) i});
+            }
+            photos.add(Uri.fromFile(photo));
+            totalBytes += photo.length();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        deleteDir(galleryDir);
+        deleteDir(copyDir);
+        deleteDir(storeDir);
+    }
+
+    @Test
+    public void importThroughput() throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < PHOTO_COUNT; i++) {
+            legacyCopy(photos.get(i), new File(copyDir, "legacy_" + i + ".jpg"));
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < PHOTO_COUNT; i++) {
+            File target = new File(copyDir, "channel_" + i + ".jpg");
+            assertTrue(ImageUtil.copyUriToFile(context, photos.get(i), target));
+            assertEquals(new File(photos.get(i).getPath()).length(), target.length());
+        }
+        long channelNanos = System.nanoTime() - start;
+
+        ImageStore imageStore = new ImageStore(context, storeDir);
+        start = System.nanoTime();
+        List<String> paths = imageStore.importImages(photos);
+        long parallelNanos = System.nanoTime() - start;
+
+        Log.i(TAG, String.format("%d张照片共%.1fMB（%d核）：1KB缓冲区逐张复制 %s；FileChannel逐张复制 %s；图片库并行导入（含哈希） %s",
+                PHOTO_COUNT, totalBytes / 1048576.0, Runtime.getRuntime().availableProcessors(),
+                describe(legacyNanos), describe(channelNanos), describe(parallelNanos)));
+
+        assertEquals(PHOTO_COUNT, paths.size());
+        for (String path : paths) {
+            assertNotNull(path);
+        }
+        assertEquals(PHOTO_COUNT, imageStore.getStats().getImportCount());
+        assertEquals(0, imageStore.getStats().getDuplicateCount());
+        assertEquals(totalBytes, imageStore.getStats().getStoredBytes());
+        assertEquals(PHOTO_COUNT, storeDir.listFiles().length);
+    }
+
+    // 原来的做法：1KB缓冲区循环复制
+    private void legacyCopy(Uri uri, File target) throws IOException {
+        try (InputStream in = context.getContentResolver().openInputStream(uri);
+             OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                out.write(buffer, 0, length);
+            }
+        }
+    }
+
+    private String describe(long nanos) {
+        return String.format("%dms %.1fMB/s", nanos / 1_000_000, totalBytes / 1048576.0 / (nanos / 1e9));
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
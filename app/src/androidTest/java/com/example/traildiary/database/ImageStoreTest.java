@@ -0,0 +1,204 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.Diary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按内容存储的插图库：相同图片只保存一份，日记的增删改维护引用计数，无引用的图片被清理
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageStoreTest {
+
+    private static final String TAG = "ImageStoreTest";
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int NOTEBOOK_ID = InMemoryDatabaseRule.NOTEBOOK_ID;
+    // 相册中的照片数、日记数和每篇日记的插图数：同一张照片常被多篇日记使用或重复选择
+    private static final int PHOTO_COUNT = 40;
+    private static final int DIARY_COUNT = 30;
+    private static final int IMAGES_PER_DIARY = 4;
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().withNotebook();
+
+    private DiaryDAO diaryDAO;
+    private ImageStore imageStore;
+    private File galleryDir;
+    private File storeDir;
+
+    @Before
+    public void setUp() {
+        Context context = database.getContext();
+        diaryDAO = new DiaryDAO(context);
+
+        galleryDir = new File(context.getCacheDir(), "image_store_gallery");
+        storeDir = new File(context.getCacheDir(), "image_store_test");
+        galleryDir.mkdirs();
+        imageStore = new ImageStore(context, storeDir);
+    }
+
+    @After
+    public void tearDown() {
+        deleteDir(galleryDir);
+        deleteDir(storeDir);
+    }
+
+    @Test
+    public void duplicateImportsShareOneFile() throws IOException {
+        Random random = new Random(42);
+        List<File> photos = new ArrayList<>();
+        for (int i = 0; i < PHOTO_COUNT; i++) {
+            photos.add(writeNoiseJpeg("photo_" + i + ".jpg", 600 + random.nextInt(400), 450 + random.nextInt(300), random));
+        }
+
+        Set<File> distinct = new HashSet<>();
+        long pickedBytes = 0;
+        Map<String, Integer> diariesPerImage = new HashMap<>();
+        List<Integer> diaryIds = new ArrayList<>();
+        for (int d = 0; d < DIARY_COUNT; d++) {
+            List<String> images = new ArrayList<>();
+            for (int i = 0; i < IMAGES_PER_DIARY; i++) {
+                // 偏向前面的照片：热门照片被多篇日记反复使用
+                File photo = photos.get((int) (PHOTO_COUNT * Math.pow(random.nextDouble(), 2)));
+                distinct.add(photo);
+                pickedBytes += photo.length();
+                String path = imageStore.importImage(Uri.fromFile(photo));
+                assertNotNull(path);
+                if (!images.contains(path)) {
+                    images.add(path);
+                    Integer count = diariesPerImage.get(path);
+                    diariesPerImage.put(path, count == null ? 1 : count + 1);
+                }
+            }
+            Diary diary = new Diary(USER_ID, "日记" + d, "正文", "1", NOTEBOOK_ID, false);
+            diary.setImages(images);
+            diaryIds.add((int) diaryDAO.addDiary(diary));
+        }
+
+        long distinctBytes = 0;
+        for (File photo : distinct) {
+            distinctBytes += photo.length();
+        }
+        ImageStore.Stats stats = imageStore.getStats();
+        Log.i(TAG, String.format("导入%d次（重复%d次），原图共%d字节，图片库%d字节，节省%d字节（%.1f%%）",
+                stats.getImportCount(), stats.getDuplicateCount(), pickedBytes, stats.getStoredBytes(),
+                stats.getSavedBytes(), 100.0 * stats.getSavedBytes() / pickedBytes));
+
+        assertEquals(DIARY_COUNT * IMAGES_PER_DIARY, stats.getImportCount());
+        assertEquals(DIARY_COUNT * IMAGES_PER_DIARY - distinct.size(), stats.getDuplicateCount());
+        assertEquals(distinctBytes, stats.getImportedBytes());
+        assertEquals(distinctBytes, stats.getStoredBytes());
+        assertEquals(pickedBytes - distinctBytes, stats.getSavedBytes());
+        assertEquals(distinct.size(), storeDir.listFiles().length);
+        for (Map.Entry<String, Integer> image : diariesPerImage.entrySet()) {
+            assertEquals((long) image.getValue(), refCount(image.getKey()));
+        }
+
+        // 删除全部日记后引用归零，清理后图片库为空
+        for (int diaryId : diaryIds) {
+            diaryDAO.deleteDiary(diaryId);
+        }
+        for (String path : diariesPerImage.keySet()) {
+            assertEquals(0, refCount(path));
+        }
+        assertEquals(distinct.size(), imageStore.collectGarbage(Long.MAX_VALUE));
+        assertEquals(0, storeDir.listFiles().length);
+    }
+
+    @Test
+    public void updateAndDeleteMaintainRefCounts() throws IOException {
+        Random random = new Random(7);
+        String a = imageStore.importImage(Uri.fromFile(writeNoiseJpeg("a.jpg", 320, 240, random)));
+        String b = imageStore.importImage(Uri.fromFile(writeNoiseJpeg("b.jpg", 320, 240, random)));
+        // 内容相同、文件名不同的图片指向同一文件
+        File copy = writeNoiseJpeg("a_copy.jpg", 320, 240, new Random(7));
+        assertEquals(a, imageStore.importImage(Uri.fromFile(copy)));
+
+        Diary first = new Diary(USER_ID, "第一篇", "正文", "1", NOTEBOOK_ID, false);
+        first.setCoverImagePath(a);
+        first.setImages(Arrays.asList(a, b));
+        int firstId = (int) diaryDAO.addDiary(first);
+        Diary second = new Diary(USER_ID, "第二篇", "正文", "1", NOTEBOOK_ID, false);
+        second.setImages(Arrays.asList(a));
+        int secondId = (int) diaryDAO.addDiary(second);
+        assertEquals(2, refCount(a));
+        assertEquals(1, refCount(b));
+
+        // 修改后不再使用的图片引用减少，保留期内不清理
+        first = diaryDAO.getDiaryById(firstId);
+        first.setCoverImagePath(null);
+        first.setImages(Arrays.asList(a));
+        diaryDAO.updateDiary(first);
+        assertEquals(2, refCount(a));
+        assertEquals(0, refCount(b));
+        assertEquals(0, imageStore.collectGarbage(0));
+        assertTrue(new File(b).isFile());
+
+        diaryDAO.deleteDiary(secondId);
+        assertEquals(1, refCount(a));
+        assertEquals(1, imageStore.collectGarbage(Long.MAX_VALUE));
+        assertFalse(new File(b).exists());
+        assertTrue(new File(a).isFile());
+    }
+
+    private long refCount(String path) {
+        return DatabaseUtils.longForQuery(database.getHelper().getReadableDatabase(),
+                "SELECT " + DatabaseHelper.COLUMN_REF_COUNT + " FROM " + DatabaseHelper.TABLE_STORED_IMAGE +
+                        " WHERE " + DatabaseHelper.COLUMN_IMAGE_PATH + " = ?", new String[]{path});
+    }
+
+    // 随机像素的JPEG，压缩后的大小接近真实照片
+    private File writeNoiseJpeg(String name, int width, int height, Random random) throws IOException {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        Bitmap bitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+        File file = new File(galleryDir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        } finally {
+            bitmap.recycle();
+        }
+        return file;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.rules.ExternalResource;
+
+/**
+ * 测试用内存数据库
+ * 每个测试前新建内存数据库并注入 DatabaseProvider，按需写入作者和日记本（外键约束要求它们存在），
+ * 测试后撤销注入并关闭连接。规则在 @Before 之前生效，测试自己的数据仍在 @Before 中写入。
+ */
+public class InMemoryDatabaseRule extends ExternalResource {
+
+    public static final int USER_ID = 1;
+    public static final int NOTEBOOK_ID = 1;
+
+    private boolean seedUser = true;
+    private String nickname = "u";
+    private boolean seedNotebook;
+    private SQLiteDatabase.CursorFactory cursorFactory;
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+    private DatabaseProvider provider;
+
+    // 默认作者的昵称
+    public InMemoryDatabaseRule nickname(String nickname) {
+        this.nickname = nickname;
+        return this;
+    }
+
+    // 不写入默认作者（测试自己写入带其他列的用户）
+    public InMemoryDatabaseRule withoutUser() {
+        this.seedUser = false;
+        return this;
+    }
+
+    // 同时写入默认作者的日记本
+    public InMemoryDatabaseRule withNotebook() {
+        this.seedNotebook = true;
+        return this;
+    }
+
+    // 查询经过的CursorFactory（如记录SQL）
+    public InMemoryDatabaseRule cursorFactory(SQLiteDatabase.CursorFactory cursorFactory) {
+        this.cursorFactory = cursorFactory;
+        return this;
+    }
+
+    @Override
+    protected void before() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbHelper = new DatabaseHelper(context, null, cursorFactory);
+        provider = new DatabaseProvider(dbHelper);
+        DatabaseProvider.setInstanceForTesting(provider);
+
+        if (seedUser) {
+            addUser(USER_ID, nickname);
+            if (seedNotebook) {
+                dbHelper.getWritableDatabase().execSQL("INSERT INTO notebook(notebook_id, notebook_name, user_id) VALUES(" +
+                        NOTEBOOK_ID + ", 'n', " + USER_ID + ")");
+            }
+        }
+    }
+
+    @Override
+    protected void after() {
+        DatabaseProvider.setInstanceForTesting(null);
+        dbHelper.close();
+    }
+
+    // 写入一个作者（账号按ID生成，保证唯一）
+    public void addUser(int userId, String nickname) {
+        dbHelper.getWritableDatabase().execSQL(
+                "INSERT INTO user(user_id, nickname, trail_number, password) VALUES(?, ?, ?, 'p')",
+                new Object[]{userId, nickname, "t" + userId});
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public DatabaseHelper getHelper() {
+        return dbHelper;
+    }
+
+    public DatabaseProvider getProvider() {
+        return provider;
+    }
+
+    public SQLiteDatabase getWritableDatabase() {
+        return dbHelper.getWritableDatabase();
+    }
+}
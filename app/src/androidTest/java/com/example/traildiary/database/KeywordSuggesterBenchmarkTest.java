@@ -0,0 +1,121 @@
+package com.example.traildiary.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.SearchHistory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 1万条搜索历史下的自动补全（结果正确性；耗时只记录日志），以及增删搜索记录后建议的增量更新
+ */
+@RunWith(AndroidJUnit4.class)
+public class KeywordSuggesterBenchmarkTest {
+
+    private static final String TAG = "KeywordSuggesterBench";
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int HISTORY_COUNT = 10_000;
+    private static final int PREFIX_COUNT = 2_000;
+
+    private static final String[] PLACES = {"海边", "山间", "古镇", "雪山", "草原", "沙漠", "湖畔", "峡谷", "京都", "清迈"};
+    private static final String[] THINGS = {"日出", "日落", "徒步", "美食", "露营", "骑行", "星空", "民宿", "Kyoto", "Lhasa"};
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule();
+
+    private KeywordSuggester suggester;
+    private final List<String> keywords = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        SQLiteDatabase db = database.getWritableDatabase();
+
+        Random random = new Random(5);
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_SEARCH_HISTORY + "(" +
+                DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_KEYWORD + ", " +
+                DatabaseHelper.COLUMN_SEARCH_TYPE + ", " + DatabaseHelper.COLUMN_CREATE_TIME + ") VALUES (?, ?, 0, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < HISTORY_COUNT; i++) {
+                String keyword = PLACES[random.nextInt(PLACES.length)] + THINGS[random.nextInt(THINGS.length)] +
+                        (random.nextInt(3) == 0 ? "" : String.valueOf(random.nextInt(500)));
+                keywords.add(keyword);
+                insert.bindLong(1, USER_ID);
+                insert.bindString(2, keyword);
+                insert.bindLong(3, 1700000000000L + i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+
+        suggester = new KeywordSuggester(database.getContext(), USER_ID);
+        suggester.load();
+    }
+
+    @After
+    public void tearDown() {
+        suggester.shutdown();
+    }
+
+    @Test
+    public void suggestionsMatchPrefix() {
+        Random random = new Random(9);
+        long[] samples = new long[PREFIX_COUNT];
+        for (int i = 0; i < PREFIX_COUNT; i++) {
+            String keyword = keywords.get(random.nextInt(keywords.size()));
+            String prefix = keyword.substring(0, 1 + random.nextInt(keyword.length()));
+
+            long start = System.nanoTime();
+            List<String> suggestions = suggester.suggest(prefix);
+            samples[i] = System.nanoTime() - start;
+
+            assertFalse("没有建议: " + prefix, suggestions.isEmpty());
+            for (String suggestion : suggestions) {
+                assertTrue(suggestion + " 不以 " + prefix + " 开头",
+                        suggestion.toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT)));
+            }
+        }
+        Arrays.sort(samples);
+        long median = samples[PREFIX_COUNT / 2];
+        long p99 = samples[PREFIX_COUNT * 99 / 100];
+        Log.i(TAG, HISTORY_COUNT + "条搜索历史，建议耗时 中位数 " + median / 1000 + "us，p99 " + p99 / 1000 + "us");
+    }
+
+    @Test
+    public void addAndDeleteUpdateSuggestions() {
+        SearchHistory history = new SearchHistory(USER_ID, "鼓浪屿");
+        long id = suggester.addSearchHistory(history);
+        assertTrue(id > 0);
+        assertEquals("鼓浪屿", suggester.suggest("鼓").get(0));
+
+        // 搜索次数多的排在前面
+        suggester.addSearchHistory(new SearchHistory(USER_ID, "鼓楼"));
+        suggester.addSearchHistory(new SearchHistory(USER_ID, "鼓楼"));
+        assertEquals(Arrays.asList("鼓楼", "鼓浪屿"), suggester.suggest("鼓"));
+
+        history.setSearchId((int) id);
+        assertEquals(1, suggester.deleteSearchHistory(history));
+        assertEquals(Arrays.asList("鼓楼"), suggester.suggest("鼓"));
+    }
+}
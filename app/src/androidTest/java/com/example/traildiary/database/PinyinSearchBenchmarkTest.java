@@ -0,0 +1,116 @@
+package com.example.traildiary.database;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.database.migration.MigrationRunner;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 拼音检索：全拼、首字母、从中间字开始的拼音都能搜到中文标题/昵称/类别；
+ * 并测量2万篇日记回填拼音索引的速度（篇/秒）
+ */
+@RunWith(AndroidJUnit4.class)
+public class PinyinSearchBenchmarkTest {
+
+    private static final String TAG = "PinyinSearchBenchmark";
+    private static final int DIARY_COUNT = 20_000;
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+
+    private static final String[] TITLES = {"海边日出", "西湖游记", "丽江古城", "鼓浪屿漫步", "黄山云海", "Kyoto 红叶"};
+
+    // 作者带拼音列，由测试自己写入
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().withoutUser();
+
+    private DiaryDAO diaryDAO;
+    private UserDAO userDAO;
+    private final int[] titleCounts = new int[TITLES.length];
+
+    @Before
+    public void setUp() {
+        diaryDAO = new DiaryDAO(database.getContext());
+        userDAO = new UserDAO(database.getContext());
+
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.execSQL("INSERT INTO user(user_id, nickname, trail_number, password, nickname_pinyin, nickname_initials)" +
+                " VALUES(" + USER_ID + ", '张三', 't1', 'p', 'zhangsan', 'zs')");
+        db.execSQL("INSERT INTO user(user_id, nickname, trail_number, password, nickname_pinyin, nickname_initials)" +
+                " VALUES(2, '李四', 't2', 'p', 'lisi', 'ls')");
+
+        Random random = new Random(19);
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                DatabaseHelper.COLUMN_CATEGORY + ", " + DatabaseHelper.COLUMN_AUTHOR_ID + ", " +
+                DatabaseHelper.COLUMN_IS_DRAFT + ", " + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ") " +
+                "VALUES (?, '沿着山间小路徒步三个小时，终于看到了云海。', '1', " + USER_ID + ", 0, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < DIARY_COUNT; i++) {
+                int title = random.nextInt(TITLES.length);
+                titleCounts[title]++;
+                insert.bindString(1, TITLES[title] + " 第" + i + "篇");
+                insert.bindLong(2, 1700000000000L + i * 1000L);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        DiarySearchIndex.syncPending(db);
+    }
+
+    @Test
+    public void pinyinFindsChineseTitlesAuthorsAndCategories() {
+        int huangshan = titleCounts[4];
+        assertEquals(huangshan, diaryDAO.searchByTitle("huangshan", USER_ID).size());
+        assertEquals(huangshan, diaryDAO.searchByTitle("HuangShan", USER_ID).size());
+        assertEquals(huangshan, diaryDAO.searchByTitle("hsyh", USER_ID).size());
+        // 从中间的字开始、在音节中间结束
+        assertEquals(huangshan, diaryDAO.searchByTitle("yunha", USER_ID).size());
+        assertEquals(titleCounts[0], diaryDAO.searchByTitle("hai bian", USER_ID).size());
+        // 综合搜索：标题拼音与正文原文的结果合并
+        assertEquals(titleCounts[1], diaryDAO.searchDiariesByUser("xihu", USER_ID).size());
+        // 英文仍按原文检索
+        assertEquals(titleCounts[5], diaryDAO.searchByTitle("kyoto", USER_ID).size());
+
+        assertEquals(DIARY_COUNT, diaryDAO.searchByAuthor("zhangsan", USER_ID).size());
+        assertEquals(DIARY_COUNT, diaryDAO.searchByCategory("gny", USER_ID).size());
+        assertEquals(0, diaryDAO.searchByCategory("gjy", USER_ID).size());
+
+        assertEquals(1, userDAO.searchUsers("zs").size());
+        assertEquals("李四", userDAO.searchUsers("lisi").get(0).getNickname());
+    }
+
+    @Test
+    public void pinyinBackfillThroughput() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.execSQL("DELETE FROM " + DiarySearchIndex.TABLE_DIARY_PINYIN);
+        db.execSQL("INSERT INTO " + MigrationRunner.TABLE_MIGRATION_STATE + "(" + MigrationRunner.COLUMN_NAME +
+                ") VALUES('search_index_pinyin')");
+
+        long start = System.nanoTime();
+        MigrationRunner.runPendingBackfills(db);
+        long nanos = System.nanoTime() - start;
+
+        assertEquals(DIARY_COUNT, DatabaseUtils.queryNumEntries(db, DiarySearchIndex.TABLE_DIARY_PINYIN));
+        double perSecond = DIARY_COUNT * 1e9 / nanos;
+        Log.i(TAG, DIARY_COUNT + "篇日记回填拼音索引 " + nanos / 1_000_000 + "ms，" + (long) perSecond + "篇/秒");
+        assertTrue(perSecond > 0);
+        assertEquals(titleCounts[4], diaryDAO.searchByTitle("huangshan", USER_ID).size());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.Diary;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 1万行日记的 Cursor -> Diary 转换耗时：改动前每行查列位置、每行新建TypeToken，
+ * 改动后 DiaryRowMapper 每个Cursor只解析一次列位置。两者的映射结果必须一致，耗时只记录日志
+ */
+@RunWith(AndroidJUnit4.class)
+public class RowMapperBenchmarkTest {
+
+    private static final String TAG = "RowMapperBench";
+    private static final int DIARY_COUNT = 10_000;
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int NOTEBOOK_ID = InMemoryDatabaseRule.NOTEBOOK_ID;
+    private static final int TIMING_RUNS = 7;
+
+    private static final String QUERY = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
+            "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
+            "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
+            "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
+            DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID;
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().withNotebook();
+
+    private final Gson gson = new Gson();
+
+    @Before
+    public void setUp() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                DatabaseHelper.COLUMN_CATEGORY + ", " + DatabaseHelper.COLUMN_AUTHOR_ID + ", " +
+                DatabaseHelper.COLUMN_NOTEBOOK_ID + ", " + DatabaseHelper.COLUMN_IS_DRAFT + ", " +
+                DatabaseHelper.COLUMN_IMAGES + ", " + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ", " +
+                DatabaseHelper.COLUMN_UPDATE_TIME + ") " +
+                "WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + DIARY_COUNT + ") " +
+                "SELECT '日记' || n, '沿着山间小路徒步三个小时，终于看到了云海。', '1', " + USER_ID + ", " +
+                NOTEBOOK_ID + ", 0, '[\"/images/' || n || '_1.jpg\",\"/images/' || n || '_2.jpg\"]', " +
+                "1700000000000 + n * 1000, 1700000000000 + n * 1000 FROM seq");
+    }
+
+    @Test
+    public void rowMapperMatchesPerRowLookups() {
+        List<Diary> mapped = mapWithRowMapper();
+        List<Diary> legacy = mapLegacy();
+        assertEquals(DIARY_COUNT, mapped.size());
+        assertEquals(DIARY_COUNT, legacy.size());
+        for (int i = 0; i < DIARY_COUNT; i += 997) {
+            assertEquals(legacy.get(i).getTitle(), mapped.get(i).getTitle());
+            assertEquals(legacy.get(i).getImages(), mapped.get(i).getImages());
+            assertEquals(legacy.get(i).getAuthorName(), mapped.get(i).getAuthorName());
+        }
+
+        long legacyNanos = medianNanos(this::mapLegacy);
+        long mapperNanos = medianNanos(this::mapWithRowMapper);
+        Log.i(TAG, String.format("%d行日记：逐行查列位置 %dms，RowMapper %dms",
+                DIARY_COUNT, legacyNanos / 1_000_000, mapperNanos / 1_000_000));
+    }
+
+    private List<Diary> mapWithRowMapper() {
+        return RowMapper.readList(database.getHelper().getReadableDatabase().rawQuery(QUERY, null), DiaryRowMapper::new);
+    }
+
+    private List<Diary> mapLegacy() {
+        List<Diary> diaries = new ArrayList<>();
+        Cursor cursor = database.getHelper().getReadableDatabase().rawQuery(QUERY, null);
+        try {
+            while (cursor.moveToNext()) {
+                diaries.add(legacyCursorToDiary(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return diaries;
+    }
+
+    // 改动前的 DiaryDAO.cursorToDiary（对比基准）
+    private Diary legacyCursorToDiary(Cursor cursor) {
+        Diary diary = new Diary();
+
+        diary.setDiaryId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DIARY_ID)));
+        diary.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TITLE)));
+        diary.setContent(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CONTENT)));
+        diary.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY)));
+        diary.setAuthorId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AUTHOR_ID)));
+        diary.setNotebookId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTEBOOK_ID)));
+        diary.setCoverImagePath(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_IMAGE_PATH)));
+        diary.setDraft(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_DRAFT)) == 1);
+        diary.setLikeCount(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_LIKE_COUNT)));
+        diary.setViewCount(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_VIEW_COUNT)));
+
+        String imagesJson = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IMAGES));
+        if (imagesJson != null && !imagesJson.isEmpty()) {
+            Type listType = new TypeToken<List<String>>(){}.getType();
+            List<String> images = gson.fromJson(imagesJson, listType);
+            diary.setImages(images);
+        }
+
+        diary.setCreateTimeMillis(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME_DIARY)));
+        diary.setUpdateTimeMillis(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_UPDATE_TIME)));
+
+        if (cursor.getColumnIndex("author_name") != -1) {
+            String authorName = cursor.getString(cursor.getColumnIndexOrThrow("author_name"));
+            if (authorName != null) {
+                diary.setAuthorName(authorName);
+            }
+        }
+
+        if (cursor.getColumnIndex("avatar") != -1) {
+            String avatar = cursor.getString(cursor.getColumnIndexOrThrow("avatar"));
+            if (avatar != null) {
+                diary.setAvatar(avatar);
+            }
+        }
+
+        return diary;
+    }
+
+    private static long medianNanos(Runnable map) {
+        map.run(); // 预热
+        long[] samples = new long[TIMING_RUNS];
+        for (int i = 0; i < TIMING_RUNS; i++) {
+            long start = System.nanoTime();
+            map.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[TIMING_RUNS / 2];
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.SearchHistory;
+import com.example.traildiary.utils.Constants;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 搜索历史：重复搜索只累加次数，每个用户最多保留 MAX_SEARCH_HISTORY 条，
+ * 关键词热度表始终等于搜索历史中各关键词搜索次数之和，热搜排名与逐次搜索现算的衰减分数一致
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchHistoryDAOTest {
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule();
+
+    private SearchHistoryDAO searchHistoryDAO;
+
+    @Before
+    public void setUp() {
+        searchHistoryDAO = new SearchHistoryDAO(database.getContext());
+        for (int userId = 2; userId <= 3; userId++) {
+            database.addUser(userId, "u" + userId);
+        }
+    }
+
+    @Test
+    public void repeatedSearchUpdatesSingleRow() {
+        long first = searchHistoryDAO.addSearchHistory(history(1, "海边", 0, 1000));
+        long second = searchHistoryDAO.addSearchHistory(history(1, "海边", 0, 2000));
+        searchHistoryDAO.addSearchHistory(history(1, "海边", Constants.SEARCH_BY_TITLE, 3000));
+
+        assertEquals(first, second);
+        List<SearchHistory> rows = searchHistoryDAO.getSearchHistoryByUser(1, Constants.MAX_SEARCH_HISTORY);
+        assertEquals(2, rows.size());
+        assertEquals(Constants.SEARCH_BY_TITLE, rows.get(0).getSearchType());
+        assertEquals(2, rows.get(1).getSearchCount());
+        assertEquals(2000, rows.get(1).getSearchTimeMillis());
+        assertEquals(3, searchHistoryDAO.getKeywordStats(1).get(0).getSearchCount());
+    }
+
+    @Test
+    public void historyIsCappedPerUser() {
+        searchHistoryDAO.addSearchHistory(history(2, "其他用户", 0, 1));
+        for (int i = 0; i < Constants.MAX_SEARCH_HISTORY + 5; i++) {
+            searchHistoryDAO.addSearchHistory(history(1, "关键词" + i, 0, 100 + i));
+        }
+        // 再次搜索最早的关键词会把它移到最前，随后新增的记录淘汰其他较旧的记录
+        List<SearchHistory> evicted = new ArrayList<>();
+        searchHistoryDAO.addSearchHistory(history(1, "关键词5", 0, 1000), evicted);
+        searchHistoryDAO.addSearchHistory(history(1, "新关键词", 0, 1001), evicted);
+
+        List<SearchHistory> rows = searchHistoryDAO.getSearchHistoryByUser(1, 100);
+        assertEquals(Constants.MAX_SEARCH_HISTORY, rows.size());
+        assertEquals("新关键词", rows.get(0).getKeyword());
+        assertEquals("关键词5", rows.get(1).getKeyword());
+        assertEquals(1, evicted.size());
+        assertEquals("关键词6", evicted.get(0).getKeyword());
+        assertEquals(1, searchHistoryDAO.getSearchHistoryByUser(2, 100).size());
+    }
+
+    @Test
+    public void popularKeywordsMatchHistoryCounts() {
+        Random random = new Random(3);
+        String[] keywords = {"海边", "雪山", "古镇", "Kyoto", "夜市", "草原"};
+        for (int i = 0; i < 300; i++) {
+            searchHistoryDAO.addSearchHistory(history(1 + random.nextInt(3),
+                    keywords[random.nextInt(keywords.length)], random.nextInt(3), i));
+        }
+        searchHistoryDAO.clearUserSearchHistory(2);
+
+        // 关键词热度表与搜索历史现算的结果一致
+        Map<String, Long> expected = new HashMap<>();
+        SQLiteDatabase db = database.getHelper().getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT keyword, SUM(search_count) FROM search_history GROUP BY keyword", null);
+        try {
+            while (cursor.moveToNext()) {
+                expected.put(cursor.getString(0), cursor.getLong(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        Map<String, Long> actual = new HashMap<>();
+        cursor = db.rawQuery("SELECT keyword, search_count FROM search_keyword", null);
+        try {
+            while (cursor.moveToNext()) {
+                actual.put(cursor.getString(0), cursor.getLong(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        assertEquals(expected, actual);
+
+        List<String> popular = searchHistoryDAO.getPopularKeywords(1);
+        long top = 0;
+        for (long count : expected.values()) {
+            top = Math.max(top, count);
+        }
+        assertEquals(top, (long) expected.get(popular.get(0)));
+    }
+
+    @Test
+    public void trendingMatchesBruteForceDecay() {
+        long halfLife = Constants.TRENDING_HALF_LIFE_MS;
+        long base = 1700000000000L;
+        long now = base + 90L * 24 * 60 * 60 * 1000;
+        Random random = new Random(21);
+        List<String> keywords = new ArrayList<>();
+        List<Long> times = new ArrayList<>();
+        // 很久以前搜得多的关键词，和最近才出现、次数少的关键词
+        for (int i = 0; i < 50; i++) {
+            keywords.add("去年的热门");
+            times.add(base + random.nextInt(1000));
+        }
+        for (int i = 0; i < 3; i++) {
+            keywords.add("最近的新词");
+            times.add(now - random.nextInt(1000));
+        }
+        // 其余搜索的时间随机分布，且不按时间顺序写入
+        for (int i = 0; i < 500; i++) {
+            keywords.add("关键词" + random.nextInt(40));
+            times.add(base + (long) (random.nextDouble() * (now - base)));
+        }
+        for (int i = 0; i < keywords.size(); i++) {
+            searchHistoryDAO.addSearchHistory(history(1 + random.nextInt(3), keywords.get(i), random.nextInt(3),
+                    times.get(i)));
+        }
+
+        // 逐次搜索现算衰减到 now 的分数
+        Map<String, Double> expected = new HashMap<>();
+        for (int i = 0; i < keywords.size(); i++) {
+            double decayed = Math.pow(2, (times.get(i) - now) / (double) halfLife);
+            expected.merge(keywords.get(i), decayed, Double::sum);
+        }
+        List<String> expectedOrder = new ArrayList<>(expected.keySet());
+        expectedOrder.sort((a, b) -> Double.compare(expected.get(b), expected.get(a)));
+        assertEquals(expectedOrder, searchHistoryDAO.getTrendingKeywords(expectedOrder.size() + 10));
+
+        Cursor cursor = database.getHelper().getReadableDatabase().rawQuery("SELECT keyword, trending_score FROM trending_keyword",
+                null);
+        try {
+            while (cursor.moveToNext()) {
+                double actual = Math.pow(2, cursor.getDouble(1) - now / (double) halfLife);
+                double want = expected.get(cursor.getString(0));
+                assertEquals(cursor.getString(0), want, actual, want * 1e-6);
+            }
+        } finally {
+            cursor.close();
+        }
+        assertTrue(searchHistoryDAO.getTrendingKeywords(expectedOrder.size()).indexOf("最近的新词") <
+                searchHistoryDAO.getTrendingKeywords(expectedOrder.size()).indexOf("去年的热门"));
+
+        // 衰减殆尽的关键词在有新关键词写入时被清理
+        long later = now + (Constants.TRENDING_PRUNE_HALF_LIVES + 10) * halfLife;
+        searchHistoryDAO.addSearchHistory(history(1, "很久以后", 0, later));
+        assertEquals(Collections.singletonList("很久以后"), searchHistoryDAO.getTrendingKeywords(100));
+    }
+
+    private static SearchHistory history(int userId, String keyword, int searchType, long timeMillis) {
+        SearchHistory history = new SearchHistory(userId, keyword, searchType);
+        history.setSearchTimeMillis(timeMillis);
+        return history;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.traildiary.database;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySearchHit;
+import com.example.traildiary.model.DiarySummary;
+import com.example.traildiary.utils.Constants;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 搜索结果缓存：逐字输入时由前缀结果细化的结果应与直接查询数据库一致，写入后失效，超出预算时按LRU淘汰
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchResultCacheTest {
+
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int NOTEBOOK_ID = InMemoryDatabaseRule.NOTEBOOK_ID;
+
+    private static final String[][] DIARIES = {
+            {"海边日出", "清晨的海边格外宁静"},
+            {"海岛", "在 Kyoto 看到了海边的红叶"},
+            {"京都 Kyoto", "海边日落，kyoto tower"},
+            {"雪山", "海拔五千米"},
+            {"古镇", "Kyushu 的海鲜"},
+            {"草稿", "海边日出前的准备"}
+    };
+    private static final String[] TYPING = {"海", "海边", "海边日", "海边日出", "K", "Ky", "Kyo", "Kyoto", "Kyoto t"};
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().withNotebook();
+
+    private DiaryDAO diaryDAO;
+
+    @Before
+    public void setUp() {
+        diaryDAO = new DiaryDAO(database.getContext());
+
+        SQLiteDatabase db = database.getWritableDatabase();
+        for (int i = 0; i < DIARIES.length; i++) {
+            insertDiary(db, DIARIES[i][0], DIARIES[i][1], i == DIARIES.length - 1);
+        }
+        // 直接写表绕过了DAO，手动补建索引
+        DiarySearchIndex.syncPending(db);
+    }
+
+    @Test
+    public void refinedResultsMatchDatabase() {
+        int[] types = {0, Constants.SEARCH_BY_TITLE};
+        for (int type : types) {
+            for (String keyword : TYPING) {
+                Set<Integer> cached = ids(diaryDAO.searchByType(keyword, type, USER_ID, null));
+                database.getProvider().getSearchResultCache().clear();
+                Set<Integer> uncached = ids(diaryDAO.searchByType(keyword, type, USER_ID, null));
+                assertEquals("类型" + type + " 关键词 " + keyword, uncached, cached);
+                // 重新填入当前关键词，下一个关键词从它细化
+                diaryDAO.searchByType(keyword, type, USER_ID, null);
+            }
+        }
+
+        SearchResultCache.Stats stats = diaryDAO.getSearchCacheStats();
+        assertTrue(stats.getRefinedHits() > 0);
+        assertTrue(stats.getExactHits() > 0);
+    }
+
+    @Test
+    public void typingAndDeletingHitsCache() {
+        // 逐字输入后再逐字删除：按标题搜索时只有第一个字查询数据库，之后由前缀细化，删除时命中已缓存的关键词
+        String[] typing = {"海", "海边", "海边日", "海边日出", "海边日", "海边"};
+        for (String keyword : typing) {
+            diaryDAO.searchByType(keyword, Constants.SEARCH_BY_TITLE, USER_ID, null);
+        }
+
+        SearchResultCache.Stats stats = diaryDAO.getSearchCacheStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(3, stats.getRefinedHits());
+        assertEquals(2, stats.getExactHits());
+        assertEquals(5.0 / 6, stats.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void contentSearchNarrowsToPrefixResults() {
+        // 综合搜索检索正文，缓存中没有整篇正文：更长的关键词只在前缀结果的日记中查询数据库
+        String[] typing = {"海", "海边", "海边日", "海边日出", "海边日", "海边"};
+        for (String keyword : typing) {
+            diaryDAO.searchByType(keyword, 0, USER_ID, null);
+        }
+
+        SearchResultCache.Stats stats = diaryDAO.getSearchCacheStats();
+        assertEquals(4, stats.getMisses());
+        assertEquals(3, stats.getNarrowedQueries());
+        assertEquals(0, stats.getRefinedHits());
+        assertEquals(2, stats.getExactHits());
+    }
+
+    @Test
+    public void writeInvalidatesCachedResults() {
+        // 综合搜索包含草稿
+        assertEquals(4, diaryDAO.searchDiariesByUser("海边", USER_ID).size());
+
+        // 通过DAO写入，写入提交后补建索引并递增写入版本号
+        diaryDAO.addDiary(new Diary(USER_ID, "海边露营", "", "1", NOTEBOOK_ID, false));
+
+        assertEquals(5, diaryDAO.searchDiariesByUser("海边", USER_ID).size());
+        assertEquals(3, diaryDAO.searchDiariesByUser("海边日", USER_ID).size());
+        assertEquals(1, diaryDAO.searchDiariesByUser("海边露", USER_ID).size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedUnderBudget() {
+        List<DiarySearchIndex.Hit> hits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            DiarySummary summary = new DiarySummary(i, USER_ID, "海边" + i, "1", 0);
+            hits.add(new DiarySearchIndex.Hit(summary, null, 0, 0));
+        }
+        SearchResultCache cache = new SearchResultCache(4 * 1024);
+
+        DiarySearchIndex.MatchQuery first = DiarySearchIndex.buildMatchQuery("海", DiarySearchIndex.COLUMN_FTS_TITLE);
+        cache.get(USER_ID, 2, first, 0);
+        cache.put(USER_ID, 2, first, 0, hits, 0);
+        for (int i = 0; i < 10; i++) {
+            DiarySearchIndex.MatchQuery query =
+                    DiarySearchIndex.buildMatchQuery("山" + i, DiarySearchIndex.COLUMN_FTS_TITLE);
+            assertNull(cache.get(USER_ID, 2, query, 0));
+            cache.put(USER_ID, 2, query, 0, hits, 0);
+            assertTrue(cache.getStats().getSizeBytes() <= 4 * 1024);
+        }
+
+        // 最早放入且之后未访问的结果已被淘汰，最近放入的仍在
+        assertNull(cache.get(USER_ID, 2, first, 0));
+        assertNotNull(cache.get(USER_ID, 2,
+                DiarySearchIndex.buildMatchQuery("山9", DiarySearchIndex.COLUMN_FTS_TITLE), 0));
+        // 版本号变化后全部失效
+        assertNull(cache.get(USER_ID, 2,
+                DiarySearchIndex.buildMatchQuery("山9", DiarySearchIndex.COLUMN_FTS_TITLE), 1));
+    }
+
+    private static Set<Integer> ids(List<DiarySearchHit> hits) {
+        Set<Integer> ids = new HashSet<>();
+        for (DiarySearchHit hit : hits) {
+            ids.add(hit.getDiaryId());
+        }
+        return ids;
+    }
+
+    private static void insertDiary(SQLiteDatabase db, String title, String content, boolean draft) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_TITLE, title);
+        values.put(DatabaseHelper.COLUMN_CONTENT, content);
+        values.put(DatabaseHelper.COLUMN_CATEGORY, "1");
+        values.put(DatabaseHelper.COLUMN_AUTHOR_ID, USER_ID);
+        values.put(DatabaseHelper.COLUMN_IS_DRAFT, draft ? 1 : 0);
+        db.insert(DatabaseHelper.TABLE_DIARY, null, values);
+    }
+}
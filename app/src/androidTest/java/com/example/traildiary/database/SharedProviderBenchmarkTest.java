@@ -0,0 +1,114 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 对比每次调用都新建并关闭 DatabaseHelper（改动前的DAO）与共享连接时
+ * getDiaryById / getNotebooksByUser 的单次耗时（只记录日志，耗时受设备负载影响，不作断言）
+ * 每次调用关闭连接后数据要保留，这里使用测试专用的数据库文件
+ */
+@RunWith(AndroidJUnit4.class)
+public class SharedProviderBenchmarkTest {
+
+    private static final String TAG = "SharedProviderBench";
+    private static final String DATABASE_NAME = "shared_provider_bench.db";
+    private static final int USER_ID = 1;
+    private static final int NOTEBOOK_COUNT = 10;
+    private static final int DIARY_COUNT = 1_000;
+    private static final int TIMING_RUNS = 51;
+
+    private Context context;
+    private DatabaseHelper sharedHelper;
+    private DatabaseProvider sharedProvider;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        sharedHelper = new DatabaseHelper(context, DATABASE_NAME, null);
+        sharedProvider = new DatabaseProvider(sharedHelper);
+        DatabaseProvider.setInstanceForTesting(sharedProvider);
+
+        SQLiteDatabase db = sharedHelper.getWritableDatabase();
+        db.execSQL("INSERT INTO user(user_id, nickname, trail_number, password) VALUES(" + USER_ID + ", 'u', 't1', 'p')");
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_NOTEBOOK + "(" + DatabaseHelper.COLUMN_NOTEBOOK_NAME + ", " +
+                DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_SORT_ORDER + ") " +
+                "WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + NOTEBOOK_COUNT + ") " +
+                "SELECT '日记本' || n, " + USER_ID + ", n FROM seq");
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                DatabaseHelper.COLUMN_CATEGORY + ", " + DatabaseHelper.COLUMN_AUTHOR_ID + ", " +
+                DatabaseHelper.COLUMN_NOTEBOOK_ID + ", " + DatabaseHelper.COLUMN_IS_DRAFT + ") " +
+                "WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + DIARY_COUNT + ") " +
+                "SELECT '日记' || n, '正文', '1', " + USER_ID + ", 1 + n % " + NOTEBOOK_COUNT + ", 0 FROM seq");
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseProvider.setInstanceForTesting(null);
+        sharedProvider.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void perCallCostOfSharedProvider() {
+        DiaryDAO diaryDAO = new DiaryDAO(context);
+        NotebookDAO notebookDAO = new NotebookDAO(context);
+        assertNotNull(diaryDAO.getDiaryById(DIARY_COUNT / 2));
+        assertEquals(NOTEBOOK_COUNT, notebookDAO.getNotebooksByUser(USER_ID).size());
+
+        long sharedDiary = medianNanos(() -> diaryDAO.getDiaryById(DIARY_COUNT / 2));
+        long sharedNotebooks = medianNanos(() -> notebookDAO.getNotebooksByUser(USER_ID));
+
+        // 改动前：每个DAO自己创建 DatabaseHelper，每次调用结束关闭连接
+        long perCallDiary = medianNanos(() -> {
+            DatabaseHelper helper = openPerCall();
+            new DiaryDAO(context).getDiaryById(DIARY_COUNT / 2);
+            helper.close();
+        });
+        long perCallNotebooks = medianNanos(() -> {
+            DatabaseHelper helper = openPerCall();
+            new NotebookDAO(context).getNotebooksByUser(USER_ID);
+            helper.close();
+        });
+        DatabaseProvider.setInstanceForTesting(sharedProvider);
+
+        Log.i(TAG, String.format("getDiaryById：每次打开关闭 %dus，共享连接 %dus；getNotebooksByUser：每次打开关闭 %dus，共享连接 %dus",
+                perCallDiary / 1000, sharedDiary / 1000, perCallNotebooks / 1000, sharedNotebooks / 1000));
+    }
+
+    // 新建一个只供本次调用使用的 DatabaseHelper 并注入，DAO随之使用新连接
+    private DatabaseHelper openPerCall() {
+        DatabaseHelper helper = new DatabaseHelper(context, DATABASE_NAME, null);
+        // 改动前每个DAO只有这一个连接，不使用只读连接池
+        DatabaseProvider.setInstanceForTesting(new DatabaseProvider(helper, 0));
+        return helper;
+    }
+
+    private static long medianNanos(Runnable call) {
+        call.run(); // 预热
+        long[] samples = new long[TIMING_RUNS];
+        for (int i = 0; i < TIMING_RUNS; i++) {
+            long start = System.nanoTime();
+            call.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[TIMING_RUNS / 2];
+    }
+}
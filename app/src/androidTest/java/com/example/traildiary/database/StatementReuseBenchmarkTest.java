@@ -0,0 +1,85 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 计数器+1的吞吐量：改动前的 execSQL UPDATE + rawQuery SELECT 与复用预编译语句对比
+ * 两种方式的计数结果必须一致；吞吐量只记录日志，不作断言
+ */
+@RunWith(AndroidJUnit4.class)
+public class StatementReuseBenchmarkTest {
+
+    private static final String TAG = "StatementReuseBench";
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int DIARY_ID = 1;
+    private static final int INCREMENT_COUNT = 5_000;
+    private static final int WARMUP_COUNT = 200;
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().withNotebook();
+
+    private DiaryDAO diaryDAO;
+
+    @Before
+    public void setUp() {
+        diaryDAO = new DiaryDAO(database.getContext());
+        database.getWritableDatabase().execSQL("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_DIARY_ID + ", " + DatabaseHelper.COLUMN_TITLE + ", " +
+                DatabaseHelper.COLUMN_CONTENT + ", " + DatabaseHelper.COLUMN_AUTHOR_ID + ", " +
+                DatabaseHelper.COLUMN_NOTEBOOK_ID + ", " + DatabaseHelper.COLUMN_IS_DRAFT + ") VALUES(" + DIARY_ID + ", '日记', '正文', " + USER_ID + ", " +
+                InMemoryDatabaseRule.NOTEBOOK_ID + ", 0)");
+    }
+
+    @Test
+    public void incrementsPerSecond() {
+        int count = 0;
+        for (int i = 0; i < WARMUP_COUNT; i++) {
+            assertEquals(++count, legacyIncrementLikeCount(DIARY_ID));
+            assertEquals(++count, diaryDAO.incrementLikeCount(DIARY_ID));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < INCREMENT_COUNT; i++) {
+            count = legacyIncrementLikeCount(DIARY_ID);
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < INCREMENT_COUNT; i++) {
+            count = diaryDAO.incrementLikeCount(DIARY_ID);
+        }
+        long reusedNanos = System.nanoTime() - start;
+        assertEquals(2 * (WARMUP_COUNT + INCREMENT_COUNT), count);
+
+        long legacyPerSecond = INCREMENT_COUNT * 1_000_000_000L / legacyNanos;
+        long reusedPerSecond = INCREMENT_COUNT * 1_000_000_000L / reusedNanos;
+        Log.i(TAG, String.format("每秒计数器+1：execSQL+rawQuery %d次，复用预编译语句 %d次（%.1f倍）",
+                legacyPerSecond, reusedPerSecond, (double) legacyNanos / reusedNanos));
+    }
+
+    // 改动前的实现：每次解析UPDATE，再用单独的查询读回计数
+    private int legacyIncrementLikeCount(int diaryId) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.execSQL("UPDATE " + DatabaseHelper.TABLE_DIARY + " SET " + DatabaseHelper.COLUMN_LIKE_COUNT +
+                " = " + DatabaseHelper.COLUMN_LIKE_COUNT + " + 1 WHERE " + DatabaseHelper.COLUMN_DIARY_ID + " = ?",
+                new Object[]{diaryId});
+        Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COLUMN_LIKE_COUNT + " FROM " + DatabaseHelper.TABLE_DIARY +
+                " WHERE " + DatabaseHelper.COLUMN_DIARY_ID + " = ?", new String[]{String.valueOf(diaryId)});
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
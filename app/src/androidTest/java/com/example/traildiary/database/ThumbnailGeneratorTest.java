@@ -0,0 +1,141 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySummary;
+import com.example.traildiary.utils.Constants;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 缩略图流水线：保存后生成256/768两种缩略图并写回列表封面，列表按显示尺寸选用；
+ * 修改日记后封面缩略图清空，由补生成任务恢复；原图缺失时列表使用原图
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThumbnailGeneratorTest {
+
+    private static final int USER_ID = InMemoryDatabaseRule.USER_ID;
+    private static final int NOTEBOOK_ID = InMemoryDatabaseRule.NOTEBOOK_ID;
+
+    @Rule
+    public final InMemoryDatabaseRule database = new InMemoryDatabaseRule().withNotebook();
+
+    private Context context;
+    private DiaryDAO diaryDAO;
+    private ThumbnailDAO thumbnailDAO;
+    private ThumbnailGenerator generator;
+    private File imageDir;
+
+    @Before
+    public void setUp() {
+        context = database.getContext();
+        diaryDAO = new DiaryDAO(context);
+        thumbnailDAO = new ThumbnailDAO(context);
+        generator = new ThumbnailGenerator(context);
+
+        imageDir = new File(context.getCacheDir(), "thumbnail_test");
+        imageDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = imageDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        imageDir.delete();
+    }
+
+    @Test
+    public void generatesThumbnailsAndListPicksBySize() throws IOException {
+        String photo = writeJpeg("photo.jpg", 4000, 3000);
+        String icon = writeJpeg("icon.jpg", 200, 100);
+        int diaryId = addDiary(Arrays.asList(photo, icon));
+
+        generator.generateForDiary(diaryId);
+
+        String[] photoThumbs = thumbnailDAO.getThumbnails(photo);
+        assertEquals(new File(imageDir, "photo_256.jpg").getPath(), photoThumbs[0]);
+        assertEquals(Constants.THUMBNAIL_SMALL_SIZE, longSide(photoThumbs[0]));
+        assertEquals(Constants.THUMBNAIL_LARGE_SIZE, longSide(photoThumbs[1]));
+        // 原图不大于缩略图尺寸时直接使用原图
+        assertTrue(Arrays.equals(new String[]{icon, icon}, thumbnailDAO.getThumbnails(icon)));
+
+        DiarySummary summary = diaryDAO.getDiariesByUserId(USER_ID, true).get(0);
+        assertEquals(photo, summary.getCoverImagePath());
+        assertEquals(photoThumbs[0], summary.getCoverImagePath(200));
+        assertEquals(photoThumbs[1], summary.getCoverImagePath(540));
+        assertEquals(photoThumbs[1], summary.getCoverImagePath(1080));
+
+        // 修改后封面缩略图清空，补生成时复用已记录的缩略图
+        Diary diary = diaryDAO.getDiaryById(diaryId);
+        diary.setCoverImagePath(icon);
+        diaryDAO.updateDiary(diary);
+        assertEquals(Arrays.asList(diaryId), thumbnailDAO.getDiariesWithoutCoverThumbnail(0, 20));
+        assertEquals(icon, diaryDAO.getDiariesByUserId(USER_ID, true).get(0).getCoverImagePath(200));
+        generator.backfill();
+        assertTrue(thumbnailDAO.getDiariesWithoutCoverThumbnail(0, 20).isEmpty());
+        assertEquals(icon, diaryDAO.getDiariesByUserId(USER_ID, true).get(0).getCoverThumbLarge());
+    }
+
+    @Test
+    public void missingImageFallsBackToOriginal() {
+        String missing = new File(imageDir, "missing.jpg").getPath();
+        int diaryId = addDiary(Arrays.asList(missing));
+
+        generator.backfill();
+
+        assertTrue(thumbnailDAO.getDiariesWithoutCoverThumbnail(0, 20).isEmpty());
+        assertNull(thumbnailDAO.getThumbnails(missing));
+        DiarySummary summary = diaryDAO.getDiariesByUserId(USER_ID, true).get(0);
+        assertEquals(diaryId, summary.getDiaryId());
+        assertNull(summary.getCoverThumbLarge());
+        assertEquals(missing, summary.getCoverImagePath(200));
+    }
+
+    private int addDiary(List<String> images) {
+        Diary diary = new Diary(USER_ID, "标题", "正文", "1", NOTEBOOK_ID, false);
+        diary.setImages(images);
+        return (int) diaryDAO.addDiary(diary);
+    }
+
+    private String writeJpeg(String name, int width, int height) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(0xFF3366CC);
+        File file = new File(imageDir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        } finally {
+            bitmap.recycle();
+        }
+        return file.getPath();
+    }
+
+    private static int longSide(String path) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        return Math.max(options.outWidth, options.outHeight);
+    }
+}
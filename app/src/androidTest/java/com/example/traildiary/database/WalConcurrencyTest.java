@@ -0,0 +1,222 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * WAL并发读写：长写事务进行中其他线程仍能读取（且读不到未提交的数据），
+ * 并对比WAL与回滚日志模式下，写入进行时读取日记的耗时（p50/p99）
+ * 内存数据库不支持WAL，这里使用测试专用的数据库文件
+ */
+@RunWith(AndroidJUnit4.class)
+public class WalConcurrencyTest {
+
+    private static final String TAG = "WalConcurrency";
+    private static final String DATABASE_NAME = "wal_concurrency_test.db";
+    private static final int USER_ID = 1;
+    private static final int NOTEBOOK_ID = 1;
+    private static final int DIARY_COUNT = 2_000;
+    private static final int UNCOMMITTED_COUNT = 100;
+    private static final int READ_COUNT = 500;
+    private static final long WRITE_HOLD_MS = 20; // 每个写事务持有的时间（模拟保存日记时的图片处理等）
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+    private DatabaseProvider provider;
+    private DiaryDAO diaryDAO;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        close();
+    }
+
+    @Test
+    public void readsProceedDuringLongWriteTransaction() throws Exception {
+        SQLiteDatabase db = open(true);
+        CountDownLatch inTransaction = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> write = writer.submit(() -> {
+                db.beginTransactionNonExclusive();
+                try {
+                    insertDiaries(db, UNCOMMITTED_COUNT);
+                    inTransaction.countDown();
+                    // 读取完成前一直持有写事务；读取被阻塞时最多等10秒，随后的断言会失败
+                    release.await(10, TimeUnit.SECONDS);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                return null;
+            });
+            assertTrue(inTransaction.await(5, TimeUnit.SECONDS));
+
+            long start = System.nanoTime();
+            for (int i = 0; i < READ_COUNT; i++) {
+                assertNotNull(diaryDAO.getDiaryById(1 + i % DIARY_COUNT));
+            }
+            long visible = countDiaries();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertFalse("读取应在写事务结束前完成", write.isDone());
+            assertEquals("读到了未提交的日记", DIARY_COUNT, visible);
+            release.countDown();
+            write.get(5, TimeUnit.SECONDS);
+            assertEquals(DIARY_COUNT + UNCOMMITTED_COUNT, countDiaries());
+            Log.i(TAG, "写事务进行中完成" + READ_COUNT + "次读取，用时 " + elapsedMillis + "ms");
+        } finally {
+            release.countDown();
+            writer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void readerConnectionsServeQueriesOutsideTransactions() {
+        SQLiteDatabase db = open(true);
+        assertNotSame("WAL模式下查询应使用只读连接", db, provider.getReadableDatabase());
+
+        // 当前线程的写事务中查询回到主连接，能读到本事务尚未提交的日记
+        db.beginTransactionNonExclusive();
+        try {
+            insertDiaries(db, 1);
+            assertSame(db, provider.getReadableDatabase());
+            assertNotNull(diaryDAO.getDiaryById(DIARY_COUNT + 1));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        assertNotNull(diaryDAO.getDiaryById(DIARY_COUNT + 1));
+
+        close();
+        db = open(false);
+        assertSame("回滚日志模式下只有主连接", db, provider.getReadableDatabase());
+    }
+
+    @Test
+    public void readLatencyWithWalVersusRollbackJournal() throws Exception {
+        // 只记录日志：回滚日志模式下只有一个连接，读取要等写事务提交，但耗时受设备负载影响，不作断言
+        long[] wal = readLatenciesDuringWrites(true);
+        close();
+        long[] rollback = readLatenciesDuringWrites(false);
+
+        long walP99 = wal[READ_COUNT * 99 / 100];
+        long rollbackP99 = rollback[READ_COUNT * 99 / 100];
+        Log.i(TAG, String.format("写入进行中读取%d次：WAL p50 %dus，p99 %dus；回滚日志 p50 %dus，p99 %dus",
+                READ_COUNT, wal[READ_COUNT / 2] / 1000, walP99 / 1000,
+                rollback[READ_COUNT / 2] / 1000, rollbackP99 / 1000));
+    }
+
+    // 后台线程不断执行短写事务，同时在当前线程按ID读取日记，返回排序后的每次读取耗时
+    private long[] readLatenciesDuringWrites(boolean wal) throws Exception {
+        SQLiteDatabase db = open(wal);
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> write = writer.submit(() -> {
+                while (!stop.get()) {
+                    db.beginTransactionNonExclusive();
+                    try {
+                        insertDiaries(db, 10);
+                        SystemClock.sleep(WRITE_HOLD_MS);
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                    SystemClock.sleep(1); // 事务之间让出连接，避免读取一直拿不到连接
+                }
+            });
+
+            diaryDAO.getDiaryById(1); // 预热
+            long[] samples = new long[READ_COUNT];
+            for (int i = 0; i < READ_COUNT; i++) {
+                long start = System.nanoTime();
+                assertNotNull(diaryDAO.getDiaryById(1 + i % DIARY_COUNT));
+                samples[i] = System.nanoTime() - start;
+            }
+            stop.set(true);
+            write.get(5, TimeUnit.SECONDS);
+            Arrays.sort(samples);
+            return samples;
+        } finally {
+            stop.set(true);
+            writer.shutdownNow();
+        }
+    }
+
+    // 打开测试数据库文件并注入 DatabaseProvider，切换到指定的日志模式后写入日记
+    private SQLiteDatabase open(boolean wal) {
+        dbHelper = new DatabaseHelper(context, DATABASE_NAME, null);
+        provider = new DatabaseProvider(dbHelper);
+        DatabaseProvider.setInstanceForTesting(provider);
+        diaryDAO = new DiaryDAO(context);
+
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        if (wal) {
+            db.enableWriteAheadLogging();
+        } else {
+            db.disableWriteAheadLogging();
+        }
+        assertEquals(wal, db.isWriteAheadLoggingEnabled());
+
+        db.execSQL("INSERT INTO user(user_id, nickname, trail_number, password) VALUES(" + USER_ID + ", 'u', 't1', 'p')");
+        db.execSQL("INSERT INTO notebook(notebook_id, notebook_name, user_id) VALUES(" + NOTEBOOK_ID + ", 'n', " + USER_ID + ")");
+        insertDiaries(db, DIARY_COUNT);
+        return db;
+    }
+
+    private void close() {
+        DatabaseProvider.setInstanceForTesting(null);
+        if (provider != null) {
+            provider.close(); // 同时关闭只读连接池
+            provider = null;
+            dbHelper = null;
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    private static void insertDiaries(SQLiteDatabase db, int count) {
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_DIARY + "(" +
+                DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                DatabaseHelper.COLUMN_CATEGORY + ", " + DatabaseHelper.COLUMN_AUTHOR_ID + ", " +
+                DatabaseHelper.COLUMN_NOTEBOOK_ID + ", " + DatabaseHelper.COLUMN_IS_DRAFT + ") " +
+                "WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + count + ") " +
+                "SELECT '日记' || n, '正文', '1', " + USER_ID + ", " + NOTEBOOK_ID + ", 0 FROM seq");
+    }
+
+    private long countDiaries() {
+        return DatabaseUtils.queryNumEntries(dbHelper.getReadableDatabase(), DatabaseHelper.TABLE_DIARY);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.traildiary.utils;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 快速连续输入时：只回调最后一个关键词的结果，且同一时刻最多一个查询在执行
+ */
+@RunWith(AndroidJUnit4.class)
+public class DebouncedSearcherTest {
+
+    private static final String[] KEYSTROKES = {"海", "海边", "海边日", "海边日出", "海边日出K", "海边日出Kyoto"};
+    private static final long QUERY_MS = 200;
+
+    private HandlerThread looperThread;
+    private Handler handler;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch finalResult = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        looperThread = new HandlerThread("searcher-test");
+        looperThread.start();
+        handler = new Handler(looperThread.getLooper());
+    }
+
+    @After
+    public void tearDown() {
+        looperThread.quitSafely();
+    }
+
+    @Test
+    public void rapidKeystrokesDeliverOnlyFinalQuery() throws Exception {
+        DebouncedSearcher<String> searcher = newSearcher(100);
+
+        // 每次按键间隔小于防抖时间，只应执行最后一次查询
+        for (String keyword : KEYSTROKES) {
+            onLooper(() -> searcher.submit(keyword));
+            SystemClock.sleep(30);
+        }
+
+        assertFinalResultOnly();
+        assertEquals(1, started.get());
+        onLooper(searcher::shutdown);
+    }
+
+    @Test
+    public void keystrokesDuringQueryCancelIt() throws Exception {
+        DebouncedSearcher<String> searcher = newSearcher(10);
+
+        // 按键间隔大于防抖时间但小于查询耗时：每个查询都会在执行中被下一次按键取消
+        for (String keyword : KEYSTROKES) {
+            onLooper(() -> searcher.submit(keyword));
+            SystemClock.sleep(60);
+        }
+
+        assertFinalResultOnly();
+        assertTrue("执行中的查询没有被取消", cancelled.get() > 0);
+        onLooper(searcher::shutdown);
+    }
+
+    private DebouncedSearcher<String> newSearcher(long debounceMs) {
+        return new DebouncedSearcher<>(looperThread.getLooper(), debounceMs,
+                (keyword, cancellationSignal) -> {
+                    started.incrementAndGet();
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        // 模拟耗时查询，期间响应取消
+                        long end = SystemClock.uptimeMillis() + QUERY_MS;
+                        while (SystemClock.uptimeMillis() < end) {
+                            if (cancellationSignal.isCanceled()) {
+                                cancelled.incrementAndGet();
+                            }
+                            cancellationSignal.throwIfCanceled();
+                            SystemClock.sleep(5);
+                        }
+                        return keyword;
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                },
+                (keyword, result) -> {
+                    delivered.add(result);
+                    if (keyword.equals(KEYSTROKES[KEYSTROKES.length - 1])) {
+                        finalResult.countDown();
+                    }
+                });
+    }
+
+    private void assertFinalResultOnly() throws InterruptedException {
+        assertTrue("没有收到最终结果", finalResult.await(5, TimeUnit.SECONDS));
+        SystemClock.sleep(QUERY_MS * 2); // 确认之后没有迟到的旧结果
+        assertEquals(Collections.singletonList(KEYSTROKES[KEYSTROKES.length - 1]), delivered);
+        assertEquals("同一时刻执行了多个查询", 1, maxRunning.get());
+    }
+
+    // 在searcher所在的Looper线程上执行并等待完成
+    private void onLooper(Runnable action) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        handler.post(() -> {
+            action.run();
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
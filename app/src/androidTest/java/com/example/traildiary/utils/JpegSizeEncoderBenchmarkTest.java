@@ -0,0 +1,160 @@
+package com.example.traildiary.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按目标大小压缩JPEG：1200万像素的图片在几个目标大小下，
+ * 与原来逐级降低质量（每次降10、每轮复制两次编码结果）的做法比较编码次数、缓冲区分配字节数和耗时
+ */
+@RunWith(AndroidJUnit4.class)
+public class JpegSizeEncoderBenchmarkTest {
+
+    private static final String TAG = "JpegSizeEncoderBench";
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+    private static final int MAX_QUALITY = 80;
+    private static final int[] TARGETS_KB = {300, 800, 1500, 3000};
+
+    private Bitmap bitmap;
+    private File output;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        output = new File(context.getCacheDir(), "jpeg_size_encoder_bench.jpg");
+        // 与 compressImage 相同的RGB_565；渐变加噪声，压缩后的大小接近真实照片
+        bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.RGB_565);
+        Random random = new Random(24);
+        int[] row = new int[WIDTH];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int noise = random.nextInt(48);
+                int r = Math.min(255, x * 200 / WIDTH + noise);
+                int g = Math.min(255, y * 200 / HEIGHT + noise);
+                int b = Math.min(255, ((x / 64 + y / 64) % 2) * 120 + noise);
+                row[x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+            bitmap.setPixels(row, 0, WIDTH, 0, y, WIDTH, 1);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        bitmap.recycle();
+        output.delete();
+    }
+
+    @Test
+    public void binarySearchBoundsPassesAndAvoidsCopies() throws IOException {
+        JpegSizeEncoder encoder = null;
+        for (int targetKB : TARGETS_KB) {
+            int maxBytes = targetKB * 1024;
+
+            long start = System.nanoTime();
+            LegacyResult legacy = legacyCompress(maxBytes);
+            long legacyMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            // 复用同一个编码器，缓冲区只在第一次或目标变大时分配
+            if (encoder == null) {
+                encoder = new JpegSizeEncoder();
+            }
+            int quality = encoder.encode(bitmap, maxBytes, MAX_QUALITY);
+            try (FileOutputStream out = new FileOutputStream(output)) {
+                encoder.writeTo(out);
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            Log.i(TAG, String.format("目标%dKB：原做法 质量%d %dKB %d次编码 分配%dKB %dms；二分查找 质量%d %dKB %d次编码 分配%dKB %dms",
+                    targetKB, legacy.quality, legacy.size / 1024, legacy.passes, legacy.allocatedBytes / 1024, legacyMillis,
+                    quality, encoder.size() / 1024, encoder.getEncodePasses(), encoder.getAllocatedBytes() / 1024, millis));
+
+            assertEquals(encoder.size(), output.length());
+            assertTrue(encoder.size() <= maxBytes || quality == Constants.JPEG_MIN_QUALITY);
+            assertTrue(encoder.getEncodePasses() <= 6);
+            assertTrue(encoder.getAllocatedBytes() < legacy.allocatedBytes);
+        }
+    }
+
+    // 原来的做法：质量80起每次降10，每轮toByteArray复制一次判断大小，最后再复制一次写入文件
+    private LegacyResult legacyCompress(int maxBytes) throws IOException {
+        CountingOutputStream baos = new CountingOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, MAX_QUALITY, baos);
+        int passes = 1;
+        int quality = MAX_QUALITY;
+        while (baos.toByteArray().length / 1024 > maxBytes / 1024 && quality > 10) {
+            baos.reset();
+            quality -= 10;
+            bitmap.compress(Bitmap.CompressFormat.JPEG, quality, baos);
+            passes++;
+        }
+        try (FileOutputStream out = new FileOutputStream(output)) {
+            out.write(baos.toByteArray());
+        }
+        return new LegacyResult(quality, baos.size(), passes, baos.allocatedBytes);
+    }
+
+    // 统计扩容和toByteArray分配的字节数
+    private static final class CountingOutputStream extends ByteArrayOutputStream {
+        long allocatedBytes = buf.length;
+        private int lastCapacity = buf.length;
+
+        @Override
+        public synchronized void write(int b) {
+            super.write(b);
+            countGrowth();
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            super.write(b, off, len);
+            countGrowth();
+        }
+
+        @Override
+        public synchronized byte[] toByteArray() {
+            allocatedBytes += count;
+            return super.toByteArray();
+        }
+
+        private void countGrowth() {
+            if (buf.length != lastCapacity) {
+                allocatedBytes += buf.length;
+                lastCapacity = buf.length;
+            }
+        }
+    }
+
+    private static final class LegacyResult {
+        final int quality;
+        final int size;
+        final int passes;
+        final long allocatedBytes;
+
+        LegacyResult(int quality, int size, int passes, long allocatedBytes) {
+            this.quality = quality;
+            this.size = size;
+            this.passes = passes;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
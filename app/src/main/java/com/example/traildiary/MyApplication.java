@@ -1,13 +1,51 @@
 package com.example.traildiary;
 
 import android.app.Application;
+import android.content.ComponentCallbacks2;
+
+import com.example.traildiary.database.DatabaseProvider;
+import com.example.traildiary.database.ImageStore;
+import com.example.traildiary.database.ThumbnailGenerator;
 import com.jakewharton.threetenabp.AndroidThreeTen;
 
 public class MyApplication extends Application {
+
+    // 进程级共享数据库（所有DAO共用）
+    private DatabaseProvider databaseProvider;
+
     @Override
     public void onCreate() {
         super.onCreate();
         // 初始化 ThreeTenABP
         AndroidThreeTen.init(this);
+        // 初始化共享数据库提供者
+        databaseProvider = DatabaseProvider.getInstance(this);
+        // 在后台打开数据库并继续未完成的数据迁移（迁移期间只读）
+        databaseProvider.getMigrationRunner().startPendingBackfills();
+        // 在后台为缺少缩略图的日记补生成缩略图
+        ThumbnailGenerator.getInstance(this).backfillAsync();
+        // 在后台清理不再被日记引用的图片
+        ImageStore.getInstance(this).collectGarbageAsync();
+    }
+
+    public DatabaseProvider getDatabaseProvider() {
+        return databaseProvider;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // 进程即将被系统回收时只释放搜索结果缓存；后台任务可能仍在使用数据库，不关闭连接
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE && databaseProvider != null) {
+            databaseProvider.getSearchResultCache().clear();
+        }
+    }
+
+    @Override
+    public void onTerminate() {
+        if (databaseProvider != null) {
+            databaseProvider.close();
+        }
+        super.onTerminate();
     }
 }
\ No newline at end of file
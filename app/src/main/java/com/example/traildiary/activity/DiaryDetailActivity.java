@@ -24,6 +24,7 @@ import com.bumptech.glide.RequestBuilder;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.request.RequestOptions;
 import com.example.traildiary.R;
+import com.example.traildiary.database.DatabaseProvider;
 import com.example.traildiary.database.DiaryDAO;
 import com.example.traildiary.database.FavoriteDAO;
 import com.example.traildiary.database.NotebookDAO;
@@ -168,6 +169,11 @@ public class DiaryDetailActivity extends AppCompatActivity {
      * 切换收藏状态
      */
     private void toggleFavorite() {
+        // 数据升级期间只读
+        if (!DatabaseProvider.getInstance(this).isWritable()) {
+            Toast.makeText(this, "数据升级中，请稍后再试", Toast.LENGTH_SHORT).show();
+            return;
+        }
         int userId = spUtil.getCurrentUserId();
         
         if (isFavorite) {
@@ -342,6 +348,11 @@ public class DiaryDetailActivity extends AppCompatActivity {
     }
 
     private void deleteDiary() {
+        // 数据升级期间只读
+        if (!DatabaseProvider.getInstance(this).isWritable()) {
+            Toast.makeText(this, "数据升级中，请稍后再试", Toast.LENGTH_SHORT).show();
+            return;
+        }
         new AlertDialog.Builder(this)
                 .setTitle("确认删除")
                 .setMessage("确定要删除这篇日记吗？")
@@ -2,6 +2,8 @@ package com.example.traildiary.activity;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -16,12 +18,13 @@ import com.bumptech.glide.request.RequestOptions;
 import com.example.traildiary.R;
 import com.example.traildiary.adapter.CoverPagerAdapter;
 import com.example.traildiary.adapter.DiaryListAdapter;
+import com.example.traildiary.adapter.EndlessScrollListener;
 import com.example.traildiary.adapter.NotebookAdapter;
 import com.example.traildiary.database.DiaryDAO;
 import com.example.traildiary.database.FavoriteDAO;
 import com.example.traildiary.database.NotebookDAO;
 import com.example.traildiary.database.UserDAO;
-import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySummary;
 import com.example.traildiary.model.Notebook;
 import com.example.traildiary.model.User;
 import com.example.traildiary.utils.Constants;
@@ -29,6 +32,8 @@ import com.example.traildiary.utils.SharedPreferencesUtil;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HomeActivity extends AppCompatActivity {
 
@@ -49,9 +54,16 @@ public class HomeActivity extends AppCompatActivity {
     private DiaryListAdapter diaryAdapter;
     private NotebookAdapter notebookAdapter;
     private CoverPagerAdapter coverPagerAdapter;
+    private EndlessScrollListener diaryScrollListener;
 
-    private List<Diary> diaryList = new ArrayList<>();
-    private List<Diary> favoriteList = new ArrayList<>();
+    // 后台加载日记分页
+    private ExecutorService executorService;
+    private Handler mainHandler;
+    private int diaryLoadGeneration = 0; // 每次从第一页重新加载时递增，用于丢弃过期的分页结果
+    private int diaryTotalCount = 0;
+
+    private List<DiarySummary> diaryList = new ArrayList<>();
+    private List<DiarySummary> favoriteList = new ArrayList<>();
     private List<Notebook> notebookList = new ArrayList<>();
     private List<String> coverImages = new ArrayList<>();
 
@@ -104,6 +116,10 @@ public class HomeActivity extends AppCompatActivity {
 
         currentUserId = spUtil.getCurrentUserId();
 
+        // 初始化线程池和主线程Handler
+        executorService = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+
         // 初始化日记适配器
         diaryAdapter = new DiaryListAdapter(this, diaryList);
         diaryAdapter.setOnItemClickListener(diary -> {
@@ -113,6 +129,17 @@ public class HomeActivity extends AppCompatActivity {
             startActivity(intent);
         });
 
+        // 日记列表滚动到接近末尾时加载下一页
+        diaryScrollListener = new EndlessScrollListener(Constants.DIARY_PREFETCH_DISTANCE) {
+            @Override
+            public void onLoadMore() {
+                if (currentTab == 0) {
+                    loadNextDiaryPage();
+                }
+            }
+        };
+        rvContent.addOnScrollListener(diaryScrollListener);
+
         // 初始化日记本适配器
         notebookAdapter = new NotebookAdapter(this, notebookList);
         notebookAdapter.setOnItemClickListener(new NotebookAdapter.OnItemClickListener() {
@@ -249,13 +276,49 @@ public class HomeActivity extends AppCompatActivity {
 
     private void loadDiaryData() {
         if (currentUserId != -1) {
+            // 从第一页重新加载，仍在进行中的旧请求结果会被丢弃
+            diaryLoadGeneration++;
             diaryList.clear();
-            // 获取用户的日记
-            diaryList.addAll(diaryDAO.getDiariesByUserId(currentUserId, false));
             diaryAdapter.notifyDataSetChanged();
+            diaryScrollListener.reset();
+            loadNextDiaryPage();
+        }
+    }
 
-            tvDiaryNumber.setText("." + diaryList.size());
+    // 在后台线程加载下一页日记（以当前列表最后一条作为分页起点）
+    private void loadNextDiaryPage() {
+        if (diaryScrollListener.isLoading() || !diaryScrollListener.hasMore()) {
+            return;
         }
+        diaryScrollListener.setLoading(true);
+
+        final int generation = diaryLoadGeneration;
+        final DiarySummary after = diaryList.isEmpty() ? null : diaryList.get(diaryList.size() - 1);
+
+        executorService.execute(() -> {
+            List<DiarySummary> page = diaryDAO.getDiaryPageByUserId(
+                    currentUserId, false, after, Constants.DIARY_PAGE_SIZE);
+            // 总数只在加载第一页时查询
+            int totalCount = after == null ? diaryDAO.getDiaryCountByUser(currentUserId, false) : -1;
+
+            mainHandler.post(() -> {
+                if (generation != diaryLoadGeneration || isDestroyed()) {
+                    return;
+                }
+                if (totalCount >= 0) {
+                    diaryTotalCount = totalCount;
+                    if (currentTab == 0) {
+                        tvDiaryNumber.setText("." + diaryTotalCount);
+                    }
+                }
+                int start = diaryList.size();
+                diaryList.addAll(page);
+                diaryAdapter.notifyItemRangeInserted(start, page.size());
+
+                diaryScrollListener.setHasMore(page.size() == Constants.DIARY_PAGE_SIZE);
+                diaryScrollListener.setLoading(false);
+            });
+        });
     }
 
     private void loadNotebookData() {
@@ -295,7 +358,7 @@ public class HomeActivity extends AppCompatActivity {
         rvContent.setLayoutManager(new GridLayoutManager(this, 2));
         rvContent.setAdapter(diaryAdapter);
         tvDiaryCount.setText("全部");
-        tvDiaryNumber.setText("." + diaryList.size());
+        tvDiaryNumber.setText("." + diaryTotalCount);
 
         if (viewPager != null) {
             viewPager.setVisibility(View.GONE);
@@ -370,8 +433,8 @@ public class HomeActivity extends AppCompatActivity {
         // 根据当前选中的标签刷新对应内容
         switch (currentTab) {
             case 0:
-                diaryAdapter.notifyDataSetChanged();
-                tvDiaryNumber.setText("." + diaryList.size());
+                // 日记列表已由loadDiaryData重新分页加载
+                tvDiaryNumber.setText("." + diaryTotalCount);
                 break;
             case 1:
                 notebookAdapter.notifyDataSetChanged();
@@ -382,4 +445,13 @@ public class HomeActivity extends AppCompatActivity {
                 break;
         }
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // 清理资源
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import com.example.traildiary.R;
+import com.example.traildiary.database.DatabaseProvider;
 import com.example.traildiary.database.UserDAO;
 import com.example.traildiary.model.User;
 import com.example.traildiary.utils.Constants;
@@ -441,6 +442,11 @@ public class LoginRegisterActivity extends AppCompatActivity {
         user.setBirthday(LocalDate.parse(birthday));
         user.setCreateTime(LocalDateTime.now());
 
+        if (!DatabaseProvider.getInstance(this).isWritable()) {
+            showToast("数据升级中，请稍后再试");
+            return;
+        }
+
         // 保存到数据库 - 使用支持字节数组的方法
         long userId = userDAO.addUser(user, avatarBytes);
 
@@ -621,6 +627,11 @@ public class LoginRegisterActivity extends AppCompatActivity {
                 return;
             }
 
+            if (!DatabaseProvider.getInstance(this).isWritable()) {
+                showToast("数据升级中，请稍后再试");
+                return;
+            }
+
             // 5. 调用DAO通过手机号重置密码的方法（核心逻辑）
             int resetResult = userDAO.resetPassword(phone, newPassword);
             if (resetResult > 0) {
@@ -19,6 +19,7 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
 import com.example.traildiary.R;
 import com.example.traildiary.adapter.CoverPagerAdapter;
+import com.example.traildiary.database.DatabaseProvider;
 import com.example.traildiary.database.NotebookDAO;
 import com.example.traildiary.database.UserDAO;
 import com.example.traildiary.model.Notebook;
@@ -236,19 +237,23 @@ public class MainActivity extends AppCompatActivity {
         }
 
         List<Notebook> notebooks = notebookDAO.getNotebooksByUser(userId);
+        // 数据升级期间为只读模式，不创建默认日记本、不更新日记数量，先显示已有数据
+        boolean writable = DatabaseProvider.getInstance(this).isWritable();
 
-        if (notebooks == null || notebooks.isEmpty()) {
+        if ((notebooks == null || notebooks.isEmpty()) && writable) {
             createDefaultNotebookWithRandomCover(userId);
             notebooks = notebookDAO.getNotebooksByUser(userId);
         }
 
         if (notebooks != null && !notebooks.isEmpty()) {
-            // 更新每个日记本的日记数量
-            for (Notebook notebook : notebooks) {
-                notebookDAO.updateNotebookDiaryCount(notebook.getId());
+            if (writable) {
+                // 更新每个日记本的日记数量
+                for (Notebook notebook : notebooks) {
+                    notebookDAO.updateNotebookDiaryCount(notebook.getId());
+                }
+                // 重新获取更新后的数据
+                notebooks = notebookDAO.getNotebooksByUser(userId);
             }
-            // 重新获取更新后的数据
-            notebooks = notebookDAO.getNotebooksByUser(userId);
 
             sortNotebooksByCreateTime(notebooks);
 
@@ -271,10 +276,8 @@ public class MainActivity extends AppCompatActivity {
         notebooks.sort(new java.util.Comparator<Notebook>() {
             @Override
             public int compare(Notebook n1, Notebook n2) {
-                if (n1.getCreateTime() != null && n2.getCreateTime() != null) {
-                    return n2.getCreateTime().compareTo(n1.getCreateTime());
-                }
-                return 0;
+                // 直接比较epoch毫秒，无需转换为LocalDateTime
+                return Long.compare(n2.getCreateTimeMillis(), n1.getCreateTimeMillis());
             }
         });
     }
@@ -2,6 +2,8 @@ package com.example.traildiary.activity;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.ImageButton;
 import android.widget.TextView;
@@ -14,9 +16,11 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import com.example.traildiary.R;
 import com.example.traildiary.adapter.DiaryListAdapter;
+import com.example.traildiary.adapter.EndlessScrollListener;
 import com.example.traildiary.database.DiaryDAO;
 import com.example.traildiary.database.NotebookDAO;
-import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySearchHit;
+import com.example.traildiary.model.DiarySummary;
 import com.example.traildiary.model.Notebook;
 import com.example.traildiary.utils.Constants;
 import com.example.traildiary.utils.SharedPreferencesUtil;
@@ -24,6 +28,8 @@ import com.example.traildiary.widget.SearchDialog;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class NotebookDetailActivity extends AppCompatActivity {
 
@@ -36,10 +42,17 @@ public class NotebookDetailActivity extends AppCompatActivity {
 
     private Notebook notebook;
     private DiaryListAdapter adapter;
+    private EndlessScrollListener scrollListener;
+    private final List<DiarySummary> diaryList = new ArrayList<>();
     private DiaryDAO diaryDAO;
     private NotebookDAO notebookDAO;
     private int currentUserId;
 
+    // 后台加载日记分页
+    private ExecutorService executorService;
+    private Handler mainHandler;
+    private int loadGeneration = 0; // 每次从第一页重新加载时递增，用于丢弃过期的分页结果
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -64,10 +77,18 @@ public class NotebookDetailActivity extends AppCompatActivity {
         recyclerView.setLayoutManager(layoutManager);
 
         // 修复：DiaryListAdapter需要两个参数，并且需要使用空的ArrayList初始化
-        List<Diary> emptyDiaryList = new ArrayList<>();
-        adapter = new DiaryListAdapter(this, emptyDiaryList);
+        adapter = new DiaryListAdapter(this, diaryList);
         recyclerView.setAdapter(adapter);
 
+        // 滚动到接近末尾时加载下一页
+        scrollListener = new EndlessScrollListener(Constants.DIARY_PREFETCH_DISTANCE) {
+            @Override
+            public void onLoadMore() {
+                loadNextPage();
+            }
+        };
+        recyclerView.addOnScrollListener(scrollListener);
+
         // 设置点击事件
         btnBack.setOnClickListener(v -> {
             Intent intent = new Intent(this, MainActivity.class);
@@ -81,10 +102,10 @@ public class NotebookDetailActivity extends AppCompatActivity {
                     NotebookDetailActivity.this,
                     new SearchDialog.OnSearchResultClickListener() {
                         @Override
-                        public void onDiaryClicked(Diary diary) {
+                        public void onDiaryClicked(DiarySearchHit hit) {
                             // 跳转到日记详情页
                             Intent intent = new Intent(NotebookDetailActivity.this, DiaryDetailActivity.class);
-                            intent.putExtra("diary_id", diary.getDiaryId());
+                            intent.putExtra("diary_id", hit.getDiaryId());
                             startActivity(intent);
                         }
                     });
@@ -115,6 +136,10 @@ public class NotebookDetailActivity extends AppCompatActivity {
         diaryDAO = new DiaryDAO(this);
         notebookDAO = new NotebookDAO(this);
 
+        // 初始化线程池和主线程Handler
+        executorService = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+
         // 获取传递的日记本ID
         int notebookId = getIntent().getIntExtra("notebook_id", -1);
         if (notebookId == -1) {
@@ -138,10 +163,49 @@ public class NotebookDetailActivity extends AppCompatActivity {
             return;
         }
 
-        // 加载该日记本下的所有日记
-        List<Diary> diaries = diaryDAO.getDiariesByNotebookId(notebook.getId());
+        // 从第一页重新加载该日记本下的日记，仍在进行中的旧请求结果会被丢弃
+        loadGeneration++;
+        diaryList.clear();
+        adapter.notifyDataSetChanged();
+        scrollListener.reset();
+        loadNextPage();
+    }
+
+    // 在后台线程加载下一页日记（以当前列表最后一条作为分页起点）
+    private void loadNextPage() {
+        if (notebook == null || scrollListener.isLoading() || !scrollListener.hasMore()) {
+            return;
+        }
+        scrollListener.setLoading(true);
+
+        final int generation = loadGeneration;
+        final int notebookId = notebook.getId();
+        final DiarySummary after = diaryList.isEmpty() ? null : diaryList.get(diaryList.size() - 1);
+
+        executorService.execute(() -> {
+            List<DiarySummary> page = diaryDAO.getDiaryPageByNotebookId(
+                    notebookId, after, Constants.DIARY_PAGE_SIZE);
+
+            mainHandler.post(() -> {
+                if (generation != loadGeneration || isDestroyed()) {
+                    return;
+                }
+                int start = diaryList.size();
+                diaryList.addAll(page);
+                adapter.notifyItemRangeInserted(start, page.size());
+
+                scrollListener.setHasMore(page.size() == Constants.DIARY_PAGE_SIZE);
+                scrollListener.setLoading(false);
+
+                if (after == null) {
+                    showEmptyState(diaryList.isEmpty());
+                }
+            });
+        });
+    }
 
-        if (diaries.isEmpty()) {
+    private void showEmptyState(boolean empty) {
+        if (empty) {
             tvEmptyHint.setVisibility(View.VISIBLE);
             tvEmptyHint.setText("这个日记本里还没有作品！");
             tvCreateDiary.setVisibility(View.VISIBLE);
@@ -150,8 +214,6 @@ public class NotebookDetailActivity extends AppCompatActivity {
         } else {
             tvEmptyHint.setVisibility(View.GONE);
             recyclerView.setVisibility(View.VISIBLE);
-            // 修复：使用正确的更新数据方法名
-            adapter.updateData(diaries);
         }
     }
 
@@ -172,4 +234,13 @@ public class NotebookDetailActivity extends AppCompatActivity {
         }
         startActivity(intent);
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // 清理资源
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import java.io.File;
 
 import com.example.traildiary.R;
 import com.example.traildiary.adapter.CoverPagerAdapter;
+import com.example.traildiary.database.DatabaseProvider;
 import com.example.traildiary.database.NotebookDAO;
 import com.example.traildiary.model.Notebook;
 import com.example.traildiary.utils.Constants;
@@ -257,6 +258,11 @@ public class NotebookSettingActivity extends AppCompatActivity {
     }
 
     private void saveNotebook() {
+        // 数据升级期间只读
+        if (!DatabaseProvider.getInstance(this).isWritable()) {
+            Toast.makeText(this, "数据升级中，请稍后再试", Toast.LENGTH_SHORT).show();
+            return;
+        }
         String notebookName = etNotebookName.getText().toString().trim();
 
         if (TextUtils.isEmpty(notebookName)) {
@@ -343,6 +349,11 @@ public class NotebookSettingActivity extends AppCompatActivity {
     }
 
     private void deleteNotebook() {
+        // 数据升级期间只读
+        if (!DatabaseProvider.getInstance(this).isWritable()) {
+            Toast.makeText(this, "数据升级中，请稍后再试", Toast.LENGTH_SHORT).show();
+            return;
+        }
         new AlertDialog.Builder(this)
                 .setTitle("删除日记本")
                 .setMessage("确定要删除这个日记本吗？删除后所有日记将移到默认日记本。")
@@ -361,6 +372,11 @@ public class NotebookSettingActivity extends AppCompatActivity {
     }
 
     private void showSortOptions() {
+        // 数据升级期间只读
+        if (!DatabaseProvider.getInstance(this).isWritable()) {
+            Toast.makeText(this, "数据升级中，请稍后再试", Toast.LENGTH_SHORT).show();
+            return;
+        }
         final String[] sortOptions = {"按创建时间", "按更新时间", "按名称", "自定义排序"};
 
         new AlertDialog.Builder(this)
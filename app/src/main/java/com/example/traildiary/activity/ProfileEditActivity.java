@@ -22,6 +22,7 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
 import com.example.traildiary.R;
 import com.example.traildiary.database.DatabaseHelper;
+import com.example.traildiary.database.DatabaseProvider;
 import com.example.traildiary.database.UserDAO;
 import com.example.traildiary.model.User;
 import com.example.traildiary.utils.Constants;
@@ -237,6 +238,11 @@ public class ProfileEditActivity extends AppCompatActivity {
         if (currentUser == null) {
             return;
         }
+        // 数据升级期间只读
+        if (!DatabaseProvider.getInstance(this).isWritable()) {
+            Toast.makeText(this, "数据升级中，请稍后再试", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
         // 获取表单数据
         String signature = etSignature.getText().toString().trim();
@@ -4,6 +4,8 @@ import android.app.AlertDialog;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.widget.EditText;
@@ -19,7 +21,10 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.traildiary.R;
 import com.example.traildiary.adapter.DiaryContentAdapter;
+import com.example.traildiary.database.DatabaseProvider;
 import com.example.traildiary.database.DiaryDAO;
+import com.example.traildiary.database.ImageStore;
+import com.example.traildiary.database.ThumbnailGenerator;
 import com.example.traildiary.database.UserDAO;
 import com.example.traildiary.model.Diary;
 import com.example.traildiary.model.User;
@@ -33,6 +38,8 @@ import org.threeten.bp.LocalDateTime;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class WriteDiaryActivity extends AppCompatActivity {
 
@@ -55,6 +62,8 @@ public class WriteDiaryActivity extends AppCompatActivity {
     private UserDAO userDAO;
     private SharedPreferencesUtil spUtil;
     private String currentUserName; // 当前用户昵称
+    private ExecutorService executorService;
+    private Handler mainHandler;
 
     private static final int REQUEST_PICK_IMAGE = 1001;
     private static final int REQUEST_TAKE_PHOTO = 1002;
@@ -82,6 +91,9 @@ public class WriteDiaryActivity extends AppCompatActivity {
         currentUserId = spUtil.getCurrentUserId();
         diaryDAO = new DiaryDAO(this);
         userDAO = new UserDAO(this);
+        // 初始化线程池和主线程Handler（图片导入在后台进行）
+        executorService = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
         
         // 获取当前用户昵称
         User currentUser = userDAO.getUserById(currentUserId);
@@ -290,7 +302,7 @@ public class WriteDiaryActivity extends AppCompatActivity {
                     if (which == 0) {
                         ImageUtil.takePhoto(this, REQUEST_TAKE_PHOTO);
                     } else {
-                        ImageUtil.pickImageFromGallery(this, REQUEST_PICK_IMAGE);
+                        ImageUtil.pickImagesFromGallery(this, REQUEST_PICK_IMAGE);
                     }
                     // 保存位置信息，在onActivityResult中处理
                     spUtil.putInt("temp_image_position", position);
@@ -309,14 +321,9 @@ public class WriteDiaryActivity extends AppCompatActivity {
                 DiaryContentItem item = contentItems.get(position);
 
                 if (requestCode == REQUEST_PICK_IMAGE && data != null) {
-                    Uri imageUri = data.getData();
-                    String imagePath = ImageUtil.getRealPathFromUri(this, imageUri);
-                    try {
-                        item.setImagePath(imagePath);
-                        contentAdapter.notifyItemChanged(position);
-                        checkContentChanged();
-                    } catch (IllegalStateException e) {
-                        Toast.makeText(this, "只能为图片类型设置图片路径", Toast.LENGTH_SHORT).show();
+                    List<Uri> imageUris = ImageUtil.getPickedImageUris(data);
+                    if (!imageUris.isEmpty()) {
+                        importImages(item, imageUris);
                     }
                 } else if (requestCode == REQUEST_TAKE_PHOTO) {
                     // 处理拍照返回
@@ -328,6 +335,56 @@ public class WriteDiaryActivity extends AppCompatActivity {
         }
     }
 
+    // 在后台把选中的图片并行导入图片库（相同的图片只保存一份），
+    // 完成后第一张设置到内容项，其余依次插入在它后面
+    private void importImages(DiaryContentItem item, List<Uri> imageUris) {
+        executorService.execute(() -> {
+            List<String> imagePaths;
+            try {
+                imagePaths = ImageStore.getInstance(this).importImages(imageUris);
+            } catch (InterruptedException e) {
+                return; // 页面已关闭
+            }
+            List<String> imported = new ArrayList<>();
+            for (String imagePath : imagePaths) {
+                if (imagePath != null) {
+                    imported.add(imagePath);
+                }
+            }
+            int failed = imagePaths.size() - imported.size();
+            mainHandler.post(() -> {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                // 导入期间内容项可能已被删除或移动
+                int position = contentItems.indexOf(item);
+                if (position < 0) {
+                    return;
+                }
+                if (failed > 0) {
+                    Toast.makeText(this, failed + "张图片导入失败", Toast.LENGTH_SHORT).show();
+                }
+                if (imported.isEmpty()) {
+                    return;
+                }
+                try {
+                    item.setImagePath(imported.get(0));
+                    contentAdapter.notifyItemChanged(position);
+                } catch (IllegalStateException e) {
+                    Toast.makeText(this, "只能为图片类型设置图片路径", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                for (int i = 1; i < imported.size(); i++) {
+                    contentItems.add(position + i, DiaryContentItem.createImageItem("", imported.get(i)));
+                }
+                if (imported.size() > 1) {
+                    contentAdapter.notifyItemRangeInserted(position + 1, imported.size() - 1);
+                }
+                checkContentChanged();
+            });
+        });
+    }
+
     private void deleteContentItem(int position) {
         if (contentItems.size() > 1) {
             contentItems.remove(position);
@@ -365,6 +422,11 @@ public class WriteDiaryActivity extends AppCompatActivity {
      * 保存日记
      */
     private void saveDiary() {
+        // 数据升级期间只读
+        if (!DatabaseProvider.getInstance(this).isWritable()) {
+            Toast.makeText(this, "数据升级中，请稍后再试", Toast.LENGTH_SHORT).show();
+            return;
+        }
         String title = etTitle.getText().toString().trim();
         String category = tvCategory.getText().toString();
 
@@ -439,19 +501,24 @@ public class WriteDiaryActivity extends AppCompatActivity {
         diary.setUpdateTime(LocalDateTime.now());
 
         boolean success;
+        int savedDiaryId;
         if (isEditMode && diaryId > 0) {
             // 编辑模式：更新日记
             diary.setDiaryId(diaryId);
             int result = diaryDAO.updateDiary(diary);
             success = result > 0;
+            savedDiaryId = diaryId;
         } else {
             // 新建模式：添加日记
             diary.setCreateTime(LocalDateTime.now());
             long result = diaryDAO.addDiary(diary);
             success = result > 0;
+            savedDiaryId = (int) result;
         }
 
         if (success) {
+            // 在后台生成插图缩略图，列表不再解码原图
+            ThumbnailGenerator.getInstance(this).enqueue(savedDiaryId);
             Toast.makeText(this, R.string.save_success, Toast.LENGTH_SHORT).show();
             clearDraft();
             finish();
@@ -496,6 +563,15 @@ public class WriteDiaryActivity extends AppCompatActivity {
         spUtil.remove("draft_category");
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // 清理资源
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
     @Override
     public void onBackPressed() {
         if (hasContent) {
@@ -10,12 +10,13 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.traildiary.R;
 import com.example.traildiary.activity.DiaryDetailActivity;
-import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySummary;
 import com.example.traildiary.utils.DateUtil;
 
 import org.threeten.bp.LocalDateTime;
@@ -26,14 +27,14 @@ import java.util.List;
 public class DiaryListAdapter extends RecyclerView.Adapter<DiaryListAdapter.ViewHolder> {
 
     private Context context;
-    private List<Diary> diaryList;
+    private List<DiarySummary> diaryList;
     private boolean isGridLayout = false; // 是否网格布局（首页用网格，日记本详情用列表）
 
     // 添加点击监听器接口
     private OnItemClickListener onItemClickListener;
 
     // 修复：构造方法添加Context参数并正确赋值
-    public DiaryListAdapter(Context context, List<Diary> diaryList) {
+    public DiaryListAdapter(Context context, List<DiarySummary> diaryList) {
         this.context = context;
         this.diaryList = diaryList;
     }
@@ -53,31 +54,35 @@ public class DiaryListAdapter extends RecyclerView.Adapter<DiaryListAdapter.View
         // 修复：区分网格/列表布局（根据实际布局文件名调整）
         int layoutResId = isGridLayout ? R.layout.item_diary : R.layout.item_diary;
         View view = LayoutInflater.from(context).inflate(layoutResId, parent, false);
-        return new ViewHolder(view);
+        ViewHolder holder = new ViewHolder(view);
+        holder.coverSize = getCoverSize(parent, holder.ivCover);
+        return holder;
+    }
+
+    // 封面显示尺寸：列宽（RecyclerView宽度按列数均分）和封面固定高度中较大的一个
+    private int getCoverSize(ViewGroup parent, ImageView cover) {
+        int width = parent.getWidth() > 0 ? parent.getWidth() : context.getResources().getDisplayMetrics().widthPixels;
+        if (parent instanceof RecyclerView
+                && ((RecyclerView) parent).getLayoutManager() instanceof GridLayoutManager) {
+            width /= ((GridLayoutManager) ((RecyclerView) parent).getLayoutManager()).getSpanCount();
+        }
+        return Math.max(width, cover.getLayoutParams().height);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Diary diary = diaryList.get(position);
+        DiarySummary diary = diaryList.get(position);
 
-        // 封面图片 - 使用 coverImagePath
-        if (diary.getCoverImagePath() != null && !diary.getCoverImagePath().isEmpty()) {
+        // 封面图片 - 查询时已处理好（没有封面图时为第一张插图），按显示尺寸选用缩略图
+        String coverPath = diary.getCoverImagePath(holder.coverSize);
+        if (coverPath != null && !coverPath.isEmpty()) {
             Glide.with(context)
-                    .load(diary.getCoverImagePath())
+                    .load(coverPath)
                     .placeholder(R.drawable.ic_default_cover)
                     .error(R.drawable.ic_default_cover)
                     .into(holder.ivCover);
         } else {
-            // 如果没有封面图，检查是否有插图
-            if (diary.getImages() != null && !diary.getImages().isEmpty()) {
-                Glide.with(context)
-                        .load(diary.getImages().get(0))
-                        .placeholder(R.drawable.ic_default_cover)
-                        .error(R.drawable.ic_default_cover)
-                        .into(holder.ivCover);
-            } else {
-                holder.ivCover.setImageResource(R.drawable.ic_default_cover);
-            }
+            holder.ivCover.setImageResource(R.drawable.ic_default_cover);
         }
 
         // 标题
@@ -123,12 +128,12 @@ public class DiaryListAdapter extends RecyclerView.Adapter<DiaryListAdapter.View
         return diaryList == null ? 0 : diaryList.size();
     }
 
-    public void updateData(List<Diary> newList) {
+    public void updateData(List<DiarySummary> newList) {
         this.diaryList = newList;
         notifyDataSetChanged();
     }
 
-    public void addData(List<Diary> newItems) {
+    public void addData(List<DiarySummary> newItems) {
         if (diaryList == null) {
             diaryList = newItems;
         } else {
@@ -139,7 +144,7 @@ public class DiaryListAdapter extends RecyclerView.Adapter<DiaryListAdapter.View
 
     // 点击监听器接口
     public interface OnItemClickListener {
-        void onItemClick(Diary diary);
+        void onItemClick(DiarySummary diary);
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -149,6 +154,7 @@ public class DiaryListAdapter extends RecyclerView.Adapter<DiaryListAdapter.View
         TextView tvCategory;
         TextView tvAuthor;
         TextView tvTime;
+        int coverSize; // 封面显示尺寸（px）
 
         public ViewHolder(@NonNull View itemView) {
             super(itemView);
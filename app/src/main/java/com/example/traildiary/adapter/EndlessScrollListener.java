@@ -0,0 +1,62 @@
+package com.example.traildiary.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 无限滚动监听器
+ * 滚动到距离列表末尾不足 prefetchDistance 项时触发 onLoadMore，
+ * 加载中或已经没有更多数据时不重复触发
+ */
+public abstract class EndlessScrollListener extends RecyclerView.OnScrollListener {
+
+    private final int prefetchDistance;
+    private boolean loading = false;
+    private boolean hasMore = true;
+
+    public EndlessScrollListener(int prefetchDistance) {
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy <= 0 || loading || !hasMore) {
+            return;
+        }
+        // GridLayoutManager 也是 LinearLayoutManager 的子类
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return;
+        }
+        int lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        if (lastVisible + prefetchDistance >= layoutManager.getItemCount()) {
+            onLoadMore();
+        }
+    }
+
+    // 加载下一页（实现方需要调用 setLoading 标记开始和结束）
+    public abstract void onLoadMore();
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public void setLoading(boolean loading) {
+        this.loading = loading;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    // 重新从第一页加载时重置状态
+    public void reset() {
+        loading = false;
+        hasMore = true;
+    }
+}
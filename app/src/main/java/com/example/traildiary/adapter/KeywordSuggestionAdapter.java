@@ -0,0 +1,69 @@
+package com.example.traildiary.adapter;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import androidx.annotation.NonNull;
+
+import com.example.traildiary.database.KeywordSuggester;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 搜索框自动补全下拉列表的适配器
+ * 过滤在AutoCompleteTextView的后台线程中执行，建议直接取自内存前缀树
+ */
+public class KeywordSuggestionAdapter extends ArrayAdapter<String> {
+
+    private final KeywordSuggester suggester;
+    private final List<String> suggestions = new ArrayList<>();
+
+    public KeywordSuggestionAdapter(Context context, KeywordSuggester suggester) {
+        super(context, android.R.layout.simple_dropdown_item_1line);
+        this.suggester = suggester;
+    }
+
+    @Override
+    public int getCount() {
+        return suggestions.size();
+    }
+
+    @Override
+    public String getItem(int position) {
+        return suggestions.get(position);
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            FilterResults results = new FilterResults();
+            List<String> matches = constraint == null
+                    ? new ArrayList<>() : suggester.suggest(constraint.toString());
+            results.values = matches;
+            results.count = matches.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            suggestions.clear();
+            if (results != null && results.values != null) {
+                suggestions.addAll((List<String>) results.values);
+            }
+            if (suggestions.isEmpty()) {
+                notifyDataSetInvalidated();
+            } else {
+                notifyDataSetChanged();
+            }
+        }
+    };
+}
@@ -0,0 +1,101 @@
+package com.example.traildiary.adapter;
+
+import android.content.Context;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.traildiary.R;
+import com.example.traildiary.model.DiarySearchHit;
+
+import java.util.List;
+
+/**
+ * 搜索结果列表：显示标题和命中位置附近的正文摘要，关键词高亮
+ * 列表项只有摘要，点击后再按日记ID打开详情
+ */
+public class SearchResultAdapter extends RecyclerView.Adapter<SearchResultAdapter.ViewHolder> {
+
+    private final Context context;
+    private List<DiarySearchHit> hitList;
+    private OnItemClickListener onItemClickListener;
+    private final int highlightColor;
+
+    public SearchResultAdapter(Context context, List<DiarySearchHit> hitList) {
+        this.context = context;
+        this.hitList = hitList;
+        this.highlightColor = ContextCompat.getColor(context, R.color.secondary_dark);
+    }
+
+    public void setOnItemClickListener(OnItemClickListener listener) {
+        this.onItemClickListener = listener;
+    }
+
+    public void updateData(List<DiarySearchHit> newList) {
+        this.hitList = newList;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.item_search_result, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        DiarySearchHit hit = hitList.get(position);
+
+        holder.tvTitle.setText(highlight(hit.getTitle(), hit.getTitleHighlights()));
+        holder.tvSnippet.setText(highlight(hit.getSnippet(), hit.getSnippetHighlights()));
+        holder.tvSnippet.setVisibility(hit.getSnippet().isEmpty() ? View.GONE : View.VISIBLE);
+
+        holder.itemView.setOnClickListener(v -> {
+            if (onItemClickListener != null) {
+                onItemClickListener.onItemClick(hit);
+            }
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return hitList == null ? 0 : hitList.size();
+    }
+
+    // 按 [起点, 终点) 区间给关键词着色
+    private CharSequence highlight(String text, int[] ranges) {
+        if (ranges.length == 0) {
+            return text;
+        }
+        SpannableString spannable = new SpannableString(text);
+        for (int i = 0; i + 1 < ranges.length; i += 2) {
+            spannable.setSpan(new ForegroundColorSpan(highlightColor), ranges[i], ranges[i + 1],
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        return spannable;
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView tvTitle;
+        TextView tvSnippet;
+
+        public ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvTitle = itemView.findViewById(R.id.tv_title);
+            tvSnippet = itemView.findViewById(R.id.tv_snippet);
+        }
+    }
+
+    public interface OnItemClickListener {
+        void onItemClick(DiarySearchHit hit);
+    }
+}
@@ -1,14 +1,20 @@
 package com.example.traildiary.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
+
+import com.example.traildiary.database.migration.MigrationRunner;
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.PinyinUtil;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     // 数据库信息
     private static final String DATABASE_NAME = "TrailDiary.db";
-    private static final int DATABASE_VERSION = 3; // 版本升级：添加收藏表
+    private static final int DATABASE_VERSION = 12; // 版本12：按内容哈希存储插图（去重+引用计数）
 
     // 用户表
     public static final String TABLE_USER = "user";
@@ -21,7 +27,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_SIGNATURE = "signature";
     public static final String COLUMN_GENDER = "gender";
     public static final String COLUMN_BIRTHDAY = "birthday";
-    public static final String COLUMN_CREATE_TIME = "create_time";
+    public static final String COLUMN_CREATE_TIME = "create_time_ms"; // epoch毫秒
+    public static final String COLUMN_NICKNAME_PINYIN = "nickname_pinyin";     // 昵称全拼（zhangsan）
+    public static final String COLUMN_NICKNAME_INITIALS = "nickname_initials"; // 昵称拼音首字母（zs）
 
     // 日记本表
     public static final String TABLE_NOTEBOOK = "notebook";
@@ -43,10 +51,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_COVER_IMAGE_PATH = "cover_image_path"; // 修正命名
     public static final String COLUMN_IMAGES = "images"; // 多图路径，存储为JSON字符串
     public static final String COLUMN_IS_DRAFT = "is_draft";
-    public static final String COLUMN_CREATE_TIME_DIARY = "create_time_diary"; // 重命名避免冲突
-    public static final String COLUMN_UPDATE_TIME = "update_time"; // 更新时间
+    public static final String COLUMN_CREATE_TIME_DIARY = "create_time_diary_ms"; // 创建时间（epoch毫秒），重命名避免冲突
+    public static final String COLUMN_UPDATE_TIME = "update_time_ms"; // 更新时间（epoch毫秒）
     public static final String COLUMN_LIKE_COUNT = "like_count"; // 新增
     public static final String COLUMN_VIEW_COUNT = "view_count"; // 新增
+    public static final String COLUMN_COVER_THUMB_SMALL = "cover_thumb_small"; // 列表封面的小缩略图（NULL：尚未生成，空串：没有缩略图）
+    public static final String COLUMN_COVER_THUMB_LARGE = "cover_thumb_large"; // 列表封面的大缩略图（同上）
     // COLUMN_NOTEBOOK_ID 已定义
 
     // 搜索历史表
@@ -55,19 +65,48 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_KEYWORD = "keyword";
     public static final String COLUMN_SEARCH_TYPE = "search_type";
     public static final String COLUMN_SEARCH_RESULT = "search_result";
+    public static final String COLUMN_SEARCH_COUNT = "search_count"; // 搜索次数（同一用户+关键词+类型只保留一行）
+    public static final String COLUMN_LAST_SEARCH_TIME = "last_search_time_ms"; // 最近搜索时间（epoch毫秒）
     // COLUMN_USER_ID 已定义
-    // 使用COLUMN_CREATE_TIME作为搜索时间
+    // 使用COLUMN_CREATE_TIME作为首次搜索时间
+
+    // 全站关键词热度表（由搜索历史表上的触发器维护）
+    public static final String TABLE_SEARCH_KEYWORD = "search_keyword";
+    // COLUMN_KEYWORD、COLUMN_SEARCH_COUNT 已定义
+
+    // 热搜关键词表（按时间衰减的搜索热度，由 SearchHistoryDAO 在每次搜索时更新）
+    public static final String TABLE_TRENDING_KEYWORD = "trending_keyword";
+    public static final String COLUMN_TRENDING_SCORE = "trending_score"; // log2(Σ 2^(搜索时间/半衰期))
+    // COLUMN_KEYWORD 已定义
+
+    // 插图缩略图表（每张原图一行，由 ThumbnailGenerator 在后台生成）
+    public static final String TABLE_IMAGE_THUMBNAIL = "image_thumbnail";
+    public static final String COLUMN_SOURCE_PATH = "source_path";
+    public static final String COLUMN_THUMB_SMALL = "thumb_small"; // 长边 THUMBNAIL_SMALL_SIZE
+    public static final String COLUMN_THUMB_LARGE = "thumb_large"; // 长边 THUMBNAIL_LARGE_SIZE
+
+    // 图片库表（导入的插图按内容哈希命名，同一内容只保存一份）
+    public static final String TABLE_STORED_IMAGE = "stored_image";
+    public static final String COLUMN_IMAGE_HASH = "image_hash"; // SHA-256（十六进制）
+    public static final String COLUMN_IMAGE_PATH = "image_path";
+    public static final String COLUMN_BYTE_SIZE = "byte_size";
+    public static final String COLUMN_REF_COUNT = "ref_count"; // 引用该图片的日记数（由 diary_image 上的触发器维护）
+    public static final String COLUMN_IMPORT_TIME = "import_time_ms"; // 最近一次导入时间（epoch毫秒）
+
+    // 日记插图引用表（日记删除时级联删除，引用计数随之减少）
+    public static final String TABLE_DIARY_IMAGE = "diary_image";
+    // COLUMN_DIARY_ID、COLUMN_IMAGE_HASH 已定义
 
     // 收藏表（拓展功能）
     public static final String TABLE_FAVORITE = "favorite";
     public static final String COLUMN_FAVORITE_ID = "favorite_id";
     // COLUMN_USER_ID 已定义
     // COLUMN_DIARY_ID 已定义
-    public static final String COLUMN_FAVORITE_TIME = "favorite_time";
+    public static final String COLUMN_FAVORITE_TIME = "favorite_time_ms"; // epoch毫秒
 
     // 创建用户表SQL
     private static final String CREATE_TABLE_USER =
-            "CREATE TABLE " + TABLE_USER + "(" +
+            "CREATE TABLE IF NOT EXISTS " + TABLE_USER + "(" +
                     COLUMN_USER_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
                     COLUMN_AVATAR + " TEXT," +
                     COLUMN_NICKNAME + " TEXT UNIQUE NOT NULL," +
@@ -77,26 +116,28 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     COLUMN_SIGNATURE + " TEXT," +
                     COLUMN_GENDER + " TEXT," +
                     COLUMN_BIRTHDAY + " TEXT," + // 存储为字符串格式 yyyy-MM-dd
-                    COLUMN_CREATE_TIME + " TEXT" + // 存储为字符串格式 yyyy-MM-dd HH:mm:ss
+                    COLUMN_CREATE_TIME + " INTEGER," + // epoch毫秒
+                    COLUMN_NICKNAME_PINYIN + " TEXT," +
+                    COLUMN_NICKNAME_INITIALS + " TEXT" +
                     ")";
 
     // 创建日记本表SQL
     private static final String CREATE_TABLE_NOTEBOOK =
-            "CREATE TABLE " + TABLE_NOTEBOOK + "(" +
+            "CREATE TABLE IF NOT EXISTS " + TABLE_NOTEBOOK + "(" +
                     COLUMN_NOTEBOOK_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
                     COLUMN_NOTEBOOK_NAME + " TEXT NOT NULL," +
                     COLUMN_COVER + " TEXT," +
                     COLUMN_USER_ID + " INTEGER NOT NULL," +
                     COLUMN_DIARY_COUNT + " INTEGER DEFAULT 0," +
                     COLUMN_SORT_ORDER + " INTEGER DEFAULT 0," +
-                    COLUMN_CREATE_TIME + " TEXT," + // 存储为字符串格式
+                    COLUMN_CREATE_TIME + " INTEGER," + // epoch毫秒
                     "FOREIGN KEY(" + COLUMN_USER_ID + ") REFERENCES " +
                     TABLE_USER + "(" + COLUMN_USER_ID + ") ON DELETE CASCADE" +
                     ")";
 
     // 创建日记表SQL - 更新以匹配Diary模型
     private static final String CREATE_TABLE_DIARY =
-            "CREATE TABLE " + TABLE_DIARY + "(" +
+            "CREATE TABLE IF NOT EXISTS " + TABLE_DIARY + "(" +
                     COLUMN_DIARY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
                     COLUMN_TITLE + " TEXT NOT NULL," +
                     COLUMN_CONTENT + " TEXT," +
@@ -107,10 +148,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     COLUMN_IMAGES + " TEXT," + // 存储为JSON数组字符串
                     COLUMN_NOTEBOOK_ID + " INTEGER," +
                     COLUMN_IS_DRAFT + " INTEGER DEFAULT 0," + // 0-不是草稿, 1-是草稿
-                    COLUMN_CREATE_TIME_DIARY + " TEXT," + // 创建时间
-                    COLUMN_UPDATE_TIME + " TEXT," + // 更新时间
+                    COLUMN_CREATE_TIME_DIARY + " INTEGER," + // 创建时间（epoch毫秒）
+                    COLUMN_UPDATE_TIME + " INTEGER," + // 更新时间（epoch毫秒）
                     COLUMN_LIKE_COUNT + " INTEGER DEFAULT 0," + // 点赞数
                     COLUMN_VIEW_COUNT + " INTEGER DEFAULT 0," + // 浏览数
+                    COLUMN_COVER_THUMB_SMALL + " TEXT," + // 封面缩略图
+                    COLUMN_COVER_THUMB_LARGE + " TEXT," +
                     "FOREIGN KEY(" + COLUMN_AUTHOR_ID + ") REFERENCES " +
                     TABLE_USER + "(" + COLUMN_USER_ID + ") ON DELETE CASCADE," +
                     "FOREIGN KEY(" + COLUMN_NOTEBOOK_ID + ") REFERENCES " +
@@ -119,24 +162,118 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     // 创建搜索历史表SQL
     private static final String CREATE_TABLE_SEARCH_HISTORY =
-            "CREATE TABLE " + TABLE_SEARCH_HISTORY + "(" +
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SEARCH_HISTORY + "(" +
                     COLUMN_SEARCH_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
                     COLUMN_KEYWORD + " TEXT NOT NULL," +
                     COLUMN_SEARCH_TYPE + " INTEGER DEFAULT 0," +
                     COLUMN_USER_ID + " INTEGER NOT NULL," +
-                    COLUMN_CREATE_TIME + " TEXT," + // 使用TEXT存储时间字符串
+                    COLUMN_CREATE_TIME + " INTEGER," + // epoch毫秒
                     COLUMN_SEARCH_RESULT + " TEXT," +
+                    COLUMN_SEARCH_COUNT + " INTEGER NOT NULL DEFAULT 1," +
+                    COLUMN_LAST_SEARCH_TIME + " INTEGER," + // epoch毫秒
                     "FOREIGN KEY(" + COLUMN_USER_ID + ") REFERENCES " +
                     TABLE_USER + "(" + COLUMN_USER_ID + ") ON DELETE CASCADE" +
                     ")";
 
+    // 创建全站关键词热度表SQL：search_count 等于该关键词在全部用户搜索历史中的搜索次数之和
+    private static final String CREATE_TABLE_SEARCH_KEYWORD =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SEARCH_KEYWORD + "(" +
+                    COLUMN_KEYWORD + " TEXT PRIMARY KEY," +
+                    COLUMN_SEARCH_COUNT + " INTEGER NOT NULL DEFAULT 0" +
+                    ")";
+
+    // 创建热搜关键词表SQL
+    private static final String CREATE_TABLE_TRENDING_KEYWORD =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_TRENDING_KEYWORD + "(" +
+                    COLUMN_KEYWORD + " TEXT PRIMARY KEY," +
+                    COLUMN_TRENDING_SCORE + " REAL NOT NULL" +
+                    ")";
+
+    // 创建插图缩略图表SQL（原图不大于某个尺寸时，该尺寸的缩略图路径就是原图路径）
+    private static final String CREATE_TABLE_IMAGE_THUMBNAIL =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_IMAGE_THUMBNAIL + "(" +
+                    COLUMN_SOURCE_PATH + " TEXT PRIMARY KEY," +
+                    COLUMN_THUMB_SMALL + " TEXT NOT NULL," +
+                    COLUMN_THUMB_LARGE + " TEXT NOT NULL" +
+                    ")";
+
+    // 创建图片库表SQL
+    private static final String CREATE_TABLE_STORED_IMAGE =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_STORED_IMAGE + "(" +
+                    COLUMN_IMAGE_HASH + " TEXT PRIMARY KEY," +
+                    COLUMN_IMAGE_PATH + " TEXT NOT NULL," +
+                    COLUMN_BYTE_SIZE + " INTEGER NOT NULL," +
+                    COLUMN_REF_COUNT + " INTEGER NOT NULL DEFAULT 0," +
+                    COLUMN_IMPORT_TIME + " INTEGER NOT NULL" +
+                    ")";
+
+    // 创建日记插图引用表SQL
+    private static final String CREATE_TABLE_DIARY_IMAGE =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_DIARY_IMAGE + "(" +
+                    COLUMN_DIARY_ID + " INTEGER NOT NULL," +
+                    COLUMN_IMAGE_HASH + " TEXT NOT NULL," +
+                    "PRIMARY KEY(" + COLUMN_DIARY_ID + ", " + COLUMN_IMAGE_HASH + ")," +
+                    "FOREIGN KEY(" + COLUMN_DIARY_ID + ") REFERENCES " +
+                    TABLE_DIARY + "(" + COLUMN_DIARY_ID + ") ON DELETE CASCADE," +
+                    "FOREIGN KEY(" + COLUMN_IMAGE_HASH + ") REFERENCES " +
+                    TABLE_STORED_IMAGE + "(" + COLUMN_IMAGE_HASH + ")" +
+                    ")";
+
+    // 维护图片引用计数的触发器：日记插图引用的增删（含删除日记、注销用户时的级联删除）同步到图片库表
+    private static final String[] CREATE_IMAGE_REF_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS diary_image_after_insert AFTER INSERT ON " + TABLE_DIARY_IMAGE +
+                    " BEGIN" +
+                    " UPDATE " + TABLE_STORED_IMAGE + " SET " + COLUMN_REF_COUNT + " = " + COLUMN_REF_COUNT + " + 1" +
+                    " WHERE " + COLUMN_IMAGE_HASH + " = NEW." + COLUMN_IMAGE_HASH + ";" +
+                    " END",
+            "CREATE TRIGGER IF NOT EXISTS diary_image_after_delete AFTER DELETE ON " + TABLE_DIARY_IMAGE +
+                    " BEGIN" +
+                    " UPDATE " + TABLE_STORED_IMAGE + " SET " + COLUMN_REF_COUNT + " = " + COLUMN_REF_COUNT + " - 1" +
+                    " WHERE " + COLUMN_IMAGE_HASH + " = OLD." + COLUMN_IMAGE_HASH + ";" +
+                    " END"
+    };
+
+    // 维护关键词热度的触发器：搜索历史的新增、次数变化、删除（含用户注销时的级联删除）同步到热度表
+    private static final String[] CREATE_SEARCH_KEYWORD_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS search_keyword_after_insert AFTER INSERT ON " + TABLE_SEARCH_HISTORY +
+                    " BEGIN" +
+                    " INSERT OR IGNORE INTO " + TABLE_SEARCH_KEYWORD + "(" + COLUMN_KEYWORD + ") VALUES (NEW." +
+                    COLUMN_KEYWORD + ");" +
+                    " UPDATE " + TABLE_SEARCH_KEYWORD + " SET " + COLUMN_SEARCH_COUNT + " = " +
+                    COLUMN_SEARCH_COUNT + " + NEW." + COLUMN_SEARCH_COUNT +
+                    " WHERE " + COLUMN_KEYWORD + " = NEW." + COLUMN_KEYWORD + ";" +
+                    " END",
+            "CREATE TRIGGER IF NOT EXISTS search_keyword_after_update AFTER UPDATE OF " +
+                    COLUMN_KEYWORD + ", " + COLUMN_SEARCH_COUNT + " ON " + TABLE_SEARCH_HISTORY +
+                    " BEGIN" +
+                    " UPDATE " + TABLE_SEARCH_KEYWORD + " SET " + COLUMN_SEARCH_COUNT + " = " +
+                    COLUMN_SEARCH_COUNT + " - OLD." + COLUMN_SEARCH_COUNT +
+                    " WHERE " + COLUMN_KEYWORD + " = OLD." + COLUMN_KEYWORD + ";" +
+                    " INSERT OR IGNORE INTO " + TABLE_SEARCH_KEYWORD + "(" + COLUMN_KEYWORD + ") VALUES (NEW." +
+                    COLUMN_KEYWORD + ");" +
+                    " UPDATE " + TABLE_SEARCH_KEYWORD + " SET " + COLUMN_SEARCH_COUNT + " = " +
+                    COLUMN_SEARCH_COUNT + " + NEW." + COLUMN_SEARCH_COUNT +
+                    " WHERE " + COLUMN_KEYWORD + " = NEW." + COLUMN_KEYWORD + ";" +
+                    " DELETE FROM " + TABLE_SEARCH_KEYWORD + " WHERE " + COLUMN_KEYWORD + " = OLD." +
+                    COLUMN_KEYWORD + " AND " + COLUMN_SEARCH_COUNT + " <= 0;" +
+                    " END",
+            "CREATE TRIGGER IF NOT EXISTS search_keyword_after_delete AFTER DELETE ON " + TABLE_SEARCH_HISTORY +
+                    " BEGIN" +
+                    " UPDATE " + TABLE_SEARCH_KEYWORD + " SET " + COLUMN_SEARCH_COUNT + " = " +
+                    COLUMN_SEARCH_COUNT + " - OLD." + COLUMN_SEARCH_COUNT +
+                    " WHERE " + COLUMN_KEYWORD + " = OLD." + COLUMN_KEYWORD + ";" +
+                    " DELETE FROM " + TABLE_SEARCH_KEYWORD + " WHERE " + COLUMN_KEYWORD + " = OLD." +
+                    COLUMN_KEYWORD + " AND " + COLUMN_SEARCH_COUNT + " <= 0;" +
+                    " END"
+    };
+
     // 创建收藏表SQL（拓展功能）
     private static final String CREATE_TABLE_FAVORITE =
-            "CREATE TABLE " + TABLE_FAVORITE + "(" +
+            "CREATE TABLE IF NOT EXISTS " + TABLE_FAVORITE + "(" +
                     COLUMN_FAVORITE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
                     COLUMN_USER_ID + " INTEGER NOT NULL," +
                     COLUMN_DIARY_ID + " INTEGER NOT NULL," +
-                    COLUMN_FAVORITE_TIME + " TEXT," +
+                    COLUMN_FAVORITE_TIME + " INTEGER," + // epoch毫秒
                     "UNIQUE(" + COLUMN_USER_ID + ", " + COLUMN_DIARY_ID + ")," +
                     "FOREIGN KEY(" + COLUMN_USER_ID + ") REFERENCES " +
                     TABLE_USER + "(" + COLUMN_USER_ID + ") ON DELETE CASCADE," +
@@ -144,41 +281,170 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     TABLE_DIARY + "(" + COLUMN_DIARY_ID + ") ON DELETE CASCADE" +
                     ")";
 
+    // 索引：覆盖各DAO的 WHERE + ORDER BY 访问路径，避免全表扫描和临时排序
+    private static final String[] CREATE_INDEXES = {
+            // 用户日记列表（含草稿）：author_id = ? ORDER BY 创建时间
+            "CREATE INDEX IF NOT EXISTS idx_diary_author_time ON " + TABLE_DIARY +
+                    "(" + COLUMN_AUTHOR_ID + ", " + COLUMN_CREATE_TIME_DIARY + ")",
+            // 用户已发布日记/按作者、标题、类别搜索：author_id = ? AND is_draft = ? ORDER BY 创建时间
+            "CREATE INDEX IF NOT EXISTS idx_diary_author_draft_time ON " + TABLE_DIARY +
+                    "(" + COLUMN_AUTHOR_ID + ", " + COLUMN_IS_DRAFT + ", " + COLUMN_CREATE_TIME_DIARY + ")",
+            // 草稿箱：author_id = ? AND is_draft = 1 ORDER BY 更新时间
+            "CREATE INDEX IF NOT EXISTS idx_diary_author_draft_update ON " + TABLE_DIARY +
+                    "(" + COLUMN_AUTHOR_ID + ", " + COLUMN_IS_DRAFT + ", " + COLUMN_UPDATE_TIME + ")",
+            // 日记本详情/日记数统计：notebook_id = ? AND is_draft = 0 ORDER BY 创建时间
+            "CREATE INDEX IF NOT EXISTS idx_diary_notebook_draft_time ON " + TABLE_DIARY +
+                    "(" + COLUMN_NOTEBOOK_ID + ", " + COLUMN_IS_DRAFT + ", " + COLUMN_CREATE_TIME_DIARY + ")",
+            // 全站搜索：is_draft = 0 ORDER BY 创建时间
+            "CREATE INDEX IF NOT EXISTS idx_diary_draft_time ON " + TABLE_DIARY +
+                    "(" + COLUMN_IS_DRAFT + ", " + COLUMN_CREATE_TIME_DIARY + ")",
+            // 日记本列表：user_id = ? ORDER BY sort_order ASC, 创建时间 DESC
+            "CREATE INDEX IF NOT EXISTS idx_notebook_user_order ON " + TABLE_NOTEBOOK +
+                    "(" + COLUMN_USER_ID + ", " + COLUMN_SORT_ORDER + " ASC, " + COLUMN_CREATE_TIME + " DESC)",
+            // 搜索历史/超出条数上限时淘汰：user_id = ? ORDER BY 最近搜索时间
+            "CREATE INDEX IF NOT EXISTS idx_search_history_user_last_time ON " + TABLE_SEARCH_HISTORY +
+                    "(" + COLUMN_USER_ID + ", " + COLUMN_LAST_SEARCH_TIME + ")",
+            // 搜索历史唯一键（再次搜索只累加次数）/按关键词删除：user_id = ? AND keyword = ? [AND search_type = ?]
+            "CREATE UNIQUE INDEX IF NOT EXISTS idx_search_history_user_keyword_type ON " + TABLE_SEARCH_HISTORY +
+                    "(" + COLUMN_USER_ID + ", " + COLUMN_KEYWORD + ", " + COLUMN_SEARCH_TYPE + ")",
+            // 热门关键词：ORDER BY 搜索次数 DESC LIMIT ?（覆盖索引，按索引倒序只读前N项）
+            "CREATE INDEX IF NOT EXISTS idx_search_keyword_count ON " + TABLE_SEARCH_KEYWORD +
+                    "(" + COLUMN_SEARCH_COUNT + ", " + COLUMN_KEYWORD + ")",
+            // 热搜关键词：ORDER BY 衰减分数 DESC LIMIT ?（覆盖索引）；清理衰减殆尽的关键词：分数 < ?
+            "CREATE INDEX IF NOT EXISTS idx_trending_keyword_score ON " + TABLE_TRENDING_KEYWORD +
+                    "(" + COLUMN_TRENDING_SCORE + ", " + COLUMN_KEYWORD + ")",
+            // 补生成缩略图：封面缩略图 IS NULL AND diary_id > ? ORDER BY diary_id（部分索引，只包含待生成的日记）
+            "CREATE INDEX IF NOT EXISTS idx_diary_missing_thumbnail ON " + TABLE_DIARY +
+                    "(" + COLUMN_COVER_THUMB_LARGE + ") WHERE " + COLUMN_COVER_THUMB_LARGE + " IS NULL",
+            // 按路径找到图片库中的图片（保存日记时建立引用）
+            "CREATE UNIQUE INDEX IF NOT EXISTS idx_stored_image_path ON " + TABLE_STORED_IMAGE + "(" + COLUMN_IMAGE_PATH + ")",
+            // 清理无引用的图片：ref_count = 0 AND 导入时间 < ?（部分索引，只包含无引用的图片）
+            "CREATE INDEX IF NOT EXISTS idx_stored_image_unreferenced ON " + TABLE_STORED_IMAGE +
+                    "(" + COLUMN_IMPORT_TIME + ") WHERE " + COLUMN_REF_COUNT + " = 0",
+            // 删除图片库记录时的外键检查：image_hash = ?
+            "CREATE INDEX IF NOT EXISTS idx_diary_image_hash ON " + TABLE_DIARY_IMAGE + "(" + COLUMN_IMAGE_HASH + ")",
+            // 收藏列表：user_id = ? ORDER BY 收藏时间
+            "CREATE INDEX IF NOT EXISTS idx_favorite_user_time ON " + TABLE_FAVORITE +
+                    "(" + COLUMN_USER_ID + ", " + COLUMN_FAVORITE_TIME + ")",
+            // 按手机号查找用户/重置密码
+            "CREATE INDEX IF NOT EXISTS idx_user_phone ON " + TABLE_USER + "(" + COLUMN_PHONE + ")"
+    };
+
+    // onOpen 时记录的连接（关闭前checkpoint使用）
+    private volatile SQLiteDatabase openDatabase;
+
     public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME, null);
+    }
+
+    // 指定数据库名和CursorFactory（name为null时为内存数据库，供测试使用）
+    DatabaseHelper(Context context, String name, SQLiteDatabase.CursorFactory factory) {
+        super(context, name, factory, DATABASE_VERSION);
+        // 拼音索引在建表、升级和写入日记时使用，拼音表首次使用时才从assets加载
+        PinyinUtil.init(context);
+        // 空闲的读连接超时后自动释放，避免连接池长期占用文件句柄
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            setIdleConnectionTimeout(Constants.DB_IDLE_CONNECTION_TIMEOUT_MS);
+        }
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         // 创建所有表
+        createTablesIfNotExist(db);
+        createIndexes(db);
+        createSearchKeywordTriggers(db);
+        createImageRefTriggers(db);
+        DiarySearchIndex.create(db);
+        MigrationRunner.createStateTable(db);
+    }
+
+    // 创建全部表（IF NOT EXISTS，可重复执行，供迁移步骤复用）
+    public static void createTablesIfNotExist(SQLiteDatabase db) {
         db.execSQL(CREATE_TABLE_USER);
         db.execSQL(CREATE_TABLE_NOTEBOOK);
         db.execSQL(CREATE_TABLE_DIARY);
         db.execSQL(CREATE_TABLE_SEARCH_HISTORY);
+        db.execSQL(CREATE_TABLE_SEARCH_KEYWORD);
+        db.execSQL(CREATE_TABLE_TRENDING_KEYWORD);
+        db.execSQL(CREATE_TABLE_IMAGE_THUMBNAIL);
+        db.execSQL(CREATE_TABLE_STORED_IMAGE);
+        db.execSQL(CREATE_TABLE_DIARY_IMAGE);
         db.execSQL(CREATE_TABLE_FAVORITE); // 收藏表
     }
 
-    @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // 升级数据库时删除旧表并创建新表
-        if (oldVersion < 2) {
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEARCH_HISTORY);
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_DIARY);
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_NOTEBOOK);
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_USER);
-            onCreate(db);
+    // 创建全部索引（IF NOT EXISTS，可重复执行）
+    public static void createIndexes(SQLiteDatabase db) {
+        for (String sql : CREATE_INDEXES) {
+            db.execSQL(sql);
         }
-        // 版本3：添加收藏表
-        if (oldVersion < 3) {
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_FAVORITE);
-            db.execSQL(CREATE_TABLE_FAVORITE);
+    }
+
+    // 创建维护关键词热度的触发器（IF NOT EXISTS，可重复执行）
+    public static void createSearchKeywordTriggers(SQLiteDatabase db) {
+        for (String sql : CREATE_SEARCH_KEYWORD_TRIGGERS) {
+            db.execSQL(sql);
         }
     }
 
+    // 创建维护图片引用计数的触发器（IF NOT EXISTS，可重复执行）
+    public static void createImageRefTriggers(SQLiteDatabase db) {
+        for (String sql : CREATE_IMAGE_REF_TRIGGERS) {
+            db.execSQL(sql);
+        }
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // 按版本逐步迁移，不再删表重建；大批量数据改写由MigrationRunner在后台分批完成
+        MigrationRunner.applySchemaMigrations(db, oldVersion, newVersion);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        openDatabase = db;
+    }
+
     @Override
     public void onConfigure(SQLiteDatabase db) {
         super.onConfigure(db);
         // 启用外键约束
         db.setForeignKeyConstraintsEnabled(true);
+
+        // 启用WAL：写事务进行中，其他连接仍可并发读取
+        if (Constants.DB_WAL_ENABLED) {
+            db.enableWriteAheadLogging();
+            // WAL模式下NORMAL已能保证一致性，且减少每次提交的fsync
+            execPragma(db, "PRAGMA synchronous = NORMAL");
+            // checkpoint策略：WAL达到指定页数后自动合并回主库，并限制WAL文件残留大小
+            execPragma(db, "PRAGMA wal_autocheckpoint = " + Constants.DB_WAL_AUTO_CHECKPOINT_PAGES);
+            execPragma(db, "PRAGMA journal_size_limit = " + Constants.DB_WAL_JOURNAL_SIZE_LIMIT);
+        } else {
+            db.disableWriteAheadLogging();
+        }
+    }
+
+    // 已打开的连接，尚未打开或已关闭时返回null（不会因此打开数据库）
+    public SQLiteDatabase getOpenDatabase() {
+        SQLiteDatabase db = openDatabase;
+        return db != null && db.isOpen() ? db : null;
+    }
+
+    // 手动checkpoint：把WAL内容写回主库并截断WAL文件（用于关闭数据库前）
+    public void checkpoint(SQLiteDatabase db) {
+        if (db != null && db.isOpen() && db.isWriteAheadLoggingEnabled()) {
+            execPragma(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+        }
+    }
+
+    // 执行带返回值的PRAGMA（execSQL不允许返回结果行）
+    private static void execPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery(pragma, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
     }
 }
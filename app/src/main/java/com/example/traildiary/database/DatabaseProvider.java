@@ -0,0 +1,162 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteReadOnlyDatabaseException;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.traildiary.database.migration.MigrationRunner;
+import com.example.traildiary.utils.Constants;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程级数据库提供者
+ * 由MyApplication持有，所有DAO共享同一个DatabaseHelper及其连接，
+ * 查询过程中不再关闭连接，只在进程结束时统一关闭
+ */
+public final class DatabaseProvider {
+
+    private static final String TAG = "DatabaseProvider";
+
+    private static volatile DatabaseProvider instance;
+
+    private final DatabaseHelper dbHelper;
+    private final ReaderConnectionPool readerPool;
+    private final StatementRegistry statementRegistry = new StatementRegistry();
+    private final MigrationRunner migrationRunner = new MigrationRunner(this);
+    private final SearchResultCache searchResultCache = new SearchResultCache(Constants.SEARCH_CACHE_MAX_BYTES);
+    private final FuzzySearchIndex fuzzySearchIndex = new FuzzySearchIndex(this);
+    private final AtomicLong diaryWriteVersion = new AtomicLong();
+
+    private DatabaseProvider(Context appContext) {
+        dbHelper = new DatabaseHelper(appContext);
+        readerPool = new ReaderConnectionPool(dbHelper, Constants.DB_READER_CONNECTIONS);
+    }
+
+    DatabaseProvider(DatabaseHelper dbHelper) {
+        this(dbHelper, Constants.DB_READER_CONNECTIONS);
+    }
+
+    DatabaseProvider(DatabaseHelper dbHelper, int readerConnections) {
+        this.dbHelper = dbHelper;
+        this.readerPool = new ReaderConnectionPool(dbHelper, readerConnections);
+    }
+
+    // 替换全局实例（仅供测试注入内存数据库）
+    @VisibleForTesting
+    static void setInstanceForTesting(DatabaseProvider provider) {
+        synchronized (DatabaseProvider.class) {
+            instance = provider;
+        }
+    }
+
+    // 获取全局唯一实例（始终使用ApplicationContext，避免持有Activity）
+    public static DatabaseProvider getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DatabaseProvider.class) {
+                if (instance == null) {
+                    instance = new DatabaseProvider(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    // 写操作使用的连接；数据迁移进行中（只读模式）时拒绝写入
+    public SQLiteDatabase getWritableDatabase() {
+        checkWritable();
+        return dbHelper.getWritableDatabase();
+    }
+
+    // 后台维护任务（迁移回填、补建索引、缩略图、图片库回收）写入派生数据使用的连接，不受只读模式限制
+    public SQLiteDatabase getMaintenanceDatabase() {
+        return dbHelper.getWritableDatabase();
+    }
+
+    // 查询使用只读连接池中的连接，写事务进行中也不会被阻塞
+    public SQLiteDatabase getReadableDatabase() {
+        return readerPool.acquire();
+    }
+
+    public DatabaseHelper getDatabaseHelper() {
+        return dbHelper;
+    }
+
+    public MigrationRunner getMigrationRunner() {
+        return migrationRunner;
+    }
+
+    public SearchResultCache getSearchResultCache() {
+        return searchResultCache;
+    }
+
+    FuzzySearchIndex getFuzzySearchIndex() {
+        return fuzzySearchIndex;
+    }
+
+    // 日记的写入版本号，搜索结果缓存据此判断是否过期
+    long getDiaryWriteVersion() {
+        return diaryWriteVersion.get();
+    }
+
+    // 日记或作者昵称写入后调用（包括删除和后台回填），使已缓存的搜索结果失效
+    public void notifyDiariesChanged() {
+        diaryWriteVersion.incrementAndGet();
+    }
+
+    // 数据迁移进行中时为只读模式，界面据此提前提示；写入本身由 checkWritable 统一拒绝
+    public boolean isWritable() {
+        return !migrationRunner.isMigrating();
+    }
+
+    private void checkWritable() {
+        if (migrationRunner.isMigrating()) {
+            throw new SQLiteReadOnlyDatabaseException("数据迁移进行中，暂不能写入");
+        }
+    }
+
+    // 为写入提交后触发器记录的日记补建全文索引；失败时保留待处理记录，下次写入或启动时重试
+    public void syncSearchIndex() {
+        try {
+            DiarySearchIndex.syncPending(getMaintenanceDatabase());
+        } catch (RuntimeException e) {
+            Log.e(TAG, "补建全文索引失败", e);
+        }
+    }
+
+    // 获取共享连接上的预编译语句（高频写入复用）；只读模式下只能获取查询语句
+    public SQLiteStatement getStatement(String sql) {
+        if (DatabaseUtils.getSqlStatementType(sql) != DatabaseUtils.STATEMENT_SELECT) {
+            checkWritable();
+        }
+        return statementRegistry.acquire(dbHelper.getWritableDatabase(), sql);
+    }
+
+    // 后台维护任务使用的预编译语句，不受只读模式限制
+    SQLiteStatement getMaintenanceStatement(String sql) {
+        return statementRegistry.acquire(dbHelper.getWritableDatabase(), sql);
+    }
+
+    // 关闭共享连接（仅在进程退出时调用，之后再次访问会自动重新打开）
+    public synchronized void close() {
+        statementRegistry.releaseAll();
+        searchResultCache.clear();
+        fuzzySearchIndex.clear();
+        readerPool.closeAll();
+        // 只对已打开的连接做checkpoint，尚未打开时不为关闭而打开数据库
+        SQLiteDatabase db = dbHelper.getOpenDatabase();
+        if (db != null) {
+            try {
+                dbHelper.checkpoint(db);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "关闭前checkpoint失败", e);
+            }
+        }
+        dbHelper.close();
+    }
+}
@@ -4,28 +4,66 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
+
 import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySearchHit;
+import com.example.traildiary.model.DiarySummary;
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.EditDistanceIndex;
+import com.example.traildiary.utils.PinyinUtil;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.Type;
-import org.threeten.bp.LocalDateTime;
-import org.threeten.bp.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class DiaryDAO {
-    private DatabaseHelper dbHelper;
+    private final DatabaseProvider dbProvider;
     private Gson gson = new Gson();
-    private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // 列表页投影：只取卡片需要的列，不读取正文、完整插图JSON和作者头像（头像是十六进制大字段）
+    static final String COLUMN_IMAGES_HEAD = "images_head";
+    private static final int IMAGES_HEAD_LENGTH = 1024; // 只截取插图JSON开头，足够解析出第一张图
+    static final String SUMMARY_COLUMNS = "d." + DatabaseHelper.COLUMN_DIARY_ID + ", " +
+            "d." + DatabaseHelper.COLUMN_TITLE + ", " +
+            "d." + DatabaseHelper.COLUMN_CATEGORY + ", " +
+            "d." + DatabaseHelper.COLUMN_AUTHOR_ID + ", " +
+            "d." + DatabaseHelper.COLUMN_NOTEBOOK_ID + ", " +
+            "d." + DatabaseHelper.COLUMN_IS_DRAFT + ", " +
+            "d." + DatabaseHelper.COLUMN_COVER_IMAGE_PATH + ", " +
+            "d." + DatabaseHelper.COLUMN_COVER_THUMB_SMALL + ", " +
+            "d." + DatabaseHelper.COLUMN_COVER_THUMB_LARGE + ", " +
+            "substr(d." + DatabaseHelper.COLUMN_IMAGES + ", 1, " + IMAGES_HEAD_LENGTH + ") AS " + COLUMN_IMAGES_HEAD + ", " +
+            "d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + ", " +
+            "d." + DatabaseHelper.COLUMN_UPDATE_TIME + ", " +
+            "COALESCE(u." + DatabaseHelper.COLUMN_NICKNAME + ", d." + DatabaseHelper.COLUMN_AUTHOR_NAME + ") AS " +
+            DatabaseHelper.COLUMN_AUTHOR_NAME;
+    private static final String SUMMARY_SELECT = "SELECT " + SUMMARY_COLUMNS + " " +
+            "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
+            "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
+            DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID;
+
+    // 综合搜索（标题/正文）在搜索结果缓存中的类型
+    private static final int SEARCH_TYPE_GENERAL = 0;
+
+    // 类别名称，下标+1为类别代码（与 Constants.DIARY_CATEGORY_* 一致）
+    private static final String[] CATEGORY_NAMES = {"国内游", "国际游", "亲子游", "美食之旅", "探险之旅", "文化之旅"};
 
     public DiaryDAO(Context context) {
-        dbHelper = new DatabaseHelper(context);
+        dbProvider = DatabaseProvider.getInstance(context);
     }
 
     // 添加日记
     public long addDiary(Diary diary) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         ContentValues values = new ContentValues();
 
         values.put(DatabaseHelper.COLUMN_TITLE, diary.getTitle());
@@ -44,24 +82,35 @@ public class DiaryDAO {
             values.put(DatabaseHelper.COLUMN_IMAGES, gson.toJson(diary.getImages()));
         }
 
-        // 处理时间（使用 org.threeten.bp 包的 LocalDateTime）
-        if (diary.getCreateTime() != null) {
-            values.put(DatabaseHelper.COLUMN_CREATE_TIME_DIARY, diary.getCreateTime().format(formatter));
+        // 处理时间（epoch毫秒）；创建时间是分页键，未设置时使用当前时间
+        long createTime = diary.getCreateTimeMillis() != 0 ? diary.getCreateTimeMillis() : System.currentTimeMillis();
+        values.put(DatabaseHelper.COLUMN_CREATE_TIME_DIARY, createTime);
+        values.put(DatabaseHelper.COLUMN_UPDATE_TIME,
+                diary.getUpdateTimeMillis() != 0 ? diary.getUpdateTimeMillis() : createTime);
+
+        // 日记行和图片引用在同一事务中写入
+        long result;
+        db.beginTransactionNonExclusive();
+        try {
+            result = db.insert(DatabaseHelper.TABLE_DIARY, null, values);
+            if (result != -1) {
+                ImageStoreDAO.syncDiaryImages(db, result, getReferencedImages(diary));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
-        if (diary.getUpdateTime() != null) {
-            values.put(DatabaseHelper.COLUMN_UPDATE_TIME, diary.getUpdateTime().format(formatter));
-        } else if (diary.getCreateTime() != null) {
-            values.put(DatabaseHelper.COLUMN_UPDATE_TIME, diary.getCreateTime().format(formatter));
+        if (result != -1) {
+            dbProvider.syncSearchIndex();
+            dbProvider.notifyDiariesChanged();
+            dbProvider.getFuzzySearchIndex().onDiaryWritten((int) result, diary.getAuthorId(), diary.getTitle());
         }
-
-        long result = db.insert(DatabaseHelper.TABLE_DIARY, null, values);
-        db.close();
         return result;
     }
 
     // 更新日记
     public int updateDiary(Diary diary) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         ContentValues values = new ContentValues();
 
         values.put(DatabaseHelper.COLUMN_TITLE, diary.getTitle());
@@ -73,36 +122,72 @@ public class DiaryDAO {
         values.put(DatabaseHelper.COLUMN_IS_DRAFT, diary.isDraft() ? 1 : 0);
         values.put(DatabaseHelper.COLUMN_LIKE_COUNT, diary.getLikeCount());
         values.put(DatabaseHelper.COLUMN_VIEW_COUNT, diary.getViewCount());
+        // 封面可能已更换，缩略图由 ThumbnailGenerator 重新生成
+        values.putNull(DatabaseHelper.COLUMN_COVER_THUMB_SMALL);
+        values.putNull(DatabaseHelper.COLUMN_COVER_THUMB_LARGE);
 
         // 处理图片列表
         if (diary.getImages() != null) {
             values.put(DatabaseHelper.COLUMN_IMAGES, gson.toJson(diary.getImages()));
         }
 
-        // 更新时间为当前时间（使用 org.threeten.bp 包的 LocalDateTime）
-        values.put(DatabaseHelper.COLUMN_UPDATE_TIME, LocalDateTime.now().format(formatter));
-
-        int result = db.update(DatabaseHelper.TABLE_DIARY, values,
-                DatabaseHelper.COLUMN_DIARY_ID + " = ?",
-                new String[]{String.valueOf(diary.getDiaryId())});
-        db.close();
+        // 更新时间为当前时间（epoch毫秒）
+        values.put(DatabaseHelper.COLUMN_UPDATE_TIME, System.currentTimeMillis());
+
+        int result;
+        db.beginTransactionNonExclusive();
+        try {
+            result = db.update(DatabaseHelper.TABLE_DIARY, values,
+                    DatabaseHelper.COLUMN_DIARY_ID + " = ?",
+                    new String[]{String.valueOf(diary.getDiaryId())});
+            // 未传图片列表时插图不变，引用保持不变
+            if (result > 0 && diary.getImages() != null) {
+                ImageStoreDAO.syncDiaryImages(db, diary.getDiaryId(), getReferencedImages(diary));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (result > 0) {
+            dbProvider.syncSearchIndex();
+            dbProvider.notifyDiariesChanged();
+            dbProvider.getFuzzySearchIndex().onDiaryWritten(diary.getDiaryId(), diary.getAuthorId(), diary.getTitle());
+        }
         return result;
     }
 
+    // 日记引用的全部图片（封面和插图），用于维护图片库的引用计数
+    private static List<String> getReferencedImages(Diary diary) {
+        List<String> paths = new ArrayList<>();
+        if (diary.getCoverImagePath() != null && !diary.getCoverImagePath().isEmpty()) {
+            paths.add(diary.getCoverImagePath());
+        }
+        if (diary.getImages() != null) {
+            for (String image : diary.getImages()) {
+                if (image != null && !image.isEmpty()) {
+                    paths.add(image);
+                }
+            }
+        }
+        return paths;
+    }
+
     // 删除日记
     public int deleteDiary(int diaryId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         int result = db.delete(DatabaseHelper.TABLE_DIARY,
                 DatabaseHelper.COLUMN_DIARY_ID + " = ?",
                 new String[]{String.valueOf(diaryId)});
-        db.close();
+        if (result > 0) {
+            dbProvider.notifyDiariesChanged();
+            dbProvider.getFuzzySearchIndex().onDiaryDeleted(diaryId);
+        }
         return result;
     }
 
     // 根据ID获取日记
     public Diary getDiaryById(int diaryId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Diary diary = null;
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
 
         String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
                 "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
@@ -113,241 +198,184 @@ public class DiaryDAO {
 
         Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(diaryId)});
 
-        if (cursor != null && cursor.moveToFirst()) {
-            diary = cursorToDiary(cursor);
-            cursor.close();
-        }
-        db.close();
-        return diary;
+        return RowMapper.readFirst(cursor, DiaryRowMapper::new);
     }
 
-    // 获取用户的所有日记
-    public List<Diary> getDiariesByUserId(int userId, boolean includeDrafts) {
-        List<Diary> diaryList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
-                "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
-                "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
-                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
-                " WHERE d." + DatabaseHelper.COLUMN_AUTHOR_ID + " = ?";
-
-        if (!includeDrafts) {
-            query += " AND d." + DatabaseHelper.COLUMN_IS_DRAFT + " = 0";
-        }
+    /**
+     * 按查询条件获取日记摘要，筛选、排序和分页都在一条SQL中完成
+     */
+    public List<DiarySummary> query(DiaryQuery diaryQuery) {
+        List<String> args = new ArrayList<>();
+        String query = SUMMARY_SELECT + diaryQuery.compile(args);
 
-        query += " ORDER BY d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
+        Cursor cursor = dbProvider.getReadableDatabase().rawQuery(query, args.toArray(new String[0]));
 
-        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
+        return RowMapper.readList(cursor, DiarySummaryRowMapper::new);
+    }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                diaryList.add(cursorToDiary(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
+    // 获取用户的所有日记
+    public List<DiarySummary> getDiariesByUserId(int userId, boolean includeDrafts) {
+        DiaryQuery query = new DiaryQuery().author(userId);
+        if (!includeDrafts) {
+            query.published();
         }
-        db.close();
-        return diaryList;
+        return query(query);
     }
 
     // 根据日记本ID获取日记
-    public List<Diary> getDiariesByNotebookId(int notebookId) {
-        List<Diary> diaryList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
-                "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
-                "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
-                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
-                " WHERE d." + DatabaseHelper.COLUMN_NOTEBOOK_ID + " = ? AND d." +
-                DatabaseHelper.COLUMN_IS_DRAFT + " = 0" +
-                " ORDER BY d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
-
-        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(notebookId)});
+    public List<DiarySummary> getDiariesByNotebookId(int notebookId) {
+        return query(new DiaryQuery().notebook(notebookId).published());
+    }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                diaryList.add(cursorToDiary(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
+    // 分页获取用户的日记（键集分页，after为上一页最后一条，首页传null）
+    public List<DiarySummary> getDiaryPageByUserId(int userId, boolean includeDrafts,
+                                                   DiarySummary after, int pageSize) {
+        DiaryQuery query = new DiaryQuery().author(userId).after(after).pageSize(pageSize);
+        if (!includeDrafts) {
+            query.published();
         }
-        db.close();
-        return diaryList;
+        return query(query);
     }
 
-    // 按搜索类型（作者/类别/标题/综合）搜索所有用户日记
-    public List<Diary> searchDiaries(String keyword, int searchType) {
-        List<Diary> diaryList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+    // 分页获取日记本中的日记（键集分页，after为上一页最后一条，首页传null）
+    public List<DiarySummary> getDiaryPageByNotebookId(int notebookId, DiarySummary after, int pageSize) {
+        return query(new DiaryQuery().notebook(notebookId).published().after(after).pageSize(pageSize));
+    }
 
-        String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
-                "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
-                "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
-                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
-                " WHERE d." + DatabaseHelper.COLUMN_IS_DRAFT + " = 0 AND (";
+    // 按搜索类型（作者/类别/标题/综合）搜索所有用户日记
+    public List<DiarySummary> searchDiaries(String keyword, int searchType) {
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
+
+        // 按类别搜索：类别列保存的是类别代码，不在全文索引中
+        if (searchType == 1) {
+            String query = SUMMARY_SELECT +
+                    " WHERE d." + DatabaseHelper.COLUMN_IS_DRAFT + " = 0 AND d." +
+                    DatabaseHelper.COLUMN_CATEGORY + " LIKE ?" +
+                    " ORDER BY d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
+            Cursor cursor = db.rawQuery(query, new String[]{"%" + keyword + "%"});
+            return RowMapper.readList(cursor, DiarySummaryRowMapper::new);
+        }
 
+        DiarySearchIndex.MatchQuery search;
         switch (searchType) {
             case 0: // 按作者搜索
-                query += "u." + DatabaseHelper.COLUMN_NICKNAME + " LIKE ?)";
-                break;
-            case 1: // 按类别搜索
-                query += "d." + DatabaseHelper.COLUMN_CATEGORY + " LIKE ?)";
+                search = DiarySearchIndex.buildMatchQuery(keyword, DiarySearchIndex.COLUMN_FTS_AUTHOR_NAME);
                 break;
             case 2: // 按标题搜索
-                query += "d." + DatabaseHelper.COLUMN_TITLE + " LIKE ?)";
+                search = DiarySearchIndex.buildMatchQuery(keyword, DiarySearchIndex.COLUMN_FTS_TITLE);
                 break;
-            default: // 综合搜索
-                query += "u." + DatabaseHelper.COLUMN_NICKNAME + " LIKE ? OR " +
-                        "d." + DatabaseHelper.COLUMN_CATEGORY + " LIKE ? OR " +
-                        "d." + DatabaseHelper.COLUMN_TITLE + " LIKE ?)";
+            default: // 综合搜索（作者或标题）
+                search = DiarySearchIndex.buildMatchQuery(keyword,
+                        DiarySearchIndex.COLUMN_FTS_AUTHOR_NAME, DiarySearchIndex.COLUMN_FTS_TITLE);
         }
-
-        query += " ORDER BY d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
-
-        Cursor cursor;
-        if (searchType == 3) { // 综合搜索
-            cursor = db.rawQuery(query, new String[]{"%" + keyword + "%",
-                    "%" + keyword + "%", "%" + keyword + "%"});
-        } else {
-            cursor = db.rawQuery(query, new String[]{"%" + keyword + "%"});
+        if (search == null) {
+            return new ArrayList<>();
         }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                diaryList.add(cursorToDiary(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-        db.close();
-        return diaryList;
+        return DiarySearchIndex.toSummaries(DiarySearchIndex.searchHits(dbProvider.getReadableDatabase(), search,
+                " AND d." + DatabaseHelper.COLUMN_IS_DRAFT + " = 0", new String[0], null));
     }
 
-    // 按关键词+用户ID 综合搜索（标题/内容/类别）
-    public List<Diary> searchDiariesByUser(String keyword, int userId) {
-        List<Diary> diaries = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
-                "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
-                "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
-                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
-                " WHERE (d." + DatabaseHelper.COLUMN_TITLE + " LIKE ? OR d." +
-                DatabaseHelper.COLUMN_CONTENT + " LIKE ? OR d." + DatabaseHelper.COLUMN_CATEGORY +
-                " LIKE ?) AND d." + DatabaseHelper.COLUMN_AUTHOR_ID + " = ? " +
-                "ORDER BY d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
-
-        String searchPattern = "%" + keyword + "%";
-        Cursor cursor = db.rawQuery(query, new String[]{
-                searchPattern, searchPattern, searchPattern, String.valueOf(userId)
-        });
-
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                Diary diary = cursorToDiary(cursor);
-                diaries.add(diary);
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-        db.close();
-        return diaries;
+    // 按关键词+用户ID 综合搜索（标题/正文，正文包含图片描述）
+    public List<DiarySummary> searchDiariesByUser(String keyword, int userId) {
+        DiarySearchIndex.MatchQuery search = DiarySearchIndex.buildMatchQuery(keyword,
+                DiarySearchIndex.COLUMN_FTS_TITLE, DiarySearchIndex.COLUMN_FTS_CONTENT);
+        return DiarySearchIndex.toSummaries(searchUserDiaries(search, SEARCH_TYPE_GENERAL, userId, false, null));
     }
 
     // 按作者搜索（搜索作者昵称包含关键词的日记）
-    public List<Diary> searchByAuthor(String keyword, int userId) {
-        List<Diary> diaryList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+    public List<DiarySummary> searchByAuthor(String keyword, int userId) {
+        DiarySearchIndex.MatchQuery search =
+                DiarySearchIndex.buildMatchQuery(keyword, DiarySearchIndex.COLUMN_FTS_AUTHOR_NAME);
+        return DiarySearchIndex.toSummaries(searchUserDiaries(search, Constants.SEARCH_BY_AUTHOR, userId, true, null));
+    }
 
-        // 搜索作者昵称包含关键词的日记
-        String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
-                "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
-                "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
-                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
-                " WHERE u." + DatabaseHelper.COLUMN_NICKNAME + " LIKE ? AND d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = ? AND d." +
-                DatabaseHelper.COLUMN_IS_DRAFT + " = 0" +
-                " ORDER BY d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
+    // 按标题搜索
+    public List<DiarySummary> searchByTitle(String keyword, int userId) {
+        DiarySearchIndex.MatchQuery search =
+                DiarySearchIndex.buildMatchQuery(keyword, DiarySearchIndex.COLUMN_FTS_TITLE);
+        return DiarySearchIndex.toSummaries(searchUserDiaries(search, Constants.SEARCH_BY_TITLE, userId, true, null));
+    }
 
-        Cursor cursor = db.rawQuery(query, new String[]{"%" + keyword + "%", String.valueOf(userId)});
+    /**
+     * 在指定用户的日记中执行全文检索，结果按相关度排序
+     * 先查搜索结果缓存（同一关键词或其前缀已查过且日记没有写入时不访问数据库），未命中再查询并写入缓存；
+     * 检索正文时缓存无法细化，已缓存前缀时只在前缀结果的日记中查询
+     * @param searchType 缓存键中的搜索类型，同一类型的检索列和草稿条件必须相同
+     */
+    private List<DiarySearchIndex.Hit> searchUserDiaries(DiarySearchIndex.MatchQuery search, int searchType,
+                                                         int userId, boolean publishedOnly,
+                                                         CancellationSignal cancellationSignal) {
+        if (search == null) {
+            return new ArrayList<>();
+        }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                diaryList.add(cursorToDiary(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
+        SearchResultCache cache = dbProvider.getSearchResultCache();
+        long version = dbProvider.getDiaryWriteVersion();
+        List<DiarySearchIndex.Hit> cached = cache.get(userId, searchType, search, version);
+        if (cached != null) {
+            return cached;
         }
-        db.close();
-        return diaryList;
-    }
 
-    // 按标题搜索
-    public List<Diary> searchByTitle(String keyword, int userId) {
-        List<Diary> diaryList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        String filter = " AND d." + DatabaseHelper.COLUMN_AUTHOR_ID + " = ?";
+        if (publishedOnly) {
+            filter += " AND d." + DatabaseHelper.COLUMN_IS_DRAFT + " = 0";
+        }
 
-        String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
-                "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
-                "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
-                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
-                " WHERE d." + DatabaseHelper.COLUMN_TITLE + " LIKE ? AND d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = ? AND d." +
-                DatabaseHelper.COLUMN_IS_DRAFT + " = 0" +
-                " ORDER BY d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
+        if (search.searchesContent()) {
+            Set<Integer> prefixIds = cache.getPrefixDiaryIds(userId, searchType, search, version);
+            if (prefixIds != null) {
+                // ID直接写入SQL（都是整数），前缀结果可能超过绑定参数的数量上限
+                filter += " AND d." + DatabaseHelper.COLUMN_DIARY_ID + " IN (" + TextUtils.join(", ", prefixIds) + ")";
+            }
+        }
 
-        Cursor cursor = db.rawQuery(query, new String[]{"%" + keyword + "%", String.valueOf(userId)});
+        long start = System.nanoTime();
+        List<DiarySearchIndex.Hit> hits = DiarySearchIndex.searchHits(dbProvider.getReadableDatabase(), search,
+                filter, new String[]{String.valueOf(userId)}, cancellationSignal);
+        cache.put(userId, searchType, search, version, hits, System.nanoTime() - start);
+        return hits;
+    }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                diaryList.add(cursorToDiary(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-        db.close();
-        return diaryList;
+    // 搜索结果缓存的命中率与耗时统计
+    public SearchResultCache.Stats getSearchCacheStats() {
+        return dbProvider.getSearchResultCache().getStats();
     }
 
-    // 按类别搜索（只支持类别名称搜索，如"国内游"）
-    public List<Diary> searchByCategory(String keyword, int userId) {
-        List<Diary> diaryList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+    // 按类别搜索（类别名称如"国内游"，或类别名称的拼音/拼音首字母如"guonei"、"gny"）
+    public List<DiarySummary> searchByCategory(String keyword, int userId) {
+        // 将关键词转换为类别代码，只有匹配到有效类别才搜索
+        List<String> categoryCodes = getCategoryCodes(keyword);
 
-        // 将类别名称转换为类别代码，只有匹配到有效类别名称才搜索
-        String categoryCode = getCategoryCodeFromName(keyword);
-        
-        // 如果输入的不是有效的类别名称，返回空列表
-        if (categoryCode.isEmpty()) {
-            db.close();
-            return diaryList;
+        // 如果输入的不是有效的类别，返回空列表
+        if (categoryCodes.isEmpty()) {
+            return new ArrayList<>();
         }
-        
-        String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
-                "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
-                "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
-                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
-                " WHERE d." + DatabaseHelper.COLUMN_CATEGORY + " = ? AND d." +
-                DatabaseHelper.COLUMN_AUTHOR_ID + " = ? AND d." +
-                DatabaseHelper.COLUMN_IS_DRAFT + " = 0" +
-                " ORDER BY d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
 
-        Cursor cursor = db.rawQuery(query, new String[]{
-                categoryCode,
-                String.valueOf(userId)
-        });
+        return query(new DiaryQuery().author(userId).published().categories(categoryCodes));
+    }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                diaryList.add(cursorToDiary(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
+    /**
+     * 根据搜索关键词获取类别代码：完整的类别名称对应一个类别；
+     * 全是字母时按拼音前缀匹配类别名称，可能对应多个类别（如"zhilv"对应三个"之旅"）
+     * 类别只有固定的几个，拼音在内存中匹配，查询仍按类别代码走索引
+     */
+    private List<String> getCategoryCodes(String keyword) {
+        List<String> codes = new ArrayList<>();
+        String code = getCategoryCodeFromName(keyword);
+        if (!code.isEmpty()) {
+            codes.add(code);
+            return codes;
         }
-        db.close();
-        return diaryList;
+        String pinyin = PinyinUtil.normalizeQuery(keyword);
+        if (pinyin != null) {
+            for (int i = 0; i < CATEGORY_NAMES.length; i++) {
+                if (SearchTokenizer.pinyinMatches(CATEGORY_NAMES[i], pinyin)) {
+                    codes.add(String.valueOf(i + 1));
+                }
+            }
+        }
+        return codes;
     }
     
     // 根据类别名称获取类别代码（只匹配完整的类别名称）
@@ -377,49 +405,162 @@ public class DiaryDAO {
     }
 
     // 综合搜索（所有字段）
-    public List<Diary> searchAll(String keyword, int userId) {
+    public List<DiarySummary> searchAll(String keyword, int userId) {
         return searchDiariesByUser(keyword, userId);
     }
 
-    // 获取用户的草稿（修复 SQL 语法错误）
-    public List<Diary> getUserDrafts(int userId) {
-        List<Diary> drafts = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+    /**
+     * 按搜索类型在用户日记中搜索，可通过cancellationSignal中途取消（边输入边搜索使用）
+     * 结果只含标题和带高亮的正文摘要，不加载正文全文；按标题和综合搜索没有结果时改为容错搜索标题
+     * @param searchType Constants.SEARCH_BY_AUTHOR / SEARCH_BY_TITLE / SEARCH_BY_CATEGORY，其他值为综合搜索
+     * @throws android.os.OperationCanceledException 查询被取消
+     */
+    public List<DiarySearchHit> searchByType(String keyword, int searchType, int userId,
+                                             CancellationSignal cancellationSignal) {
+        List<DiarySearchIndex.Hit> hits;
+        switch (searchType) {
+            case Constants.SEARCH_BY_AUTHOR:
+                hits = searchUserDiaries(DiarySearchIndex.buildMatchQuery(keyword,
+                        DiarySearchIndex.COLUMN_FTS_AUTHOR_NAME), searchType, userId, true, cancellationSignal);
+                break;
+            case Constants.SEARCH_BY_TITLE:
+                hits = searchUserDiaries(DiarySearchIndex.buildMatchQuery(keyword,
+                        DiarySearchIndex.COLUMN_FTS_TITLE), searchType, userId, true, cancellationSignal);
+                break;
+            case Constants.SEARCH_BY_CATEGORY:
+                return searchHitsByCategory(keyword, userId, cancellationSignal);
+            default:
+                hits = searchUserDiaries(DiarySearchIndex.buildMatchQuery(keyword,
+                        DiarySearchIndex.COLUMN_FTS_TITLE, DiarySearchIndex.COLUMN_FTS_CONTENT),
+                        SEARCH_TYPE_GENERAL, userId, false, cancellationSignal);
+                break;
+        }
+        if (hits.isEmpty() && searchType != Constants.SEARCH_BY_AUTHOR) {
+            return searchSimilarTitles(keyword, userId, searchType == Constants.SEARCH_BY_TITLE,
+                    cancellationSignal);
+        }
 
-        String query = "SELECT d.*, u." + DatabaseHelper.COLUMN_NICKNAME + " as author_name, " +
-                "u." + DatabaseHelper.COLUMN_AVATAR + " as avatar " +
-                "FROM " + DatabaseHelper.TABLE_DIARY + " d " +
-                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." + DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
-                " WHERE d." + DatabaseHelper.COLUMN_AUTHOR_ID + " = ? AND d." +
-                DatabaseHelper.COLUMN_IS_DRAFT + " = 1" +
-                " ORDER BY d." + DatabaseHelper.COLUMN_UPDATE_TIME + " DESC";
+        List<DiarySearchHit> result = new ArrayList<>(hits.size());
+        for (DiarySearchIndex.Hit hit : hits) {
+            result.add(SnippetBuilder.build(hit.summary.getDiaryId(), hit.summary.getTitle(), hit.content,
+                    hit.contentStart, keyword));
+        }
+        return result;
+    }
 
-        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
+    /**
+     * 容错搜索：查找标题与关键词相近（只差一两个字）的日记，如"古振游记"找到"古镇游记"
+     * 按编辑距离从近到远排列，高亮标题中相近的部分；结果很少重复查询，不写入搜索结果缓存
+     */
+    private List<DiarySearchHit> searchSimilarTitles(String keyword, int userId, boolean publishedOnly,
+                                                     CancellationSignal cancellationSignal) {
+        List<DiarySearchHit> result = new ArrayList<>();
+        // 日记ID -> 与关键词相近的词（标题或标题中的一段）
+        Map<Integer, String> termById = new LinkedHashMap<>();
+        for (EditDistanceIndex.Match match : dbProvider.getFuzzySearchIndex().searchTitles(userId, keyword)) {
+            for (int id : match.getIds()) {
+                if (termById.size() < Constants.FUZZY_SEARCH_MAX_RESULTS && !termById.containsKey(id)) {
+                    termById.put(id, match.getTerm());
+                }
+            }
+        }
+        if (termById.isEmpty()) {
+            return result;
+        }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                drafts.add(cursorToDiary(cursor));
-            } while (cursor.moveToNext());
+        // 索引只提供候选ID，作者和草稿条件以数据库为准
+        List<String> args = new ArrayList<>();
+        for (Integer id : termById.keySet()) {
+            args.add(String.valueOf(id));
+        }
+        args.add(String.valueOf(userId));
+        String query = "SELECT " + DatabaseHelper.COLUMN_DIARY_ID + ", " + DatabaseHelper.COLUMN_TITLE +
+                ", substr(" + DatabaseHelper.COLUMN_CONTENT + ", 1, " + (Constants.SEARCH_SNIPPET_LENGTH + 1) + ")" +
+                " FROM " + DatabaseHelper.TABLE_DIARY +
+                " WHERE " + DatabaseHelper.COLUMN_DIARY_ID + " IN (" + placeholders(termById.size()) + ") AND " +
+                DatabaseHelper.COLUMN_AUTHOR_ID + " = ?" +
+                (publishedOnly ? " AND " + DatabaseHelper.COLUMN_IS_DRAFT + " = 0" : "");
+        Map<Integer, DiarySearchHit> hitById = new HashMap<>();
+        Cursor cursor = dbProvider.getReadableDatabase().rawQuery(query, args.toArray(new String[0]),
+                cancellationSignal);
+        try {
+            while (cursor.moveToNext()) {
+                int id = cursor.getInt(0);
+                hitById.put(id, SnippetBuilder.build(id, cursor.getString(1), cursor.getString(2), termById.get(id)));
+            }
+        } finally {
+            cursor.close();
+        }
+        for (Integer id : termById.keySet()) {
+            DiarySearchHit hit = hitById.get(id);
+            if (hit != null) {
+                result.add(hit);
+            }
+        }
+        return result;
+    }
+
+    // SQL IN 的参数占位符："?, ?, ?"
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
+    // 按类别搜索的结果列表项：类别不出现在标题和正文中，摘要取正文开头，不高亮
+    private List<DiarySearchHit> searchHitsByCategory(String keyword, int userId,
+                                                      CancellationSignal cancellationSignal) {
+        List<DiarySearchHit> result = new ArrayList<>();
+        List<String> categoryCodes = getCategoryCodes(keyword);
+        if (categoryCodes.isEmpty()) {
+            return result;
+        }
+
+        String query = "SELECT " + DatabaseHelper.COLUMN_DIARY_ID + ", " + DatabaseHelper.COLUMN_TITLE +
+                ", substr(" + DatabaseHelper.COLUMN_CONTENT + ", 1, " + (Constants.SEARCH_SNIPPET_LENGTH + 1) + ")" +
+                " FROM " + DatabaseHelper.TABLE_DIARY +
+                " WHERE " + DatabaseHelper.COLUMN_CATEGORY + " IN (" + placeholders(categoryCodes.size()) + ") AND " +
+                DatabaseHelper.COLUMN_AUTHOR_ID + " = ? AND " +
+                DatabaseHelper.COLUMN_IS_DRAFT + " = 0" +
+                " ORDER BY " + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " DESC";
+        List<String> args = new ArrayList<>(categoryCodes);
+        args.add(String.valueOf(userId));
+        Cursor cursor = dbProvider.getReadableDatabase().rawQuery(query, args.toArray(new String[0]),
+                cancellationSignal);
+        try {
+            while (cursor.moveToNext()) {
+                result.add(SnippetBuilder.build(cursor.getInt(0), cursor.getString(1), cursor.getString(2), null));
+            }
+        } finally {
             cursor.close();
         }
-        db.close();
-        return drafts;
+        return result;
+    }
+
+    // 获取用户的草稿（修复 SQL 语法错误）
+    public List<DiarySummary> getUserDrafts(int userId) {
+        return query(new DiaryQuery().author(userId).drafts().sortBy(DiaryQuery.Sort.UPDATE_TIME_DESC));
     }
 
     // 删除用户的草稿
     public int deleteUserDrafts(int userId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         int result = db.delete(DatabaseHelper.TABLE_DIARY,
                 DatabaseHelper.COLUMN_AUTHOR_ID + " = ? AND " +
                         DatabaseHelper.COLUMN_IS_DRAFT + " = 1",
                 new String[]{String.valueOf(userId)});
-        db.close();
+        if (result > 0) {
+            dbProvider.notifyDiariesChanged();
+            dbProvider.getFuzzySearchIndex().invalidateAuthor(userId);
+        }
         return result;
     }
 
     // 获取日记总数
     public int getDiaryCountByUser(int userId, boolean includeDrafts) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
         int count = 0;
 
         String query = "SELECT COUNT(*) as count FROM " + DatabaseHelper.TABLE_DIARY +
@@ -435,111 +576,60 @@ public class DiaryDAO {
             count = cursor.getInt(cursor.getColumnIndexOrThrow("count"));
             cursor.close();
         }
-        db.close();
         return count;
     }
 
     // 增加点赞数
     public int incrementLikeCount(int diaryId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-
-        String query = "UPDATE " + DatabaseHelper.TABLE_DIARY +
-                " SET " + DatabaseHelper.COLUMN_LIKE_COUNT + " = " +
-                DatabaseHelper.COLUMN_LIKE_COUNT + " + 1 WHERE " +
-                DatabaseHelper.COLUMN_DIARY_ID + " = ?";
-
-        db.execSQL(query, new String[]{String.valueOf(diaryId)});
-
-        // 获取更新后的点赞数
-        Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COLUMN_LIKE_COUNT +
-                        " FROM " + DatabaseHelper.TABLE_DIARY +
-                        " WHERE " + DatabaseHelper.COLUMN_DIARY_ID + " = ?",
-                new String[]{String.valueOf(diaryId)});
-
-        int likeCount = 0;
-        if (cursor != null && cursor.moveToFirst()) {
-            likeCount = cursor.getInt(0);
-            cursor.close();
-        }
-        db.close();
-        return likeCount;
+        return incrementCounter(DatabaseHelper.COLUMN_LIKE_COUNT, diaryId);
     }
 
     // 增加浏览数
     public int incrementViewCount(int diaryId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-
-        String query = "UPDATE " + DatabaseHelper.TABLE_DIARY +
-                " SET " + DatabaseHelper.COLUMN_VIEW_COUNT + " = " +
-                DatabaseHelper.COLUMN_VIEW_COUNT + " + 1 WHERE " +
-                DatabaseHelper.COLUMN_DIARY_ID + " = ?";
-
-        db.execSQL(query, new String[]{String.valueOf(diaryId)});
-
-        // 获取更新后的浏览数
-        Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COLUMN_VIEW_COUNT +
-                        " FROM " + DatabaseHelper.TABLE_DIARY +
-                        " WHERE " + DatabaseHelper.COLUMN_DIARY_ID + " = ?",
-                new String[]{String.valueOf(diaryId)});
-
-        int viewCount = 0;
-        if (cursor != null && cursor.moveToFirst()) {
-            viewCount = cursor.getInt(0);
-            cursor.close();
-        }
-        db.close();
-        return viewCount;
+        return incrementCounter(DatabaseHelper.COLUMN_VIEW_COUNT, diaryId);
     }
 
-    // 将Cursor转换为Diary对象
-    private Diary cursorToDiary(Cursor cursor) {
-        Diary diary = new Diary();
-
-        diary.setDiaryId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DIARY_ID)));
-        diary.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TITLE)));
-        diary.setContent(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CONTENT)));
-        diary.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY)));
-        diary.setAuthorId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AUTHOR_ID)));
-        diary.setNotebookId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTEBOOK_ID)));
-        diary.setCoverImagePath(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_IMAGE_PATH)));
-        diary.setDraft(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_DRAFT)) == 1);
-        diary.setLikeCount(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_LIKE_COUNT)));
-        diary.setViewCount(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_VIEW_COUNT)));
-
-        // 处理图片列表
-        String imagesJson = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IMAGES));
-        if (imagesJson != null && !imagesJson.isEmpty()) {
-            Type listType = new TypeToken<List<String>>(){}.getType();
-            List<String> images = gson.fromJson(imagesJson, listType);
-            diary.setImages(images);
-        }
-
-        // 处理时间（使用 org.threeten.bp 包的 LocalDateTime）
-        String createTimeStr = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME_DIARY));
-        if (createTimeStr != null && !createTimeStr.isEmpty()) {
-            diary.setCreateTime(LocalDateTime.parse(createTimeStr, formatter));
-        }
-
-        String updateTimeStr = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_UPDATE_TIME));
-        if (updateTimeStr != null && !updateTimeStr.isEmpty()) {
-            diary.setUpdateTime(LocalDateTime.parse(updateTimeStr, formatter));
-        }
+    // 计数器 +1 并返回新值（复用预编译语句）
+    private int incrementCounter(String column, int diaryId) {
+        String update = "UPDATE " + DatabaseHelper.TABLE_DIARY +
+                " SET " + column + " = " + column + " + 1 WHERE " +
+                DatabaseHelper.COLUMN_DIARY_ID + " = ?";
 
-        // 从JOIN查询中获取的作者信息
-        if (cursor.getColumnIndex("author_name") != -1) {
-            String authorName = cursor.getString(cursor.getColumnIndexOrThrow("author_name"));
-            if (authorName != null) {
-                diary.setAuthorName(authorName);
+        // SQLite 3.35+（Android 14起内置）支持RETURNING，一条语句完成更新和读取
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            SQLiteStatement statement = dbProvider.getStatement(update + " RETURNING " + column);
+            synchronized (statement) {
+                statement.bindLong(1, diaryId);
+                try {
+                    return (int) statement.simpleQueryForLong();
+                } catch (SQLiteDoneException e) {
+                    return 0; // 日记不存在
+                }
             }
         }
 
-        if (cursor.getColumnIndex("avatar") != -1) {
-            String avatar = cursor.getString(cursor.getColumnIndexOrThrow("avatar"));
-            if (avatar != null) {
-                diary.setAvatar(avatar);
+        // 低版本：在同一事务中执行预编译的UPDATE和SELECT
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
+        SQLiteStatement updateStatement = dbProvider.getStatement(update);
+        SQLiteStatement queryStatement = dbProvider.getStatement("SELECT " + column +
+                " FROM " + DatabaseHelper.TABLE_DIARY +
+                " WHERE " + DatabaseHelper.COLUMN_DIARY_ID + " = ?");
+        db.beginTransactionNonExclusive();
+        try {
+            int count = 0;
+            synchronized (updateStatement) {
+                updateStatement.bindLong(1, diaryId);
+                if (updateStatement.executeUpdateDelete() > 0) {
+                    synchronized (queryStatement) {
+                        queryStatement.bindLong(1, diaryId);
+                        count = (int) queryStatement.simpleQueryForLong();
+                    }
+                }
             }
+            db.setTransactionSuccessful();
+            return count;
+        } finally {
+            db.endTransaction();
         }
-
-        return diary;
     }
 }
\ No newline at end of file
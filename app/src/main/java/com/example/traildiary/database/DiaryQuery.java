@@ -0,0 +1,266 @@
+package com.example.traildiary.database;
+
+import com.example.traildiary.model.DiarySummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 日记列表查询条件：筛选（作者、日记本、类别、创建时间范围、草稿、收藏、关键词）+ 排序 + 分页，
+ * 由 DiaryDAO.query 编译成一条带参数的SQL，在数据库中完成筛选和排序。
+ * 未设置的条件不参与查询；各方法返回自身，可以链式调用：
+ * <pre>
+ * new DiaryQuery().author(userId).published().category("1").sortBy(DiaryQuery.Sort.UPDATE_TIME_DESC)
+ *         .pageSize(Constants.DIARY_PAGE_SIZE)
+ * </pre>
+ * 排序总以日记ID作为第二排序键，分页使用键集（after），不随页数增加扫描行数
+ */
+public class DiaryQuery {
+
+    // 排序方式（列 + 方向）；时间排序可直接使用 DatabaseHelper 中的作者/日记本索引，无需临时排序
+    public enum Sort {
+        CREATE_TIME_DESC(DatabaseHelper.COLUMN_CREATE_TIME_DIARY, true),
+        CREATE_TIME_ASC(DatabaseHelper.COLUMN_CREATE_TIME_DIARY, false),
+        UPDATE_TIME_DESC(DatabaseHelper.COLUMN_UPDATE_TIME, true),
+        UPDATE_TIME_ASC(DatabaseHelper.COLUMN_UPDATE_TIME, false),
+        TITLE_ASC(DatabaseHelper.COLUMN_TITLE, false),
+        TITLE_DESC(DatabaseHelper.COLUMN_TITLE, true);
+
+        private final String column;
+        private final boolean descending;
+
+        Sort(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+
+        private boolean isTitle() {
+            return DatabaseHelper.COLUMN_TITLE.equals(column);
+        }
+
+        // 排序表达式：标题不区分ASCII大小写
+        private String expression() {
+            return "d." + column + (isTitle() ? " COLLATE NOCASE" : "");
+        }
+
+        // 分页起点在排序列上的取值；时间为0（数据库中为NULL）时返回null
+        private String keyOf(DiarySummary diary) {
+            switch (this) {
+                case CREATE_TIME_DESC:
+                case CREATE_TIME_ASC:
+                    return timeKey(diary.getCreateTimeMillis());
+                case UPDATE_TIME_DESC:
+                case UPDATE_TIME_ASC:
+                    return timeKey(diary.getUpdateTimeMillis());
+                default:
+                    return diary.getTitle() == null ? "" : diary.getTitle();
+            }
+        }
+
+        private static String timeKey(long millis) {
+            return millis == 0 ? null : String.valueOf(millis);
+        }
+    }
+
+    private Integer authorId;
+    private Integer notebookId;
+    private List<String> categories;
+    private Long createdFromMillis;
+    private Long createdToMillis;
+    private Boolean draft;
+    private Integer favoriteUserId;
+    private String text;
+    private Sort sort = Sort.CREATE_TIME_DESC;
+    private DiarySummary after;
+    private int pageSize;
+
+    // 作者
+    public DiaryQuery author(int authorId) {
+        this.authorId = authorId;
+        return this;
+    }
+
+    // 所属日记本
+    public DiaryQuery notebook(int notebookId) {
+        this.notebookId = notebookId;
+        return this;
+    }
+
+    // 类别代码（Constants.DIARY_CATEGORY_*），null表示全部类别
+    public DiaryQuery category(String category) {
+        this.categories = category == null ? null : Collections.singletonList(category);
+        return this;
+    }
+
+    // 属于其中任一类别，null表示全部类别
+    public DiaryQuery categories(List<String> categories) {
+        this.categories = categories;
+        return this;
+    }
+
+    // 创建时间在 [fromMillis, toMillis) 之间（epoch毫秒），null表示不限
+    public DiaryQuery createdBetween(Long fromMillis, Long toMillis) {
+        this.createdFromMillis = fromMillis;
+        this.createdToMillis = toMillis;
+        return this;
+    }
+
+    // 只查已发布的日记
+    public DiaryQuery published() {
+        this.draft = false;
+        return this;
+    }
+
+    // 只查草稿
+    public DiaryQuery drafts() {
+        this.draft = true;
+        return this;
+    }
+
+    // 只查该用户收藏的日记
+    public DiaryQuery favoritesOf(int userId) {
+        this.favoriteUserId = userId;
+        return this;
+    }
+
+    // 标题或正文包含关键词（走全文索引，结果与 LIKE '%关键词%' 一致），关键词全是字母时标题也可按拼音命中；
+    // null或空白表示不限
+    public DiaryQuery text(String keyword) {
+        this.text = keyword == null || keyword.trim().isEmpty() ? null : keyword;
+        return this;
+    }
+
+    public DiaryQuery sortBy(Sort sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    // 从该条之后开始（上一页最后一条，须为相同条件和排序的查询结果），null表示第一页
+    public DiaryQuery after(DiarySummary after) {
+        this.after = after;
+        return this;
+    }
+
+    // 每页条数，0表示不分页
+    public DiaryQuery pageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 编译成 WHERE / ORDER BY / LIMIT 部分，接在 DiaryDAO 的摘要查询之后
+     * @param args 按占位符顺序追加参数
+     */
+    String compile(List<String> args) {
+        List<String> conditions = new ArrayList<>();
+        // 等值条件在前、范围条件在后，与索引列的顺序一致
+        if (authorId != null) {
+            conditions.add("d." + DatabaseHelper.COLUMN_AUTHOR_ID + " = ?");
+            args.add(String.valueOf(authorId));
+        }
+        if (notebookId != null) {
+            conditions.add("d." + DatabaseHelper.COLUMN_NOTEBOOK_ID + " = ?");
+            args.add(String.valueOf(notebookId));
+        }
+        if (draft != null) {
+            conditions.add("d." + DatabaseHelper.COLUMN_IS_DRAFT + " = " + (draft ? 1 : 0));
+        }
+        if (categories != null) {
+            if (categories.size() == 1) {
+                conditions.add("d." + DatabaseHelper.COLUMN_CATEGORY + " = ?");
+            } else {
+                StringBuilder in = new StringBuilder("d." + DatabaseHelper.COLUMN_CATEGORY + " IN (");
+                for (int i = 0; i < categories.size(); i++) {
+                    in.append(i == 0 ? "?" : ", ?");
+                }
+                conditions.add(in.append(')').toString());
+            }
+            args.addAll(categories);
+        }
+        if (createdFromMillis != null) {
+            conditions.add("d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " >= ?");
+            args.add(String.valueOf(createdFromMillis));
+        }
+        if (createdToMillis != null) {
+            conditions.add("d." + DatabaseHelper.COLUMN_CREATE_TIME_DIARY + " < ?");
+            args.add(String.valueOf(createdToMillis));
+        }
+        if (favoriteUserId != null) {
+            // 按 favorite 表的 UNIQUE(user_id, diary_id) 逐条核对
+            conditions.add("EXISTS (SELECT 1 FROM " + DatabaseHelper.TABLE_FAVORITE + " f WHERE f." +
+                    DatabaseHelper.COLUMN_USER_ID + " = ? AND f." + DatabaseHelper.COLUMN_DIARY_ID +
+                    " = d." + DatabaseHelper.COLUMN_DIARY_ID + ")");
+            args.add(String.valueOf(favoriteUserId));
+        }
+        if (text != null) {
+            DiarySearchIndex.MatchQuery search = DiarySearchIndex.buildMatchQuery(text,
+                    DiarySearchIndex.COLUMN_FTS_TITLE, DiarySearchIndex.COLUMN_FTS_CONTENT);
+            if (search == null) {
+                // 关键词中没有可检索的字符
+                conditions.add("0");
+            } else {
+                // MATCH按短语取出候选日记（整行检索），再用 LIKE 核对标题、正文原文，只留下在这两列命中的
+                // （selection以 AND 开头）
+                String condition = "d." + DatabaseHelper.COLUMN_DIARY_ID + " IN (SELECT docid FROM " +
+                        DiarySearchIndex.TABLE_DIARY_FTS + " WHERE " + DiarySearchIndex.TABLE_DIARY_FTS +
+                        " MATCH ?)" + search.getSelection();
+                for (String arg : search.getSelectionArgs()) {
+                    args.add(arg);
+                }
+                if (search.getPinyinMatch() != null) {
+                    condition = "(" + condition + " OR d." + DatabaseHelper.COLUMN_DIARY_ID + " IN (SELECT docid FROM " +
+                            DiarySearchIndex.TABLE_DIARY_PINYIN + " WHERE " + DiarySearchIndex.TABLE_DIARY_PINYIN +
+                            " MATCH ?))";
+                    args.add(search.getPinyinMatch());
+                }
+                conditions.add(condition);
+            }
+        }
+        if (after != null) {
+            conditions.add(keysetCondition(args));
+        }
+
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < conditions.size(); i++) {
+            sql.append(i == 0 ? " WHERE " : " AND ").append(conditions.get(i));
+        }
+        String direction = sort.descending ? " DESC" : " ASC";
+        sql.append(" ORDER BY ").append(sort.expression()).append(direction)
+                .append(", d.").append(DatabaseHelper.COLUMN_DIARY_ID).append(direction);
+        if (pageSize > 0) {
+            sql.append(" LIMIT ").append(pageSize);
+        }
+        return sql.toString();
+    }
+
+    // 键集条件：(排序列, 日记ID) 严格排在上一页最后一条之后
+    // 写成 key <= ? AND (key < ? OR id < ?)（升序时方向相反），让第一项作为索引范围直接定位。
+    // 时间列可能为NULL（如升级后尚未回填的日记），SQLite把NULL排在升序最前、降序最后：
+    // 降序时非NULL起点之后还要接上全部NULL行，起点为NULL时只在NULL行中按ID继续；升序反之
+    private String keysetCondition(List<String> args) {
+        String key = sort.keyOf(after);
+        String expression = sort.expression();
+        String id = "d." + DatabaseHelper.COLUMN_DIARY_ID;
+        String afterId = String.valueOf(after.getDiaryId());
+        if (key == null) {
+            args.add(afterId);
+            if (sort.descending) {
+                return expression + " IS NULL AND " + id + " < ?";
+            }
+            return "(" + expression + " IS NULL AND " + id + " > ? OR " + expression + " IS NOT NULL)";
+        }
+        args.add(key);
+        args.add(key);
+        args.add(afterId);
+        if (sort.descending) {
+            String condition = expression + " <= ? AND (" + expression + " < ? OR " + id + " < ?)";
+            return sort.isTitle() ? condition : "(" + condition + " OR " + expression + " IS NULL)";
+        }
+        return expression + " >= ? AND (" + expression + " > ? OR " + id + " > ?)";
+    }
+}
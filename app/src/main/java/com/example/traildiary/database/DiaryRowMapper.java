@@ -0,0 +1,101 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+
+import com.example.traildiary.model.Diary;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * 完整日记行转换器（详情页/编辑页按ID加载时使用，列表页使用DiarySummaryRowMapper）
+ * 支持 "SELECT d.*, u.nickname as author_name, u.avatar as avatar" 形式的联表查询
+ */
+final class DiaryRowMapper extends RowMapper<Diary> {
+
+    private static final Gson GSON = new Gson();
+    private static final Type IMAGE_LIST_TYPE = new TypeToken<List<String>>(){}.getType();
+
+    private final int idIndex;
+    private final int titleIndex;
+    private final int contentIndex;
+    private final int categoryIndex;
+    private final int authorIdIndex;
+    private final int notebookIdIndex;
+    private final int coverImagePathIndex;
+    private final int isDraftIndex;
+    private final int likeCountIndex;
+    private final int viewCountIndex;
+    private final int imagesIndex;
+    private final int createTimeIndex;
+    private final int updateTimeIndex;
+    private final int authorNameIndex; // 联表得到的作者昵称，可能不存在
+    private final int avatarIndex;     // 联表得到的作者头像，可能不存在
+
+    DiaryRowMapper(Cursor cursor) {
+        idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DIARY_ID);
+        titleIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TITLE);
+        contentIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CONTENT);
+        categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY);
+        authorIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AUTHOR_ID);
+        notebookIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTEBOOK_ID);
+        coverImagePathIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_IMAGE_PATH);
+        isDraftIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_DRAFT);
+        likeCountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_LIKE_COUNT);
+        viewCountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_VIEW_COUNT);
+        imagesIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IMAGES);
+        createTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME_DIARY);
+        updateTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_UPDATE_TIME);
+        authorNameIndex = cursor.getColumnIndex("author_name");
+        avatarIndex = cursor.getColumnIndex("avatar");
+    }
+
+    @Override
+    Diary map(Cursor cursor) {
+        Diary diary = new Diary();
+
+        diary.setDiaryId(cursor.getInt(idIndex));
+        diary.setTitle(cursor.getString(titleIndex));
+        diary.setContent(cursor.getString(contentIndex));
+        diary.setCategory(cursor.getString(categoryIndex));
+        diary.setAuthorId(cursor.getInt(authorIdIndex));
+        diary.setNotebookId(cursor.getInt(notebookIdIndex));
+        diary.setCoverImagePath(cursor.getString(coverImagePathIndex));
+        diary.setDraft(cursor.getInt(isDraftIndex) == 1);
+        diary.setLikeCount(cursor.getInt(likeCountIndex));
+        diary.setViewCount(cursor.getInt(viewCountIndex));
+
+        // 处理图片列表
+        diary.setImages(parseImages(cursor.getString(imagesIndex)));
+
+        // 处理时间（epoch毫秒，需要显示时再转换为LocalDateTime）
+        diary.setCreateTimeMillis(cursor.getLong(createTimeIndex));
+        diary.setUpdateTimeMillis(cursor.getLong(updateTimeIndex));
+
+        // 从JOIN查询中获取的作者信息
+        if (authorNameIndex != -1) {
+            String authorName = cursor.getString(authorNameIndex);
+            if (authorName != null) {
+                diary.setAuthorName(authorName);
+            }
+        }
+        if (avatarIndex != -1) {
+            String avatar = cursor.getString(avatarIndex);
+            if (avatar != null) {
+                diary.setAvatar(avatar);
+            }
+        }
+
+        return diary;
+    }
+
+    // 解析图片路径JSON数组，为空时返回null
+    static List<String> parseImages(String imagesJson) {
+        if (imagesJson == null || imagesJson.isEmpty()) {
+            return null;
+        }
+        return GSON.fromJson(imagesJson, IMAGE_LIST_TYPE);
+    }
+}
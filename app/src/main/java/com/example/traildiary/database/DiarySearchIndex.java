@@ -0,0 +1,569 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
+
+import com.example.traildiary.model.DiarySummary;
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.PinyinUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 日记全文索引
+ * FTS4虚拟表 diary_fts（docid = diary_id）覆盖标题、正文（含图片描述）和作者昵称，查询结果按bm25相关度排序。
+ * 系统内置的SQLite未编译FTS5，这里使用FTS4，bm25由 matchinfo() 的统计数据在Java中计算。
+ * 中文按二元组切分后写入索引（见 SearchTokenizer），切分只能在Java中完成：
+ * diary/user 表上的触发器把变化的日记ID记入 diary_fts_pending，写入提交后由 syncPending 补建索引，检索本身不写库。
+ * 标题和作者昵称的拼音另建FTS4表 diary_pinyin（docid同样为 diary_id），与 diary_fts 一起维护，
+ * 关键词全是字母时同时按拼音前缀检索（"haibian"、"hbrc" 都能搜到"海边日出"）。
+ * FTS4的列限定只作用于单个词，列:"短语" 查不到任何结果，因此短语检索整行，
+ * 再由 matchinfo() 中各列的命中数筛选出在指定列命中的日记。
+ */
+public final class DiarySearchIndex {
+
+    public static final String TABLE_DIARY_FTS = "diary_fts";
+    public static final String TABLE_DIARY_FTS_PENDING = "diary_fts_pending";
+    public static final String TABLE_DIARY_PINYIN = "diary_pinyin";
+    public static final String COLUMN_FTS_TITLE = "title";
+    public static final String COLUMN_FTS_CONTENT = "content";
+    public static final String COLUMN_FTS_AUTHOR_NAME = "author_name";
+    static final String COLUMN_MATCH_INFO = "match_info";
+    static final String COLUMN_SEARCH_CONTENT = "search_content";
+    static final String COLUMN_SEARCH_CONTENT_START = "search_content_start";
+    private static final String COLUMN_HAS_TEXT_INDEX = "has_text_index";
+    private static final String COLUMN_HAS_PINYIN_INDEX = "has_pinyin_index";
+
+    // bm25参数及各列权重（顺序与建表列一致：标题、正文、作者）
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+    private static final double[] COLUMN_WEIGHTS = {3.0, 1.0, 2.0};
+    // 拼音索引各列权重（标题、作者）
+    private static final double[] PINYIN_COLUMN_WEIGHTS = {3.0, 2.0};
+
+    // 作者昵称：优先取用户表，用户不存在时用日记表里保存的名字
+    private static final String AUTHOR_NAME_EXPRESSION = "COALESCE(u." + DatabaseHelper.COLUMN_NICKNAME +
+            ", d." + DatabaseHelper.COLUMN_AUTHOR_NAME + ")";
+
+    private static final String CREATE_TABLE_DIARY_FTS =
+            "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_DIARY_FTS + " USING fts4(" +
+                    COLUMN_FTS_TITLE + ", " + COLUMN_FTS_CONTENT + ", " + COLUMN_FTS_AUTHOR_NAME + ")";
+
+    // 拼音索引：标题、作者昵称切分后的全拼和首字母（见 SearchTokenizer.pinyinIndexText）
+    private static final String CREATE_TABLE_DIARY_PINYIN =
+            "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_DIARY_PINYIN + " USING fts4(" +
+                    COLUMN_FTS_TITLE + ", " + COLUMN_FTS_AUTHOR_NAME + ")";
+
+    // 待建索引的日记ID
+    private static final String CREATE_TABLE_DIARY_FTS_PENDING =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_DIARY_FTS_PENDING + "(" +
+                    DatabaseHelper.COLUMN_DIARY_ID + " INTEGER PRIMARY KEY)";
+
+    private static final String ENQUEUE_NEW_DIARY = "INSERT OR IGNORE INTO " + TABLE_DIARY_FTS_PENDING +
+            "(" + DatabaseHelper.COLUMN_DIARY_ID + ") VALUES (new." + DatabaseHelper.COLUMN_DIARY_ID + ");";
+
+    private static final String[] TRIGGERS = {
+            "diary_fts_after_insert",
+            "diary_fts_after_update",
+            "diary_fts_after_delete",
+            "diary_fts_after_nickname_update"
+    };
+
+    private static final String[] CREATE_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS " + TRIGGERS[0] + " AFTER INSERT ON " + DatabaseHelper.TABLE_DIARY +
+                    " BEGIN " + ENQUEUE_NEW_DIARY + " END",
+            // 只有被索引的列变化时才重建该行索引（点赞、浏览计数等更新不受影响）
+            "CREATE TRIGGER IF NOT EXISTS " + TRIGGERS[1] + " AFTER UPDATE OF " +
+                    DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_CONTENT + ", " +
+                    DatabaseHelper.COLUMN_AUTHOR_ID + ", " + DatabaseHelper.COLUMN_AUTHOR_NAME +
+                    " ON " + DatabaseHelper.TABLE_DIARY + " BEGIN " + ENQUEUE_NEW_DIARY + " END",
+            // 删除不需要分词，直接删除索引
+            "CREATE TRIGGER IF NOT EXISTS " + TRIGGERS[2] + " AFTER DELETE ON " + DatabaseHelper.TABLE_DIARY +
+                    " BEGIN DELETE FROM " + TABLE_DIARY_FTS + " WHERE docid = old." + DatabaseHelper.COLUMN_DIARY_ID +
+                    "; DELETE FROM " + TABLE_DIARY_PINYIN + " WHERE docid = old." + DatabaseHelper.COLUMN_DIARY_ID +
+                    "; DELETE FROM " + TABLE_DIARY_FTS_PENDING + " WHERE " + DatabaseHelper.COLUMN_DIARY_ID +
+                    " = old." + DatabaseHelper.COLUMN_DIARY_ID + "; END",
+            // 用户改昵称时重建其全部日记的索引
+            "CREATE TRIGGER IF NOT EXISTS " + TRIGGERS[3] + " AFTER UPDATE OF " +
+                    DatabaseHelper.COLUMN_NICKNAME + " ON " + DatabaseHelper.TABLE_USER + " BEGIN " +
+                    "INSERT OR IGNORE INTO " + TABLE_DIARY_FTS_PENDING + "(" + DatabaseHelper.COLUMN_DIARY_ID + ") " +
+                    "SELECT " + DatabaseHelper.COLUMN_DIARY_ID + " FROM " + DatabaseHelper.TABLE_DIARY +
+                    " WHERE " + DatabaseHelper.COLUMN_AUTHOR_ID + " = new." + DatabaseHelper.COLUMN_USER_ID + "; END"
+    };
+
+    // 读取日记的原文（建索引用）及两个索引中是否已有该日记，调用方追加WHERE条件
+    private static final String SOURCE_SELECT = "SELECT d." + DatabaseHelper.COLUMN_DIARY_ID +
+            ", d." + DatabaseHelper.COLUMN_TITLE + ", d." + DatabaseHelper.COLUMN_CONTENT +
+            ", " + AUTHOR_NAME_EXPRESSION +
+            ", EXISTS (SELECT 1 FROM " + TABLE_DIARY_FTS + " WHERE docid = d." + DatabaseHelper.COLUMN_DIARY_ID +
+            ") AS " + COLUMN_HAS_TEXT_INDEX +
+            ", EXISTS (SELECT 1 FROM " + TABLE_DIARY_PINYIN + " WHERE docid = d." + DatabaseHelper.COLUMN_DIARY_ID +
+            ") AS " + COLUMN_HAS_PINYIN_INDEX +
+            " FROM " + DatabaseHelper.TABLE_DIARY + " d LEFT JOIN " +
+            DatabaseHelper.TABLE_USER + " u ON d." + DatabaseHelper.COLUMN_AUTHOR_ID + " = u." +
+            DatabaseHelper.COLUMN_USER_ID;
+
+    // 全文检索查询的公共部分：由MATCH驱动，再按主键回表取摘要列
+    private static final String SEARCH_SELECT = searchSelect(TABLE_DIARY_FTS, false);
+    // 检索正文时从关键词所在位置截取正文（前两个参数为小写的关键词，见 MatchQuery.getExcerptArgs）
+    private static final String SEARCH_SELECT_AROUND_KEYWORD = searchSelect(TABLE_DIARY_FTS, true);
+    // 拼音检索，结果列与上面相同
+    private static final String PINYIN_SEARCH_SELECT = searchSelect(TABLE_DIARY_PINYIN, false);
+    private static final String PINYIN_SEARCH_SELECT_AROUND_KEYWORD = searchSelect(TABLE_DIARY_PINYIN, true);
+
+    // 用CROSS JOIN固定连接顺序，避免优化器改为逐篇日记按docid执行MATCH
+    // 不读出整篇正文，只截取结果摘要需要的一段（多取一个字用于判断是否需要省略号）：
+    // 检索正文时从关键词第一次出现处往前留出三分之一摘要长度（与 SnippetBuilder 一致），否则截取开头
+    private static String searchSelect(String ftsTable, boolean aroundKeyword) {
+        String start = aroundKeyword ? "max(instr(lower(d." + DatabaseHelper.COLUMN_CONTENT + "), ?) - 1 - " +
+                Constants.SEARCH_SNIPPET_LENGTH / 3 + ", 0)" : "0";
+        return "SELECT " + DiaryDAO.SUMMARY_COLUMNS + ", " +
+                "substr(d." + DatabaseHelper.COLUMN_CONTENT + ", " + start + " + 1, " +
+                (Constants.SEARCH_SNIPPET_LENGTH + 1) + ") AS " + COLUMN_SEARCH_CONTENT + ", " +
+                start + " AS " + COLUMN_SEARCH_CONTENT_START + ", " +
+                "matchinfo(" + ftsTable + ", 'pcnalx') AS " + COLUMN_MATCH_INFO + " " +
+                "FROM " + ftsTable + " " +
+                "CROSS JOIN " + DatabaseHelper.TABLE_DIARY + " d ON d." + DatabaseHelper.COLUMN_DIARY_ID +
+                " = " + ftsTable + ".docid " +
+                "LEFT JOIN " + DatabaseHelper.TABLE_USER + " u ON d." +
+                DatabaseHelper.COLUMN_AUTHOR_ID + " = u." + DatabaseHelper.COLUMN_USER_ID +
+                " WHERE " + ftsTable + " MATCH ?";
+    }
+
+    private DiarySearchIndex() {
+    }
+
+    // 创建全文索引表、待建索引表和同步触发器（IF NOT EXISTS，可重复执行）
+    public static void create(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_DIARY_FTS);
+        db.execSQL(CREATE_TABLE_DIARY_PINYIN);
+        db.execSQL(CREATE_TABLE_DIARY_FTS_PENDING);
+        for (String sql : CREATE_TRIGGERS) {
+            db.execSQL(sql);
+        }
+    }
+
+    // 删除旧的索引和触发器后重新创建（索引格式变化时使用，数据需重新回填）
+    public static void recreate(SQLiteDatabase db) {
+        for (String trigger : TRIGGERS) {
+            db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+        }
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_DIARY_FTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_DIARY_FTS_PENDING);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_DIARY_PINYIN);
+        create(db);
+    }
+
+    // 在已有全文索引的基础上增加拼音索引：重建触发器（删除日记时同时删除拼音索引），已有日记需回填
+    public static void addPinyinIndex(SQLiteDatabase db) {
+        for (String trigger : TRIGGERS) {
+            db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+        }
+        create(db);
+    }
+
+    // 为 rowid 在 (fromRowId, toRowId] 之间、全文或拼音索引尚未建立的日记补建索引（迁移回填使用，调用方负责事务）
+    public static void indexRange(SQLiteDatabase db, long fromRowId, long toRowId) {
+        Cursor cursor = db.rawQuery("SELECT * FROM (" + SOURCE_SELECT +
+                " WHERE d." + DatabaseHelper.COLUMN_DIARY_ID + " > ? AND d." + DatabaseHelper.COLUMN_DIARY_ID +
+                " <= ?) WHERE NOT (" + COLUMN_HAS_TEXT_INDEX + " AND " + COLUMN_HAS_PINYIN_INDEX + ")",
+                new String[]{String.valueOf(fromRowId), String.valueOf(toRowId)});
+        writeIndex(db, cursor);
+    }
+
+    // 为触发器记录的新增/修改日记建立索引；写入提交后调用，没有待处理日记时只执行一次主键查找
+    static void syncPending(SQLiteDatabase db) {
+        if (DatabaseUtils.longForQuery(db, "SELECT EXISTS (SELECT 1 FROM " + TABLE_DIARY_FTS_PENDING + ")",
+                null) == 0) {
+            return;
+        }
+        db.beginTransactionNonExclusive();
+        try {
+            db.execSQL("DELETE FROM " + TABLE_DIARY_FTS + " WHERE docid IN (SELECT " +
+                    DatabaseHelper.COLUMN_DIARY_ID + " FROM " + TABLE_DIARY_FTS_PENDING + ")");
+            db.execSQL("DELETE FROM " + TABLE_DIARY_PINYIN + " WHERE docid IN (SELECT " +
+                    DatabaseHelper.COLUMN_DIARY_ID + " FROM " + TABLE_DIARY_FTS_PENDING + ")");
+            // 已被删除的日记在JOIN中自然跳过
+            writeIndex(db, db.rawQuery(SOURCE_SELECT + " WHERE d." + DatabaseHelper.COLUMN_DIARY_ID +
+                    " IN (SELECT " + DatabaseHelper.COLUMN_DIARY_ID + " FROM " + TABLE_DIARY_FTS_PENDING + ")",
+                    null));
+            db.execSQL("DELETE FROM " + TABLE_DIARY_FTS_PENDING);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // 把 SOURCE_SELECT 查出的日记分词后写入尚未建立的索引，并关闭Cursor
+    private static void writeIndex(SQLiteDatabase db, Cursor cursor) {
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_DIARY_FTS +
+                "(docid, " + COLUMN_FTS_TITLE + ", " + COLUMN_FTS_CONTENT + ", " + COLUMN_FTS_AUTHOR_NAME + ") " +
+                "VALUES (?, ?, ?, ?)");
+        SQLiteStatement insertPinyin = db.compileStatement("INSERT INTO " + TABLE_DIARY_PINYIN +
+                "(docid, " + COLUMN_FTS_TITLE + ", " + COLUMN_FTS_AUTHOR_NAME + ") VALUES (?, ?, ?)");
+        try {
+            while (cursor.moveToNext()) {
+                if (cursor.getInt(4) == 0) {
+                    insert.bindLong(1, cursor.getLong(0));
+                    for (int column = 1; column <= 3; column++) {
+                        insert.bindString(column + 1, SearchTokenizer.indexText(cursor.getString(column)));
+                    }
+                    insert.executeInsert();
+                }
+                if (cursor.getInt(5) == 0) {
+                    insertPinyin.bindLong(1, cursor.getLong(0));
+                    insertPinyin.bindString(2, SearchTokenizer.pinyinIndexText(cursor.getString(1)));
+                    insertPinyin.bindString(3, SearchTokenizer.pinyinIndexText(cursor.getString(3)));
+                    insertPinyin.executeInsert();
+                }
+            }
+        } finally {
+            cursor.close();
+            insert.close();
+            insertPinyin.close();
+        }
+    }
+
+    /**
+     * 执行全文检索，结果按相关度排序；
+     * 关键词可以作为拼音时再检索拼音索引，只由拼音命中的日记排在全文检索结果之后；
+     * 结果中的正文只是摘要需要的一段（检索正文时为关键词附近，否则为开头）
+     * @param filter 接在检索条件之后的筛选条件（以 AND 开头，日记表别名为 d），可以为空字符串
+     */
+    static List<Hit> searchHits(SQLiteDatabase db, MatchQuery search, String filter, String[] filterArgs,
+                                CancellationSignal cancellationSignal) {
+        boolean aroundKeyword = search.searchesContent();
+        String[] excerptArgs = aroundKeyword ? search.getExcerptArgs() : new String[0];
+        String select = aroundKeyword ? SEARCH_SELECT_AROUND_KEYWORD : SEARCH_SELECT;
+        List<String> args = new ArrayList<>(Arrays.asList(excerptArgs));
+        args.addAll(Arrays.asList(search.getSelectionArgs(filterArgs)));
+        List<Hit> hits = readHits(db.rawQuery(select + search.getSelection() + filter,
+                args.toArray(new String[0]), cancellationSignal), search.columnWeights);
+        if (search.getPinyinMatch() == null) {
+            return hits;
+        }
+
+        List<String> pinyinArgs = new ArrayList<>(Arrays.asList(excerptArgs));
+        pinyinArgs.add(search.getPinyinMatch());
+        pinyinArgs.addAll(Arrays.asList(filterArgs));
+        String pinyinSelect = aroundKeyword ? PINYIN_SEARCH_SELECT_AROUND_KEYWORD : PINYIN_SEARCH_SELECT;
+        List<Hit> pinyinHits = readHits(db.rawQuery(pinyinSelect + filter, pinyinArgs.toArray(new String[0]),
+                cancellationSignal), PINYIN_COLUMN_WEIGHTS);
+        if (pinyinHits.isEmpty()) {
+            return hits;
+        }
+        Set<Integer> diaryIds = new HashSet<>();
+        for (Hit hit : hits) {
+            diaryIds.add(hit.summary.getDiaryId());
+        }
+        for (Hit hit : pinyinHits) {
+            if (diaryIds.add(hit.summary.getDiaryId())) {
+                hits.add(hit);
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 把用户输入转换为检索条件：整个关键词切分后作为一个短语（与原来 LIKE '%关键词%' 的连续匹配一致），
+     * columns不为空时只在这些列中匹配（列之间为OR）。
+     * MATCH 对整行检索短语，未检索的列权重为0，readHits 按 matchinfo() 丢弃只在这些列命中的日记；
+     * 短语命中后再用 LIKE 核对指定列的原文，结果与原来的 LIKE 查询一致；
+     * 例外是字母数字只能从词首开始匹配（如 "oto" 搜不到 "Kyoto"）。
+     * 关键词只有字母时，标题、作者列另按拼音前缀检索拼音索引（见 getPinyinMatch）
+     * @return 关键词中没有可检索的字符时返回null
+     */
+    static MatchQuery buildMatchQuery(String keyword, String... columns) {
+        if (keyword == null) {
+            return null;
+        }
+        String trimmed = keyword.trim();
+        List<String> tokens = SearchTokenizer.queryTokens(trimmed);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        String phrase = "\"" + TextUtils.join(" ", tokens) + "\"";
+        String pattern = "%" + trimmed.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+
+        String[] searchColumns = columns.length > 0 ? columns
+                : new String[]{COLUMN_FTS_TITLE, COLUMN_FTS_CONTENT, COLUMN_FTS_AUTHOR_NAME};
+        double[] columnWeights = new double[COLUMN_WEIGHTS.length];
+        StringBuilder selection = new StringBuilder(" AND (");
+        List<String> args = new ArrayList<>();
+        args.add(phrase);
+        for (int i = 0; i < searchColumns.length; i++) {
+            if (i > 0) {
+                selection.append(" OR ");
+            }
+            selection.append(sourceExpression(searchColumns[i])).append(" LIKE ? ESCAPE '\\'");
+            args.add(pattern);
+            int index = columnIndex(searchColumns[i]);
+            columnWeights[index] = COLUMN_WEIGHTS[index];
+        }
+        selection.append(')');
+
+        // 拼音索引只有标题和作者列
+        String pinyin = PinyinUtil.normalizeQuery(trimmed);
+        List<String> pinyinColumns = new ArrayList<>();
+        StringBuilder pinyinMatch = new StringBuilder();
+        for (String column : searchColumns) {
+            if (pinyin != null && !COLUMN_FTS_CONTENT.equals(column)) {
+                pinyinMatch.append(pinyinColumns.isEmpty() ? "" : " OR ")
+                        .append(column).append(':').append(pinyin).append('*');
+                pinyinColumns.add(column);
+            }
+        }
+        return new MatchQuery(trimmed, tokens, searchColumns, columnWeights, selection.toString(), args,
+                pinyinColumns.isEmpty() ? null : pinyin, pinyinColumns.toArray(new String[0]),
+                pinyinColumns.isEmpty() ? null : pinyinMatch.toString());
+    }
+
+    // 索引列在 diary_fts 中的序号（与建表列顺序一致）
+    private static int columnIndex(String column) {
+        switch (column) {
+            case COLUMN_FTS_TITLE:
+                return 0;
+            case COLUMN_FTS_CONTENT:
+                return 1;
+            case COLUMN_FTS_AUTHOR_NAME:
+                return 2;
+            default:
+                throw new IllegalArgumentException("未知的索引列: " + column);
+        }
+    }
+
+    // 索引列对应的原文表达式
+    private static String sourceExpression(String column) {
+        switch (column) {
+            case COLUMN_FTS_TITLE:
+                return "d." + DatabaseHelper.COLUMN_TITLE;
+            case COLUMN_FTS_CONTENT:
+                return "d." + DatabaseHelper.COLUMN_CONTENT;
+            case COLUMN_FTS_AUTHOR_NAME:
+                return AUTHOR_NAME_EXPRESSION;
+            default:
+                throw new IllegalArgumentException("未知的索引列: " + column);
+        }
+    }
+
+    // 全文检索条件：接在 SEARCH_SELECT 之后的核对条件及对应参数（第一个参数为MATCH的短语）
+    static final class MatchQuery {
+        private final String keyword;
+        private final List<String> tokens;
+        private final String[] columns;
+        // 各列的bm25权重，未检索的列为0（只在这些列命中的日记不计入结果）
+        final double[] columnWeights;
+        private final String selection;
+        private final List<String> args;
+        private final String pinyin;
+        private final String[] pinyinColumns;
+        private final String pinyinMatch;
+
+        MatchQuery(String keyword, List<String> tokens, String[] columns, double[] columnWeights, String selection,
+                   List<String> args, String pinyin, String[] pinyinColumns, String pinyinMatch) {
+            this.keyword = keyword;
+            this.tokens = tokens;
+            this.columns = columns;
+            this.columnWeights = columnWeights;
+            this.selection = selection;
+            this.args = args;
+            this.pinyin = pinyin;
+            this.pinyinColumns = pinyinColumns;
+            this.pinyinMatch = pinyinMatch;
+        }
+
+        // 去除首尾空白后的关键词
+        String getKeyword() {
+            return keyword;
+        }
+
+        String getSelection() {
+            return selection;
+        }
+
+        // 是否检索正文列（需要取出完整正文才能在内存中判断）
+        boolean searchesContent() {
+            return Arrays.asList(columns).contains(COLUMN_FTS_CONTENT);
+        }
+
+        // 拼音索引的MATCH表达式（列:拼音*，列之间为OR），关键词不能作为拼音时为null
+        String getPinyinMatch() {
+            return pinyinMatch;
+        }
+
+        /**
+         * 在内存中判断一条查询结果是否满足本条件，与SQL的判断一致：
+         * 任一列的短语命中（MATCH），且任一列的原文包含关键词（LIKE）；或任一拼音列按拼音前缀命中
+         * 查询结果中只有正文的一段，检索正文的条件不能用本方法判断
+         */
+        boolean matches(Hit hit) {
+            for (String column : pinyinColumns) {
+                if (SearchTokenizer.pinyinMatches(sourceText(hit, column), pinyin)) {
+                    return true;
+                }
+            }
+            boolean contains = false;
+            for (String column : columns) {
+                if (SearchTokenizer.likeContains(sourceText(hit, column), keyword)) {
+                    contains = true;
+                    break;
+                }
+            }
+            if (!contains) {
+                return false;
+            }
+            for (String column : columns) {
+                if (SearchTokenizer.phraseMatches(sourceText(hit, column), tokens)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String sourceText(Hit hit, String column) {
+            switch (column) {
+                case COLUMN_FTS_TITLE:
+                    return hit.summary.getTitle();
+                case COLUMN_FTS_CONTENT:
+                    return hit.content;
+                default:
+                    return hit.summary.getAuthorName();
+            }
+        }
+
+        // 从关键词所在位置截取正文的两个参数（ASCII转小写，与 LIKE 和 SnippetBuilder 一致）
+        String[] getExcerptArgs() {
+            String lowerKeyword = SearchTokenizer.asciiLowerCase(keyword);
+            return new String[]{lowerKeyword, lowerKeyword};
+        }
+
+        // 全部参数，extraArgs 对应调用方在 selection 之后追加的条件
+        String[] getSelectionArgs(String... extraArgs) {
+            List<String> all = new ArrayList<>(args);
+            all.addAll(Arrays.asList(extraArgs));
+            return all.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * 读取检索结果，按bm25相关度从高到低排序（相关度相同时新的在前），并关闭Cursor
+     * @param columnWeights 各列权重；短语只在权重为0的列命中的行被跳过
+     */
+    private static List<Hit> readHits(Cursor cursor, double[] columnWeights) {
+        List<Hit> hits = new ArrayList<>();
+        if (cursor != null) {
+            try {
+                if (cursor.moveToFirst()) {
+                    RowMapper<DiarySummary> mapper = new DiarySummaryRowMapper(cursor);
+                    int matchInfoIndex = cursor.getColumnIndexOrThrow(COLUMN_MATCH_INFO);
+                    int contentIndex = cursor.getColumnIndexOrThrow(COLUMN_SEARCH_CONTENT);
+                    int contentStartIndex = cursor.getColumnIndexOrThrow(COLUMN_SEARCH_CONTENT_START);
+                    do {
+                        byte[] matchInfo = cursor.getBlob(matchInfoIndex);
+                        if (hitsInColumns(matchInfo, columnWeights)) {
+                            hits.add(new Hit(mapper.map(cursor), cursor.getString(contentIndex),
+                                    cursor.getInt(contentStartIndex), bm25(matchInfo, columnWeights)));
+                        }
+                    } while (cursor.moveToNext());
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        hits.sort((a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore
+                    : Long.compare(b.summary.getCreateTimeMillis(), a.summary.getCreateTimeMillis());
+        });
+        return hits;
+    }
+
+    static List<DiarySummary> toSummaries(List<Hit> hits) {
+        List<DiarySummary> result = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            result.add(hit.summary);
+        }
+        return result;
+    }
+
+    // 带相关度得分的查询结果（content只是正文中的一段，contentStart为这一段在正文中的起始位置）
+    static final class Hit {
+        final DiarySummary summary;
+        final String content;
+        final int contentStart;
+        final double score;
+
+        Hit(DiarySummary summary, String content, int contentStart, double score) {
+            this.summary = summary;
+            this.content = content;
+            this.contentStart = contentStart;
+            this.score = score;
+        }
+    }
+
+    // 由 matchinfo(..., 'pcnalx') 判断是否有短语在权重大于0的列中命中（布局见 bm25）
+    static boolean hitsInColumns(byte[] matchInfo, double[] columnWeights) {
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = info.get(0);
+        int columnCount = info.get(1);
+        int hitsOffset = 3 + 2 * columnCount;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount && column < columnWeights.length; column++) {
+                if (columnWeights[column] > 0 && info.get(hitsOffset + 3 * (phrase * columnCount + column)) > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 由 matchinfo(..., 'pcnalx') 计算bm25得分（越大越相关）
+     * 布局：p 短语数，c 列数，n 总行数，a[c] 各列平均词数，l[c] 本行各列词数，
+     * x[3*p*c] 每个短语/列依次为 本行命中数、全表命中数、包含命中的行数
+     * @param columnWeights 各列权重，顺序与建表列一致
+     */
+    static double bm25(byte[] matchInfo, double[] columnWeights) {
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = info.get(0);
+        int columnCount = info.get(1);
+        int totalDocs = info.get(2);
+        int avgLengthOffset = 3;
+        int lengthOffset = avgLengthOffset + columnCount;
+        int hitsOffset = lengthOffset + columnCount;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount && column < columnWeights.length; column++) {
+                int hitBase = hitsOffset + 3 * (phrase * columnCount + column);
+                int hitsInRow = info.get(hitBase);
+                if (hitsInRow == 0) {
+                    continue;
+                }
+                int docsWithHits = info.get(hitBase + 2);
+                double idf = Math.log((totalDocs - docsWithHits + 0.5) / (docsWithHits + 0.5));
+                if (idf <= 0) {
+                    idf = 1e-6; // 过半文档都命中的常见词仍给一个极小的正分
+                }
+                double avgLength = Math.max(1, info.get(avgLengthOffset + column));
+                double length = info.get(lengthOffset + column);
+                double tf = hitsInRow * (BM25_K1 + 1) /
+                        (hitsInRow + BM25_K1 * (1 - BM25_B + BM25_B * length / avgLength));
+                score += columnWeights[column] * idf * tf;
+            }
+        }
+        return score;
+    }
+}
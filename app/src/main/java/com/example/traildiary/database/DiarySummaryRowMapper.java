@@ -0,0 +1,90 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+
+import com.example.traildiary.model.DiarySummary;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * 日记摘要行转换器（列表页使用）
+ * 对应 DiaryDAO.SUMMARY_COLUMNS 的投影，不读取正文和完整的插图JSON
+ */
+final class DiarySummaryRowMapper extends RowMapper<DiarySummary> {
+
+    private final int idIndex;
+    private final int titleIndex;
+    private final int categoryIndex;
+    private final int authorIdIndex;
+    private final int notebookIdIndex;
+    private final int coverImagePathIndex;
+    private final int coverThumbSmallIndex;
+    private final int coverThumbLargeIndex;
+    private final int isDraftIndex;
+    private final int imagesHeadIndex;
+    private final int createTimeIndex;
+    private final int updateTimeIndex;
+    private final int authorNameIndex;
+
+    DiarySummaryRowMapper(Cursor cursor) {
+        idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DIARY_ID);
+        titleIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TITLE);
+        categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY);
+        authorIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AUTHOR_ID);
+        notebookIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTEBOOK_ID);
+        coverImagePathIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_IMAGE_PATH);
+        coverThumbSmallIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_THUMB_SMALL);
+        coverThumbLargeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER_THUMB_LARGE);
+        isDraftIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_DRAFT);
+        imagesHeadIndex = cursor.getColumnIndexOrThrow(DiaryDAO.COLUMN_IMAGES_HEAD);
+        createTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME_DIARY);
+        updateTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_UPDATE_TIME);
+        authorNameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AUTHOR_NAME);
+    }
+
+    @Override
+    DiarySummary map(Cursor cursor) {
+        DiarySummary summary = new DiarySummary();
+
+        summary.setDiaryId(cursor.getInt(idIndex));
+        summary.setTitle(cursor.getString(titleIndex));
+        summary.setCategory(cursor.getString(categoryIndex));
+        summary.setAuthorId(cursor.getInt(authorIdIndex));
+        summary.setNotebookId(cursor.getInt(notebookIdIndex));
+        summary.setDraft(cursor.getInt(isDraftIndex) == 1);
+        summary.setCreateTimeMillis(cursor.getLong(createTimeIndex));
+        summary.setUpdateTimeMillis(cursor.getLong(updateTimeIndex));
+        summary.setAuthorName(cursor.getString(authorNameIndex));
+
+        // 有封面用封面，否则用第一张插图
+        String cover = cursor.getString(coverImagePathIndex);
+        if (cover == null || cover.isEmpty()) {
+            cover = firstImage(cursor.getString(imagesHeadIndex));
+        }
+        summary.setCoverImagePath(cover);
+        // 缩略图：NULL为尚未生成，空串为没有缩略图，都使用原图
+        summary.setCoverThumbSmall(emptyToNull(cursor.getString(coverThumbSmallIndex)));
+        summary.setCoverThumbLarge(emptyToNull(cursor.getString(coverThumbLargeIndex)));
+
+        return summary;
+    }
+
+    private static String emptyToNull(String text) {
+        return text == null || text.isEmpty() ? null : text;
+    }
+
+    // 从插图JSON数组的开头取出第一个路径（只读到第一个元素，截断的JSON也能解析）
+    static String firstImage(String imagesHead) {
+        if (imagesHead == null || imagesHead.isEmpty()) {
+            return null;
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(imagesHead))) {
+            reader.beginArray();
+            return reader.hasNext() ? reader.nextString() : null;
+        } catch (IOException | IllegalStateException e) {
+            return null; // 第一个路径本身超出截取长度或格式异常，退回默认封面
+        }
+    }
+}
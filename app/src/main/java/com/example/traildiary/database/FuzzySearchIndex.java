@@ -0,0 +1,232 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.EditDistanceIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 容错搜索索引：精确搜索没有结果时，按编辑距离查找相近的日记标题和用户昵称（如"古振游记"找到"古镇游记"）
+ * 标题按作者分别建索引，昵称全站一个索引，都在第一次容错搜索时从数据库载入（标题只保留最近使用的几个作者），
+ * 之后由 DiaryDAO / UserDAO 在写入成功后增量更新。
+ * 索引只用于找出日记/用户ID，结果仍由SQL按ID、作者和草稿条件取出，
+ * 因此不经过DAO删除的日记（如随日记本一起删除）留在索引中也不会出现在结果里。
+ * 比较的词：整个标题（昵称），以及标题中被标点、空白分开的各段；ASCII不区分大小写，连续空白视为一个。
+ */
+final class FuzzySearchIndex {
+
+    private final DatabaseProvider dbProvider;
+    // 作者ID -> 该作者日记标题的索引，按最近使用淘汰
+    private final Map<Integer, TermIndex> titlesByAuthor =
+            new LinkedHashMap<Integer, TermIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, TermIndex> eldest) {
+                    return size() > Constants.FUZZY_INDEX_MAX_USERS;
+                }
+            };
+    private TermIndex nicknames;
+
+    FuzzySearchIndex(DatabaseProvider dbProvider) {
+        this.dbProvider = dbProvider;
+    }
+
+    /**
+     * 在作者的日记标题（含草稿）中查找与关键词相近的词
+     * @return 按编辑距离从小到大排序；关键词太短时返回空列表
+     */
+    synchronized List<EditDistanceIndex.Match> searchTitles(int authorId, String keyword) {
+        String query = normalize(keyword);
+        int maxDistance = maxDistance(query);
+        if (maxDistance <= 0) {
+            return new ArrayList<>();
+        }
+        TermIndex titles = titlesByAuthor.get(authorId);
+        if (titles == null) {
+            titles = loadTitles(authorId);
+            titlesByAuthor.put(authorId, titles);
+        }
+        return titles.index.search(query, maxDistance);
+    }
+
+    // 在全部用户昵称中查找与关键词相近的昵称，ID为用户ID
+    synchronized List<EditDistanceIndex.Match> searchNicknames(String keyword) {
+        String query = normalize(keyword);
+        int maxDistance = maxDistance(query);
+        if (maxDistance <= 0) {
+            return new ArrayList<>();
+        }
+        if (nicknames == null) {
+            nicknames = loadNicknames();
+        }
+        return nicknames.index.search(query, maxDistance);
+    }
+
+    // 日记新增或修改标题后调用
+    synchronized void onDiaryWritten(int diaryId, int authorId, String title) {
+        TermIndex titles = null;
+        for (TermIndex candidate : titlesByAuthor.values()) {
+            if (candidate.contains(diaryId)) {
+                titles = candidate;
+                break;
+            }
+        }
+        if (titles == null) {
+            titles = titlesByAuthor.get(authorId);
+        }
+        if (titles != null) {
+            titles.put(diaryId, titleTerms(title));
+        }
+    }
+
+    // 日记删除后调用
+    synchronized void onDiaryDeleted(int diaryId) {
+        for (TermIndex titles : titlesByAuthor.values()) {
+            titles.remove(diaryId);
+        }
+    }
+
+    // 批量删除该作者的日记后调用，下次搜索时重新载入
+    synchronized void invalidateAuthor(int authorId) {
+        titlesByAuthor.remove(authorId);
+    }
+
+    // 用户注册或修改昵称后调用
+    synchronized void onUserWritten(int userId, String nickname) {
+        if (nicknames != null) {
+            nicknames.put(userId, nicknameTerms(nickname));
+        }
+    }
+
+    synchronized void clear() {
+        titlesByAuthor.clear();
+        nicknames = null;
+    }
+
+    // 允许的编辑距离：太短的关键词不做容错（错一个字就几乎什么都能匹配）
+    static int maxDistance(String normalizedKeyword) {
+        int length = normalizedKeyword == null ? 0 : normalizedKeyword.length();
+        if (length < Constants.FUZZY_SEARCH_MIN_LENGTH) {
+            return 0;
+        }
+        return length >= Constants.FUZZY_SEARCH_LONG_LENGTH ? 2 : 1;
+    }
+
+    // 去掉首尾空白，连续空白合并为一个，ASCII转小写
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(c);
+        }
+        return SearchTokenizer.asciiLowerCase(sb.toString());
+    }
+
+    // 标题的比较词：整个标题 + 被标点、空白分开的各段（至少两个字）
+    static List<String> titleTerms(String title) {
+        List<String> terms = new ArrayList<>();
+        String normalized = normalize(title);
+        if (normalized.isEmpty()) {
+            return terms;
+        }
+        terms.add(normalized);
+        int start = 0;
+        for (int i = 0; i <= normalized.length(); i++) {
+            if (i == normalized.length() || !Character.isLetterOrDigit(normalized.charAt(i))) {
+                if (i - start >= 2 && i - start < normalized.length()) {
+                    String segment = normalized.substring(start, i);
+                    if (!terms.contains(segment)) {
+                        terms.add(segment);
+                    }
+                }
+                start = i + 1;
+            }
+        }
+        return terms;
+    }
+
+    private static List<String> nicknameTerms(String nickname) {
+        List<String> terms = new ArrayList<>(1);
+        String normalized = normalize(nickname);
+        if (!normalized.isEmpty()) {
+            terms.add(normalized);
+        }
+        return terms;
+    }
+
+    private TermIndex loadTitles(int authorId) {
+        TermIndex titles = new TermIndex();
+        Cursor cursor = dbProvider.getReadableDatabase().rawQuery(
+                "SELECT " + DatabaseHelper.COLUMN_DIARY_ID + ", " + DatabaseHelper.COLUMN_TITLE +
+                        " FROM " + DatabaseHelper.TABLE_DIARY +
+                        " WHERE " + DatabaseHelper.COLUMN_AUTHOR_ID + " = ?",
+                new String[]{String.valueOf(authorId)});
+        try {
+            while (cursor.moveToNext()) {
+                titles.put(cursor.getInt(0), titleTerms(cursor.getString(1)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return titles;
+    }
+
+    private TermIndex loadNicknames() {
+        TermIndex index = new TermIndex();
+        Cursor cursor = dbProvider.getReadableDatabase().rawQuery(
+                "SELECT " + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_NICKNAME +
+                        " FROM " + DatabaseHelper.TABLE_USER, null);
+        try {
+            while (cursor.moveToNext()) {
+                index.put(cursor.getInt(0), nicknameTerms(cursor.getString(1)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return index;
+    }
+
+    // 编辑距离索引 + 每个ID当前的比较词（更新时先移除旧词）
+    private static final class TermIndex {
+        final EditDistanceIndex index = new EditDistanceIndex();
+        final Map<Integer, List<String>> termsById = new HashMap<>();
+
+        boolean contains(int id) {
+            return termsById.containsKey(id);
+        }
+
+        void put(int id, List<String> terms) {
+            remove(id);
+            for (String term : terms) {
+                index.add(term, id);
+            }
+            termsById.put(id, terms);
+        }
+
+        void remove(int id) {
+            List<String> old = termsById.remove(id);
+            if (old != null) {
+                for (String term : old) {
+                    index.remove(term, id);
+                }
+            }
+        }
+    }
+}
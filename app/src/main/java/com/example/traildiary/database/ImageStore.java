@@ -0,0 +1,315 @@
+package com.example.traildiary.database;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Environment;
+import android.os.Process;
+import android.util.Log;
+import android.webkit.MimeTypeMap;
+
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.ImageUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按内容存储的插图库
+ * 导入的图片以内容的SHA-256命名（<哈希>.jpg），相同内容只保存一份：
+ * 重复导入只需读一遍原图计算哈希，不再写入文件。
+ * 日记对图片的引用记录在 diary_image 表，引用计数由触发器维护；
+ * 引用计数为0且超过保留期的图片在应用启动时清理（保留期内的图片可能正在编辑中的日记里使用）。
+ */
+public final class ImageStore {
+
+    private static final String TAG = "ImageStore";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static volatile ImageStore instance;
+
+    private final ContentResolver contentResolver;
+    private final ImageStoreDAO imageStoreDAO;
+    private final ThumbnailDAO thumbnailDAO;
+    private final File storeDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // 并行导入的线程池：线程数等于CPU核数，空闲的线程会被回收
+    private final ThreadPoolExecutor importExecutor;
+
+    // 本进程的导入统计
+    private int importCount;
+    private int duplicateCount;
+    private long importedBytes;
+    private long savedBytes;
+
+    // 测试中直接创建，使用当前注入的数据库
+    ImageStore(Context appContext, File storeDir) {
+        contentResolver = appContext.getContentResolver();
+        imageStoreDAO = new ImageStoreDAO(appContext);
+        thumbnailDAO = new ThumbnailDAO(appContext);
+        this.storeDir = storeDir;
+        int threads = Runtime.getRuntime().availableProcessors();
+        importExecutor = new ThreadPoolExecutor(threads, threads,
+                Constants.IMAGE_IMPORT_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        importExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    // 获取全局唯一实例（始终使用ApplicationContext，避免持有Activity）
+    public static ImageStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ImageStore.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    File picturesDir = appContext.getExternalFilesDir(Environment.DIRECTORY_PICTURES);
+                    if (picturesDir == null) {
+                        picturesDir = new File(appContext.getFilesDir(), Environment.DIRECTORY_PICTURES);
+                    }
+                    instance = new ImageStore(appContext, new File(picturesDir, Constants.IMAGE_STORE_DIR));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 并行导入多张图片（阻塞到全部完成，不可在主线程调用）
+     * @return 与uris一一对应的路径，导入失败的为null
+     * @throws InterruptedException 等待期间当前线程被中断（尚未开始的导入被取消）
+     */
+    public List<String> importImages(List<Uri> uris) throws InterruptedException {
+        List<Callable<String>> tasks = new ArrayList<>(uris.size());
+        for (Uri uri : uris) {
+            tasks.add(() -> importImage(uri));
+        }
+        List<String> paths = new ArrayList<>(uris.size());
+        for (Future<String> future : importExecutor.invokeAll(tasks)) {
+            try {
+                paths.add(future.get());
+            } catch (ExecutionException e) {
+                Log.e(TAG, "导入图片失败", e.getCause());
+                paths.add(null);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * 导入图片（耗时操作，不可在主线程调用）
+     * 先计算内容哈希：图片库中已有相同内容时直接返回已有的路径；
+     * 否则复制到图片库（先写临时文件再改名）并登记，保存日记时建立引用。
+     * 读取和复制不加锁，多张图片可以同时导入
+     * @return 图片库中的路径；读取或写入失败时返回null
+     */
+    public String importImage(Uri uri) {
+        String hash;
+        try (InputStream in = contentResolver.openInputStream(uri)) {
+            if (in == null) {
+                return null;
+            }
+            hash = digest(in, null);
+        } catch (IOException e) {
+            Log.e(TAG, "读取图片失败: " + uri, e);
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            importCount++;
+            String existing = findExisting(hash, now);
+            if (existing != null) {
+                return existing;
+            }
+        }
+
+        File temp;
+        try {
+            if (!storeDir.mkdirs() && !storeDir.isDirectory()) {
+                Log.e(TAG, "无法创建图片库目录: " + storeDir);
+                return null;
+            }
+            // 同一内容可能同时被导入，临时文件名不能只用哈希
+            temp = File.createTempFile(hash, ".tmp", storeDir);
+        } catch (IOException e) {
+            Log.e(TAG, "无法创建临时文件: " + storeDir, e);
+            return null;
+        }
+        long size;
+        try (InputStream in = contentResolver.openInputStream(uri);
+             FileOutputStream out = new FileOutputStream(temp)) {
+            if (in == null) {
+                temp.delete();
+                return null;
+            }
+            // 复制时重新计算哈希，两次读取之间原图被修改时以实际写入的内容命名
+            hash = digest(in, out);
+            size = temp.length();
+        } catch (IOException e) {
+            Log.e(TAG, "复制图片失败: " + uri, e);
+            temp.delete();
+            return null;
+        }
+        File target = new File(storeDir, hash + "." + getExtension(uri));
+        synchronized (this) {
+            String existing = findExisting(hash, now);
+            if (existing != null) {
+                temp.delete();
+                return existing;
+            }
+            if (!temp.renameTo(target)) {
+                temp.delete();
+                return null;
+            }
+            imageStoreDAO.addImage(hash, target.getPath(), size, now);
+            importedBytes += size;
+        }
+        return target.getPath();
+    }
+
+    // 图片库中相同内容的图片；记录还在但文件已丢失时视为没有
+    private String findExisting(String hash, long now) {
+        String path = imageStoreDAO.touch(hash, now);
+        File file = path != null ? new File(path) : null;
+        if (file != null && file.isFile()) {
+            duplicateCount++;
+            savedBytes += file.length();
+            return path;
+        }
+        return null;
+    }
+
+    // 读完输入流并计算SHA-256，out不为null时同时写入out
+    private static String digest(InputStream in, OutputStream out) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[Constants.IMAGE_COPY_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            if (out != null) {
+                out.write(buffer, 0, read);
+            }
+        }
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    // 按MIME类型取扩展名，取不到时按文件名，默认jpg
+    private String getExtension(Uri uri) {
+        String type = contentResolver.getType(uri);
+        String extension = type != null ? MimeTypeMap.getSingleton().getExtensionFromMimeType(type) : null;
+        if (extension == null) {
+            String name = uri.getLastPathSegment();
+            extension = ImageUtil.isSupportedImageFormat(name) ? ImageUtil.getFileExtension(name).toLowerCase() : "jpg";
+        }
+        return extension;
+    }
+
+    // 在后台清理无引用的图片（应用启动时调用）
+    public void collectGarbageAsync() {
+        executor.execute(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                collectGarbage(System.currentTimeMillis() - Constants.IMAGE_STORE_GC_GRACE_MS);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "清理图片库失败", e);
+            }
+        });
+    }
+
+    /**
+     * 删除引用计数为0且导入时间早于cutoff的图片及其缩略图（不可在主线程调用）
+     * @return 删除的图片数
+     */
+    synchronized int collectGarbage(long cutoff) {
+        int deleted = 0;
+        for (Map.Entry<String, String> image : imageStoreDAO.getUnreferencedImages(cutoff).entrySet()) {
+            // 先删记录：期间被日记引用时删除失败，文件保留
+            if (!imageStoreDAO.deleteUnreferencedImage(image.getKey(), cutoff)) {
+                continue;
+            }
+            String path = image.getValue();
+            String[] thumbnails = thumbnailDAO.getThumbnails(path);
+            if (thumbnails != null) {
+                for (String thumbnail : thumbnails) {
+                    if (!thumbnail.equals(path)) {
+                        ImageUtil.deleteFile(thumbnail);
+                    }
+                }
+                thumbnailDAO.deleteThumbnails(path);
+            }
+            ImageUtil.deleteFile(path);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    // 图片库的存储统计
+    public synchronized Stats getStats() {
+        return new Stats(importCount, duplicateCount, importedBytes, savedBytes, imageStoreDAO.getStoredBytes());
+    }
+
+    /**
+     * 图片库存储统计
+     * 导入次数、重复次数、写入和节省的字节数只统计本进程
+     */
+    public static final class Stats {
+        private final int importCount;
+        private final int duplicateCount;
+        private final long importedBytes;
+        private final long savedBytes;
+        private final long storedBytes;
+
+        Stats(int importCount, int duplicateCount, long importedBytes, long savedBytes, long storedBytes) {
+            this.importCount = importCount;
+            this.duplicateCount = duplicateCount;
+            this.importedBytes = importedBytes;
+            this.savedBytes = savedBytes;
+            this.storedBytes = storedBytes;
+        }
+
+        public int getImportCount() {
+            return importCount;
+        }
+
+        public int getDuplicateCount() {
+            return duplicateCount;
+        }
+
+        public long getImportedBytes() {
+            return importedBytes;
+        }
+
+        // 重复导入时没有写入的字节数
+        public long getSavedBytes() {
+            return savedBytes;
+        }
+
+        public long getStoredBytes() {
+            return storedBytes;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.traildiary.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 图片库数据访问对象
+ * stored_image 每种图片内容一行；diary_image 记录每篇日记引用了哪些图片，
+ * 引用计数由 diary_image 上的触发器维护，删除日记（或注销用户）时引用被级联删除，计数随之减少。
+ */
+public class ImageStoreDAO {
+
+    private final DatabaseProvider dbProvider;
+
+    public ImageStoreDAO(Context context) {
+        dbProvider = DatabaseProvider.getInstance(context);
+    }
+
+    /**
+     * 查找图片库中相同内容的图片，并刷新其导入时间（重新导入的无引用图片不会马上被清理）
+     * @return 图片路径；图片库中没有该内容时返回null
+     */
+    public String touch(String hash, long importTime) {
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_IMPORT_TIME, importTime);
+        int updated = db.update(DatabaseHelper.TABLE_STORED_IMAGE, values,
+                DatabaseHelper.COLUMN_IMAGE_HASH + " = ?", new String[]{hash});
+        if (updated == 0) {
+            return null;
+        }
+        return DatabaseUtils.stringForQuery(db, "SELECT " + DatabaseHelper.COLUMN_IMAGE_PATH +
+                        " FROM " + DatabaseHelper.TABLE_STORED_IMAGE + " WHERE " + DatabaseHelper.COLUMN_IMAGE_HASH + " = ?",
+                new String[]{hash});
+    }
+
+    // 登记新导入的图片（引用计数为0，保存日记时建立引用）
+    public void addImage(String hash, String path, long byteSize, long importTime) {
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_IMAGE_PATH, path);
+        values.put(DatabaseHelper.COLUMN_BYTE_SIZE, byteSize);
+        values.put(DatabaseHelper.COLUMN_IMPORT_TIME, importTime);
+        // 记录还在但文件已丢失时换用新文件，保留已有的引用
+        if (db.update(DatabaseHelper.TABLE_STORED_IMAGE, values,
+                DatabaseHelper.COLUMN_IMAGE_HASH + " = ?", new String[]{hash}) == 0) {
+            values.put(DatabaseHelper.COLUMN_IMAGE_HASH, hash);
+            db.insert(DatabaseHelper.TABLE_STORED_IMAGE, null, values);
+        }
+    }
+
+    // 无引用且导入时间早于cutoff的图片（哈希 -> 路径）
+    public Map<String, String> getUnreferencedImages(long cutoff) {
+        Map<String, String> images = new LinkedHashMap<>();
+        Cursor cursor = dbProvider.getReadableDatabase().rawQuery(
+                "SELECT " + DatabaseHelper.COLUMN_IMAGE_HASH + ", " + DatabaseHelper.COLUMN_IMAGE_PATH +
+                        " FROM " + DatabaseHelper.TABLE_STORED_IMAGE +
+                        " WHERE " + DatabaseHelper.COLUMN_REF_COUNT + " = 0 AND " +
+                        DatabaseHelper.COLUMN_IMPORT_TIME + " < ?",
+                new String[]{String.valueOf(cutoff)});
+        try {
+            while (cursor.moveToNext()) {
+                images.put(cursor.getString(0), cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        return images;
+    }
+
+    // 删除无引用的图片记录；期间被重新导入或被日记引用时不删除，返回false
+    public boolean deleteUnreferencedImage(String hash, long cutoff) {
+        return dbProvider.getMaintenanceDatabase().delete(DatabaseHelper.TABLE_STORED_IMAGE,
+                DatabaseHelper.COLUMN_IMAGE_HASH + " = ? AND " + DatabaseHelper.COLUMN_REF_COUNT + " = 0 AND " +
+                        DatabaseHelper.COLUMN_IMPORT_TIME + " < ?",
+                new String[]{hash, String.valueOf(cutoff)}) > 0;
+    }
+
+    // 图片库占用的字节数
+    public long getStoredBytes() {
+        return DatabaseUtils.longForQuery(dbProvider.getReadableDatabase(),
+                "SELECT IFNULL(SUM(" + DatabaseHelper.COLUMN_BYTE_SIZE + "), 0) FROM " +
+                        DatabaseHelper.TABLE_STORED_IMAGE, null);
+    }
+
+    private static final String SQL_ADD_DIARY_IMAGE = "INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_DIARY_IMAGE +
+            "(" + DatabaseHelper.COLUMN_DIARY_ID + ", " + DatabaseHelper.COLUMN_IMAGE_HASH + ") SELECT ?, " +
+            DatabaseHelper.COLUMN_IMAGE_HASH + " FROM " + DatabaseHelper.TABLE_STORED_IMAGE +
+            " WHERE " + DatabaseHelper.COLUMN_IMAGE_PATH + " = ?";
+
+    /**
+     * 按日记当前的插图重建引用（在写入日记的事务中调用）
+     * 不在图片库中的路径（升级前的图片、相册原图）不计引用
+     */
+    static void syncDiaryImages(SQLiteDatabase db, long diaryId, Collection<String> paths) {
+        db.delete(DatabaseHelper.TABLE_DIARY_IMAGE, DatabaseHelper.COLUMN_DIARY_ID + " = ?",
+                new String[]{String.valueOf(diaryId)});
+        SQLiteStatement statement = db.compileStatement(SQL_ADD_DIARY_IMAGE);
+        try {
+            for (String path : paths) {
+                statement.bindLong(1, diaryId);
+                statement.bindString(2, path);
+                statement.executeInsert();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.traildiary.model.KeywordStat;
+import com.example.traildiary.model.SearchHistory;
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.KeywordTrie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 搜索关键词自动补全
+ * 打开搜索框时在后台把当前用户的搜索历史和全站热搜关键词（按时间衰减的热度）载入内存前缀树，
+ * 之后的建议查询只访问内存，不再查询数据库；
+ * 搜索历史的增删经由本类完成，数据库和前缀树同步更新。
+ */
+public class KeywordSuggester {
+
+    private static final String TAG = "KeywordSuggester";
+
+    private final SearchHistoryDAO searchHistoryDAO;
+    private final int userId;
+    private final KeywordTrie trie = new KeywordTrie(Constants.SEARCH_SUGGESTION_LIMIT);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public KeywordSuggester(Context context, int userId) {
+        this.searchHistoryDAO = new SearchHistoryDAO(context);
+        this.userId = userId;
+    }
+
+    // 后台载入（载入完成前suggest返回空列表）
+    public void loadAsync() {
+        executor.execute(() -> {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "载入搜索历史失败", e);
+            }
+        });
+    }
+
+    // 在当前线程载入（不可在主线程调用）
+    public void load() {
+        List<KeywordStat> userStats = searchHistoryDAO.getKeywordStats(userId);
+        List<String> popularKeywords = searchHistoryDAO.getTrendingKeywords(Constants.SEARCH_POPULAR_KEYWORD_LIMIT);
+        trie.load(userStats, popularKeywords);
+    }
+
+    // 以prefix开头的关键词建议（按排名从高到低）
+    public List<String> suggest(String prefix) {
+        return trie.suggest(prefix, Constants.SEARCH_SUGGESTION_LIMIT);
+    }
+
+    // 保存搜索记录并计入自动补全（超出条数上限被删除的旧记录同时扣除）
+    public long addSearchHistory(SearchHistory history) {
+        List<SearchHistory> evicted = new ArrayList<>();
+        long id = searchHistoryDAO.addSearchHistory(history, evicted);
+        if (id > 0) {
+            long searchTime = history.getSearchTimeMillis() != 0
+                    ? history.getSearchTimeMillis() : System.currentTimeMillis();
+            trie.addSearch(history.getKeyword(), searchTime);
+            for (SearchHistory old : evicted) {
+                trie.removeSearch(old.getKeyword(), old.getSearchCount());
+            }
+        }
+        return id;
+    }
+
+    // 删除搜索记录并从自动补全中扣除（history需来自数据库，带有累计的搜索次数）
+    public int deleteSearchHistory(SearchHistory history) {
+        int deleted = searchHistoryDAO.deleteSearchHistory(history.getId());
+        if (deleted > 0) {
+            trie.removeSearch(history.getKeyword(), history.getSearchCount());
+        }
+        return deleted;
+    }
+
+    // 释放后台线程（搜索框关闭时调用）
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -4,29 +4,20 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.os.Build;
 
-import com.example.traildiary.R;
-import com.example.traildiary.adapter.CoverPagerAdapter;
 import com.example.traildiary.model.Notebook;
-import org.threeten.bp.LocalDateTime;
-import org.threeten.bp.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 
 public class NotebookDAO {
-    private DatabaseHelper dbHelper;
-    private DiaryDAO diaryDAO;
-    private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final DatabaseProvider dbProvider;
 
     public NotebookDAO(Context context) {
-        dbHelper = new DatabaseHelper(context);
-        diaryDAO = new DiaryDAO(context);
+        dbProvider = DatabaseProvider.getInstance(context);
     }
 
     // 添加日记本
     public long addNotebook(Notebook notebook) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         ContentValues values = new ContentValues();
 
         android.util.Log.d("NotebookDAO", "添加笔记本: name=" + notebook.getName() 
@@ -38,25 +29,17 @@ public class NotebookDAO {
         values.put(DatabaseHelper.COLUMN_DIARY_COUNT, notebook.getDiaryCount());
         values.put(DatabaseHelper.COLUMN_SORT_ORDER, notebook.getSortOrder());
 
-        // 处理时间
-        if (notebook.getCreateTime() != null) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                values.put(DatabaseHelper.COLUMN_CREATE_TIME, notebook.getCreateTime().format(formatter));
-            }
-        } else {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                values.put(DatabaseHelper.COLUMN_CREATE_TIME, LocalDateTime.now().format(formatter));
-            }
-        }
+        // 处理时间（epoch毫秒）
+        values.put(DatabaseHelper.COLUMN_CREATE_TIME, notebook.getCreateTimeMillis() != 0
+                ? notebook.getCreateTimeMillis() : System.currentTimeMillis());
 
         long result = db.insert(DatabaseHelper.TABLE_NOTEBOOK, null, values);
-        db.close();
         return result;
     }
 
     // 更新日记本
     public int updateNotebook(Notebook notebook) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         ContentValues values = new ContentValues();
 
         android.util.Log.d("NotebookDAO", "更新笔记本: id=" + notebook.getId() 
@@ -66,9 +49,7 @@ public class NotebookDAO {
         values.put(DatabaseHelper.COLUMN_NOTEBOOK_NAME, notebook.getName());
         values.put(DatabaseHelper.COLUMN_COVER, notebook.getCoverPath());
         values.put(DatabaseHelper.COLUMN_SORT_ORDER, notebook.getSortOrder());
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            values.put(DatabaseHelper.COLUMN_CREATE_TIME, LocalDateTime.now().format(formatter));
-        }
+        values.put(DatabaseHelper.COLUMN_CREATE_TIME, System.currentTimeMillis());
 
         int result = db.update(DatabaseHelper.TABLE_NOTEBOOK, values,
                 DatabaseHelper.COLUMN_NOTEBOOK_ID + " = ?",
@@ -76,13 +57,12 @@ public class NotebookDAO {
         
         android.util.Log.d("NotebookDAO", "更新结果: " + result);
         
-        db.close();
         return result;
     }
 
     // 更新日记本中的日记数量
     public int updateNotebookDiaryCount(int notebookId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
 
         // 获取当前日记本中的日记数量
         String countQuery = "SELECT COUNT(*) as count FROM " + DatabaseHelper.TABLE_DIARY +
@@ -96,41 +76,39 @@ public class NotebookDAO {
             cursor.close();
         }
 
-        // 更新日记本中的日记数量
+        // 更新日记本中的日记数量（数量没变时不写入，避免无意义地触发表变化通知）
         ContentValues values = new ContentValues();
         values.put(DatabaseHelper.COLUMN_DIARY_COUNT, diaryCount);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            values.put(DatabaseHelper.COLUMN_CREATE_TIME, LocalDateTime.now().format(formatter));
-        }
+        values.put(DatabaseHelper.COLUMN_CREATE_TIME, System.currentTimeMillis());
 
         int result = db.update(DatabaseHelper.TABLE_NOTEBOOK, values,
-                DatabaseHelper.COLUMN_NOTEBOOK_ID + " = ?",
-                new String[]{String.valueOf(notebookId)});
-        db.close();
+                DatabaseHelper.COLUMN_NOTEBOOK_ID + " = ? AND IFNULL(" + DatabaseHelper.COLUMN_DIARY_COUNT + ", -1) != ?",
+                new String[]{String.valueOf(notebookId), String.valueOf(diaryCount)});
         return result;
     }
 
     // 删除日记本
     public int deleteNotebook(int notebookId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
 
         // 先删除该日记本中的所有日记
-        db.delete(DatabaseHelper.TABLE_DIARY,
+        int deletedDiaries = db.delete(DatabaseHelper.TABLE_DIARY,
                 DatabaseHelper.COLUMN_NOTEBOOK_ID + " = ?",
                 new String[]{String.valueOf(notebookId)});
+        if (deletedDiaries > 0) {
+            dbProvider.notifyDiariesChanged();
+        }
 
         // 然后删除日记本
         int result = db.delete(DatabaseHelper.TABLE_NOTEBOOK,
                 DatabaseHelper.COLUMN_NOTEBOOK_ID + " = ?",
                 new String[]{String.valueOf(notebookId)});
-        db.close();
         return result;
     }
 
     // 根据ID获取日记本
     public Notebook getNotebookById(int notebookId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Notebook notebook = null;
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
 
         String[] columns = {
                 DatabaseHelper.COLUMN_NOTEBOOK_ID,
@@ -146,18 +124,12 @@ public class NotebookDAO {
                 DatabaseHelper.COLUMN_NOTEBOOK_ID + " = ?",
                 new String[]{String.valueOf(notebookId)}, null, null, null);
 
-        if (cursor != null && cursor.moveToFirst()) {
-            notebook = cursorToNotebook(cursor);
-            cursor.close();
-        }
-        db.close();
-        return notebook;
+        return RowMapper.readFirst(cursor, NotebookRowMapper::new);
     }
 
     // 获取用户的所有日记本
     public List<Notebook> getNotebooksByUser(int userId) {
-        List<Notebook> notebookList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
 
         String[] columns = {
                 DatabaseHelper.COLUMN_NOTEBOOK_ID,
@@ -176,19 +148,12 @@ public class NotebookDAO {
                 DatabaseHelper.COLUMN_USER_ID + " = ?",
                 new String[]{String.valueOf(userId)}, null, null, orderBy);
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                notebookList.add(cursorToNotebook(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-        db.close();
-        return notebookList;
+        return RowMapper.readList(cursor, NotebookRowMapper::new);
     }
 
     // 获取日记本总数
     public int getNotebookCountByUser(int userId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
         int count = 0;
 
         String query = "SELECT COUNT(*) as count FROM " + DatabaseHelper.TABLE_NOTEBOOK +
@@ -200,13 +165,12 @@ public class NotebookDAO {
             count = cursor.getInt(cursor.getColumnIndexOrThrow("count"));
             cursor.close();
         }
-        db.close();
         return count;
     }
 
     // 检查日记本名称是否重复（同一用户内）
     public boolean isNotebookNameExists(String notebookName, int userId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
 
         String selection = DatabaseHelper.COLUMN_NOTEBOOK_NAME + " = ? AND " +
                 DatabaseHelper.COLUMN_USER_ID + " = ?";
@@ -220,7 +184,6 @@ public class NotebookDAO {
         if (cursor != null) {
             cursor.close();
         }
-        db.close();
         return exists;
     }
 
@@ -232,16 +195,14 @@ public class NotebookDAO {
         defaultNotebook.setUserId(userId);
         defaultNotebook.setDiaryCount(0);
         defaultNotebook.setSortOrder(0);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            defaultNotebook.setCreateTime(LocalDateTime.now());
-        }
+        defaultNotebook.setCreateTimeMillis(System.currentTimeMillis());
 
         return addNotebook(defaultNotebook);
     }
 
     // 更新日记本排序
     public int updateNotebookOrder(List<Notebook> notebooks) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         int updatedCount = 0;
 
         try {
@@ -264,51 +225,8 @@ public class NotebookDAO {
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
-            db.close();
         }
 
         return updatedCount;
     }
-
-    // 将Cursor转换为Notebook对象
-    private Notebook cursorToNotebook(Cursor cursor) {
-        Notebook notebook = new Notebook();
-        notebook.setId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTEBOOK_ID)));
-        notebook.setName(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTEBOOK_NAME)));
-        
-        // 获取封面路径
-        String coverPath = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER));
-        notebook.setCoverPath(coverPath);
-        
-        // 添加调试日志
-        android.util.Log.d("NotebookDAO", "从数据库读取笔记本: name=" + notebook.getName() + ", coverPath=" + coverPath);
-        
-        // 根据封面路径自动设置资源ID
-        if (coverPath != null && !coverPath.isEmpty()) {
-            int coverResId = CoverPagerAdapter.getCoverResourceId(coverPath);
-            notebook.setCoverResId(coverResId);
-            android.util.Log.d("NotebookDAO", "设置coverResId: " + coverResId);
-        } else {
-            // 如果没有封面路径，使用默认封面
-            notebook.setCoverResId(R.drawable.cover1);
-            android.util.Log.d("NotebookDAO", "使用默认封面: " + R.drawable.cover1);
-        }
-        
-        notebook.setUserId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID)));
-        notebook.setDiaryCount(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DIARY_COUNT)));
-        notebook.setSortOrder(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SORT_ORDER)));
-
-        // 处理时间
-        String createTimeStr = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME));
-        if (createTimeStr != null && !createTimeStr.isEmpty()) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                notebook.setCreateTime(LocalDateTime.parse(createTimeStr, formatter));
-            }
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                notebook.setUpdateTime(LocalDateTime.parse(createTimeStr, formatter));
-            }
-        }
-
-        return notebook;
-    }
 }
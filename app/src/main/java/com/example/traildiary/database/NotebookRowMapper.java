@@ -0,0 +1,61 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+
+import com.example.traildiary.R;
+import com.example.traildiary.adapter.CoverPagerAdapter;
+import com.example.traildiary.model.Notebook;
+
+/**
+ * 日记本行转换器
+ */
+final class NotebookRowMapper extends RowMapper<Notebook> {
+
+    private final int idIndex;
+    private final int nameIndex;
+    private final int coverIndex;
+    private final int userIdIndex;
+    private final int diaryCountIndex;
+    private final int sortOrderIndex;
+    private final int createTimeIndex;
+
+    NotebookRowMapper(Cursor cursor) {
+        idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTEBOOK_ID);
+        nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTEBOOK_NAME);
+        coverIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COVER);
+        userIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID);
+        diaryCountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DIARY_COUNT);
+        sortOrderIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SORT_ORDER);
+        createTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME);
+    }
+
+    @Override
+    Notebook map(Cursor cursor) {
+        Notebook notebook = new Notebook();
+        notebook.setId(cursor.getInt(idIndex));
+        notebook.setName(cursor.getString(nameIndex));
+
+        // 获取封面路径
+        String coverPath = cursor.getString(coverIndex);
+        notebook.setCoverPath(coverPath);
+
+        // 根据封面路径自动设置资源ID
+        if (coverPath != null && !coverPath.isEmpty()) {
+            notebook.setCoverResId(CoverPagerAdapter.getCoverResourceId(coverPath));
+        } else {
+            // 如果没有封面路径，使用默认封面
+            notebook.setCoverResId(R.drawable.cover1);
+        }
+
+        notebook.setUserId(cursor.getInt(userIdIndex));
+        notebook.setDiaryCount(cursor.getInt(diaryCountIndex));
+        notebook.setSortOrder(cursor.getInt(sortOrderIndex));
+
+        // 处理时间（epoch毫秒）
+        long createTimeMillis = cursor.getLong(createTimeIndex);
+        notebook.setCreateTimeMillis(createTimeMillis);
+        notebook.setUpdateTimeMillis(createTimeMillis);
+
+        return notebook;
+    }
+}
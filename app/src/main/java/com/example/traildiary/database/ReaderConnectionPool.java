@@ -0,0 +1,82 @@
+package com.example.traildiary.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.traildiary.utils.Constants;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只读连接池
+ * 框架的WAL连接池大小由系统配置决定，应用无法设置。这里按 Constants.DB_READER_CONNECTIONS
+ * 另外打开固定数量的只读连接（每个只读SQLiteDatabase只有一个连接），查询轮流使用，
+ * 写事务进行中这些连接仍可并发读取。
+ * 以下情况仍返回DatabaseHelper的主连接：未启用WAL（回滚日志模式下并发读会遇到锁）、
+ * 内存数据库、当前线程有未提交的事务（需要读到自己尚未提交的数据）。
+ */
+final class ReaderConnectionPool {
+
+    private static final String TAG = "ReaderConnectionPool";
+
+    private final DatabaseHelper dbHelper;
+    private final SQLiteDatabase[] readers;
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReaderConnectionPool(DatabaseHelper dbHelper, int size) {
+        this.dbHelper = dbHelper;
+        this.readers = new SQLiteDatabase[Math.max(0, size)];
+    }
+
+    // 获取用于查询的连接
+    SQLiteDatabase acquire() {
+        // 先打开主连接，保证建表/升级已经完成
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        if (readers.length == 0 || dbHelper.getDatabaseName() == null
+                || !db.isWriteAheadLoggingEnabled() || db.inTransaction()) {
+            return db;
+        }
+        int slot = (next.getAndIncrement() & Integer.MAX_VALUE) % readers.length;
+        SQLiteDatabase reader = reader(slot, db.getPath());
+        return reader != null ? reader : db;
+    }
+
+    // 取出（必要时打开）指定位置的只读连接，打开失败时返回null
+    private synchronized SQLiteDatabase reader(int slot, String path) {
+        SQLiteDatabase reader = readers[slot];
+        if (reader == null || !reader.isOpen()) {
+            try {
+                reader = open(path);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "打开只读连接失败", e);
+                return null;
+            }
+            readers[slot] = reader;
+        }
+        return reader;
+    }
+
+    private static SQLiteDatabase open(String path) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            // API 27+：通过OpenParams打开，空闲的只读连接超时后自动释放
+            SQLiteDatabase.OpenParams params = new SQLiteDatabase.OpenParams.Builder()
+                    .setOpenFlags(SQLiteDatabase.OPEN_READONLY)
+                    .setIdleConnectionTimeout(Constants.DB_IDLE_CONNECTION_TIMEOUT_MS)
+                    .build();
+            return SQLiteDatabase.openDatabase(new File(path), params);
+        }
+        return SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY);
+    }
+
+    // 关闭全部只读连接（下次查询时重新打开）
+    synchronized void closeAll() {
+        for (int i = 0; i < readers.length; i++) {
+            if (readers[i] != null) {
+                readers[i].close();
+                readers[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cursor -> 模型 转换器
+ * 列位置在构造时（每个Cursor一次）解析好，逐行转换时只用位置取值，
+ * 不再每行调用 getColumnIndexOrThrow。
+ */
+abstract class RowMapper<T> {
+
+    // 根据Cursor的列结构创建转换器
+    interface Factory<T> {
+        RowMapper<T> create(Cursor cursor);
+    }
+
+    // 转换当前行
+    abstract T map(Cursor cursor);
+
+    // 读取全部行并关闭Cursor
+    static <T> List<T> readList(Cursor cursor, Factory<T> factory) {
+        List<T> list = new ArrayList<>();
+        if (cursor == null) {
+            return list;
+        }
+        try {
+            if (cursor.moveToFirst()) {
+                RowMapper<T> mapper = factory.create(cursor);
+                do {
+                    list.add(mapper.map(cursor));
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            cursor.close();
+        }
+        return list;
+    }
+
+    // 读取第一行并关闭Cursor，没有数据时返回null
+    static <T> T readFirst(Cursor cursor, Factory<T> factory) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return cursor.moveToFirst() ? factory.create(cursor).map(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+}
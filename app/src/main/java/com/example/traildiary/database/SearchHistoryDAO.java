@@ -1,113 +1,276 @@
 package com.example.traildiary.database;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Build;
 
+import com.example.traildiary.model.KeywordStat;
 import com.example.traildiary.model.SearchHistory;
-import org.threeten.bp.LocalDateTime;
-import org.threeten.bp.format.DateTimeFormatter;
+import com.example.traildiary.utils.Constants;
 import java.util.ArrayList;
 import java.util.List;
 
 public class SearchHistoryDAO {
-    private DatabaseHelper dbHelper;
-    private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final DatabaseProvider dbProvider;
 
     public SearchHistoryDAO(Context context) {
-        dbHelper = new DatabaseHelper(context);
+        dbProvider = DatabaseProvider.getInstance(context);
     }
 
-    // 添加搜索记录
+    // 搜索记录的唯一键查找、累加次数、新增（均复用预编译语句）
+    private static final String SQL_FIND_SEARCH_HISTORY = "SELECT " + DatabaseHelper.COLUMN_SEARCH_ID +
+            " FROM " + DatabaseHelper.TABLE_SEARCH_HISTORY +
+            " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_KEYWORD + " = ? AND " +
+            DatabaseHelper.COLUMN_SEARCH_TYPE + " = ?";
+    private static final String SQL_TOUCH_SEARCH_HISTORY = "UPDATE " + DatabaseHelper.TABLE_SEARCH_HISTORY +
+            " SET " + DatabaseHelper.COLUMN_SEARCH_COUNT + " = " + DatabaseHelper.COLUMN_SEARCH_COUNT + " + 1, " +
+            DatabaseHelper.COLUMN_LAST_SEARCH_TIME + " = MAX(IFNULL(" + DatabaseHelper.COLUMN_LAST_SEARCH_TIME +
+            ", 0), ?), " +
+            DatabaseHelper.COLUMN_SEARCH_RESULT + " = IFNULL(?, " + DatabaseHelper.COLUMN_SEARCH_RESULT + ")" +
+            " WHERE " + DatabaseHelper.COLUMN_SEARCH_ID + " = ?";
+    private static final String SQL_ADD_SEARCH_HISTORY = "INSERT INTO " + DatabaseHelper.TABLE_SEARCH_HISTORY +
+            "(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_KEYWORD + ", " +
+            DatabaseHelper.COLUMN_SEARCH_TYPE + ", " + DatabaseHelper.COLUMN_SEARCH_RESULT + ", " +
+            DatabaseHelper.COLUMN_CREATE_TIME + ", " + DatabaseHelper.COLUMN_LAST_SEARCH_TIME +
+            ") VALUES (?, ?, ?, ?, ?, ?)";
+
+    // 热搜分数的查找、写入、清理（写入和清理复用预编译语句）
+    private static final String SQL_FIND_TRENDING_SCORE = "SELECT " + DatabaseHelper.COLUMN_TRENDING_SCORE +
+            " FROM " + DatabaseHelper.TABLE_TRENDING_KEYWORD + " WHERE " + DatabaseHelper.COLUMN_KEYWORD + " = ?";
+    private static final String SQL_SET_TRENDING_SCORE = "INSERT OR REPLACE INTO " +
+            DatabaseHelper.TABLE_TRENDING_KEYWORD + "(" + DatabaseHelper.COLUMN_KEYWORD + ", " +
+            DatabaseHelper.COLUMN_TRENDING_SCORE + ") VALUES (?, ?)";
+    private static final String SQL_PRUNE_TRENDING = "DELETE FROM " + DatabaseHelper.TABLE_TRENDING_KEYWORD +
+            " WHERE " + DatabaseHelper.COLUMN_TRENDING_SCORE + " < ?";
+
+    // 超出条数上限的记录：按最近搜索时间保留最新的若干条
+    private static final String OVERFLOW_SEARCH_IDS = "SELECT " + DatabaseHelper.COLUMN_SEARCH_ID +
+            " FROM " + DatabaseHelper.TABLE_SEARCH_HISTORY +
+            " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ?" +
+            " ORDER BY " + DatabaseHelper.COLUMN_LAST_SEARCH_TIME + " DESC, " + DatabaseHelper.COLUMN_SEARCH_ID +
+            " DESC LIMIT -1 OFFSET ?";
+
+    // 记录一次搜索
     public long addSearchHistory(SearchHistory searchHistory) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
+        return addSearchHistory(searchHistory, null);
+    }
+
+    /**
+     * 记录一次搜索：同一用户+关键词+搜索类型已有记录时累加搜索次数并更新最近搜索时间，否则新增一行；
+     * 新增后该用户超出 Constants.MAX_SEARCH_HISTORY 条的最久未搜索记录被删除
+     * @param evicted 不为null时加入因超出上限被删除的记录（供自动补全同步扣除）
+     * @return 记录ID，失败时返回-1
+     */
+    long addSearchHistory(SearchHistory searchHistory, List<SearchHistory> evicted) {
+        // 处理时间（epoch毫秒）
+        long searchTime = searchHistory.getSearchTimeMillis() != 0
+                ? searchHistory.getSearchTimeMillis() : System.currentTimeMillis();
+
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            long searchId = findSearchHistory(searchHistory);
+            if (searchId > 0) {
+                SQLiteStatement touch = dbProvider.getStatement(SQL_TOUCH_SEARCH_HISTORY);
+                synchronized (touch) {
+                    touch.bindLong(1, searchTime);
+                    bindNullableString(touch, 2, searchHistory.getSearchResult());
+                    touch.bindLong(3, searchId);
+                    touch.executeUpdateDelete();
+                }
+            } else {
+                SQLiteStatement insert = dbProvider.getStatement(SQL_ADD_SEARCH_HISTORY);
+                synchronized (insert) {
+                    insert.bindLong(1, searchHistory.getUserId());
+                    insert.bindString(2, searchHistory.getKeyword());
+                    insert.bindLong(3, searchHistory.getSearchType());
+                    bindNullableString(insert, 4, searchHistory.getSearchResult());
+                    insert.bindLong(5, searchTime);
+                    insert.bindLong(6, searchTime);
+                    searchId = insert.executeInsert();
+                }
+                if (searchId > 0) {
+                    trimSearchHistory(db, searchHistory.getUserId(), evicted);
+                }
+            }
+            if (searchId > 0) {
+                addTrendingSearch(searchHistory.getKeyword(), searchTime);
+            }
+            db.setTransactionSuccessful();
+            return searchId;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // 按唯一键查找记录ID，不存在时返回-1
+    private long findSearchHistory(SearchHistory searchHistory) {
+        SQLiteStatement find = dbProvider.getStatement(SQL_FIND_SEARCH_HISTORY);
+        synchronized (find) {
+            find.bindLong(1, searchHistory.getUserId());
+            find.bindString(2, searchHistory.getKeyword());
+            find.bindLong(3, searchHistory.getSearchType());
+            try {
+                return find.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return -1;
+            }
+        }
+    }
 
-        values.put(DatabaseHelper.COLUMN_USER_ID, searchHistory.getUserId());
-        values.put(DatabaseHelper.COLUMN_KEYWORD, searchHistory.getKeyword());
-        values.put(DatabaseHelper.COLUMN_SEARCH_TYPE, searchHistory.getSearchType());
-        values.put(DatabaseHelper.COLUMN_SEARCH_RESULT, searchHistory.getSearchResult());
+    /**
+     * 热搜分数计入一次搜索（一次主键查找 + 一次写入，与关键词总数无关）
+     * 分数为各次搜索按时间衰减后的和：Σ 2^((搜索时间 - 当前时间) / 半衰期)。
+     * 当前时间对所有关键词相同，因此表中只保存 log2(Σ 2^(搜索时间 / 半衰期))（以半衰期为单位，不随时间变化），
+     * 按它排序即按当前分数排序，不需要定期把全部分数衰减一遍；取对数避免指数随时间增长而溢出。
+     * 新关键词写入时顺便删除早已衰减殆尽的关键词（按分数索引范围删除）
+     */
+    private void addTrendingSearch(String keyword, long searchTime) {
+        double score = searchTime / (double) Constants.TRENDING_HALF_LIFE_MS;
+        boolean isNew;
+        // 分数须按REAL原样读取（预编译语句只能以文本或整数取值）
+        Cursor cursor = dbProvider.getWritableDatabase().rawQuery(SQL_FIND_TRENDING_SCORE, new String[]{keyword});
+        try {
+            isNew = !cursor.moveToFirst();
+            if (!isNew) {
+                score = logSum(score, cursor.getDouble(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        SQLiteStatement set = dbProvider.getStatement(SQL_SET_TRENDING_SCORE);
+        synchronized (set) {
+            set.bindString(1, keyword);
+            set.bindDouble(2, score);
+            set.executeInsert();
+        }
+        if (isNew) {
+            SQLiteStatement prune = dbProvider.getStatement(SQL_PRUNE_TRENDING);
+            synchronized (prune) {
+                prune.bindDouble(1, searchTime / (double) Constants.TRENDING_HALF_LIFE_MS -
+                        Constants.TRENDING_PRUNE_HALF_LIVES);
+                prune.executeUpdateDelete();
+            }
+        }
+    }
 
-        // 处理时间
-        if (searchHistory.getSearchTime() != null) {
-            values.put(DatabaseHelper.COLUMN_CREATE_TIME, searchHistory.getSearchTime().format(formatter));
+    // log2(2^a + 2^b)
+    private static double logSum(double a, double b) {
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.pow(2, Math.min(a, b) - max)) / Math.log(2);
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
         } else {
-            values.put(DatabaseHelper.COLUMN_CREATE_TIME, LocalDateTime.now().format(formatter));
+            statement.bindNull(index);
         }
+    }
 
-        long result = db.insert(DatabaseHelper.TABLE_SEARCH_HISTORY, null, values);
-        db.close();
-        return result;
+    /**
+     * 删除用户超出 Constants.MAX_SEARCH_HISTORY 条的搜索记录（最久未搜索的先删）
+     * @param evicted 不为null时加入被删除的记录
+     * @return 删除的条数
+     */
+    public static int trimSearchHistory(SQLiteDatabase db, long userId, List<SearchHistory> evicted) {
+        String[] args = {String.valueOf(userId), String.valueOf(Constants.MAX_SEARCH_HISTORY)};
+        if (evicted != null) {
+            Cursor cursor = db.rawQuery("SELECT * FROM " + DatabaseHelper.TABLE_SEARCH_HISTORY +
+                    " WHERE " + DatabaseHelper.COLUMN_SEARCH_ID + " IN (" + OVERFLOW_SEARCH_IDS + ")", args);
+            evicted.addAll(RowMapper.readList(cursor, SearchHistoryRowMapper::new));
+        }
+        SQLiteStatement delete = db.compileStatement("DELETE FROM " + DatabaseHelper.TABLE_SEARCH_HISTORY +
+                " WHERE " + DatabaseHelper.COLUMN_SEARCH_ID + " IN (" + OVERFLOW_SEARCH_IDS + ")");
+        try {
+            delete.bindAllArgsAsStrings(args);
+            return delete.executeUpdateDelete();
+        } finally {
+            delete.close();
+        }
     }
 
     // 按搜索ID删除单条记录
     public int deleteSearchHistory(int searchId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         int result = db.delete(DatabaseHelper.TABLE_SEARCH_HISTORY,
                 DatabaseHelper.COLUMN_SEARCH_ID + " = ?",
                 new String[]{String.valueOf(searchId)});
-        db.close();
         return result;
     }
 
     public List<SearchHistory> getRecentSearchHistory(int userId) {
-        return getSearchHistoryByUser(userId, 10); // 获取最近10条记录
+        return getSearchHistoryByUser(userId, Constants.MAX_SEARCH_HISTORY);
     }
 
     // 按【关键词+用户ID】删除记录
     public int deleteSearchHistoryByKeyword(String keyword, int userId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         int result = db.delete(DatabaseHelper.TABLE_SEARCH_HISTORY,
                 DatabaseHelper.COLUMN_KEYWORD + " = ? AND " +
                         DatabaseHelper.COLUMN_USER_ID + " = ?",
                 new String[]{keyword, String.valueOf(userId)});
-        db.close();
         return result;
     }
 
     // 清空指定用户的所有搜索历史
     public int clearUserSearchHistory(int userId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         int result = db.delete(DatabaseHelper.TABLE_SEARCH_HISTORY,
                 DatabaseHelper.COLUMN_USER_ID + " = ?",
                 new String[]{String.valueOf(userId)});
-        db.close();
         return result;
     }
 
-    // 获取指定用户的搜索历史（按时间倒序，支持条数限制）
+    // 获取指定用户的搜索历史（按最近搜索时间倒序，支持条数限制）
     public List<SearchHistory> getSearchHistoryByUser(int userId, int limit) {
-        List<SearchHistory> historyList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
 
         String query = "SELECT * FROM " + DatabaseHelper.TABLE_SEARCH_HISTORY +
                 " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ? " +
-                "ORDER BY " + DatabaseHelper.COLUMN_CREATE_TIME + " DESC LIMIT ?";
+                "ORDER BY " + DatabaseHelper.COLUMN_LAST_SEARCH_TIME + " DESC, " +
+                DatabaseHelper.COLUMN_SEARCH_ID + " DESC LIMIT ?";
 
         Cursor cursor = db.rawQuery(query,
                 new String[]{String.valueOf(userId), String.valueOf(limit)});
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                historyList.add(cursorToSearchHistory(cursor));
-            } while (cursor.moveToNext());
+        return RowMapper.readList(cursor, SearchHistoryRowMapper::new);
+    }
+
+    // 获取指定用户搜索过的每个关键词的搜索次数和最近搜索时间（自动补全使用）
+    public List<KeywordStat> getKeywordStats(int userId) {
+        List<KeywordStat> stats = new ArrayList<>();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
+
+        // 同一关键词按不同类型搜索过时合并
+        String query = "SELECT " + DatabaseHelper.COLUMN_KEYWORD + ", SUM(" + DatabaseHelper.COLUMN_SEARCH_COUNT +
+                "), MAX(IFNULL(" + DatabaseHelper.COLUMN_LAST_SEARCH_TIME + ", " + DatabaseHelper.COLUMN_CREATE_TIME +
+                ")) FROM " + DatabaseHelper.TABLE_SEARCH_HISTORY +
+                " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ?" +
+                " GROUP BY " + DatabaseHelper.COLUMN_KEYWORD;
+
+        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
+        try {
+            while (cursor.moveToNext()) {
+                stats.add(new KeywordStat(cursor.getString(0), cursor.getInt(1), cursor.getLong(2)));
+            }
+        } finally {
             cursor.close();
         }
-        db.close();
-        return historyList;
+        return stats;
     }
 
-    // 获取热门搜索关键词（按搜索次数排序，支持条数限制）
+    // 获取热门搜索关键词（按全站搜索次数排序，支持条数限制）；次数由触发器维护在关键词热度表中，按索引顺序只读前limit行
     public List<String> getPopularKeywords(int limit) {
         List<String> keywords = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
 
-        String query = "SELECT " + DatabaseHelper.COLUMN_KEYWORD + ", COUNT(*) as count " +
-                "FROM " + DatabaseHelper.TABLE_SEARCH_HISTORY +
-                " GROUP BY " + DatabaseHelper.COLUMN_KEYWORD +
-                " ORDER BY count DESC LIMIT ?";
+        String query = "SELECT " + DatabaseHelper.COLUMN_KEYWORD +
+                " FROM " + DatabaseHelper.TABLE_SEARCH_KEYWORD +
+                " ORDER BY " + DatabaseHelper.COLUMN_SEARCH_COUNT + " DESC LIMIT ?";
 
         Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(limit)});
 
@@ -117,69 +280,23 @@ public class SearchHistoryDAO {
             } while (cursor.moveToNext());
             cursor.close();
         }
-        db.close();
         return keywords;
     }
 
-    // 检查【关键词+用户ID+搜索类型】是否存在
-    public boolean isSearchHistoryExists(String keyword, int userId, int searchType) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        String query = "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_SEARCH_HISTORY +
-                " WHERE " + DatabaseHelper.COLUMN_KEYWORD + " = ? AND " +
-                DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
-                DatabaseHelper.COLUMN_SEARCH_TYPE + " = ?";
-
-        Cursor cursor = db.rawQuery(query,
-                new String[]{keyword, String.valueOf(userId), String.valueOf(searchType)});
-
-        boolean exists = false;
-        if (cursor != null && cursor.moveToFirst()) {
-            exists = cursor.getInt(0) > 0;
-            cursor.close();
-        }
-        db.close();
-        return exists;
-    }
-
-    // 检查【关键词+用户ID】是否存在
-    public boolean isSearchHistoryExist(int userId, String keyword) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        String query = "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_SEARCH_HISTORY +
-                " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
-                DatabaseHelper.COLUMN_KEYWORD + " = ?";
-
-        Cursor cursor = db.rawQuery(query,
-                new String[]{String.valueOf(userId), keyword});
-
-        boolean exists = false;
-        if (cursor != null && cursor.moveToFirst()) {
-            exists = cursor.getInt(0) > 0;
+    // 获取热搜关键词（按时间衰减后的全站搜索热度排序，最近搜得多的在前）；按分数索引倒序只读前limit行
+    public List<String> getTrendingKeywords(int limit) {
+        List<String> keywords = new ArrayList<>();
+        String query = "SELECT " + DatabaseHelper.COLUMN_KEYWORD +
+                " FROM " + DatabaseHelper.TABLE_TRENDING_KEYWORD +
+                " ORDER BY " + DatabaseHelper.COLUMN_TRENDING_SCORE + " DESC LIMIT ?";
+        Cursor cursor = dbProvider.getReadableDatabase().rawQuery(query, new String[]{String.valueOf(limit)});
+        try {
+            while (cursor.moveToNext()) {
+                keywords.add(cursor.getString(0));
+            }
+        } finally {
             cursor.close();
         }
-        db.close();
-        return exists;
-    }
-
-    // Cursor转换为SearchHistory对象
-    private SearchHistory cursorToSearchHistory(Cursor cursor) {
-        // 从cursor中获取userId和keyword
-        int userId = cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID));
-        String keyword = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_KEYWORD));
-
-        SearchHistory history = new SearchHistory(userId, keyword);
-
-        history.setSearchId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SEARCH_ID)));
-        history.setSearchType(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SEARCH_TYPE)));
-        history.setSearchResult(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SEARCH_RESULT)));
-
-        // 处理时间
-        String searchTimeStr = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME));
-        if (searchTimeStr != null && !searchTimeStr.isEmpty()) {
-            history.setSearchTime(LocalDateTime.parse(searchTimeStr, formatter));
-        }
-
-        return history;
+        return keywords;
     }
 }
\ No newline at end of file
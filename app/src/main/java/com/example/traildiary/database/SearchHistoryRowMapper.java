@@ -0,0 +1,46 @@
+package com.example.traildiary.database;
+
+import android.database.Cursor;
+
+import com.example.traildiary.model.SearchHistory;
+
+/**
+ * 搜索历史行转换器
+ */
+final class SearchHistoryRowMapper extends RowMapper<SearchHistory> {
+
+    private final int idIndex;
+    private final int userIdIndex;
+    private final int keywordIndex;
+    private final int searchTypeIndex;
+    private final int searchResultIndex;
+    private final int createTimeIndex;
+    private final int lastSearchTimeIndex;
+    private final int searchCountIndex;
+
+    SearchHistoryRowMapper(Cursor cursor) {
+        idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SEARCH_ID);
+        userIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID);
+        keywordIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_KEYWORD);
+        searchTypeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SEARCH_TYPE);
+        searchResultIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SEARCH_RESULT);
+        createTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME);
+        lastSearchTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_LAST_SEARCH_TIME);
+        searchCountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SEARCH_COUNT);
+    }
+
+    @Override
+    SearchHistory map(Cursor cursor) {
+        // 从旧版本升级且时间列尚未回填的记录没有最近搜索时间，使用首次搜索时间
+        int timeIndex = cursor.isNull(lastSearchTimeIndex) ? createTimeIndex : lastSearchTimeIndex;
+        SearchHistory history = new SearchHistory(
+                cursor.getInt(idIndex),
+                cursor.getInt(userIdIndex),
+                cursor.getString(keywordIndex),
+                cursor.getInt(searchTypeIndex),
+                cursor.getLong(timeIndex),
+                cursor.getString(searchResultIndex));
+        history.setSearchCount(cursor.getInt(searchCountIndex));
+        return history;
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.traildiary.database;
+
+import com.example.traildiary.model.DiarySummary;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 日记搜索结果缓存，按（用户, 搜索类型, 关键词）保存全文检索的结果
+ * 1. 边输入边搜索时关键词逐字变长（"海" -> "海边"），长关键词的结果一定是其前缀结果的子集：
+ *    只检索标题/作者时命中前缀直接在内存中逐条核对，不再查询数据库，细化后的结果沿用前缀结果的相关度顺序；
+ *    检索正文时缓存中只有正文的一段（不保存整篇正文），由调用方只在前缀结果的日记中查询（见 getPrefixDiaryIds）；
+ * 2. 缓存只对应某个日记写入版本号（见 DatabaseProvider.getDiaryWriteVersion），版本号变化时整体清空；
+ * 3. 按估算的字节数做LRU淘汰，总量不超过 maxBytes。
+ * 同时统计命中率和耗时，供搜索对话框输出。
+ */
+public final class SearchResultCache {
+
+    // 估算占用时每个缓存项、每条结果的固定开销（对象头、引用、数值字段）
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int HIT_OVERHEAD_BYTES = 128;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+    private long writeVersion = -1; // 当前缓存内容对应的写入版本号，-1表示尚未读取
+
+    private long exactHits;
+    private long refinedHits;
+    private long misses;
+    private long narrowedQueries;
+    private long cacheNanos;    // 命中（含细化）时的总耗时
+    private long databaseNanos; // 未命中时查询数据库的总耗时
+
+    public SearchResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 查找缓存结果：先找完全相同的关键词，再从长到短找已缓存的前缀并在内存中细化（检索正文时只细化空结果）
+     * @param version 调用方查询前读取的写入版本号
+     * @return 按相关度排序的结果（调用方不可修改）；未命中时返回null，调用方查询数据库后应调用put
+     */
+    synchronized List<DiarySearchIndex.Hit> get(int userId, int searchType, DiarySearchIndex.MatchQuery search,
+                                                long version) {
+        long start = System.nanoTime();
+        if (version != writeVersion) {
+            clearEntries();
+            writeVersion = version;
+        }
+
+        String keyword = search.getKeyword();
+        Entry exact = entries.get(key(userId, searchType, keyword));
+        if (exact != null) {
+            exactHits++;
+            cacheNanos += System.nanoTime() - start;
+            return exact.hits;
+        }
+
+        Entry prefix = findPrefix(userId, searchType, keyword);
+        // 前缀结果为空时更长的关键词也一定没有结果
+        if (prefix != null && (!search.searchesContent() || prefix.hits.isEmpty())) {
+            List<DiarySearchIndex.Hit> refined = new ArrayList<>();
+            for (DiarySearchIndex.Hit hit : prefix.hits) {
+                if (search.matches(hit)) {
+                    refined.add(hit);
+                }
+            }
+            store(key(userId, searchType, keyword), refined);
+            refinedHits++;
+            cacheNanos += System.nanoTime() - start;
+            return refined;
+        }
+
+        misses++;
+        return null;
+    }
+
+    /**
+     * 检索正文的关键词在 get 未命中后，取已缓存的最长前缀结果中的日记ID，调用方只在这些日记中查询
+     * @return 没有已缓存的前缀（或版本号已变化）时返回null
+     */
+    synchronized Set<Integer> getPrefixDiaryIds(int userId, int searchType, DiarySearchIndex.MatchQuery search,
+                                                long version) {
+        if (version != writeVersion) {
+            return null;
+        }
+        Entry prefix = findPrefix(userId, searchType, search.getKeyword());
+        if (prefix == null) {
+            return null;
+        }
+        Set<Integer> diaryIds = new HashSet<>();
+        for (DiarySearchIndex.Hit hit : prefix.hits) {
+            diaryIds.add(hit.summary.getDiaryId());
+        }
+        narrowedQueries++;
+        return diaryIds;
+    }
+
+    /**
+     * 保存查询数据库得到的结果
+     * @param hits 按相关度排序的结果
+     * @param queryNanos 查询数据库的耗时
+     */
+    synchronized void put(int userId, int searchType, DiarySearchIndex.MatchQuery search, long version,
+                          List<DiarySearchIndex.Hit> hits, long queryNanos) {
+        databaseNanos += queryNanos;
+        // 查询期间版本号已被其他查询更新，结果可能已过期，不再缓存
+        if (version != writeVersion) {
+            return;
+        }
+        store(key(userId, searchType, search.getKeyword()), hits);
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(exactHits, refinedHits, misses, narrowedQueries, cacheNanos, databaseNanos,
+                entries.size(), sizeBytes);
+    }
+
+    // 清空缓存内容（数据库关闭后版本号从0重新开始，需要调用）
+    public synchronized void clear() {
+        clearEntries();
+        writeVersion = -1;
+    }
+
+    // 从长到短找已缓存的前缀（不含关键词本身）
+    private Entry findPrefix(int userId, int searchType, String keyword) {
+        for (int end = keyword.length() - 1; end > 0; end--) {
+            // 以空白结尾的前缀去除空白后与更短的前缀相同
+            if (Character.isWhitespace(keyword.charAt(end - 1))) {
+                continue;
+            }
+            Entry prefix = entries.get(key(userId, searchType, keyword.substring(0, end)));
+            if (prefix != null) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    private void store(String key, List<DiarySearchIndex.Hit> hits) {
+        long bytes = ENTRY_OVERHEAD_BYTES + key.length() * 2L;
+        for (DiarySearchIndex.Hit hit : hits) {
+            bytes += estimateBytes(hit);
+        }
+        // 单个结果超过总预算时不缓存
+        if (bytes > maxBytes) {
+            return;
+        }
+
+        Entry previous = entries.put(key, new Entry(hits, bytes));
+        if (previous != null) {
+            sizeBytes -= previous.bytes;
+        }
+        sizeBytes += bytes;
+
+        // 按访问顺序从最久未使用的开始淘汰
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && iterator.hasNext()) {
+            sizeBytes -= iterator.next().getValue().bytes;
+            iterator.remove();
+        }
+    }
+
+    private void clearEntries() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    private static String key(int userId, int searchType, String keyword) {
+        return userId + "/" + searchType + "/" + keyword;
+    }
+
+    // 按字符串长度估算一条结果的占用（每个字符2字节）
+    private static long estimateBytes(DiarySearchIndex.Hit hit) {
+        DiarySummary summary = hit.summary;
+        return HIT_OVERHEAD_BYTES + 2L * (length(hit.content) + length(summary.getTitle())
+                + length(summary.getAuthorName()) + length(summary.getCategory())
+                + length(summary.getCoverImagePath()) + length(summary.getCoverThumbSmall())
+                + length(summary.getCoverThumbLarge()));
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    private static final class Entry {
+        final List<DiarySearchIndex.Hit> hits;
+        final long bytes;
+
+        Entry(List<DiarySearchIndex.Hit> hits, long bytes) {
+            this.hits = hits;
+            this.bytes = bytes;
+        }
+    }
+
+    // 命中率与耗时统计
+    public static final class Stats {
+        private final long exactHits;
+        private final long refinedHits;
+        private final long misses;
+        private final long narrowedQueries;
+        private final long cacheNanos;
+        private final long databaseNanos;
+        private final int entryCount;
+        private final long sizeBytes;
+
+        Stats(long exactHits, long refinedHits, long misses, long narrowedQueries, long cacheNanos,
+              long databaseNanos, int entryCount, long sizeBytes) {
+            this.exactHits = exactHits;
+            this.refinedHits = refinedHits;
+            this.misses = misses;
+            this.narrowedQueries = narrowedQueries;
+            this.cacheNanos = cacheNanos;
+            this.databaseNanos = databaseNanos;
+            this.entryCount = entryCount;
+            this.sizeBytes = sizeBytes;
+        }
+
+        public long getExactHits() {
+            return exactHits;
+        }
+
+        // 由前缀结果细化得到的次数
+        public long getRefinedHits() {
+            return refinedHits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        // 未命中中只在前缀结果的日记里查询的次数
+        public long getNarrowedQueries() {
+            return narrowedQueries;
+        }
+
+        public long getRequests() {
+            return exactHits + refinedHits + misses;
+        }
+
+        // 命中率（含细化），没有请求时为0
+        public double getHitRate() {
+            long requests = getRequests();
+            return requests == 0 ? 0 : (double) (exactHits + refinedHits) / requests;
+        }
+
+        // 命中时的平均耗时（微秒）
+        public double getAverageHitMicros() {
+            long hits = exactHits + refinedHits;
+            return hits == 0 ? 0 : cacheNanos / 1000.0 / hits;
+        }
+
+        // 未命中时查询数据库的平均耗时（微秒）
+        public double getAverageMissMicros() {
+            return misses == 0 ? 0 : databaseNanos / 1000.0 / misses;
+        }
+
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "请求%d次，命中率%.1f%%（完全命中%d，前缀细化%d，未命中%d，其中按前缀缩小范围%d），" +
+                            "命中平均%.1fμs，查询平均%.1fμs，缓存%d项/%dKB",
+                    getRequests(), getHitRate() * 100, exactHits, refinedHits, misses, narrowedQueries,
+                    getAverageHitMicros(), getAverageMissMicros(), entryCount, sizeBytes / 1024);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.traildiary.database;
+
+import android.text.TextUtils;
+
+import com.example.traildiary.utils.PinyinUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全文索引的分词
+ * FTS4内置的simple分词器把所有非ASCII字符当作词的一部分，整句中文会成为一个词，无法按子串检索。
+ * 这里在写入索引前先自行切分，再以空格分隔交给simple分词器：
+ * 1. 连续的中日韩文字按重叠的二元组切分（"海边日出" -> 海边 边日 日出），并在末尾追加最后一个字，
+ *    任意两个字以上的子串都对应若干相邻的二元组，单个字用前缀匹配；
+ * 2. 字母、数字组成的词原样保留（ASCII大小写由simple分词器统一）；
+ * 3. 其余字符（空白、标点、符号）作为分隔符。
+ * 拼音索引另行切分，见 pinyinIndexText。
+ */
+final class SearchTokenizer {
+
+    private static final int TYPE_SEPARATOR = 0;
+    private static final int TYPE_WORD = 1;
+    private static final int TYPE_CJK = 2;
+
+    // 拼音词最多包含的汉字数，更长的连续汉字从每个字起各取这么多个字
+    private static final int PINYIN_MAX_CHARS = 8;
+
+    private SearchTokenizer() {
+    }
+
+    // 切分待索引的文本
+    static String indexText(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        List<String> tokens = new ArrayList<>();
+        for (Run run : splitRuns(text)) {
+            run.appendTokens(tokens, false);
+        }
+        return TextUtils.join(" ", tokens);
+    }
+
+    /**
+     * 把搜索关键词切分为短语中的各个词，与 indexText 的切分规则对应：
+     * 最后一段是中日韩文字时只取二元组（单个字则改为前缀匹配），最后一段是字母数字时按前缀匹配
+     * @return 关键词中没有可检索的字符时返回空列表
+     */
+    static List<String> queryTokens(String keyword) {
+        List<String> tokens = new ArrayList<>();
+        if (keyword == null) {
+            return tokens;
+        }
+        List<Run> runs = splitRuns(keyword);
+        for (int i = 0; i < runs.size(); i++) {
+            runs.get(i).appendTokens(tokens, i == runs.size() - 1);
+        }
+        return tokens;
+    }
+
+    /**
+     * 在内存中判断文本是否包含 queryTokens 组成的短语，与短语在该列命中（matchinfo 中该列命中数大于0）一致：
+     * 文本按 indexText 的规则切分，ASCII字母不区分大小写，以*结尾的词按前缀匹配
+     */
+    static boolean phraseMatches(String text, List<String> queryTokens) {
+        if (text == null || text.isEmpty() || queryTokens.isEmpty()) {
+            return false;
+        }
+        List<String> tokens = new ArrayList<>();
+        for (Run run : splitRuns(text)) {
+            run.appendTokens(tokens, false);
+        }
+        for (int start = 0; start + queryTokens.size() <= tokens.size(); start++) {
+            int i = 0;
+            while (i < queryTokens.size() && tokenMatches(tokens.get(start + i), queryTokens.get(i))) {
+                i++;
+            }
+            if (i == queryTokens.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 在内存中判断文本是否包含关键词，与 LIKE '%关键词%' 一致（只有ASCII字母不区分大小写）
+    static boolean likeContains(String text, String keyword) {
+        return text != null && asciiLowerCase(text).contains(asciiLowerCase(keyword));
+    }
+
+    /**
+     * 切分写入拼音索引的文本：连续汉字从每个字开始各生成一个全拼词和一个首字母词
+     * （"海边日出" -> haibianrichu hbrc bianrichu brc richu rc chu），
+     * 拼音关键词按前缀匹配，可以从任意一个字开始、在任意位置结束；非汉字不进入拼音索引
+     */
+    static String pinyinIndexText(String text) {
+        return TextUtils.join(" ", pinyinTokens(text));
+    }
+
+    // 在内存中判断文本是否与拼音关键词（PinyinUtil.normalizeQuery 的结果）匹配，与 MATCH 列:拼音* 一致
+    static boolean pinyinMatches(String text, String pinyin) {
+        for (String token : pinyinTokens(text)) {
+            if (token.startsWith(pinyin)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> pinyinTokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        List<String> syllables = new ArrayList<>();
+        for (int i = 0; i <= text.length(); i++) {
+            String pinyin = i < text.length() ? PinyinUtil.toPinyin(text.charAt(i)) : null;
+            if (pinyin != null) {
+                syllables.add(pinyin);
+                continue;
+            }
+            for (int start = 0; start < syllables.size(); start++) {
+                int end = Math.min(syllables.size(), start + PINYIN_MAX_CHARS);
+                StringBuilder full = new StringBuilder();
+                StringBuilder initials = new StringBuilder();
+                for (int j = start; j < end; j++) {
+                    full.append(syllables.get(j));
+                    initials.append(syllables.get(j).charAt(0));
+                }
+                tokens.add(full.toString());
+                // 单个字的首字母是全拼的前缀，不必重复
+                if (end - start > 1) {
+                    tokens.add(initials.toString());
+                }
+            }
+            syllables.clear();
+        }
+        return tokens;
+    }
+
+    private static boolean tokenMatches(String token, String queryToken) {
+        String lower = asciiLowerCase(token);
+        if (queryToken.endsWith("*")) {
+            return lower.startsWith(asciiLowerCase(queryToken.substring(0, queryToken.length() - 1)));
+        }
+        return lower.equals(asciiLowerCase(queryToken));
+    }
+
+    // 与simple分词器、LIKE相同，只转换ASCII大写字母
+    static String asciiLowerCase(String text) {
+        char[] chars = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                if (chars == null) {
+                    chars = text.toCharArray();
+                }
+                chars[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return chars == null ? text : new String(chars);
+    }
+
+    // 按字符类型把文本分成连续的段，分隔符本身不保留
+    private static List<Run> splitRuns(String text) {
+        List<Run> runs = new ArrayList<>();
+        int start = 0;
+        int currentType = TYPE_SEPARATOR;
+        int i = 0;
+        while (i <= text.length()) {
+            int type = TYPE_SEPARATOR;
+            int codePoint = 0;
+            if (i < text.length()) {
+                codePoint = text.codePointAt(i);
+                type = typeOf(codePoint);
+            }
+            if (type != currentType) {
+                if (currentType != TYPE_SEPARATOR) {
+                    runs.add(new Run(text.substring(start, i), currentType == TYPE_CJK));
+                }
+                start = i;
+                currentType = type;
+            }
+            i += i < text.length() ? Character.charCount(codePoint) : 1;
+        }
+        return runs;
+    }
+
+    private static int typeOf(int codePoint) {
+        if (isCjk(codePoint)) {
+            return TYPE_CJK;
+        }
+        return Character.isLetterOrDigit(codePoint) ? TYPE_WORD : TYPE_SEPARATOR;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        if (codePoint < 0x2E80) {
+            return false;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    // 同一类型的连续字符
+    private static final class Run {
+        final String text;
+        final boolean cjk;
+
+        Run(String text, boolean cjk) {
+            this.text = text;
+            this.cjk = cjk;
+        }
+
+        /**
+         * @param lastOfQuery 是否是搜索关键词的最后一段：关键词可能在文档中某个词/某串文字的中间结束，
+         *                    因此这一段按前缀匹配，不追加末字
+         */
+        void appendTokens(List<String> tokens, boolean lastOfQuery) {
+            if (!cjk) {
+                tokens.add(lastOfQuery ? text + "*" : text);
+                return;
+            }
+            int[] chars = text.codePoints().toArray();
+            if (chars.length == 1) {
+                String single = new String(chars, 0, 1);
+                tokens.add(lastOfQuery ? single + "*" : single);
+                return;
+            }
+            for (int i = 0; i + 1 < chars.length; i++) {
+                tokens.add(new String(chars, i, 2));
+            }
+            if (!lastOfQuery) {
+                tokens.add(new String(chars, chars.length - 1, 1));
+            }
+        }
+    }
+}
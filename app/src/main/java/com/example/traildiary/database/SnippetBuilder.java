@@ -0,0 +1,99 @@
+package com.example.traildiary.database;
+
+import com.example.traildiary.model.DiarySearchHit;
+import com.example.traildiary.utils.Constants;
+
+import java.util.Arrays;
+
+/**
+ * 生成搜索结果的正文摘要和关键词高亮区间
+ * 全文索引中存的是二元组切分后的文本（见 SearchTokenizer），FTS自带的snippet()只能截出"海边 边日"这样的词元，
+ * 因此在内存中由原文生成：
+ * 1. 取正文中关键词第一次出现的位置（ASCII不区分大小写，与LIKE一致），前面保留约三分之一的上下文，
+ *    截取 Constants.SEARCH_SNIPPET_LENGTH 个字符，两端被截断时加省略号；
+ * 2. 正文中没有关键词（只命中标题/作者）时取正文开头；
+ * 3. 摘要和标题中关键词的每次出现都记为高亮区间。
+ */
+final class SnippetBuilder {
+
+    private static final String ELLIPSIS = "…";
+    private static final int[] NO_HIGHLIGHTS = new int[0];
+
+    private SnippetBuilder() {
+    }
+
+    /**
+     * @param content 正文（可以只是开头部分，超过摘要长度的部分视为被截断）
+     * @param keyword 搜索关键词，为空时不高亮
+     */
+    static DiarySearchHit build(int diaryId, String title, String content, String keyword) {
+        return build(diaryId, title, content, 0, keyword);
+    }
+
+    /**
+     * @param content 正文中的一段
+     * @param contentStart 这一段在正文中的起始位置，大于0时摘要开头加省略号
+     */
+    static DiarySearchHit build(int diaryId, String title, String content, int contentStart, String keyword) {
+        String lowerKeyword = keyword == null ? "" : SearchTokenizer.asciiLowerCase(keyword.trim());
+        title = title == null ? "" : title;
+        String text = content == null ? "" : flatten(content);
+        String lowerText = SearchTokenizer.asciiLowerCase(text);
+
+        int length = Constants.SEARCH_SNIPPET_LENGTH;
+        int start = 0;
+        int end = Math.min(text.length(), length);
+        int first = lowerKeyword.isEmpty() ? -1 : lowerText.indexOf(lowerKeyword);
+        if (first > 0 && text.length() > length) {
+            end = Math.min(text.length(), Math.max(first - length / 3, 0) + length);
+            start = end - length;
+        }
+        // 不拆开代理对，跳过开头的空白
+        if (start > 0 && Character.isLowSurrogate(text.charAt(start))) {
+            start++;
+        }
+        if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        while (start < end && text.charAt(start) == ' ') {
+            start++;
+        }
+
+        String prefix = start > 0 || contentStart > 0 ? ELLIPSIS : "";
+        String snippet = prefix + text.substring(start, end) + (end < text.length() ? ELLIPSIS : "");
+        int[] snippetHighlights = highlights(lowerText, lowerKeyword, start, end, prefix.length() - start);
+        int[] titleHighlights = highlights(SearchTokenizer.asciiLowerCase(title), lowerKeyword, 0,
+                title.length(), 0);
+        return new DiarySearchHit(diaryId, title, snippet, titleHighlights, snippetHighlights);
+    }
+
+    // 关键词在 [start, end) 内的每次出现（被截断的部分只高亮可见的一段），区间平移 shift 后返回
+    private static int[] highlights(String lowerText, String lowerKeyword, int start, int end, int shift) {
+        if (lowerKeyword.isEmpty()) {
+            return NO_HIGHLIGHTS;
+        }
+        int[] ranges = new int[8];
+        int count = 0;
+        int index = lowerText.indexOf(lowerKeyword, Math.max(0, start - lowerKeyword.length() + 1));
+        while (index >= 0 && index < end) {
+            if (count + 2 > ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            ranges[count++] = Math.max(index, start) + shift;
+            ranges[count++] = Math.min(index + lowerKeyword.length(), end) + shift;
+            index = lowerText.indexOf(lowerKeyword, index + lowerKeyword.length());
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    // 换行、制表符换成空格，保持长度不变（高亮区间与原文下标一一对应）
+    private static String flatten(String content) {
+        char[] chars = content.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == '\n' || chars[i] == '\r' || chars[i] == '\t') {
+                chars[i] = ' ';
+            }
+        }
+        return new String(chars);
+    }
+}
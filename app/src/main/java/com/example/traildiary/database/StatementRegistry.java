@@ -0,0 +1,41 @@
+package com.example.traildiary.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 预编译语句缓存
+ * 高频的单行写入/计数器更新只编译一次SQL，之后复用同一个SQLiteStatement。
+ * 同一语句的“绑定参数+执行”需要在 synchronized (statement) 中完成，保证多线程安全。
+ */
+public final class StatementRegistry {
+
+    private final Map<String, SQLiteStatement> statements = new HashMap<>();
+    private SQLiteDatabase boundDatabase; // 语句所属的数据库实例，重新打开后需要重新编译
+
+    // 获取（必要时编译）指定SQL对应的语句
+    public synchronized SQLiteStatement acquire(SQLiteDatabase db, String sql) {
+        if (db != boundDatabase) {
+            releaseAll();
+            boundDatabase = db;
+        }
+        SQLiteStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    // 释放全部语句（数据库关闭时调用）
+    public synchronized void releaseAll() {
+        for (SQLiteStatement statement : statements.values()) {
+            statement.close();
+        }
+        statements.clear();
+        boundDatabase = null;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.traildiary.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 插图缩略图数据访问对象
+ * image_thumbnail 表记录每张原图的缩略图路径；日记表的 cover_thumb_small/large 是列表封面缩略图的副本，
+ * 列表查询直接读取，不必联表。
+ * 封面缩略图为NULL表示尚未生成（保存日记时清空，由 ThumbnailGenerator 在后台补上），
+ * 为空串表示没有可用的缩略图（没有插图或原图无法解码），列表使用原图。
+ * 缩略图是由插图派生的数据，后台生成时使用维护连接，不受数据迁移期间只读模式的限制。
+ */
+public class ThumbnailDAO {
+
+    private static final Type IMAGE_LIST_TYPE = new TypeToken<List<String>>(){}.getType();
+
+    private final DatabaseProvider dbProvider;
+    private final Gson gson = new Gson();
+
+    public ThumbnailDAO(Context context) {
+        dbProvider = DatabaseProvider.getInstance(context);
+    }
+
+    /**
+     * 日记的全部插图路径（不含重复）
+     * @return 第一项为列表封面（封面图，没有封面图时为第一张插图）；日记不存在时返回null
+     */
+    public List<String> getDiaryImagePaths(int diaryId) {
+        Cursor cursor = dbProvider.getReadableDatabase().query(DatabaseHelper.TABLE_DIARY,
+                new String[]{DatabaseHelper.COLUMN_COVER_IMAGE_PATH, DatabaseHelper.COLUMN_IMAGES},
+                DatabaseHelper.COLUMN_DIARY_ID + " = ?", new String[]{String.valueOf(diaryId)},
+                null, null, null);
+        String cover;
+        String imagesJson;
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            cover = cursor.getString(0);
+            imagesJson = cursor.getString(1);
+        } finally {
+            cursor.close();
+        }
+
+        List<String> paths = new ArrayList<>();
+        if (cover != null && !cover.isEmpty()) {
+            paths.add(cover);
+        }
+        if (imagesJson != null && !imagesJson.isEmpty()) {
+            try {
+                List<String> images = gson.fromJson(imagesJson, IMAGE_LIST_TYPE);
+                if (images != null) {
+                    for (String image : images) {
+                        if (image != null && !image.isEmpty() && !paths.contains(image)) {
+                            paths.add(image);
+                        }
+                    }
+                }
+            } catch (JsonParseException e) {
+                // 插图JSON损坏时只处理封面
+            }
+        }
+        return paths;
+    }
+
+    // 封面缩略图尚未生成的日记ID（diary_id > afterDiaryId，按ID升序，最多limit个）
+    public List<Integer> getDiariesWithoutCoverThumbnail(int afterDiaryId, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        Cursor cursor = dbProvider.getReadableDatabase().rawQuery(
+                "SELECT " + DatabaseHelper.COLUMN_DIARY_ID + " FROM " + DatabaseHelper.TABLE_DIARY +
+                        " WHERE " + DatabaseHelper.COLUMN_COVER_THUMB_LARGE + " IS NULL AND " +
+                        DatabaseHelper.COLUMN_DIARY_ID + " > ?" +
+                        " ORDER BY " + DatabaseHelper.COLUMN_DIARY_ID + " LIMIT ?",
+                new String[]{String.valueOf(afterDiaryId), String.valueOf(limit)});
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    // 记录日记的列表封面缩略图（没有可用的缩略图时传null）
+    public int updateCoverThumbnail(int diaryId, String smallPath, String largePath) {
+        SQLiteDatabase db = dbProvider.getMaintenanceDatabase();
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_COVER_THUMB_SMALL, smallPath != null ? smallPath : "");
+        values.put(DatabaseHelper.COLUMN_COVER_THUMB_LARGE, largePath != null ? largePath : "");
+        int result = db.update(DatabaseHelper.TABLE_DIARY, values,
+                DatabaseHelper.COLUMN_DIARY_ID + " = ?", new String[]{String.valueOf(diaryId)});
+        if (result > 0) {
+            // 搜索结果中的封面缩略图随之更新
+            dbProvider.notifyDiariesChanged();
+        }
+        return result;
+    }
+
+    /**
+     * 原图已记录的缩略图
+     * @return {小图, 大图}；没有记录时返回null
+     */
+    public String[] getThumbnails(String sourcePath) {
+        Cursor cursor = dbProvider.getReadableDatabase().query(DatabaseHelper.TABLE_IMAGE_THUMBNAIL,
+                new String[]{DatabaseHelper.COLUMN_THUMB_SMALL, DatabaseHelper.COLUMN_THUMB_LARGE},
+                DatabaseHelper.COLUMN_SOURCE_PATH + " = ?", new String[]{sourcePath},
+                null, null, null);
+        try {
+            return cursor.moveToFirst() ? new String[]{cursor.getString(0), cursor.getString(1)} : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static final String SQL_SAVE_THUMBNAILS = "INSERT OR REPLACE INTO " +
+            DatabaseHelper.TABLE_IMAGE_THUMBNAIL + "(" + DatabaseHelper.COLUMN_SOURCE_PATH + ", " +
+            DatabaseHelper.COLUMN_THUMB_SMALL + ", " + DatabaseHelper.COLUMN_THUMB_LARGE + ") VALUES (?, ?, ?)";
+
+    // 记录原图的缩略图路径
+    public void saveThumbnails(String sourcePath, String smallPath, String largePath) {
+        SQLiteStatement statement = dbProvider.getMaintenanceStatement(SQL_SAVE_THUMBNAILS);
+        synchronized (statement) {
+            statement.bindString(1, sourcePath);
+            statement.bindString(2, smallPath);
+            statement.bindString(3, largePath);
+            statement.executeInsert();
+        }
+    }
+
+    // 删除原图的缩略图记录（原图被清理时调用）
+    public void deleteThumbnails(String sourcePath) {
+        dbProvider.getMaintenanceDatabase().delete(DatabaseHelper.TABLE_IMAGE_THUMBNAIL,
+                DatabaseHelper.COLUMN_SOURCE_PATH + " = ?", new String[]{sourcePath});
+    }
+}
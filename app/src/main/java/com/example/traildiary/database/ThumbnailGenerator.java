@@ -0,0 +1,123 @@
+package com.example.traildiary.database;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.ThumbnailUtil;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 插图缩略图流水线
+ * 日记保存后在后台为每张插图生成长边256px和768px的缩略图，记录到 image_thumbnail 表，
+ * 并把列表封面的缩略图写回日记行（日记表的变化会让列表重新查询，换用缩略图）；
+ * 应用启动时补生成封面缩略图还是NULL的日记（升级前的日记、生成途中进程被杀的日记）。
+ * 所有任务在同一个低优先级线程上依次执行，同一篇日记后保存的任务一定后执行，封面不会被旧任务覆盖。
+ */
+public final class ThumbnailGenerator {
+
+    private static final String TAG = "ThumbnailGenerator";
+
+    private static volatile ThumbnailGenerator instance;
+
+    private final ThumbnailDAO thumbnailDAO;
+    private final File fallbackDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // 测试中直接创建，使用当前注入的数据库
+    ThumbnailGenerator(Context appContext) {
+        thumbnailDAO = new ThumbnailDAO(appContext);
+        fallbackDir = new File(appContext.getFilesDir(), Constants.THUMBNAIL_DIR);
+    }
+
+    // 获取全局唯一实例（始终使用ApplicationContext，避免持有Activity）
+    public static ThumbnailGenerator getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ThumbnailGenerator.class) {
+                if (instance == null) {
+                    instance = new ThumbnailGenerator(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    // 日记保存后调用：在后台生成该日记缺少的缩略图并更新列表封面
+    public void enqueue(int diaryId) {
+        executor.execute(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                generateForDiary(diaryId);
+            } catch (RuntimeException e) {
+                // 失败时封面缩略图保持NULL，下次启动时补生成
+                Log.e(TAG, "生成缩略图失败: " + diaryId, e);
+            }
+        });
+    }
+
+    // 在后台补生成封面缩略图尚未生成的日记（应用启动时调用）
+    public void backfillAsync() {
+        executor.execute(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "补生成缩略图失败", e);
+            }
+        });
+    }
+
+    // 在当前线程补生成全部缺少封面缩略图的日记（不可在主线程调用）
+    void backfill() {
+        int afterId = 0;
+        List<Integer> diaryIds;
+        do {
+            diaryIds = thumbnailDAO.getDiariesWithoutCoverThumbnail(afterId, Constants.THUMBNAIL_BACKFILL_BATCH_SIZE);
+            for (int diaryId : diaryIds) {
+                generateForDiary(diaryId);
+                afterId = diaryId;
+            }
+        } while (diaryIds.size() == Constants.THUMBNAIL_BACKFILL_BATCH_SIZE);
+    }
+
+    // 在当前线程为一篇日记生成缩略图（不可在主线程调用）
+    void generateForDiary(int diaryId) {
+        List<String> paths = thumbnailDAO.getDiaryImagePaths(diaryId);
+        if (paths == null) {
+            return; // 日记已删除
+        }
+        String[] cover = null;
+        for (int i = 0; i < paths.size(); i++) {
+            String[] thumbnails = ensureThumbnails(paths.get(i));
+            if (i == 0) {
+                cover = thumbnails;
+            }
+        }
+        thumbnailDAO.updateCoverThumbnail(diaryId,
+                cover != null ? cover[0] : null, cover != null ? cover[1] : null);
+    }
+
+    /**
+     * 取出原图已有的缩略图，没有记录或缩略图文件已被删除时重新生成
+     * @return {小图, 大图}；原图无法解码时返回null
+     */
+    private String[] ensureThumbnails(String sourcePath) {
+        String[] thumbnails = thumbnailDAO.getThumbnails(sourcePath);
+        if (thumbnails != null && new File(thumbnails[0]).isFile() && new File(thumbnails[1]).isFile()) {
+            return thumbnails;
+        }
+        thumbnails = ThumbnailUtil.createThumbnails(sourcePath, fallbackDir,
+                Constants.THUMBNAIL_SMALL_SIZE, Constants.THUMBNAIL_LARGE_SIZE);
+        if (thumbnails == null) {
+            Log.w(TAG, "无法生成缩略图: " + sourcePath);
+            return null;
+        }
+        thumbnailDAO.saveThumbnails(sourcePath, thumbnails[0], thumbnails[1]);
+        return thumbnails;
+    }
+}
@@ -6,20 +6,29 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
 import com.example.traildiary.model.User;
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.EditDistanceIndex;
+import com.example.traildiary.utils.PinyinUtil;
 import org.threeten.bp.LocalDate;
-import org.threeten.bp.LocalDateTime;
 import org.threeten.bp.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
 public class UserDAO {
-    private DatabaseHelper dbHelper;
+    private final DatabaseProvider dbProvider;
+    // 搜索用户时读取的列
+    private static final String[] SEARCH_COLUMNS = {
+            DatabaseHelper.COLUMN_USER_ID,
+            DatabaseHelper.COLUMN_NICKNAME,
+            DatabaseHelper.COLUMN_TRAIL_NUMBER,
+            DatabaseHelper.COLUMN_AVATAR,
+            DatabaseHelper.COLUMN_SIGNATURE
+    };
     // 直接使用 ThreeTenABP 的 DateTimeFormatter，无需系统版本判断
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     public UserDAO(Context context) {
-        dbHelper = new DatabaseHelper(context);
+        dbProvider = DatabaseProvider.getInstance(context);
     }
 
     // 添加用户（注册） - 重载版本，支持直接传入字节数组
@@ -29,10 +38,11 @@ public class UserDAO {
 
     // 添加用户（注册）- 支持头像字节数组
     public long addUser(User user, byte[] avatarBytes) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         ContentValues values = new ContentValues();
 
         values.put(DatabaseHelper.COLUMN_NICKNAME, user.getNickname());
+        putNicknamePinyin(values, user.getNickname());
         values.put(DatabaseHelper.COLUMN_TRAIL_NUMBER, user.getTrailNumber());
         values.put(DatabaseHelper.COLUMN_PASSWORD, user.getPassword());
         values.put(DatabaseHelper.COLUMN_PHONE, user.getPhone());
@@ -55,24 +65,24 @@ public class UserDAO {
             values.put(DatabaseHelper.COLUMN_BIRTHDAY, user.getBirthday().format(dateFormatter));
         }
 
-        // 处理创建时间
-        if (user.getCreateTime() != null) {
-            values.put(DatabaseHelper.COLUMN_CREATE_TIME, user.getCreateTime().format(timeFormatter));
-        } else {
-            values.put(DatabaseHelper.COLUMN_CREATE_TIME, LocalDateTime.now().format(timeFormatter));
-        }
+        // 处理创建时间（epoch毫秒）
+        values.put(DatabaseHelper.COLUMN_CREATE_TIME, user.getCreateTimeMillis() != 0
+                ? user.getCreateTimeMillis() : System.currentTimeMillis());
 
         long result = db.insert(DatabaseHelper.TABLE_USER, null, values);
-        db.close();
+        if (result != -1) {
+            dbProvider.getFuzzySearchIndex().onUserWritten((int) result, user.getNickname());
+        }
         return result;
     }
 
     // 更新用户信息 - 支持头像字节数组
     public int updateUserWithAvatar(User user, byte[] avatarBytes) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         ContentValues values = new ContentValues();
 
         values.put(DatabaseHelper.COLUMN_NICKNAME, user.getNickname());
+        putNicknamePinyin(values, user.getNickname());
         values.put(DatabaseHelper.COLUMN_SIGNATURE, user.getSignature());
         values.put(DatabaseHelper.COLUMN_GENDER, user.getGender());
 
@@ -92,7 +102,12 @@ public class UserDAO {
         int result = db.update(DatabaseHelper.TABLE_USER, values,
                 DatabaseHelper.COLUMN_USER_ID + " = ?",
                 new String[]{String.valueOf(user.getUserId())});
-        db.close();
+        if (result > 0) {
+            // 昵称变化由触发器记入待处理表，重建该用户日记的作者索引
+            dbProvider.syncSearchIndex();
+            dbProvider.notifyDiariesChanged();
+            dbProvider.getFuzzySearchIndex().onUserWritten(user.getUserId(), user.getNickname());
+        }
         return result;
     }
 
@@ -113,20 +128,19 @@ public class UserDAO {
 
     // 更新用户头像（字符串版本）
     public int updateUserAvatar(int userId, String avatarPath) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(DatabaseHelper.COLUMN_AVATAR, avatarPath);
 
         int result = db.update(DatabaseHelper.TABLE_USER, values,
                 DatabaseHelper.COLUMN_USER_ID + " = ?",
                 new String[]{String.valueOf(userId)});
-        db.close();
         return result;
     }
 
     // 获取用户头像字节数组
     public byte[] getUserAvatarBytes(int userId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
         byte[] avatarBytes = null;
 
         String[] columns = {DatabaseHelper.COLUMN_AVATAR};
@@ -142,13 +156,12 @@ public class UserDAO {
             }
             cursor.close();
         }
-        db.close();
         return avatarBytes;
     }
 
     // 仅通过手机号重置密码
     public int resetPassword(String phone, String newPassword) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbProvider.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(DatabaseHelper.COLUMN_PASSWORD, newPassword);
 
@@ -157,13 +170,12 @@ public class UserDAO {
         String[] selectionArgs = {phone};
 
         int result = db.update(DatabaseHelper.TABLE_USER, values, selection, selectionArgs);
-        db.close();
         return result;
     }
 
     // 根据ID获取用户
     public User getUserById(int userId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
         User user = null;
 
         String[] columns = {
@@ -187,13 +199,12 @@ public class UserDAO {
             user = cursorToUser(cursor);
             cursor.close();
         }
-        db.close();
         return user;
     }
 
     // 根据手机号获取用户
     public User getUserByPhone(String phone) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
         User user = null;
 
         String[] columns = {
@@ -217,13 +228,12 @@ public class UserDAO {
             user = cursorToUser(cursor);
             cursor.close();
         }
-        db.close();
         return user;
     }
 
     // 登录验证
     public User login(String identifier, String password) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
         User user = null;
 
         String[] columns = {
@@ -251,13 +261,12 @@ public class UserDAO {
             user = cursorToUser(cursor);
             cursor.close();
         }
-        db.close();
         return user;
     }
 
     // 检查途迹号是否已存在
     public boolean isTrailNumberExists(String trailNumber) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
         String selection = DatabaseHelper.COLUMN_TRAIL_NUMBER + " = ?";
 
         Cursor cursor = db.query(DatabaseHelper.TABLE_USER,
@@ -268,13 +277,12 @@ public class UserDAO {
         if (cursor != null) {
             cursor.close();
         }
-        db.close();
         return exists;
     }
 
     // 检查昵称是否已存在
     public boolean isNicknameExists(String nickname) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
         String selection = DatabaseHelper.COLUMN_NICKNAME + " = ?";
 
         Cursor cursor = db.query(DatabaseHelper.TABLE_USER,
@@ -285,13 +293,12 @@ public class UserDAO {
         if (cursor != null) {
             cursor.close();
         }
-        db.close();
         return exists;
     }
 
     // 检查手机号是否已存在
     public boolean isPhoneExists(String phone) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
         String selection = DatabaseHelper.COLUMN_PHONE + " = ?";
 
         Cursor cursor = db.query(DatabaseHelper.TABLE_USER,
@@ -302,14 +309,13 @@ public class UserDAO {
         if (cursor != null) {
             cursor.close();
         }
-        db.close();
         return exists;
     }
 
     // 获取所有用户（可用于搜索功能）
     public List<User> getAllUsers() {
         List<User> userList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
 
         String[] columns = {
                 DatabaseHelper.COLUMN_USER_ID,
@@ -335,31 +341,66 @@ public class UserDAO {
             } while (cursor.moveToNext());
             cursor.close();
         }
-        db.close();
         return userList;
     }
 
-    // 根据关键词搜索用户（用于搜索功能）
+    // 根据关键词搜索用户（用于搜索功能）：昵称、足迹号包含关键词，或关键词全是字母时昵称的全拼/首字母以其开头；
+    // 都没有时按昵称容错搜索
     public List<User> searchUsers(String keyword) {
-        List<User> userList = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        String[] columns = {
-                DatabaseHelper.COLUMN_USER_ID,
-                DatabaseHelper.COLUMN_NICKNAME,
-                DatabaseHelper.COLUMN_TRAIL_NUMBER,
-                DatabaseHelper.COLUMN_AVATAR,
-                DatabaseHelper.COLUMN_SIGNATURE
-        };
+        SQLiteDatabase db = dbProvider.getReadableDatabase();
 
         String selection = DatabaseHelper.COLUMN_NICKNAME + " LIKE ? OR " +
                 DatabaseHelper.COLUMN_TRAIL_NUMBER + " LIKE ?";
         String[] selectionArgs = new String[]{"%" + keyword + "%", "%" + keyword + "%"};
+        // 规范化后的拼音只有小写字母，无需转义LIKE通配符
+        String pinyin = PinyinUtil.normalizeQuery(keyword);
+        if (pinyin != null) {
+            selection += " OR " + DatabaseHelper.COLUMN_NICKNAME_PINYIN + " LIKE ? OR " +
+                    DatabaseHelper.COLUMN_NICKNAME_INITIALS + " LIKE ?";
+            selectionArgs = new String[]{selectionArgs[0], selectionArgs[1], pinyin + "%", pinyin + "%"};
+        }
 
-        Cursor cursor = db.query(DatabaseHelper.TABLE_USER, columns,
+        Cursor cursor = db.query(DatabaseHelper.TABLE_USER, SEARCH_COLUMNS,
                 selection, selectionArgs, null, null,
                 DatabaseHelper.COLUMN_NICKNAME);
+        List<User> userList = readSearchResults(cursor);
+        if (userList.isEmpty()) {
+            userList = searchSimilarNicknames(keyword);
+        }
+        return userList;
+    }
 
+    /**
+     * 容错搜索：没有昵称、足迹号包含关键词的用户时，查找昵称与关键词相近（只差一两个字）的用户
+     * 按编辑距离从近到远排列
+     */
+    private List<User> searchSimilarNicknames(String keyword) {
+        List<String> ids = new ArrayList<>();
+        StringBuilder placeholders = new StringBuilder();
+        for (EditDistanceIndex.Match match : dbProvider.getFuzzySearchIndex().searchNicknames(keyword)) {
+            for (int id : match.getIds()) {
+                if (ids.size() < Constants.FUZZY_SEARCH_MAX_RESULTS) {
+                    ids.add(String.valueOf(id));
+                    placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Cursor cursor = dbProvider.getReadableDatabase().query(DatabaseHelper.TABLE_USER, SEARCH_COLUMNS,
+                DatabaseHelper.COLUMN_USER_ID + " IN (" + placeholders + ")", ids.toArray(new String[0]),
+                null, null, null);
+        List<User> users = readSearchResults(cursor);
+        users.sort((a, b) -> Integer.compare(ids.indexOf(String.valueOf(a.getUserId())),
+                ids.indexOf(String.valueOf(b.getUserId()))));
+        return users;
+    }
+
+    // 读取搜索结果（SEARCH_COLUMNS）并关闭cursor
+    private List<User> readSearchResults(Cursor cursor) {
+        List<User> userList = new ArrayList<>();
         if (cursor != null && cursor.moveToFirst()) {
             do {
                 User user = new User();
@@ -370,12 +411,36 @@ public class UserDAO {
                 user.setSignature(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SIGNATURE)));
                 userList.add(user);
             } while (cursor.moveToNext());
+        }
+        if (cursor != null) {
             cursor.close();
         }
-        db.close();
         return userList;
     }
 
+    // 昵称的全拼和拼音首字母，随昵称一起写入（按拼音搜索用户）
+    private static void putNicknamePinyin(ContentValues values, String nickname) {
+        values.put(DatabaseHelper.COLUMN_NICKNAME_PINYIN, PinyinUtil.toFullPinyin(nickname));
+        values.put(DatabaseHelper.COLUMN_NICKNAME_INITIALS, PinyinUtil.toInitials(nickname));
+    }
+
+    // 为全部用户重新计算昵称拼音（数据库升级时使用；用户数量少，直接在结构变更的事务中完成）
+    public static void refreshNicknamePinyin(SQLiteDatabase db) {
+        Cursor cursor = db.query(DatabaseHelper.TABLE_USER,
+                new String[]{DatabaseHelper.COLUMN_USER_ID, DatabaseHelper.COLUMN_NICKNAME},
+                null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                putNicknamePinyin(values, cursor.getString(1));
+                db.update(DatabaseHelper.TABLE_USER, values, DatabaseHelper.COLUMN_USER_ID + " = ?",
+                        new String[]{String.valueOf(cursor.getLong(0))});
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
     // 将Cursor转换为User对象
     private User cursorToUser(Cursor cursor) {
         User user = new User();
@@ -395,11 +460,8 @@ public class UserDAO {
             user.setBirthday(LocalDate.parse(birthdayStr, dateFormatter));
         }
 
-        // 处理创建时间：移除 SDK 版本判断
-        String createTimeStr = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME));
-        if (createTimeStr != null && !createTimeStr.isEmpty()) {
-            user.setCreateTime(LocalDateTime.parse(createTimeStr, timeFormatter));
-        }
+        // 处理创建时间（epoch毫秒）
+        user.setCreateTimeMillis(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME)));
 
         return user;
     }
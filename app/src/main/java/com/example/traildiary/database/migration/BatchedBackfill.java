@@ -0,0 +1,20 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * 可分批、可断点续跑的数据回填任务
+ * 每批按rowid递增处理不超过batchSize行，进度（最后处理的rowid）与数据在同一事务中提交，
+ * 进程被杀后从上次提交的位置继续。
+ */
+public interface BatchedBackfill {
+
+    // 任务唯一名称，用于记录进度
+    String getName();
+
+    /**
+     * 处理 rowid > lastRowId 的下一批数据
+     * @return 本批最后处理的rowid；没有剩余数据时返回 -1
+     */
+    long runBatch(SQLiteDatabase db, long lastRowId, int batchSize);
+}
@@ -0,0 +1,57 @@
+package com.example.traildiary.database.migration;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * 把 "yyyy-MM-dd HH:mm:ss" 本地时间文本列分批转换为epoch毫秒列
+ * 转换在SQLite内完成：strftime('%s', text, 'utc') 把本地时间换算为UTC秒
+ */
+class EpochMillisBackfill implements BatchedBackfill {
+
+    private final String table;
+    private final String textColumn;
+    private final String millisColumn;
+
+    EpochMillisBackfill(String table, String textColumn, String millisColumn) {
+        this.table = table;
+        this.textColumn = textColumn;
+        this.millisColumn = millisColumn;
+    }
+
+    @Override
+    public String getName() {
+        return "epoch_millis_" + table + "_" + millisColumn;
+    }
+
+    @Override
+    public long runBatch(SQLiteDatabase db, long lastRowId, int batchSize) {
+        // 迁移时新建的表没有旧文本列，无需回填
+        if (!Migration.hasColumn(db, table, textColumn)) {
+            return -1;
+        }
+
+        String[] batchArgs = {String.valueOf(lastRowId), String.valueOf(batchSize)};
+        String batch = "SELECT rowid FROM " + table + " WHERE rowid > ? ORDER BY rowid LIMIT ?";
+
+        long maxRowId = -1;
+        Cursor cursor = db.rawQuery("SELECT MAX(rowid) FROM (" + batch + ")", batchArgs);
+        try {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                maxRowId = cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (maxRowId < 0) {
+            return -1;
+        }
+
+        db.execSQL("UPDATE " + table + " SET " + millisColumn +
+                " = CAST(strftime('%s', " + textColumn + ", 'utc') AS INTEGER) * 1000" +
+                " WHERE rowid > ? AND rowid <= ? AND " + textColumn + " IS NOT NULL AND " +
+                millisColumn + " IS NULL",
+                new Object[]{lastRowId, maxRowId});
+        return maxRowId;
+    }
+}
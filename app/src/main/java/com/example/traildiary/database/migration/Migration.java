@@ -0,0 +1,75 @@
+package com.example.traildiary.database.migration;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单个版本的数据库迁移步骤
+ * migrateSchema 只做快速的结构变更（建表、加列、建索引），在onUpgrade事务内执行；
+ * 需要改写大量数据的部分通过 getBackfills() 返回，由 MigrationRunner 在后台分批执行。
+ */
+public abstract class Migration {
+
+    private final int fromVersion;
+    private final int toVersion;
+
+    protected Migration(int fromVersion, int toVersion) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+    }
+
+    public int getFromVersion() {
+        return fromVersion;
+    }
+
+    public int getToVersion() {
+        return toVersion;
+    }
+
+    // 结构变更（必须是非破坏性的）
+    public abstract void migrateSchema(SQLiteDatabase db);
+
+    // 需要分批回填的数据改写
+    public List<BatchedBackfill> getBackfills() {
+        return Collections.emptyList();
+    }
+
+    // 表中不存在该列时执行 ALTER TABLE ADD COLUMN
+    protected static void addColumnIfMissing(SQLiteDatabase db, String table, String column, String definition) {
+        if (!hasColumn(db, table, column)) {
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    /**
+     * epoch毫秒时间列的取值表达式：从版本5之前升级时旧文本列还在，*_ms 列要等后台回填，
+     * 回填前为NULL的行按旧文本换算（与 EpochMillisBackfill 一致）
+     * @param alias 表别名加点（如 "h."），不用别名时传空字符串
+     */
+    protected static String millisExpression(SQLiteDatabase db, String table, String alias,
+                                             String textColumn, String millisColumn) {
+        if (!hasColumn(db, table, textColumn)) {
+            return alias + millisColumn;
+        }
+        return "IFNULL(" + alias + millisColumn + ", CAST(strftime('%s', " + alias + textColumn +
+                ", 'utc') AS INTEGER) * 1000)";
+    }
+
+    static boolean hasColumn(SQLiteDatabase db, String table, String column) {
+        Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+        try {
+            int nameIndex = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                if (column.equalsIgnoreCase(cursor.getString(nameIndex))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DatabaseHelper;
+
+/**
+ * 版本10 -> 11：插图缩略图
+ * 新增缩略图表和日记表的封面缩略图两列（待生成索引由 createIndexes 统一建立）；
+ * 缩略图需要解码图片，不在数据库事务中回填，已有日记的缩略图由 ThumbnailGenerator 在应用启动后补生成
+ */
+public class Migration10To11 extends Migration {
+
+    public Migration10To11() {
+        super(10, 11);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        DatabaseHelper.createTablesIfNotExist(db);
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_COVER_THUMB_SMALL, "TEXT");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_COVER_THUMB_LARGE, "TEXT");
+    }
+}
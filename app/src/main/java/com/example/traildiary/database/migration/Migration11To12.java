@@ -0,0 +1,23 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DatabaseHelper;
+
+/**
+ * 版本11 -> 12：按内容存储的插图库
+ * 新增图片库表、日记图片引用表和维护引用计数的触发器（索引由 createIndexes 统一建立）；
+ * 升级前的插图不在图片库中，不计引用，也不会被清理
+ */
+public class Migration11To12 extends Migration {
+
+    public Migration11To12() {
+        super(11, 12);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        DatabaseHelper.createTablesIfNotExist(db);
+        DatabaseHelper.createImageRefTriggers(db);
+    }
+}
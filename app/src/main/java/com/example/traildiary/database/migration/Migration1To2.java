@@ -0,0 +1,40 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DatabaseHelper;
+
+/**
+ * 版本1 -> 2：日记表补充作者名、封面、多图、更新时间、点赞/浏览数等字段
+ * 原实现直接删表重建，这里改为缺哪列补哪列，保留已有数据
+ * 时间列使用当时的列名和TEXT类型，版本5再迁移为epoch毫秒
+ */
+public class Migration1To2 extends Migration {
+
+    public Migration1To2() {
+        super(1, 2);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        DatabaseHelper.createTablesIfNotExist(db);
+
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_AUTHOR_NAME, "TEXT");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_COVER_IMAGE_PATH, "TEXT");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_IMAGES, "TEXT");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_NOTEBOOK_ID, "INTEGER");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_IS_DRAFT, "INTEGER DEFAULT 0");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, "create_time_diary", "TEXT");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, "update_time", "TEXT");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_LIKE_COUNT, "INTEGER DEFAULT 0");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_VIEW_COUNT, "INTEGER DEFAULT 0");
+
+        addColumnIfMissing(db, DatabaseHelper.TABLE_NOTEBOOK, DatabaseHelper.COLUMN_COVER, "TEXT");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_NOTEBOOK, DatabaseHelper.COLUMN_DIARY_COUNT, "INTEGER DEFAULT 0");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_NOTEBOOK, DatabaseHelper.COLUMN_SORT_ORDER, "INTEGER DEFAULT 0");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_NOTEBOOK, "create_time", "TEXT");
+
+        addColumnIfMissing(db, DatabaseHelper.TABLE_SEARCH_HISTORY, DatabaseHelper.COLUMN_SEARCH_TYPE, "INTEGER DEFAULT 0");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_SEARCH_HISTORY, DatabaseHelper.COLUMN_SEARCH_RESULT, "TEXT");
+    }
+}
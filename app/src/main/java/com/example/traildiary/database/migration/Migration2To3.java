@@ -0,0 +1,20 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DatabaseHelper;
+
+/**
+ * 版本2 -> 3：新增收藏表（已存在时保留原有收藏数据）
+ */
+public class Migration2To3 extends Migration {
+
+    public Migration2To3() {
+        super(2, 3);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        DatabaseHelper.createTablesIfNotExist(db);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * 版本3 -> 4：为各DAO查询路径添加索引
+ * 索引依赖的列在后续版本中会变化，因此不在这里建立，
+ * 而是由 MigrationRunner 在全部步骤完成后按最新定义统一创建
+ */
+public class Migration3To4 extends Migration {
+
+    public Migration3To4() {
+        super(3, 4);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        // 无结构变更
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DatabaseHelper;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 版本4 -> 5：时间列由 "yyyy-MM-dd HH:mm:ss" 文本改为INTEGER epoch毫秒
+ * SQLite无法修改列类型，这里新增 *_ms 列，旧文本列保留不再使用；
+ * 已有数据由后台分批回填，依赖时间列的索引改建到新列上
+ */
+public class Migration4To5 extends Migration {
+
+    // 建立在旧时间列上的索引
+    private static final String[] LEGACY_TIME_INDEXES = {
+            "idx_diary_author_time",
+            "idx_diary_author_draft_time",
+            "idx_diary_author_draft_update",
+            "idx_diary_notebook_draft_time",
+            "idx_diary_draft_time",
+            "idx_notebook_user_order",
+            "idx_search_history_user_time",
+            "idx_favorite_user_time"
+    };
+
+    public Migration4To5() {
+        super(4, 5);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        addColumnIfMissing(db, DatabaseHelper.TABLE_USER, DatabaseHelper.COLUMN_CREATE_TIME, "INTEGER");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_NOTEBOOK, DatabaseHelper.COLUMN_CREATE_TIME, "INTEGER");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_CREATE_TIME_DIARY, "INTEGER");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_DIARY, DatabaseHelper.COLUMN_UPDATE_TIME, "INTEGER");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_SEARCH_HISTORY, DatabaseHelper.COLUMN_CREATE_TIME, "INTEGER");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_FAVORITE, DatabaseHelper.COLUMN_FAVORITE_TIME, "INTEGER");
+
+        for (String index : LEGACY_TIME_INDEXES) {
+            db.execSQL("DROP INDEX IF EXISTS " + index);
+        }
+    }
+
+    @Override
+    public List<BatchedBackfill> getBackfills() {
+        return Arrays.asList(
+                new EpochMillisBackfill(DatabaseHelper.TABLE_USER,
+                        "create_time", DatabaseHelper.COLUMN_CREATE_TIME),
+                new EpochMillisBackfill(DatabaseHelper.TABLE_NOTEBOOK,
+                        "create_time", DatabaseHelper.COLUMN_CREATE_TIME),
+                new EpochMillisBackfill(DatabaseHelper.TABLE_DIARY,
+                        "create_time_diary", DatabaseHelper.COLUMN_CREATE_TIME_DIARY),
+                new EpochMillisBackfill(DatabaseHelper.TABLE_DIARY,
+                        "update_time", DatabaseHelper.COLUMN_UPDATE_TIME),
+                new EpochMillisBackfill(DatabaseHelper.TABLE_SEARCH_HISTORY,
+                        "create_time", DatabaseHelper.COLUMN_CREATE_TIME),
+                new EpochMillisBackfill(DatabaseHelper.TABLE_FAVORITE,
+                        "favorite_time", DatabaseHelper.COLUMN_FAVORITE_TIME)
+        );
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DiarySearchIndex;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 版本5 -> 6：新增日记全文索引 diary_fts 及同步触发器
+ * 触发器建好后新写入的日记自动进入索引，已有日记由后台分批补建
+ */
+public class Migration5To6 extends Migration {
+
+    public Migration5To6() {
+        super(5, 6);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        DiarySearchIndex.create(db);
+    }
+
+    @Override
+    public List<BatchedBackfill> getBackfills() {
+        return Collections.singletonList(new SearchIndexBackfill("search_index_" + DiarySearchIndex.TABLE_DIARY_FTS));
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DiarySearchIndex;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 版本6 -> 7：全文索引改为写入前按中文二元组切分，旧索引中整句中文是一个词，无法复用
+ * 重建索引表和触发器，已有日记由后台分批重新建立索引
+ */
+public class Migration6To7 extends Migration {
+
+    public Migration6To7() {
+        super(6, 7);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        DiarySearchIndex.recreate(db);
+    }
+
+    @Override
+    public List<BatchedBackfill> getBackfills() {
+        return Collections.singletonList(new SearchIndexBackfill("search_index_cjk_bigram"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.traildiary.database.migration;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DatabaseHelper;
+import com.example.traildiary.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 版本7 -> 8：搜索历史按（用户, 关键词, 搜索类型）去重，记录搜索次数和最近搜索时间，每个用户最多保留
+ * Constants.MAX_SEARCH_HISTORY 条；新增全站关键词热度表及维护它的触发器。
+ * 搜索历史每条对应一次手动搜索，数据量小，去重直接在结构变更中完成（唯一索引建立前必须没有重复）。
+ * 从版本5之前升级时 create_time_ms 尚未回填，时间按旧文本列 create_time 换算
+ */
+public class Migration7To8 extends Migration {
+
+    private static final String HISTORY = DatabaseHelper.TABLE_SEARCH_HISTORY;
+    private static final String LEGACY_CREATE_TIME = "create_time";
+
+    public Migration7To8() {
+        super(7, 8);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        addColumnIfMissing(db, HISTORY, DatabaseHelper.COLUMN_SEARCH_COUNT, "INTEGER NOT NULL DEFAULT 1");
+        addColumnIfMissing(db, HISTORY, DatabaseHelper.COLUMN_LAST_SEARCH_TIME, "INTEGER");
+
+        db.execSQL("UPDATE " + HISTORY + " SET " + DatabaseHelper.COLUMN_SEARCH_TYPE + " = 0 WHERE " +
+                DatabaseHelper.COLUMN_SEARCH_TYPE + " IS NULL");
+
+        // 每组保留最新的一条，次数为组内行数，首次/最近搜索时间取组内最早/最晚
+        String time = millisExpression(db, HISTORY, "h.", LEGACY_CREATE_TIME, DatabaseHelper.COLUMN_CREATE_TIME);
+        String sameKey = " FROM " + HISTORY + " h WHERE h." + DatabaseHelper.COLUMN_USER_ID + " = " + HISTORY + "." +
+                DatabaseHelper.COLUMN_USER_ID + " AND h." + DatabaseHelper.COLUMN_KEYWORD + " = " + HISTORY + "." +
+                DatabaseHelper.COLUMN_KEYWORD + " AND h." + DatabaseHelper.COLUMN_SEARCH_TYPE + " = " + HISTORY + "." +
+                DatabaseHelper.COLUMN_SEARCH_TYPE + ")";
+        String latestIds = "SELECT MAX(" + DatabaseHelper.COLUMN_SEARCH_ID + ") FROM " + HISTORY +
+                " GROUP BY " + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_KEYWORD + ", " +
+                DatabaseHelper.COLUMN_SEARCH_TYPE;
+        db.execSQL("UPDATE " + HISTORY + " SET " +
+                DatabaseHelper.COLUMN_SEARCH_COUNT + " = (SELECT COUNT(*)" + sameKey + ", " +
+                DatabaseHelper.COLUMN_LAST_SEARCH_TIME + " = (SELECT MAX(" + time + ")" + sameKey + ", " +
+                DatabaseHelper.COLUMN_CREATE_TIME + " = (SELECT MIN(" + time + ")" + sameKey +
+                " WHERE " + DatabaseHelper.COLUMN_SEARCH_ID + " IN (" + latestIds + ")");
+        db.execSQL("DELETE FROM " + HISTORY + " WHERE " + DatabaseHelper.COLUMN_SEARCH_ID +
+                " NOT IN (" + latestIds + ")");
+
+        // 旧索引改建为唯一索引/按最近搜索时间的索引（新索引由 createIndexes 统一建立）
+        db.execSQL("DROP INDEX IF EXISTS idx_search_history_user_time");
+        db.execSQL("DROP INDEX IF EXISTS idx_search_history_user_keyword");
+
+        List<Long> userIds = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT DISTINCT " + DatabaseHelper.COLUMN_USER_ID + " FROM " + HISTORY, null);
+        try {
+            while (cursor.moveToNext()) {
+                userIds.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        // 每个用户只保留最近搜索的 MAX_SEARCH_HISTORY 条
+        String trim = "DELETE FROM " + HISTORY + " WHERE " + DatabaseHelper.COLUMN_SEARCH_ID + " IN (SELECT " +
+                DatabaseHelper.COLUMN_SEARCH_ID + " FROM " + HISTORY + " WHERE " + DatabaseHelper.COLUMN_USER_ID +
+                " = ? ORDER BY " + DatabaseHelper.COLUMN_LAST_SEARCH_TIME + " DESC, " + DatabaseHelper.COLUMN_SEARCH_ID +
+                " DESC LIMIT -1 OFFSET " + Constants.MAX_SEARCH_HISTORY + ")";
+        for (long userId : userIds) {
+            db.execSQL(trim, new Object[]{userId});
+        }
+
+        // 热度表按去重后的搜索历史初始化，之后由触发器维护
+        DatabaseHelper.createTablesIfNotExist(db);
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_SEARCH_KEYWORD);
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_SEARCH_KEYWORD + "(" + DatabaseHelper.COLUMN_KEYWORD + ", " +
+                DatabaseHelper.COLUMN_SEARCH_COUNT + ") SELECT " + DatabaseHelper.COLUMN_KEYWORD + ", SUM(" +
+                DatabaseHelper.COLUMN_SEARCH_COUNT + ") FROM " + HISTORY + " GROUP BY " + DatabaseHelper.COLUMN_KEYWORD);
+        DatabaseHelper.createSearchKeywordTriggers(db);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.traildiary.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DatabaseHelper;
+import com.example.traildiary.database.DiarySearchIndex;
+import com.example.traildiary.database.UserDAO;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 版本8 -> 9：拼音检索
+ * 新增日记标题/作者昵称的拼音索引（已有日记由后台分批回填），用户表新增昵称全拼和首字母两列（直接计算）
+ */
+public class Migration8To9 extends Migration {
+
+    public Migration8To9() {
+        super(8, 9);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        DiarySearchIndex.addPinyinIndex(db);
+
+        addColumnIfMissing(db, DatabaseHelper.TABLE_USER, DatabaseHelper.COLUMN_NICKNAME_PINYIN, "TEXT");
+        addColumnIfMissing(db, DatabaseHelper.TABLE_USER, DatabaseHelper.COLUMN_NICKNAME_INITIALS, "TEXT");
+        UserDAO.refreshNicknamePinyin(db);
+    }
+
+    @Override
+    public List<BatchedBackfill> getBackfills() {
+        return Collections.singletonList(new SearchIndexBackfill("search_index_pinyin"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.traildiary.database.migration;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.traildiary.database.DatabaseHelper;
+import com.example.traildiary.utils.Constants;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 版本9 -> 10：热搜关键词
+ * 新增按时间衰减的关键词热度表（分数索引由 createIndexes 统一建立），
+ * 由已有搜索历史初始化；搜索历史每个用户最多几条，直接在结构变更中完成。
+ * 从版本5之前连续升级时 *_ms 列尚未回填，搜索时间按旧文本列 create_time 换算
+ */
+public class Migration9To10 extends Migration {
+
+    private static final String HISTORY = DatabaseHelper.TABLE_SEARCH_HISTORY;
+
+    public Migration9To10() {
+        super(9, 10);
+    }
+
+    @Override
+    public void migrateSchema(SQLiteDatabase db) {
+        DatabaseHelper.createTablesIfNotExist(db);
+
+        // 分数为 log2(Σ 2^(搜索时间/半衰期))，与 SearchHistoryDAO 每次搜索时的累加方式相同；
+        // 搜索历史只保留每个关键词的次数和最近搜索时间，各次搜索都按最近搜索时间计算
+        String time = "IFNULL(" + DatabaseHelper.COLUMN_LAST_SEARCH_TIME + ", " +
+                millisExpression(db, HISTORY, "", "create_time", DatabaseHelper.COLUMN_CREATE_TIME) + ")";
+        Map<String, Double> scores = new HashMap<>();
+        Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COLUMN_KEYWORD + ", " +
+                DatabaseHelper.COLUMN_SEARCH_COUNT + ", " + time + " FROM " + HISTORY +
+                " WHERE " + time + " IS NOT NULL", null);
+        try {
+            while (cursor.moveToNext()) {
+                // count 次搜索：log2(count * 2^(t/H)) = log2(count) + t/H
+                double score = Math.log(Math.max(cursor.getInt(1), 1)) / Math.log(2) +
+                        cursor.getLong(2) / (double) Constants.TRENDING_HALF_LIFE_MS;
+                Double old = scores.get(cursor.getString(0));
+                scores.put(cursor.getString(0), old == null ? score : logSum(old, score));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_TRENDING_KEYWORD);
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " +
+                DatabaseHelper.TABLE_TRENDING_KEYWORD + "(" + DatabaseHelper.COLUMN_KEYWORD + ", " +
+                DatabaseHelper.COLUMN_TRENDING_SCORE + ") VALUES (?, ?)");
+        try {
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                insert.bindString(1, entry.getKey());
+                insert.bindDouble(2, entry.getValue());
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    // log2(2^a + 2^b)
+    private static double logSum(double a, double b) {
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.pow(2, Math.min(a, b) - max)) / Math.log(2);
+    }
+}
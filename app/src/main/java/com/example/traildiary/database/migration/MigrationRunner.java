@@ -0,0 +1,192 @@
+package com.example.traildiary.database.migration;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.example.traildiary.database.DatabaseHelper;
+import com.example.traildiary.database.DatabaseProvider;
+import com.example.traildiary.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 数据库迁移执行器
+ * 1. applySchemaMigrations：在onUpgrade中按版本顺序执行各步骤的结构变更，
+ *    并把需要回填数据的步骤登记到 migration_state 表；
+ * 2. startPendingBackfills：应用启动后在后台线程分批执行未完成的回填，
+ *    每批数据与进度在同一事务中提交，进程被杀后从断点继续。
+ * 从启动到确认没有未完成的回填、或回填全部完成之前 isMigrating() 为true，
+ * 期间 DatabaseProvider 拒绝写操作（只读模式）。
+ */
+public final class MigrationRunner {
+
+    private static final String TAG = "MigrationRunner";
+
+    // 迁移进度表
+    public static final String TABLE_MIGRATION_STATE = "migration_state";
+    public static final String COLUMN_NAME = "name";
+    public static final String COLUMN_LAST_ROW_ID = "last_row_id";
+    public static final String COLUMN_DONE = "done";
+
+    public static final String CREATE_TABLE_MIGRATION_STATE =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_MIGRATION_STATE + "(" +
+                    COLUMN_NAME + " TEXT PRIMARY KEY," +
+                    COLUMN_LAST_ROW_ID + " INTEGER DEFAULT 0," +
+                    COLUMN_DONE + " INTEGER DEFAULT 0" +
+                    ")";
+
+    // 全部迁移步骤，按版本顺序排列；新增版本时在末尾追加
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            new Migration1To2(),
+            new Migration2To3(),
+            new Migration3To4(),
+            new Migration4To5(),
+            new Migration5To6(),
+            new Migration6To7(),
+            new Migration7To8(),
+            new Migration8To9(),
+            new Migration9To10(),
+            new Migration10To11(),
+            new Migration11To12()
+    );
+
+    private final DatabaseProvider dbProvider;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private volatile boolean migrating;
+
+    public MigrationRunner(DatabaseProvider dbProvider) {
+        this.dbProvider = dbProvider;
+    }
+
+    // 执行 oldVersion -> newVersion 之间各步骤的结构变更（在onUpgrade事务内调用）
+    public static void applySchemaMigrations(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL(CREATE_TABLE_MIGRATION_STATE);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.getFromVersion() < oldVersion || migration.getToVersion() > newVersion) {
+                continue;
+            }
+            Log.i(TAG, "升级数据库结构: " + migration.getFromVersion() + " -> " + migration.getToVersion());
+            migration.migrateSchema(db);
+
+            for (BatchedBackfill backfill : migration.getBackfills()) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_NAME, backfill.getName());
+                values.put(COLUMN_LAST_ROW_ID, 0);
+                values.put(COLUMN_DONE, 0);
+                db.insertWithOnConflict(TABLE_MIGRATION_STATE, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+        }
+        // 索引按最新定义统一重建（IF NOT EXISTS，可重复执行）
+        DatabaseHelper.createIndexes(db);
+    }
+
+    public boolean isMigrating() {
+        return migrating;
+    }
+
+    // 在后台继续执行未完成的数据回填；检查完成前就进入只读模式，没有回填或回填结束后恢复写入
+    public void startPendingBackfills() {
+        migrating = true;
+        executor.execute(() -> {
+            try {
+                // 打开数据库时会触发onUpgrade，登记本次需要的回填
+                SQLiteDatabase db = dbProvider.getMaintenanceDatabase();
+                List<BatchedBackfill> pending = getPendingBackfills(db);
+                for (BatchedBackfill backfill : pending) {
+                    runBackfill(db, backfill);
+                }
+                if (!pending.isEmpty()) {
+                    dbProvider.notifyDiariesChanged();
+                }
+            } catch (RuntimeException e) {
+                // 失败时保留进度，下次启动继续
+                Log.e(TAG, "数据回填失败", e);
+            } finally {
+                migrating = false;
+            }
+            // 回填改动的日记，以及上次进程在写入后、补建索引前退出时留下的待处理日记
+            dbProvider.syncSearchIndex();
+        });
+    }
+
+    // 在当前线程执行全部未完成的回填（不可在主线程调用）
+    public static void runPendingBackfills(SQLiteDatabase db) {
+        for (BatchedBackfill backfill : getPendingBackfills(db)) {
+            runBackfill(db, backfill);
+        }
+    }
+
+    // 查询未完成的回填任务（按迁移步骤顺序）
+    private static List<BatchedBackfill> getPendingBackfills(SQLiteDatabase db) {
+        List<String> pendingNames = new ArrayList<>();
+        Cursor cursor = db.query(TABLE_MIGRATION_STATE, new String[]{COLUMN_NAME},
+                COLUMN_DONE + " = 0", null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                pendingNames.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        List<BatchedBackfill> pending = new ArrayList<>();
+        for (Migration migration : MIGRATIONS) {
+            for (BatchedBackfill backfill : migration.getBackfills()) {
+                if (pendingNames.contains(backfill.getName())) {
+                    pending.add(backfill);
+                }
+            }
+        }
+        return pending;
+    }
+
+    // 分批执行单个回填任务，每批一个事务
+    private static void runBackfill(SQLiteDatabase db, BatchedBackfill backfill) {
+        long lastRowId = readLastRowId(db, backfill.getName());
+        Log.i(TAG, "开始数据回填: " + backfill.getName() + "，从rowid " + lastRowId + " 继续");
+
+        while (true) {
+            db.beginTransactionNonExclusive();
+            try {
+                long next = backfill.runBatch(db, lastRowId, Constants.DB_MIGRATION_BATCH_SIZE);
+                ContentValues values = new ContentValues();
+                if (next < 0) {
+                    values.put(COLUMN_DONE, 1);
+                } else {
+                    values.put(COLUMN_LAST_ROW_ID, next);
+                }
+                db.update(TABLE_MIGRATION_STATE, values, COLUMN_NAME + " = ?",
+                        new String[]{backfill.getName()});
+                db.setTransactionSuccessful();
+                if (next < 0) {
+                    break;
+                }
+                lastRowId = next;
+            } finally {
+                db.endTransaction();
+            }
+        }
+        Log.i(TAG, "数据回填完成: " + backfill.getName());
+    }
+
+    private static long readLastRowId(SQLiteDatabase db, String name) {
+        Cursor cursor = db.query(TABLE_MIGRATION_STATE, new String[]{COLUMN_LAST_ROW_ID},
+                COLUMN_NAME + " = ?", new String[]{name}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // 供DatabaseHelper.onCreate使用：全新安装时无需迁移，只建进度表
+    public static void createStateTable(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_MIGRATION_STATE);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.traildiary.database.migration;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.traildiary.database.DatabaseHelper;
+import com.example.traildiary.database.DiarySearchIndex;
+
+/**
+ * 为升级前已有的日记分批建立全文索引和拼音索引
+ * 两个索引都已由触发器建立的日记会被跳过
+ */
+class SearchIndexBackfill implements BatchedBackfill {
+
+    private final String name;
+
+    // 索引格式变化后需要重新回填时，使用新的任务名称
+    SearchIndexBackfill(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long runBatch(SQLiteDatabase db, long lastRowId, int batchSize) {
+        String[] batchArgs = {String.valueOf(lastRowId), String.valueOf(batchSize)};
+        String batch = "SELECT rowid FROM " + DatabaseHelper.TABLE_DIARY +
+                " WHERE rowid > ? ORDER BY rowid LIMIT ?";
+
+        long maxRowId = -1;
+        Cursor cursor = db.rawQuery("SELECT MAX(rowid) FROM (" + batch + ")", batchArgs);
+        try {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                maxRowId = cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (maxRowId < 0) {
+            return -1;
+        }
+
+        DiarySearchIndex.indexRange(db, lastRowId, maxRowId);
+        return maxRowId;
+    }
+}
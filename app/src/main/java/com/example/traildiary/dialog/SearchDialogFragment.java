@@ -1,16 +1,18 @@
 package com.example.traildiary.dialog;
 
 import android.os.Bundle;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.EditorInfo;
-import android.widget.EditText;
+import android.widget.AutoCompleteTextView;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -19,11 +21,16 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.traildiary.R;
 import com.example.traildiary.adapter.SearchHistoryAdapter;
-import com.example.traildiary.adapter.DiaryListAdapter;
-import com.example.traildiary.model.Diary;
+import com.example.traildiary.adapter.SearchResultAdapter;
+import com.example.traildiary.adapter.KeywordSuggestionAdapter;
+import com.example.traildiary.model.DiarySearchHit;
 import com.example.traildiary.model.SearchHistory;
+import com.example.traildiary.database.DatabaseProvider;
 import com.example.traildiary.database.SearchHistoryDAO;
 import com.example.traildiary.database.DiaryDAO;
+import com.example.traildiary.database.KeywordSuggester;
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.DebouncedSearcher;
 import com.example.traildiary.utils.SharedPreferencesUtil;
 import com.google.android.flexbox.FlexboxLayout;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
@@ -35,7 +42,7 @@ public class SearchDialogFragment extends BottomSheetDialogFragment {
 
     private static final String ARG_SEARCH_TYPE = "search_type";
 
-    private EditText etSearch;
+    private AutoCompleteTextView etSearch;
     private ImageView ivClear;
     private TextView tvRecentTitle;
     private FlexboxLayout flexboxHistory;
@@ -44,18 +51,20 @@ public class SearchDialogFragment extends BottomSheetDialogFragment {
     private LinearLayout llEmpty;
 
     private SearchHistoryAdapter historyAdapter;
-    private DiaryListAdapter resultAdapter;
+    private SearchResultAdapter resultAdapter;
     private List<SearchHistory> historyList = new ArrayList<>();
-    private List<Diary> resultList = new ArrayList<>();
+    private List<DiarySearchHit> resultList = new ArrayList<>();
 
     private SearchHistoryDAO searchHistoryDAO;
     private DiaryDAO diaryDAO;
     private SharedPreferencesUtil spUtil;
+    private DebouncedSearcher<List<DiarySearchHit>> searcher; // 边输入边搜索
+    private KeywordSuggester suggester;                    // 关键词自动补全
 
     private OnSearchResultClickListener listener;
 
     public interface OnSearchResultClickListener {
-        void onDiaryClick(Diary diary);
+        void onDiaryClick(DiarySearchHit hit);
         void onSearchHistoryClick(String keyword);
     }
 
@@ -104,6 +113,12 @@ public class SearchDialogFragment extends BottomSheetDialogFragment {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 ivClear.setVisibility(s.length() > 0 ? View.VISIBLE : View.GONE);
+                String keyword = s.toString().trim();
+                if (keyword.isEmpty()) {
+                    searcher.cancel();
+                } else {
+                    searcher.submit(keyword);
+                }
             }
 
             @Override
@@ -128,14 +143,29 @@ public class SearchDialogFragment extends BottomSheetDialogFragment {
         searchHistoryDAO = new SearchHistoryDAO(requireContext());
         diaryDAO = new DiaryDAO(requireContext());
         spUtil = SharedPreferencesUtil.getInstance(requireContext());
+
+        int searchType = getArguments() != null ? getArguments().getInt(ARG_SEARCH_TYPE, 0) : 0;
+        int userId = spUtil.getCurrentUserId();
+        searcher = new DebouncedSearcher<>(Looper.getMainLooper(), Constants.SEARCH_DEBOUNCE_MS,
+                (keyword, cancellationSignal) -> diaryDAO.searchByType(keyword, searchType, userId, cancellationSignal),
+                (keyword, result) -> {
+                    resultList = result;
+                    updateResultUI();
+                });
+
+        // 自动补全：后台载入搜索历史，输入时从内存前缀树取建议
+        suggester = new KeywordSuggester(requireContext(), userId);
+        suggester.loadAsync();
+        etSearch.setAdapter(new KeywordSuggestionAdapter(requireContext(), suggester));
+        etSearch.setOnItemClickListener((parent, itemView, position, id) -> performSearch());
     }
 
     private void initAdapters() {
         // 核心修复：补充Context参数（requireContext()）
-        resultAdapter = new DiaryListAdapter(requireContext(), resultList);
-        resultAdapter.setOnItemClickListener(diary -> {
+        resultAdapter = new SearchResultAdapter(requireContext(), resultList);
+        resultAdapter.setOnItemClickListener(hit -> {
             if (listener != null) {
-                listener.onDiaryClick(diary);
+                listener.onDiaryClick(hit);
             }
             dismiss();
         });
@@ -155,14 +185,18 @@ public class SearchDialogFragment extends BottomSheetDialogFragment {
                         .inflate(R.layout.item_search_history, flexboxHistory, false);
                 tvHistory.setText(history.getKeyword());
                 tvHistory.setOnClickListener(v -> {
-                    etSearch.setText(history.getKeyword());
+                    etSearch.setText(history.getKeyword(), false); // 不弹出补全列表
                     etSearch.setSelection(history.getKeyword().length());
                     performSearch();
                 });
 
                 ImageView ivDelete = tvHistory.findViewById(R.id.btn_delete);
                 ivDelete.setOnClickListener(v -> {
-                    searchHistoryDAO.deleteSearchHistory(history.getId());
+                    if (!DatabaseProvider.getInstance(requireContext()).isWritable()) {
+                        Toast.makeText(requireContext(), "数据升级中，请稍后再试", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    suggester.deleteSearchHistory(history);
                     flexboxHistory.removeView(tvHistory);
                     if (flexboxHistory.getChildCount() == 0) {
                         tvRecentTitle.setVisibility(View.GONE);
@@ -182,30 +216,14 @@ public class SearchDialogFragment extends BottomSheetDialogFragment {
             return;
         }
 
-        // 保存搜索记录
-        int userId = spUtil.getCurrentUserId();
-        searchHistoryDAO.addSearchHistory(new SearchHistory(userId, keyword));
-
-        // 执行搜索
-        int searchType = getArguments() != null ? getArguments().getInt(ARG_SEARCH_TYPE, 0) : 0;
-        resultList.clear();
-
-        switch (searchType) {
-            case 1: // 按作者
-                resultList = diaryDAO.searchByAuthor(keyword, userId);
-                break;
-            case 2: // 按标题
-                resultList = diaryDAO.searchByTitle(keyword, userId);
-                break;
-            case 3: // 按类别
-                resultList = diaryDAO.searchByCategory(keyword, userId);
-                break;
-            default: // 综合搜索
-                resultList = diaryDAO.searchAll(keyword, userId);
-                break;
+        // 保存搜索记录（数据升级期间为只读模式，只搜索不记录）
+        if (DatabaseProvider.getInstance(requireContext()).isWritable()) {
+            int userId = spUtil.getCurrentUserId();
+            suggester.addSearchHistory(new SearchHistory(userId, keyword));
         }
 
-        updateResultUI();
+        // 立即执行搜索（取消输入过程中尚未完成的查询），结果在后台查询完成后显示
+        searcher.submitNow(keyword);
     }
 
     private void updateResultUI() {
@@ -221,6 +239,13 @@ public class SearchDialogFragment extends BottomSheetDialogFragment {
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        searcher.shutdown();
+        suggester.shutdown();
+        super.onDestroyView();
+    }
+
     @Override
     public void onDismiss(@NonNull android.content.DialogInterface dialog) {
         super.onDismiss(dialog);
@@ -2,6 +2,8 @@ package com.example.traildiary.fragment;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -21,13 +23,18 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.traildiary.R;
 import com.example.traildiary.activity.WriteDiaryActivity;
 import com.example.traildiary.adapter.DiaryListAdapter;
-import com.example.traildiary.model.Diary;
+import com.example.traildiary.adapter.EndlessScrollListener;
+import com.example.traildiary.database.DiaryDAO;
+import com.example.traildiary.database.DiaryQuery;
+import com.example.traildiary.model.DiarySummary;
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.SharedPreferencesUtil;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import org.threeten.bp.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class DiaryFragment extends Fragment {
 
@@ -39,18 +46,41 @@ public class DiaryFragment extends Fragment {
     private FloatingActionButton fabAddDiary;
 
     private DiaryListAdapter diaryAdapter;
-    private List<Diary> diaryList = new ArrayList<>();
-    private List<Diary> filteredDiaryList = new ArrayList<>();
+    private EndlessScrollListener scrollListener;
+    private final List<DiarySummary> diaryList = new ArrayList<>();
     private boolean isGridView = true; // 默认网格布局
 
+    // 当前的筛选条件，筛选、排序都在数据库中完成
+    private String keyword = "";
+    private int categoryIndex = 0;
+    private int sortIndex = 0;
+
+    private DiaryDAO diaryDAO;
+    private int currentUserId;
+
+    // 后台加载日记分页
+    private ExecutorService executorService;
+    private Handler mainHandler;
+    private int loadGeneration = 0; // 每次从第一页重新加载时递增，用于丢弃过期的分页结果
+
+    private boolean isDataLoaded = false; // 首次显示时已由onCreateView加载，onResume不再重复加载
+
+    // 下标即类别代码（Constants.DIARY_CATEGORY_*），0为全部分类
     private static final String[] CATEGORIES = {"全部分类", "国内游", "国际游", "亲子游", "美食之旅", "户外探险", "文化历史"};
     private static final String[] SORT_OPTIONS = {"最近更新", "最早更新", "标题A-Z", "标题Z-A"};
+    private static final DiaryQuery.Sort[] SORTS = {
+            DiaryQuery.Sort.UPDATE_TIME_DESC,
+            DiaryQuery.Sort.UPDATE_TIME_ASC,
+            DiaryQuery.Sort.TITLE_ASC,
+            DiaryQuery.Sort.TITLE_DESC
+    };
 
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_diary, container, false);
         initView(view);
+        initData();
         setupSpinners();
         setupRecyclerView();
         setupListeners();
@@ -68,6 +98,15 @@ public class DiaryFragment extends Fragment {
         fabAddDiary = view.findViewById(R.id.fabAddDiary);
     }
 
+    private void initData() {
+        currentUserId = SharedPreferencesUtil.getInstance(requireContext()).getCurrentUserId();
+        diaryDAO = new DiaryDAO(requireContext());
+
+        // 初始化线程池和主线程Handler
+        executorService = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
     private void setupSpinners() {
         // 分类下拉框
         ArrayAdapter<String> categoryAdapter = new ArrayAdapter<>(
@@ -93,9 +132,18 @@ public class DiaryFragment extends Fragment {
         updateLayoutManager();
 
         // 修复：构造方法添加Context参数（requireContext()）
-        diaryAdapter = new DiaryListAdapter(requireContext(), filteredDiaryList);
+        diaryAdapter = new DiaryListAdapter(requireContext(), diaryList);
         diaryAdapter.setGridLayout(isGridView); // 设置布局模式
         recyclerViewDiary.setAdapter(diaryAdapter);
+
+        // 滚动到接近末尾时加载下一页
+        scrollListener = new EndlessScrollListener(Constants.DIARY_PREFETCH_DISTANCE) {
+            @Override
+            public void onLoadMore() {
+                loadNextPage();
+            }
+        };
+        recyclerViewDiary.addOnScrollListener(scrollListener);
     }
 
     private void updateLayoutManager() {
@@ -153,137 +201,78 @@ public class DiaryFragment extends Fragment {
         startActivity(intent);
     }
 
+    // 按当前的关键词、分类和排序从第一页重新加载，仍在进行中的旧请求结果会被丢弃
     private void loadDiaryData() {
-        // 清空现有数据
+        loadGeneration++;
         diaryList.clear();
+        diaryAdapter.notifyDataSetChanged();
+        scrollListener.reset();
+        loadNextPage();
+    }
 
-        // 模拟加载数据 - 使用正确的Diary构造方法
-        LocalDateTime now = LocalDateTime.now();
-
-        // 创建日记1
-        Diary diary1 = new Diary(1, "海边日出", "清晨的海边格外宁静...", "国内游", 1, false);
-        diary1.setDiaryId(1);
-        diary1.setCoverImagePath("path/to/cover1.jpg");
-        diary1.setCreateTime(now.minusDays(10));
-        diary1.setUpdateTime(now.minusDays(1));
-        diaryList.add(diary1);
-
-        // 创建日记2
-        Diary diary2 = new Diary(1, "山间徒步", "挑战自我的旅程...", "户外探险", 1, false);
-        diary2.setDiaryId(2);
-        diary2.setImages(Arrays.asList("path/to/image1.jpg", "path/to/image2.jpg"));
-        diary2.setCreateTime(now.minusDays(7));
-        diary2.setUpdateTime(now.minusDays(2));
-        diaryList.add(diary2);
-
-        // 创建日记3
-        Diary diary3 = new Diary(1, "美食探店", "发现城市中的隐藏美味...", "美食之旅", 1, false);
-        diary3.setDiaryId(3);
-        diary3.setCoverImagePath("path/to/cover3.jpg");
-        diary3.setCreateTime(now.minusDays(5));
-        diary3.setUpdateTime(now.minusDays(3));
-        diaryList.add(diary3);
-
-        // 创建日记4
-        Diary diary4 = new Diary(1, "古镇游记", "感受历史的沉淀...", "文化历史", 1, false);
-        diary4.setDiaryId(4);
-        diary4.setCoverImagePath("path/to/cover4.jpg");
-        diary4.setCreateTime(now.minusDays(3));
-        diary4.setUpdateTime(now.minusDays(1));
-        diaryList.add(diary4);
-
-        // 初始化筛选列表
-        filteredDiaryList.clear();
-        filteredDiaryList.addAll(diaryList);
-
-        // 更新适配器
-        diaryAdapter.updateData(filteredDiaryList);
-
-        // 检查空状态
-        checkEmptyState();
+    // 当前条件对应的查询（不含分页起点）
+    private DiaryQuery buildQuery() {
+        return new DiaryQuery()
+                .author(currentUserId)
+                .published()
+                .category(categoryIndex == 0 ? null : String.valueOf(categoryIndex))
+                .text(keyword)
+                .sortBy(SORTS[sortIndex])
+                .pageSize(Constants.DIARY_PAGE_SIZE);
     }
 
-    private void performSearch() {
-        String keyword = etSearch.getText().toString().trim().toLowerCase();
+    // 在后台线程加载下一页日记（以当前列表最后一条作为分页起点）
+    private void loadNextPage() {
+        if (scrollListener.isLoading() || !scrollListener.hasMore()) {
+            return;
+        }
+        scrollListener.setLoading(true);
 
-        filteredDiaryList.clear();
+        final int generation = loadGeneration;
+        final DiaryQuery query = buildQuery()
+                .after(diaryList.isEmpty() ? null : diaryList.get(diaryList.size() - 1));
 
-        if (keyword.isEmpty()) {
-            // 如果搜索关键词为空，显示所有日记
-            filteredDiaryList.addAll(diaryList);
-        } else {
-            // 根据关键词筛选
-            for (Diary diary : diaryList) {
-                if (diary.getTitle().toLowerCase().contains(keyword) ||
-                        (diary.getContent() != null && diary.getContent().toLowerCase().contains(keyword))) {
-                    filteredDiaryList.add(diary);
+        executorService.execute(() -> {
+            List<DiarySummary> page = diaryDAO.query(query);
+
+            mainHandler.post(() -> {
+                if (generation != loadGeneration || !isAdded()) {
+                    return;
                 }
-            }
-        }
+                int start = diaryList.size();
+                diaryList.addAll(page);
+                diaryAdapter.notifyItemRangeInserted(start, page.size());
+
+                scrollListener.setHasMore(page.size() == query.getPageSize());
+                scrollListener.setLoading(false);
+                checkEmptyState();
+            });
+        });
+    }
 
-        diaryAdapter.updateData(filteredDiaryList);
-        checkEmptyState();
+    private void performSearch() {
+        keyword = etSearch.getText().toString().trim();
+        loadDiaryData();
     }
 
     private void filterDiariesByCategory(int categoryIndex) {
-        if (categoryIndex == 0) {
-            // "全部分类" - 显示所有日记
-            filteredDiaryList.clear();
-            filteredDiaryList.addAll(diaryList);
-        } else {
-            // 根据分类筛选
-            String selectedCategory = CATEGORIES[categoryIndex];
-            filteredDiaryList.clear();
-
-            for (Diary diary : diaryList) {
-                if (selectedCategory.equals(diary.getCategory())) {
-                    filteredDiaryList.add(diary);
-                }
-            }
+        if (this.categoryIndex == categoryIndex) {
+            return;
         }
-
-        diaryAdapter.updateData(filteredDiaryList);
-        checkEmptyState();
+        this.categoryIndex = categoryIndex;
+        loadDiaryData();
     }
 
     private void sortDiaries(int sortIndex) {
-        switch (sortIndex) {
-            case 0: // 最近更新
-                filteredDiaryList.sort((d1, d2) -> {
-                    // 修复：使用org.threeten.bp.LocalDateTime替换java.time.LocalDateTime
-                    org.threeten.bp.LocalDateTime time1 = d2.getUpdateTime() != null ? d2.getUpdateTime() : d2.getCreateTime();
-                    org.threeten.bp.LocalDateTime time2 = d1.getUpdateTime() != null ? d1.getUpdateTime() : d1.getCreateTime();
-                    // 移除版本判断（threetenbp是兼容库）
-                    return time1 != null && time2 != null ? time1.compareTo(time2) : 0;
-                });
-                break;
-
-            case 1: // 最早更新
-                filteredDiaryList.sort((d1, d2) -> {
-                    // 修复：使用org.threeten.bp.LocalDateTime替换java.time.LocalDateTime
-                    org.threeten.bp.LocalDateTime time1 = d1.getUpdateTime() != null ? d1.getUpdateTime() : d1.getCreateTime();
-                    org.threeten.bp.LocalDateTime time2 = d2.getUpdateTime() != null ? d2.getUpdateTime() : d2.getCreateTime();
-                    // 移除版本判断（threetenbp是兼容库）
-                    return time1 != null && time2 != null ? time1.compareTo(time2) : 0;
-                });
-                break;
-
-            case 2: // 标题A-Z
-                filteredDiaryList.sort((d1, d2) ->
-                        d1.getTitle().compareToIgnoreCase(d2.getTitle()));
-                break;
-
-            case 3: // 标题Z-A
-                filteredDiaryList.sort((d1, d2) ->
-                        d2.getTitle().compareToIgnoreCase(d1.getTitle()));
-                break;
+        if (this.sortIndex == sortIndex) {
+            return;
         }
-
-        diaryAdapter.updateData(filteredDiaryList);
+        this.sortIndex = sortIndex;
+        loadDiaryData();
     }
 
     private void checkEmptyState() {
-        if (filteredDiaryList.isEmpty()) {
+        if (diaryList.isEmpty()) {
             recyclerViewDiary.setVisibility(View.GONE);
             layoutEmpty.setVisibility(View.VISIBLE);
         } else {
@@ -292,6 +281,26 @@ public class DiaryFragment extends Fragment {
         }
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        // 从写日记等页面返回时按当前条件重新查询
+        if (isDataLoaded) {
+            loadDiaryData();
+        }
+        isDataLoaded = true;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        isDataLoaded = false;
+        // 清理资源
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
     // 切换布局模式的方法（可在菜单或其他地方调用）
     public void toggleLayoutMode() {
         isGridView = !isGridView;
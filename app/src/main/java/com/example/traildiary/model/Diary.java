@@ -1,5 +1,7 @@
 package com.example.traildiary.model;
 
+import com.example.traildiary.utils.DateUtil;
+
 import org.threeten.bp.LocalDateTime; // 替换Date为LocalDateTime
 import java.util.List;
 
@@ -18,8 +20,8 @@ public class Diary {
     private List<String> images;   // 插图列表（多图路径）
     private int notebookId;     // 所属日记本ID
     private boolean isDraft;    // 是否为草稿（true-是，false-否）
-    private LocalDateTime createTime; // 创建时间（使用不可变的LocalDateTime替代Date）
-    private LocalDateTime updateTime; // 更新时间（使用不可变的LocalDateTime替代Date）
+    private long createTimeMillis; // 创建时间（epoch毫秒，0表示未设置）
+    private long updateTimeMillis; // 更新时间（epoch毫秒，0表示未设置）
     private int likeCount;      // 点赞数
     private int viewCount;      // 浏览数
 
@@ -131,23 +133,38 @@ public class Diary {
         isDraft = draft;
     }
 
-    // 时间类型修改为LocalDateTime的getter/setter
+    // 时间以epoch毫秒保存，只在界面需要时才转换为LocalDateTime
+
+    public long getCreateTimeMillis() {
+        return createTimeMillis;
+    }
+
+    public void setCreateTimeMillis(long createTimeMillis) {
+        this.createTimeMillis = createTimeMillis;
+    }
+
+    public long getUpdateTimeMillis() {
+        return updateTimeMillis;
+    }
 
+    public void setUpdateTimeMillis(long updateTimeMillis) {
+        this.updateTimeMillis = updateTimeMillis;
+    }
 
     public LocalDateTime getCreateTime() {
-        return createTime;
+        return DateUtil.fromEpochMillis(createTimeMillis);
     }
 
     public void setCreateTime(LocalDateTime createTime) {
-        this.createTime = createTime;
+        this.createTimeMillis = DateUtil.toEpochMillis(createTime);
     }
 
     public LocalDateTime getUpdateTime() {
-        return updateTime;
+        return DateUtil.fromEpochMillis(updateTimeMillis);
     }
 
     public void setUpdateTime(LocalDateTime updateTime) {
-        this.updateTime = updateTime;
+        this.updateTimeMillis = DateUtil.toEpochMillis(updateTime);
     }
 
     public int getLikeCount() {
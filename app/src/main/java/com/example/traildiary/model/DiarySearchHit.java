@@ -0,0 +1,42 @@
+package com.example.traildiary.model;
+
+/**
+ * 搜索结果列表的一项：只有日记ID、标题和命中位置附近的一小段正文摘要，不含正文全文
+ * 高亮区间按 [起点, 终点) 成对存放，起点、终点为字符下标
+ */
+public class DiarySearchHit {
+    private final int diaryId;
+    private final String title;
+    private final String snippet;
+    private final int[] titleHighlights;   // 标题中关键词出现的区间
+    private final int[] snippetHighlights; // 摘要中关键词出现的区间
+
+    public DiarySearchHit(int diaryId, String title, String snippet,
+                          int[] titleHighlights, int[] snippetHighlights) {
+        this.diaryId = diaryId;
+        this.title = title;
+        this.snippet = snippet;
+        this.titleHighlights = titleHighlights;
+        this.snippetHighlights = snippetHighlights;
+    }
+
+    public int getDiaryId() {
+        return diaryId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public int[] getTitleHighlights() {
+        return titleHighlights;
+    }
+
+    public int[] getSnippetHighlights() {
+        return snippetHighlights;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.traildiary.model;
+
+import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.DateUtil;
+
+import org.threeten.bp.LocalDateTime;
+
+/**
+ * 日记摘要实体类，用于列表页展示
+ * 只包含卡片需要的字段，不含正文、完整插图列表和作者头像，
+ * 完整的Diary只在详情页和编辑页按ID加载
+ */
+public class DiarySummary {
+    private int diaryId;
+    private int authorId;          // 作者ID
+    private String authorName;     // 作者昵称
+    private String title;          // 日记标题
+    private String category;       // 日记类别
+    private String coverImagePath; // 列表封面（封面图，没有封面时为第一张插图）
+    private String coverThumbSmall; // 列表封面的小缩略图（尚未生成时为null）
+    private String coverThumbLarge; // 列表封面的大缩略图（尚未生成时为null）
+    private int notebookId;        // 所属日记本ID
+    private boolean isDraft;       // 是否为草稿
+    private long createTimeMillis; // 创建时间（epoch毫秒，0表示未设置）
+    private long updateTimeMillis; // 更新时间（epoch毫秒，0表示未设置）
+
+    // 无参构造
+    public DiarySummary() {
+    }
+
+    // 带常用属性的构造方法
+    public DiarySummary(int diaryId, int authorId, String title, String category, int notebookId) {
+        this.diaryId = diaryId;
+        this.authorId = authorId;
+        this.title = title;
+        this.category = category;
+        this.notebookId = notebookId;
+    }
+
+    // Getters and Setters
+
+    public int getDiaryId() {
+        return diaryId;
+    }
+
+    public void setDiaryId(int diaryId) {
+        this.diaryId = diaryId;
+    }
+
+    public int getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(int authorId) {
+        this.authorId = authorId;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public void setAuthorName(String authorName) {
+        this.authorName = authorName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getCoverImagePath() {
+        return coverImagePath;
+    }
+
+    public void setCoverImagePath(String coverImagePath) {
+        this.coverImagePath = coverImagePath;
+    }
+
+    /**
+     * 按显示尺寸选择封面：不超过小缩略图尺寸时用小缩略图，否则用大缩略图，没有缩略图时用原图
+     * 大缩略图比显示尺寸略小时也使用大缩略图，列表中不解码原图
+     * @param targetSizePx 封面显示区域宽高中较大的一边（px）
+     */
+    public String getCoverImagePath(int targetSizePx) {
+        if (targetSizePx <= Constants.THUMBNAIL_SMALL_SIZE && coverThumbSmall != null) {
+            return coverThumbSmall;
+        }
+        if (coverThumbLarge != null) {
+            return coverThumbLarge;
+        }
+        return coverImagePath;
+    }
+
+    public String getCoverThumbSmall() {
+        return coverThumbSmall;
+    }
+
+    public void setCoverThumbSmall(String coverThumbSmall) {
+        this.coverThumbSmall = coverThumbSmall;
+    }
+
+    public String getCoverThumbLarge() {
+        return coverThumbLarge;
+    }
+
+    public void setCoverThumbLarge(String coverThumbLarge) {
+        this.coverThumbLarge = coverThumbLarge;
+    }
+
+    public int getNotebookId() {
+        return notebookId;
+    }
+
+    public void setNotebookId(int notebookId) {
+        this.notebookId = notebookId;
+    }
+
+    public boolean isDraft() {
+        return isDraft;
+    }
+
+    public void setDraft(boolean draft) {
+        isDraft = draft;
+    }
+
+    // 时间以epoch毫秒保存，只在界面需要时才转换为LocalDateTime
+
+    public long getCreateTimeMillis() {
+        return createTimeMillis;
+    }
+
+    public void setCreateTimeMillis(long createTimeMillis) {
+        this.createTimeMillis = createTimeMillis;
+    }
+
+    public long getUpdateTimeMillis() {
+        return updateTimeMillis;
+    }
+
+    public void setUpdateTimeMillis(long updateTimeMillis) {
+        this.updateTimeMillis = updateTimeMillis;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return DateUtil.fromEpochMillis(createTimeMillis);
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTimeMillis = DateUtil.toEpochMillis(createTime);
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return DateUtil.fromEpochMillis(updateTimeMillis);
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTimeMillis = DateUtil.toEpochMillis(updateTime);
+    }
+}
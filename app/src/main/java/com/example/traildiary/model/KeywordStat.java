@@ -0,0 +1,28 @@
+package com.example.traildiary.model;
+
+/**
+ * 某个用户对一个关键词的搜索统计
+ */
+public class KeywordStat {
+    private final String keyword;
+    private final int searchCount;          // 搜索次数
+    private final long lastSearchMillis;    // 最近一次搜索时间（epoch毫秒）
+
+    public KeywordStat(String keyword, int searchCount, long lastSearchMillis) {
+        this.keyword = keyword;
+        this.searchCount = searchCount;
+        this.lastSearchMillis = lastSearchMillis;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public int getSearchCount() {
+        return searchCount;
+    }
+
+    public long getLastSearchMillis() {
+        return lastSearchMillis;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.traildiary.model;
 
+import com.example.traildiary.utils.DateUtil;
+
 import java.io.Serializable;
 import org.threeten.bp.LocalDateTime;
 
@@ -12,8 +14,8 @@ public class Notebook implements Serializable {
     private int coverResId;    // 封面资源ID，为0表示未设置
     private int diaryCount;    // 日记篇数
     private int userId;        // 所属用户ID
-    private LocalDateTime createTime;  // 使用java.time替代Date
-    private LocalDateTime updateTime;  // 使用java.time替代Date
+    private long createTimeMillis;  // 创建时间（epoch毫秒，0表示未设置）
+    private long updateTimeMillis;  // 更新时间（epoch毫秒，0表示未设置）
     private int sortOrder;     // 排序顺序，默认0表示未排序
 
     // 无参构造
@@ -32,8 +34,8 @@ public class Notebook implements Serializable {
         this.coverResId = coverResId;
         this.diaryCount = diaryCount;
         this.userId = userId;
-        this.createTime = createTime;
-        this.updateTime = updateTime;
+        this.createTimeMillis = DateUtil.toEpochMillis(createTime);
+        this.updateTimeMillis = DateUtil.toEpochMillis(updateTime);
         this.sortOrder = sortOrder;
     }
 
@@ -64,14 +66,25 @@ public class Notebook implements Serializable {
     public int getUserId() { return userId; }
     public void setUserId(int userId) { this.userId = userId; }
 
-    public LocalDateTime getCreateTime() { return createTime; }
+    public long getCreateTimeMillis() { return createTimeMillis; }
+    public void setCreateTimeMillis(long createTimeMillis) {
+        this.createTimeMillis = createTimeMillis;
+    }
+
+    public long getUpdateTimeMillis() { return updateTimeMillis; }
+    public void setUpdateTimeMillis(long updateTimeMillis) {
+        this.updateTimeMillis = updateTimeMillis;
+    }
+
+    // 只在界面需要时才转换为LocalDateTime
+    public LocalDateTime getCreateTime() { return DateUtil.fromEpochMillis(createTimeMillis); }
     public void setCreateTime(LocalDateTime createTime) {
-        this.createTime = createTime;
+        this.createTimeMillis = DateUtil.toEpochMillis(createTime);
     }
 
-    public LocalDateTime getUpdateTime() { return updateTime; }
+    public LocalDateTime getUpdateTime() { return DateUtil.fromEpochMillis(updateTimeMillis); }
     public void setUpdateTime(LocalDateTime updateTime) {
-        this.updateTime = updateTime;
+        this.updateTimeMillis = DateUtil.toEpochMillis(updateTime);
     }
 
     public int getSortOrder() { return sortOrder; }
@@ -94,8 +107,8 @@ public class Notebook implements Serializable {
                 ", coverResId=" + coverResId +
                 ", diaryCount=" + diaryCount +
                 ", userId=" + userId +
-                ", createTime=" + createTime +
-                ", updateTime=" + updateTime +
+                ", createTimeMillis=" + createTimeMillis +
+                ", updateTimeMillis=" + updateTimeMillis +
                 ", sortOrder=" + sortOrder +
                 '}';
     }
@@ -1,15 +1,16 @@
 package com.example.traildiary.model;
 
-import org.threeten.bp.LocalDateTime;
+import com.example.traildiary.utils.DateUtil;
 
-import java.util.Date;
+import org.threeten.bp.LocalDateTime;
 
 public class SearchHistory {
     private int searchId;
     private int userId;           // 用户ID
     private String keyword;       // 搜索关键词
     private int searchType;       // 搜索类型（1-作者,2-标题,3-类别,0-综合）
-    private LocalDateTime searchTime;      // 搜索时间
+    private long searchTimeMillis;         // 最近搜索时间（epoch毫秒）
+    private int searchCount = 1;  // 搜索次数
     private String searchResult;  // 搜索结果（可存储JSON格式或摘要）
 
     // 搜索类型常量定义 - 与适配器中的映射保持一致
@@ -21,16 +22,16 @@ public class SearchHistory {
     public SearchHistory(int userId, String keyword) {
         this.userId = userId;
         this.keyword = keyword;
-        this.searchTime = LocalDateTime.now();
+        this.searchTimeMillis = System.currentTimeMillis();
     }
 
     // 全参构造方法（包含所有字段）
-    public SearchHistory(int searchId, int userId, String keyword, int searchType, LocalDateTime searchTime, String searchResult) {
+    public SearchHistory(int searchId, int userId, String keyword, int searchType, long searchTimeMillis, String searchResult) {
         this.searchId = searchId;
         this.userId = userId;
         this.keyword = keyword;
         this.searchType = searchType;
-        this.searchTime = searchTime;
+        this.searchTimeMillis = searchTimeMillis;
         this.searchResult = searchResult;
     }
 
@@ -39,7 +40,7 @@ public class SearchHistory {
         this.userId = userId;
         this.keyword = keyword;
         this.searchType = searchType;
-        this.searchTime = LocalDateTime.now();
+        this.searchTimeMillis = System.currentTimeMillis();
     }
 
     // 用于插入新记录的构造方法（包含searchResult）
@@ -48,7 +49,7 @@ public class SearchHistory {
         this.keyword = keyword;
         this.searchType = searchType;
         this.searchResult = searchResult;
-        this.searchTime = LocalDateTime.now();
+        this.searchTimeMillis = System.currentTimeMillis();
     }
 
     // 添加适配器需要的getId()方法
@@ -89,12 +90,29 @@ public class SearchHistory {
         this.searchType = searchType;
     }
 
+    public long getSearchTimeMillis() {
+        return searchTimeMillis;
+    }
+
+    public void setSearchTimeMillis(long searchTimeMillis) {
+        this.searchTimeMillis = searchTimeMillis;
+    }
+
+    // 只在界面需要时才转换为LocalDateTime
     public LocalDateTime getSearchTime() {
-        return searchTime;
+        return DateUtil.fromEpochMillis(searchTimeMillis);
     }
 
     public void setSearchTime(LocalDateTime searchTime) {
-        this.searchTime = searchTime;
+        this.searchTimeMillis = DateUtil.toEpochMillis(searchTime);
+    }
+
+    public int getSearchCount() {
+        return searchCount;
+    }
+
+    public void setSearchCount(int searchCount) {
+        this.searchCount = searchCount;
     }
 
     public String getSearchResult() {
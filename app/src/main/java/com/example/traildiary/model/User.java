@@ -1,5 +1,7 @@
 package com.example.traildiary.model;
 
+import com.example.traildiary.utils.DateUtil;
+
 import org.threeten.bp.LocalDate;
 import org.threeten.bp.LocalDateTime;
 import org.threeten.bp.format.DateTimeFormatter;
@@ -19,12 +21,12 @@ public class User implements Parcelable {  // 添加 Parcelable 接口
     private String signature;
     private String gender;
     private LocalDate birthday;
-    private LocalDateTime createTime;
+    private long createTimeMillis; // 注册时间（epoch毫秒）
 
     // 构造方法
     public User() {
         this.signature = "山川为印，时光为笔。";
-        this.createTime = LocalDateTime.now();
+        this.createTimeMillis = System.currentTimeMillis();
     }
 
     public User(String nickname, String trailNumber, String password, String phone) {
@@ -60,11 +62,8 @@ public class User implements Parcelable {  // 添加 Parcelable 接口
             birthday = LocalDate.parse(birthdayStr);
         }
 
-        // 读取创建时间字符串并转换为 LocalDateTime
-        String createTimeStr = in.readString();
-        if (createTimeStr != null && !createTimeStr.isEmpty()) {
-            createTime = LocalDateTime.parse(createTimeStr);
-        }
+        // 读取创建时间（epoch毫秒）
+        createTimeMillis = in.readLong();
     }
 
     // Parcelable 相关方法
@@ -79,7 +78,7 @@ public class User implements Parcelable {  // 添加 Parcelable 接口
         dest.writeString(signature);
         dest.writeString(gender);
         dest.writeString(birthday != null ? birthday.toString() : "");
-        dest.writeString(createTime != null ? createTime.toString() : "");
+        dest.writeLong(createTimeMillis);
     }
 
     @Override
@@ -182,21 +181,26 @@ public class User implements Parcelable {  // 添加 Parcelable 接口
         }
     }
 
+    public long getCreateTimeMillis() {
+        return createTimeMillis;
+    }
+
+    public void setCreateTimeMillis(long createTimeMillis) {
+        this.createTimeMillis = createTimeMillis;
+    }
+
     public LocalDateTime getCreateTime() {
-        return createTime;
+        return DateUtil.fromEpochMillis(createTimeMillis);
     }
 
     public void setCreateTime(LocalDateTime createTime) {
-        this.createTime = createTime;
+        this.createTimeMillis = DateUtil.toEpochMillis(createTime);
     }
 
     // 兼容旧Date类型的setter
     public void setCreateTime(Date createTime) {
         if (createTime != null) {
-            // 使用 ThreeTenABP 的 DateTimeUtils 进行转换
-            this.createTime = org.threeten.bp.DateTimeUtils.toInstant(createTime)
-                    .atZone(org.threeten.bp.ZoneId.systemDefault())
-                    .toLocalDateTime();
+            this.createTimeMillis = createTime.getTime();
         }
     }
 
@@ -255,8 +259,7 @@ public class User implements Parcelable {  // 添加 Parcelable 接口
                 ", gender='" + gender + '\'' +
                 ", birthday=" + (birthday != null ?
                 birthday.format(DateTimeFormatter.ISO_LOCAL_DATE) : "null") +
-                ", createTime=" + (createTime != null ?
-                createTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "null") +
+                ", createTimeMillis=" + createTimeMillis +
                 '}';
     }
 }
\ No newline at end of file
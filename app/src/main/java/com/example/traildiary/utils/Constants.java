@@ -32,6 +32,33 @@ public class Constants {
     // 数据库相关常量
     public static final String DB_NAME = "trail_diary.db";
     public static final int DB_VERSION = 1;
+    public static final boolean DB_WAL_ENABLED = true;                 // 是否启用WAL（写操作不阻塞读操作）
+    public static final int DB_WAL_AUTO_CHECKPOINT_PAGES = 1000;       // WAL达到多少页后自动checkpoint
+    public static final long DB_WAL_JOURNAL_SIZE_LIMIT = 4 * 1024 * 1024; // checkpoint后WAL文件保留的最大字节数
+    public static final long DB_IDLE_CONNECTION_TIMEOUT_MS = 30_000;   // 空闲读连接回收时间（API 27+）
+    public static final int DB_READER_CONNECTIONS = 3;                 // 只读连接数（仅WAL模式，0表示只用主连接）
+    public static final int DB_MIGRATION_BATCH_SIZE = 500;             // 数据迁移每个事务处理的行数
+
+    // 列表分页
+    public static final int DIARY_PAGE_SIZE = 20;             // 日记列表每页条数
+    public static final int DIARY_PREFETCH_DISTANCE = 6;      // 距列表末尾还剩多少项时预加载下一页
+
+    // 插图缩略图（列表封面按显示尺寸选用，不解码原图）
+    public static final int THUMBNAIL_SMALL_SIZE = 256;       // 小缩略图长边（px）
+    public static final int THUMBNAIL_LARGE_SIZE = 768;       // 大缩略图长边（px）
+    public static final int THUMBNAIL_QUALITY = 85;           // 缩略图JPEG质量
+    public static final String THUMBNAIL_DIR = "thumbnails";  // 原图目录不可写时，缩略图放在应用私有目录下的该目录
+    public static final int THUMBNAIL_BACKFILL_BATCH_SIZE = 20; // 补生成缩略图时每次查询的日记数
+
+    // 图片库（插图按内容哈希存储，重复导入不占空间）
+    public static final String IMAGE_STORE_DIR = "store";     // 应用图片目录下的图片库目录
+    public static final int IMAGE_COPY_BUFFER_SIZE = 64 * 1024; // 计算哈希和复制图片时的缓冲区大小（无法直接传输时）
+    public static final long IMAGE_IMPORT_KEEP_ALIVE_MS = 30_000; // 并行导入线程空闲多久后回收
+    public static final long IMAGE_STORE_GC_GRACE_MS = 24L * 60 * 60 * 1000; // 无引用的图片导入后保留多久才清理（编辑中尚未保存的日记）
+
+    // 按目标大小压缩JPEG（二分查找质量）
+    public static final int JPEG_MIN_QUALITY = 10;            // 最低质量（仍超出目标大小时按最低质量输出）
+    public static final int JPEG_QUALITY_STEP = 5;            // 质量的查找精度
 
     // 日期时间格式
     public static final String DATE_FORMAT = "yyyy-MM-dd";
@@ -57,4 +84,16 @@ public class Constants {
     public static final int SEARCH_BY_AUTHOR = 1;             // 按作者搜索
     public static final int SEARCH_BY_TITLE = 2;              // 按标题搜索
     public static final int SEARCH_BY_CATEGORY = 3;           // 按类别搜索
+    public static final long SEARCH_DEBOUNCE_MS = 300;        // 输入停顿多久后开始搜索
+    public static final int SEARCH_SUGGESTION_LIMIT = 8;      // 自动补全最多显示的建议数
+    public static final int SEARCH_POPULAR_KEYWORD_LIMIT = 100; // 参与自动补全的全站热搜关键词数
+    public static final long SEARCH_CACHE_MAX_BYTES = 2 * 1024 * 1024; // 搜索结果缓存的内存上限
+    public static final int SEARCH_SNIPPET_LENGTH = 60;       // 搜索结果摘要的字数
+    public static final int FUZZY_SEARCH_MIN_LENGTH = 3;      // 关键词至少几个字才在无结果时做容错搜索
+    public static final int FUZZY_SEARCH_LONG_LENGTH = 6;     // 达到该长度的关键词允许两处错字，更短的只允许一处
+    public static final int FUZZY_SEARCH_MAX_RESULTS = 100;   // 容错搜索最多返回的条数
+    public static final int FUZZY_INDEX_MAX_USERS = 4;        // 内存中保留标题容错索引的用户数
+    // 热搜关键词：一次搜索的贡献每过一个半衰期减半（分数以半衰期为单位保存，修改后须在数据库升级中重建热搜表）
+    public static final long TRENDING_HALF_LIFE_MS = 7L * 24 * 60 * 60 * 1000;
+    public static final int TRENDING_PRUNE_HALF_LIVES = 20;   // 分数衰减到不足一次搜索的 2^-20 时删除该关键词
 }
\ No newline at end of file
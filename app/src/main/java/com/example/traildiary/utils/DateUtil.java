@@ -4,6 +4,7 @@ import android.os.Build;
 
 import java.text.SimpleDateFormat;
 import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
 import org.threeten.bp.LocalDateTime;
 import org.threeten.bp.ZoneId;
 import org.threeten.bp.format.DateTimeFormatter;
@@ -111,6 +112,30 @@ public class DateUtil {
         return LocalDateTime.now();
     }
 
+    /**
+     * LocalDateTime 转换为 epoch 毫秒（数据库时间列的存储格式）
+     * @param localDateTime LocalDateTime 对象
+     * @return epoch 毫秒，为null时返回0
+     */
+    public static long toEpochMillis(LocalDateTime localDateTime) {
+        if (localDateTime == null) {
+            return 0;
+        }
+        return localDateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * epoch 毫秒转换为 LocalDateTime
+     * @param epochMillis epoch 毫秒
+     * @return LocalDateTime 对象，0 表示未设置，返回null
+     */
+    public static LocalDateTime fromEpochMillis(long epochMillis) {
+        if (epochMillis == 0) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
     /**
      * 根据生日计算年龄
      * @param birthday 生日日期
@@ -0,0 +1,122 @@
+package com.example.traildiary.utils;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 边输入边搜索
+ * 1. 关键词停止变化 debounceMs 后才发起查询；
+ * 2. 查询在单线程后台执行，同一时刻最多一个查询在运行；
+ * 3. 关键词再次变化时取消排队中和正在执行的查询（通过CancellationSignal中断SQLite），
+ *    过期关键词的结果一律丢弃，只有最新关键词的结果会回调。
+ * 除 Query.run 外，所有方法和回调都在构造时传入的Looper线程（通常是主线程）上执行。
+ */
+public class DebouncedSearcher<T> {
+
+    private static final String TAG = "DebouncedSearcher";
+
+    // 后台执行的查询；应在合适的位置检查cancellationSignal，被取消时抛出OperationCanceledException
+    public interface Query<T> {
+        T run(String keyword, CancellationSignal cancellationSignal);
+    }
+
+    // 查询结果回调（Looper线程）
+    public interface OnResultListener<T> {
+        void onResult(String keyword, T result);
+    }
+
+    private final Handler handler;
+    private final long debounceMs;
+    private final Query<T> query;
+    private final OnResultListener<T> listener;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private int generation;                       // 每次关键词变化加一，用于识别过期结果
+    private Runnable pendingSearch;               // 防抖等待中的查询
+    private CancellationSignal runningSignal;     // 已提交到后台的查询
+
+    public DebouncedSearcher(Looper looper, long debounceMs, Query<T> query, OnResultListener<T> listener) {
+        this.handler = new Handler(looper);
+        this.debounceMs = debounceMs;
+        this.query = query;
+        this.listener = listener;
+    }
+
+    // 关键词变化（输入中），防抖后执行
+    public void submit(String keyword) {
+        schedule(keyword, debounceMs);
+    }
+
+    // 立即执行（点击搜索按钮、历史记录等）
+    public void submitNow(String keyword) {
+        schedule(keyword, 0);
+    }
+
+    // 取消等待中和执行中的查询，之前的结果都不再回调
+    public void cancel() {
+        generation++;
+        if (pendingSearch != null) {
+            handler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        if (runningSignal != null) {
+            runningSignal.cancel();
+            runningSignal = null;
+        }
+    }
+
+    // 释放后台线程（对话框关闭时调用）
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void schedule(String keyword, long delayMs) {
+        cancel();
+        int searchGeneration = generation;
+        pendingSearch = () -> {
+            pendingSearch = null;
+            execute(keyword, searchGeneration);
+        };
+        if (delayMs > 0) {
+            handler.postDelayed(pendingSearch, delayMs);
+        } else {
+            pendingSearch.run();
+        }
+    }
+
+    private void execute(String keyword, int searchGeneration) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        CancellationSignal signal = new CancellationSignal();
+        runningSignal = signal;
+        executor.execute(() -> {
+            if (signal.isCanceled()) {
+                return; // 排队期间已被新的关键词取代
+            }
+            T result;
+            try {
+                result = query.run(keyword, signal);
+            } catch (OperationCanceledException e) {
+                return;
+            } catch (RuntimeException e) {
+                Log.e(TAG, "搜索失败: " + keyword, e);
+                return;
+            }
+            handler.post(() -> {
+                if (searchGeneration != generation || signal.isCanceled()) {
+                    return;
+                }
+                runningSignal = null;
+                listener.onResult(keyword, result);
+            });
+        });
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.traildiary.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编辑距离索引（容错搜索：查找与查询词只差几个字的词）
+ * 编辑距离为Levenshtein距离（插入、删除、替换各计1），按字符（UTF-16）比较，调用方负责大小写等规范化。
+ * 查询分两步：
+ * 1. 过滤：每次编辑最多让查询词中的一种字符消失，因此距离不超过k的词至少包含查询词中 (不同字符数 - k) 种字符，
+ *    长度相差也不超过k。按"字符 -> 包含该字符的词"的倒排表累加每个词命中的字符种数，得到候选词；
+ * 2. 核对：只对候选词计算编辑距离（超过k即提前结束）。
+ * 中文标题用字分散，倒排表很短，5万个词时查询只需访问很少的词；不使用BK树，是因为不相关的短标题之间的距离
+ * 都接近标题长度，三角不等式几乎剪不掉子树，查询仍要和大部分词计算距离。
+ * 删除只标记词槽，倒排表中的旧记录在已删除的词槽多于有效词时统一清理。
+ */
+public class EditDistanceIndex {
+
+    private static final int[] NO_IDS = new int[0];
+
+    // 词槽：词、使用该词的ID（大多数词只对应一个ID）
+    private String[] terms = new String[16];
+    private int[][] termIds = new int[16][];
+    private int[] idCounts = new int[16];
+    private int slotCount;
+    private int liveCount;
+    private final Map<String, Integer> slotByTerm = new HashMap<>();
+    // 字符 -> 包含该字符的词槽（同一个词中重复的字符只记一次）
+    private final Map<Character, IntList> postings = new HashMap<>();
+
+    // 查询时复用：每个词槽命中的字符种数、被命中过的词槽、计算距离的两行
+    private int[] hitCounts = new int[16];
+    private final IntList touched = new IntList();
+    private int[] previousRow = new int[16];
+    private int[] currentRow = new int[16];
+
+    public synchronized void add(String term, int id) {
+        if (term == null || term.isEmpty()) {
+            return;
+        }
+        Integer slot = slotByTerm.get(term);
+        if (slot == null) {
+            slot = newSlot(term);
+        }
+        int count = idCounts[slot];
+        int[] ids = termIds[slot];
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return;
+            }
+        }
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(1, count * 2));
+            termIds[slot] = ids;
+        }
+        ids[count] = id;
+        idCounts[slot] = count + 1;
+    }
+
+    public synchronized void remove(String term, int id) {
+        Integer slot = term == null ? null : slotByTerm.get(term);
+        if (slot == null) {
+            return;
+        }
+        int count = idCounts[slot];
+        int[] ids = termIds[slot];
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                ids[i] = ids[--count];
+                idCounts[slot] = count;
+                break;
+            }
+        }
+        if (count == 0) {
+            slotByTerm.remove(term);
+            terms[slot] = null;
+            termIds[slot] = NO_IDS;
+            liveCount--;
+            if (slotCount - liveCount > Math.max(liveCount, 64)) {
+                compact();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        terms = new String[16];
+        termIds = new int[16][];
+        idCounts = new int[16];
+        hitCounts = new int[16];
+        slotCount = 0;
+        liveCount = 0;
+        slotByTerm.clear();
+        postings.clear();
+    }
+
+    // 词数
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    /**
+     * 查找与query编辑距离不超过maxDistance的词
+     * @param maxDistance 须小于查询词的不同字符数，否则过滤条件不成立，返回空列表
+     * @return 按编辑距离从小到大排序，距离相同时按词排序
+     */
+    public synchronized List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (query == null || maxDistance < 0) {
+            return matches;
+        }
+        char[] distinct = distinctChars(query);
+        int required = distinct.length - maxDistance;
+        if (required < 1) {
+            return matches;
+        }
+
+        touched.clear();
+        for (char c : distinct) {
+            IntList slots = postings.get(c);
+            if (slots == null) {
+                continue;
+            }
+            for (int i = 0; i < slots.size; i++) {
+                int slot = slots.values[i];
+                if (hitCounts[slot]++ == 0) {
+                    touched.add(slot);
+                }
+            }
+        }
+        for (int i = 0; i < touched.size; i++) {
+            int slot = touched.values[i];
+            String term = terms[slot];
+            if (hitCounts[slot] >= required && term != null
+                    && Math.abs(term.length() - query.length()) <= maxDistance) {
+                int distance = boundedDistance(query, term, maxDistance);
+                if (distance <= maxDistance) {
+                    matches.add(new Match(term, distance, Arrays.copyOf(termIds[slot], idCounts[slot])));
+                }
+            }
+            hitCounts[slot] = 0;
+        }
+        matches.sort((a, b) -> a.distance != b.distance
+                ? Integer.compare(a.distance, b.distance) : a.term.compareTo(b.term));
+        return matches;
+    }
+
+    // 编辑距离
+    public static int distance(String a, String b) {
+        return new EditDistanceIndex().boundedDistance(a, b, Math.max(a.length(), b.length()));
+    }
+
+    private int newSlot(String term) {
+        if (slotCount == terms.length) {
+            int capacity = slotCount * 2;
+            terms = Arrays.copyOf(terms, capacity);
+            termIds = Arrays.copyOf(termIds, capacity);
+            idCounts = Arrays.copyOf(idCounts, capacity);
+            hitCounts = Arrays.copyOf(hitCounts, capacity);
+        }
+        int slot = slotCount++;
+        terms[slot] = term;
+        termIds[slot] = NO_IDS;
+        idCounts[slot] = 0;
+        slotByTerm.put(term, slot);
+        liveCount++;
+        for (char c : distinctChars(term)) {
+            IntList slots = postings.get(c);
+            if (slots == null) {
+                slots = new IntList();
+                postings.put(c, slots);
+            }
+            slots.add(slot);
+        }
+        return slot;
+    }
+
+    // 去掉已删除的词槽，重新编号并重建倒排表
+    private void compact() {
+        String[] oldTerms = terms;
+        int[][] oldIds = termIds;
+        int[] oldCounts = idCounts;
+        int oldSlotCount = slotCount;
+        clear();
+        for (int slot = 0; slot < oldSlotCount; slot++) {
+            if (oldTerms[slot] != null) {
+                int newSlot = newSlot(oldTerms[slot]);
+                termIds[newSlot] = oldIds[slot];
+                idCounts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+
+    /**
+     * 两行动态规划计算编辑距离，行长取较短的字符串
+     * @return 某一行的最小值已超过bound时提前返回 bound + 1
+     */
+    private int boundedDistance(String a, String b, int bound) {
+        if (a.equals(b)) {
+            return 0;
+        }
+        if (a.length() < b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        int n = b.length();
+        if (n == 0) {
+            return a.length();
+        }
+        if (previousRow.length <= n) {
+            previousRow = new int[n + 1];
+            currentRow = new int[n + 1];
+        }
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            char c = a.charAt(i - 1);
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= n; j++) {
+                int cost = c == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[n];
+    }
+
+    private static char[] distinctChars(String text) {
+        char[] chars = text.toCharArray();
+        Arrays.sort(chars);
+        int count = 0;
+        for (int i = 0; i < chars.length; i++) {
+            if (i == 0 || chars[i] != chars[i - 1]) {
+                chars[count++] = chars[i];
+            }
+        }
+        return Arrays.copyOf(chars, count);
+    }
+
+    // 查询结果：词、与查询的编辑距离、使用该词的ID
+    public static final class Match {
+        private final String term;
+        private final int distance;
+        private final int[] ids;
+
+        Match(String term, int distance, int[] ids) {
+            this.term = term;
+            this.distance = distance;
+            this.ids = ids;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        public int[] getIds() {
+            return ids;
+        }
+    }
+
+    // 不装箱的int列表
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import android.Manifest;
 import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
 import android.app.Activity;
+import android.content.ClipData;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
@@ -16,10 +17,12 @@ import android.media.ExifInterface;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
+import android.os.ParcelFileDescriptor;
 import android.provider.DocumentsContract;
 import android.provider.MediaStore;
 import android.provider.OpenableColumns;
 import android.text.TextUtils;
+import android.util.Log;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -27,20 +30,35 @@ import androidx.core.content.FileProvider;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 public class ImageUtil {
 
+    private static final String TAG = "ImageUtil";
+
     private static final int MAX_IMAGE_WIDTH = 1080;
     private static final int MAX_IMAGE_HEIGHT = 1920;
     private static final int COMPRESS_QUALITY = 80;
 
+    // 每个线程复用一个编码器，缓冲区不必每次压缩重新分配
+    private static final ThreadLocal<JpegSizeEncoder> JPEG_ENCODER = new ThreadLocal<JpegSizeEncoder>() {
+        @Override
+        protected JpegSizeEncoder initialValue() {
+            return new JpegSizeEncoder();
+        }
+    };
+
     /**
      * 从相册选择图片
      */
@@ -50,6 +68,39 @@ public class ImageUtil {
         activity.startActivityForResult(intent, requestCode);
     }
 
+    /**
+     * 从相册选择多张图片（结果用 getPickedImageUris 取出）
+     */
+    public static void pickImagesFromGallery(Activity activity, int requestCode) {
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.setType("image/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+        activity.startActivityForResult(intent, requestCode);
+    }
+
+    /**
+     * 取出相册返回的图片Uri（多选时在ClipData中，单选时在data中）
+     */
+    public static List<Uri> getPickedImageUris(Intent data) {
+        List<Uri> uris = new ArrayList<>();
+        if (data == null) {
+            return uris;
+        }
+        ClipData clipData = data.getClipData();
+        if (clipData != null) {
+            for (int i = 0; i < clipData.getItemCount(); i++) {
+                Uri uri = clipData.getItemAt(i).getUri();
+                if (uri != null) {
+                    uris.add(uri);
+                }
+            }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        return uris;
+    }
+
     /**
      * 拍照
      */
@@ -190,53 +241,20 @@ public class ImageUtil {
      * 复制Uri到应用专属目录
      */
     private static File copyUriToAppDir(Context context, Uri uri) {
-        InputStream inputStream = null;
-        OutputStream outputStream = null;
-
-        try {
-            inputStream = context.getContentResolver().openInputStream(uri);
-            if (inputStream == null) {
-                return null;
-            }
-
-            // 创建应用专属目录的文件
-            File storageDir = context.getExternalFilesDir(Environment.DIRECTORY_PICTURES);
-            if (storageDir == null) {
-                storageDir = new File(context.getFilesDir(), "Pictures");
-            }
-
-            if (!storageDir.exists()) {
-                storageDir.mkdirs();
-            }
-
-            String fileName = "IMG_" + System.currentTimeMillis() + ".jpg";
-            File outputFile = new File(storageDir, fileName);
-
-            outputStream = new FileOutputStream(outputFile);
+        // 创建应用专属目录的文件
+        File storageDir = context.getExternalFilesDir(Environment.DIRECTORY_PICTURES);
+        if (storageDir == null) {
+            storageDir = new File(context.getFilesDir(), "Pictures");
+        }
 
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
-            }
+        if (!storageDir.exists()) {
+            storageDir.mkdirs();
+        }
 
-            return outputFile;
+        String fileName = "IMG_" + System.currentTimeMillis() + ".jpg";
+        File outputFile = new File(storageDir, fileName);
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        } finally {
-            try {
-                if (inputStream != null) {
-                    inputStream.close();
-                }
-                if (outputStream != null) {
-                    outputStream.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
+        return copyUriToFile(context, uri, outputFile) ? outputFile : null;
     }
 
     /**
@@ -280,6 +298,7 @@ public class ImageUtil {
 
     /**
      * 压缩图片到指定大小
+     * 二分查找不超过maxSizeKB的最高质量（最高为 COMPRESS_QUALITY），编码结果直接写入文件
      */
     public static File compressImage(Context context, String imagePath, int maxSizeKB) {
         if (TextUtils.isEmpty(imagePath)) {
@@ -313,31 +332,22 @@ public class ImageUtil {
                 bitmap = rotateBitmap(bitmap, degree);
             }
 
-            // 压缩图片
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.JPEG, COMPRESS_QUALITY, baos);
-
-            // 如果图片仍然太大，进一步压缩
-            int optionsQuality = COMPRESS_QUALITY;
-            while (baos.toByteArray().length / 1024 > maxSizeKB && optionsQuality > 10) {
-                baos.reset();
-                optionsQuality -= 10;
-                bitmap.compress(Bitmap.CompressFormat.JPEG, optionsQuality, baos);
+            // 压缩图片：按目标大小查找质量
+            int maxBytes = maxSizeKB * 1024;
+            JpegSizeEncoder encoder = JPEG_ENCODER.get();
+            try {
+                encoder.encode(bitmap, maxBytes, COMPRESS_QUALITY);
+            } finally {
+                // 回收Bitmap
+                bitmap.recycle();
             }
 
             // 保存压缩后的图片
             File compressedFile = createImageFile(context);
             if (compressedFile != null) {
-                FileOutputStream fos = new FileOutputStream(compressedFile);
-                fos.write(baos.toByteArray());
-                fos.flush();
-                fos.close();
-
-                // 回收Bitmap
-                if (!bitmap.isRecycled()) {
-                    bitmap.recycle();
+                try (FileOutputStream fos = new FileOutputStream(compressedFile)) {
+                    encoder.writeTo(fos);
                 }
-
                 return compressedFile;
             }
 
@@ -372,7 +382,7 @@ public class ImageUtil {
     /**
      * 获取图片旋转角度
      */
-    private static int getImageDegree(String path) {
+    static int getImageDegree(String path) {
         int degree = 0;
         try {
             ExifInterface exifInterface = new ExifInterface(path);
@@ -492,50 +502,83 @@ public class ImageUtil {
      * 复制文件到应用目录
      */
     public static File copyFileToAppDir(Context context, Uri sourceUri, String fileName) {
-        InputStream inputStream = null;
-        OutputStream outputStream = null;
+        File storageDir;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            storageDir = context.getExternalFilesDir(Environment.DIRECTORY_PICTURES);
+        } else {
+            storageDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_PICTURES), "TrailDiary");
+            if (!storageDir.exists()) {
+                storageDir.mkdirs();
+            }
+        }
+
+        File outputFile = new File(storageDir, fileName);
+        return copyUriToFile(context, sourceUri, outputFile) ? outputFile : null;
+    }
 
+    /**
+     * 复制Uri的内容到文件
+     * 能取得普通文件的描述符时用 FileChannel.transferFrom 在内核中直接传输，
+     * 否则（管道、网络文件等）按 IMAGE_COPY_BUFFER_SIZE 的缓冲区复制
+     * @return 是否复制成功（失败时删除不完整的文件）
+     */
+    public static boolean copyUriToFile(Context context, Uri uri, File target) {
         try {
-            inputStream = context.getContentResolver().openInputStream(sourceUri);
-            if (inputStream == null) {
-                return null;
+            if (transferFromDescriptor(context, uri, target) || copyStream(context, uri, target)) {
+                return true;
             }
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "复制图片失败: " + uri, e);
+        }
+        target.delete();
+        return false;
+    }
 
-            File storageDir;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                storageDir = context.getExternalFilesDir(Environment.DIRECTORY_PICTURES);
-            } else {
-                storageDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_PICTURES), "TrailDiary");
-                if (!storageDir.exists()) {
-                    storageDir.mkdirs();
+    // 通过文件描述符直接传输；取不到普通文件的描述符或复制期间文件变短时返回false
+    private static boolean transferFromDescriptor(Context context, Uri uri, File target) throws IOException {
+        ParcelFileDescriptor descriptor;
+        try {
+            descriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+        if (descriptor == null) {
+            return false;
+        }
+        long size = descriptor.getStatSize();
+        try (FileInputStream input = new ParcelFileDescriptor.AutoCloseInputStream(descriptor);
+             FileOutputStream output = new FileOutputStream(target)) {
+            if (size < 0) {
+                return false;
+            }
+            FileChannel in = input.getChannel();
+            FileChannel out = output.getChannel();
+            long position = 0;
+            while (position < size) {
+                long transferred = out.transferFrom(in, position, size - position);
+                if (transferred <= 0) {
+                    break;
                 }
+                position += transferred;
             }
+            return position == size;
+        }
+    }
 
-            File outputFile = new File(storageDir, fileName);
-            outputStream = new FileOutputStream(outputFile);
-
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
+    // 按流复制（无法直接传输时）
+    private static boolean copyStream(Context context, Uri uri, File target) throws IOException {
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            if (in == null) {
+                return false;
             }
-
-            return outputFile;
-
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        } finally {
-            try {
-                if (inputStream != null) {
-                    inputStream.close();
+            try (OutputStream out = new FileOutputStream(target)) {
+                byte[] buffer = new byte[Constants.IMAGE_COPY_BUFFER_SIZE];
+                int length;
+                while ((length = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, length);
                 }
-                if (outputStream != null) {
-                    outputStream.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
             }
+            return true;
         }
     }
 
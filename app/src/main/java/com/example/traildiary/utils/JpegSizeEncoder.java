@@ -0,0 +1,166 @@
+package com.example.traildiary.utils;
+
+import android.graphics.Bitmap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 按目标大小编码JPEG
+ * 先按最高质量编码，超出目标大小时在 [JPEG_MIN_QUALITY, 最高质量) 内按 JPEG_QUALITY_STEP 二分查找
+ * 不超过目标大小的最高质量。编码结果写入两个可增长的缓冲区（当前最优结果和本次尝试），
+ * 尝试满足目标时两者交换，最优结果不必重新编码，也不会被复制；最后直接从缓冲区写入输出流。
+ * 超出目标大小的尝试只计字节数、不保存内容，缓冲区不会为注定放弃的结果扩容。
+ * 缓冲区在第一次写入时才分配、按需增长（不超过目标大小），并在多次编码之间复用，
+ * 同一实例不可在多个线程中同时使用（ImageUtil 每个线程保留一个实例）。
+ */
+public final class JpegSizeEncoder {
+
+    private EncodeBuffer best = new EncodeBuffer();
+    private EncodeBuffer attempt = new EncodeBuffer();
+    private int quality;
+
+    // 本次编码的统计
+    private int encodePasses;
+    private long allocatedBytes;
+
+    /**
+     * 编码为不超过maxBytes的最高质量JPEG（最低质量仍超出时按最低质量编码）
+     * @return 使用的质量
+     */
+    public int encode(Bitmap bitmap, int maxBytes, int maxQuality) {
+        encodePasses = 0;
+        allocatedBytes = 0;
+        best.allocatedBytes = 0;
+        attempt.allocatedBytes = 0;
+
+        // 先试最高质量，多数图片一次就满足
+        if (encodeInto(best, bitmap, maxQuality, maxBytes) <= maxBytes) {
+            quality = maxQuality;
+            return finish();
+        }
+        // 在质量网格 JPEG_MIN_QUALITY + i * JPEG_QUALITY_STEP 上二分查找
+        int low = 0;
+        int high = (maxQuality - 1 - Constants.JPEG_MIN_QUALITY) / Constants.JPEG_QUALITY_STEP;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int tried = Constants.JPEG_MIN_QUALITY + mid * Constants.JPEG_QUALITY_STEP;
+            if (encodeInto(attempt, bitmap, tried, maxBytes) <= maxBytes) {
+                swap();
+                found = tried;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            // 最低质量也超出目标大小：按最低质量完整编码输出（多一次编码，只在目标过小时发生）
+            encodeInto(best, bitmap, Constants.JPEG_MIN_QUALITY, Integer.MAX_VALUE);
+            found = Constants.JPEG_MIN_QUALITY;
+        }
+        quality = found;
+        return finish();
+    }
+
+    // 编码结果的字节数
+    public int size() {
+        return best.size();
+    }
+
+    // 本次编码使用的质量
+    public int getQuality() {
+        return quality;
+    }
+
+    // 把编码结果直接写入输出流（不复制）
+    public void writeTo(OutputStream out) throws IOException {
+        best.writeTo(out);
+    }
+
+    // 本次编码调用Bitmap.compress的次数
+    public int getEncodePasses() {
+        return encodePasses;
+    }
+
+    // 本次编码中缓冲区分配的字节数
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    // 编码到缓冲区，返回编码后的字节数；超过limit时内容被丢弃
+    private int encodeInto(EncodeBuffer buffer, Bitmap bitmap, int quality, int limit) {
+        buffer.reset(limit);
+        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, buffer);
+        encodePasses++;
+        return buffer.size();
+    }
+
+    private void swap() {
+        EncodeBuffer temp = best;
+        best = attempt;
+        attempt = temp;
+    }
+
+    private int finish() {
+        allocatedBytes += best.allocatedBytes + attempt.allocatedBytes;
+        return quality;
+    }
+
+    /**
+     * 可复用的编码缓冲区：reset() 保留已分配的数组，writeTo() 直接写出内部数组；
+     * 写入超过limit后只计字节数，不再保存内容
+     */
+    private static final class EncodeBuffer extends OutputStream {
+        private static final int MIN_CAPACITY = 1024;
+
+        private byte[] buf = new byte[0];
+        private int count;
+        private int limit;
+        private long allocatedBytes; // 本次编码中扩容分配的字节数
+
+        @Override
+        public void write(int b) {
+            if (count + 1 > limit) {
+                count++;
+                return;
+            }
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (count + len > limit) {
+                count += len;
+                return;
+            }
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        // 按两倍扩容，减少编码过程中的重新分配；不超过limit（写入超过limit的内容不会保存）
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > buf.length) {
+                int capacity = Math.min(Math.max(Math.max(buf.length * 2, minCapacity), MIN_CAPACITY), limit);
+                buf = Arrays.copyOf(buf, capacity);
+                allocatedBytes += capacity;
+            }
+        }
+
+        void reset(int limit) {
+            count = 0;
+            this.limit = limit;
+        }
+
+        int size() {
+            return count;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.traildiary.utils;
+
+import com.example.traildiary.model.KeywordStat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 搜索关键词前缀树（自动补全）
+ * 每个节点的子节点保存在按字符排序的数组中（不使用HashMap，节省内存），
+ * 并缓存以该节点为前缀的排名前topK个关键词，查询建议只需沿前缀走到对应节点，耗时与关键词总数无关。
+ * 增删关键词时只重算路径上节点的缓存。
+ * 排名：本人搜索过的优先，按搜索次数、最近搜索时间排序，其次按全站热度。
+ * 英文不区分大小写，首尾空白忽略，连续空白视为一个。
+ */
+public class KeywordTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    // 排名从高到低
+    private static final Comparator<Entry> RANKING = (a, b) -> {
+        if (a.searchCount != b.searchCount) {
+            return Integer.compare(b.searchCount, a.searchCount);
+        }
+        if (a.lastSearchMillis != b.lastSearchMillis) {
+            return Long.compare(b.lastSearchMillis, a.lastSearchMillis);
+        }
+        if (a.popularity != b.popularity) {
+            return Integer.compare(b.popularity, a.popularity);
+        }
+        return a.keyword.compareTo(b.keyword);
+    };
+
+    private final int topK;
+    private Node root = new Node();
+
+    public KeywordTrie(int topK) {
+        this.topK = topK;
+    }
+
+    /**
+     * 清空后批量载入（逐个插入会反复重算根节点附近的缓存，这里最后统一计算一次）
+     * @param userStats       本人各关键词的搜索统计
+     * @param popularKeywords 全站热门关键词，按热度从高到低
+     */
+    public synchronized void load(List<KeywordStat> userStats, List<String> popularKeywords) {
+        root = new Node();
+        for (KeywordStat stat : userStats) {
+            Entry entry = entryFor(stat.getKeyword());
+            if (entry != null) {
+                entry.searchCount += stat.getSearchCount();
+                entry.lastSearchMillis = Math.max(entry.lastSearchMillis, stat.getLastSearchMillis());
+            }
+        }
+        for (int i = 0; i < popularKeywords.size(); i++) {
+            Entry entry = entryFor(popularKeywords.get(i));
+            if (entry != null) {
+                entry.popularity = Math.max(entry.popularity, popularKeywords.size() - i);
+            }
+        }
+        rankSubtree(root);
+    }
+
+    // 记录一次搜索
+    public synchronized void addSearch(String keyword, long searchMillis) {
+        List<Node> path = new ArrayList<>();
+        Entry entry = entryFor(keyword, path);
+        if (entry == null) {
+            return;
+        }
+        entry.searchCount++;
+        entry.lastSearchMillis = Math.max(entry.lastSearchMillis, searchMillis);
+        rankPath(path);
+    }
+
+    // 删除一次搜索记录；次数减为0且不是热门词时从树中移除
+    public synchronized void removeSearch(String keyword) {
+        removeSearch(keyword, 1);
+    }
+
+    // 删除一条累计了count次搜索的记录
+    public synchronized void removeSearch(String keyword, int count) {
+        String key = normalize(keyword);
+        if (key.isEmpty()) {
+            return;
+        }
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+            path.add(node);
+        }
+        if (node == null || node.entry == null) {
+            return;
+        }
+        Entry entry = node.entry;
+        entry.searchCount = Math.max(0, entry.searchCount - count);
+        if (entry.searchCount == 0) {
+            entry.lastSearchMillis = 0;
+            if (entry.popularity == 0) {
+                node.entry = null;
+                prune(path, key);
+            }
+        }
+        rankPath(path);
+    }
+
+    // 以prefix开头的关键词建议，按排名从高到低，最多limit（不超过topK）个
+    public synchronized List<String> suggest(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return result;
+        }
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return result;
+        }
+        for (int i = 0; i < node.top.length && i < limit; i++) {
+            result.add(node.top[i].keyword);
+        }
+        return result;
+    }
+
+    static String normalize(String keyword) {
+        if (keyword == null) {
+            return "";
+        }
+        return keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private Entry entryFor(String keyword) {
+        return entryFor(keyword, null);
+    }
+
+    // 找到（必要时创建）关键词对应的节点，path不为空时记录从根开始的路径
+    private Entry entryFor(String keyword, List<Node> path) {
+        String key = normalize(keyword);
+        if (key.isEmpty()) {
+            return null;
+        }
+        Node node = root;
+        if (path != null) {
+            path.add(node);
+        }
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrCreateChild(key.charAt(i));
+            if (path != null) {
+                path.add(node);
+            }
+        }
+        if (node.entry == null) {
+            node.entry = new Entry(keyword.trim().replaceAll("\\s+", " "));
+        }
+        return node.entry;
+    }
+
+    // 自下而上删除既无关键词也无子节点的节点
+    private static void prune(List<Node> path, String key) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            if (node.entry != null || node.keys.length > 0) {
+                return;
+            }
+            path.get(i - 1).removeChild(key.charAt(i - 1));
+        }
+    }
+
+    // 自下而上重算路径上各节点的排名缓存
+    private void rankPath(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            rank(path.get(i));
+        }
+    }
+
+    private void rankSubtree(Node node) {
+        for (Node child : node.children) {
+            rankSubtree(child);
+        }
+        rank(node);
+    }
+
+    // 节点的前topK = 自身关键词与各子节点前topK合并后的前topK
+    private void rank(Node node) {
+        Entry[] best = new Entry[topK];
+        int size = 0;
+        if (node.entry != null) {
+            best[size++] = node.entry;
+        }
+        for (Node child : node.children) {
+            for (Entry entry : child.top) {
+                if (size == topK && RANKING.compare(entry, best[size - 1]) >= 0) {
+                    break; // 子节点缓存已排序，后面的更靠后
+                }
+                size = offer(best, size, entry);
+            }
+        }
+        node.top = size == 0 ? NO_ENTRIES : Arrays.copyOf(best, size);
+    }
+
+    // 按排名插入有序数组（超出topK的丢弃），返回新的元素个数
+    private int offer(Entry[] best, int size, Entry entry) {
+        int position = size;
+        while (position > 0 && RANKING.compare(entry, best[position - 1]) < 0) {
+            position--;
+        }
+        if (position >= topK) {
+            return size;
+        }
+        int newSize = Math.min(size + 1, topK);
+        System.arraycopy(best, position, best, position + 1, newSize - position - 1);
+        best[position] = entry;
+        return newSize;
+    }
+
+    // 关键词及其统计（keyword保留用户输入的原始大小写）
+    private static final class Entry {
+        final String keyword;
+        int searchCount;
+        long lastSearchMillis;
+        int popularity;
+
+        Entry(String keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    private static final class Node {
+        char[] keys = NO_KEYS;          // 子节点字符，升序
+        Node[] children = NO_CHILDREN;  // 与keys一一对应
+        Entry entry;                    // 以该节点结尾的关键词
+        Entry[] top = NO_ENTRIES;       // 子树中排名前topK的关键词
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node getOrCreateChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = new Node();
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+
+        void removeChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys.length == 0 ? NO_KEYS : newKeys;
+            children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+        }
+    }
+}
@@ -15,9 +15,6 @@ import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
 
 public class MediaAccessUtil {
 
@@ -54,56 +51,23 @@ public class MediaAccessUtil {
      * 将文件复制到应用专属目录
      */
     private static File copyToAppDir(Context context, Uri uri, String subDir) {
-        InputStream inputStream = null;
-        OutputStream outputStream = null;
-
-        try {
-            inputStream = context.getContentResolver().openInputStream(uri);
-            if (inputStream == null) {
-                return null;
-            }
-
-            // 创建应用专属目录
-            File storageDir;
-            if (subDir != null) {
-                storageDir = new File(context.getExternalFilesDir(null), subDir);
-            } else {
-                storageDir = context.getExternalFilesDir(null);
-            }
-
-            if (!storageDir.exists()) {
-                storageDir.mkdirs();
-            }
-
-            // 生成文件名
-            String fileName = "image_" + System.currentTimeMillis() + ".jpg";
-            File outputFile = new File(storageDir, fileName);
-
-            outputStream = new FileOutputStream(outputFile);
+        // 创建应用专属目录
+        File storageDir;
+        if (subDir != null) {
+            storageDir = new File(context.getExternalFilesDir(null), subDir);
+        } else {
+            storageDir = context.getExternalFilesDir(null);
+        }
 
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
-            }
+        if (!storageDir.exists()) {
+            storageDir.mkdirs();
+        }
 
-            return outputFile;
+        // 生成文件名
+        String fileName = "image_" + System.currentTimeMillis() + ".jpg";
+        File outputFile = new File(storageDir, fileName);
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        } finally {
-            try {
-                if (inputStream != null) {
-                    inputStream.close();
-                }
-                if (outputStream != null) {
-                    outputStream.close();
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        return ImageUtil.copyUriToFile(context, uri, outputFile) ? outputFile : null;
     }
 
     /**
@@ -0,0 +1,162 @@
+package com.example.traildiary.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 汉字转拼音（离线）
+ * 拼音表放在 assets/pinyin_dict.txt，每行一个拼音及读该音的汉字，首次使用时加载。
+ * 只覆盖 CJK 基本区和扩展A区，每个字按表中数组下标保存拼音编号（约55KB），查字为一次数组访问。
+ * 拼音不带声调，ü写作v；多音字只有常用读音（如"重"只有zhong）。
+ */
+public final class PinyinUtil {
+
+    private static final String TAG = "PinyinUtil";
+    private static final String DICT_ASSET = "pinyin_dict.txt";
+
+    // 覆盖的字符范围：扩展A区 3400 到基本区末尾 9FFF
+    private static final char FIRST_CHAR = '\u3400';
+    private static final char LAST_CHAR = '\u9fff';
+
+    private static Context appContext;
+    private static volatile Table table;
+
+    private PinyinUtil() {
+    }
+
+    // 记录用于读取拼音表的Context（数据库打开前调用，拼音表在首次使用时才加载）
+    public static synchronized void init(Context context) {
+        if (appContext == null) {
+            appContext = context.getApplicationContext();
+        }
+    }
+
+    /**
+     * 单个汉字的拼音（小写）
+     * @return 不是汉字或拼音表中没有该字时返回null
+     */
+    public static String toPinyin(char c) {
+        if (c < FIRST_CHAR || c > LAST_CHAR) {
+            return null;
+        }
+        Table loaded = getTable();
+        int index = loaded.syllableOf[c - FIRST_CHAR];
+        return index == 0 ? null : loaded.syllables[index - 1];
+    }
+
+    // 全拼："张三" -> "zhangsan"；字母数字转小写保留，其他字符忽略
+    public static String toFullPinyin(String text) {
+        return convert(text, false);
+    }
+
+    // 拼音首字母："张三" -> "zs"；字母数字转小写保留，其他字符忽略
+    public static String toInitials(String text) {
+        return convert(text, true);
+    }
+
+    /**
+     * 关键词是否可以作为拼音检索：去掉空白和隔音符号（xi'an）后至少两个字母且只有ASCII字母
+     * @return 规范化后的小写拼音，不能作为拼音检索时返回null
+     */
+    public static String normalizeQuery(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(keyword.length());
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            if (Character.isWhitespace(c) || c == '\'') {
+                continue;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                sb.append((char) (c + ('a' - 'A')));
+            } else if (c >= 'a' && c <= 'z') {
+                sb.append(c);
+            } else {
+                return null;
+            }
+        }
+        return sb.length() >= 2 ? sb.toString() : null;
+    }
+
+    private static String convert(String text, boolean initialsOnly) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length() * 3);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String pinyin = toPinyin(c);
+            if (pinyin != null) {
+                sb.append(initialsOnly ? pinyin.substring(0, 1) : pinyin);
+            } else if (c >= 'A' && c <= 'Z') {
+                sb.append((char) (c + ('a' - 'A')));
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Table getTable() {
+        Table loaded = table;
+        if (loaded == null) {
+            synchronized (PinyinUtil.class) {
+                loaded = table;
+                if (loaded == null) {
+                    loaded = load();
+                    table = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // 读取拼音表；读取失败时返回空表（拼音检索不可用，其他检索不受影响）
+    private static Table load() {
+        if (appContext == null) {
+            throw new IllegalStateException("PinyinUtil 未初始化");
+        }
+        List<String> syllables = new ArrayList<>();
+        short[] syllableOf = new short[LAST_CHAR - FIRST_CHAR + 1];
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                appContext.getAssets().open(DICT_ASSET), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (line.startsWith("#") || space <= 0) {
+                    continue;
+                }
+                syllables.add(line.substring(0, space));
+                short index = (short) syllables.size();
+                for (int i = space + 1; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    if (c >= FIRST_CHAR && c <= LAST_CHAR) {
+                        syllableOf[c - FIRST_CHAR] = index;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "读取拼音表失败", e);
+            return new Table(new String[0], new short[syllableOf.length]);
+        }
+        return new Table(syllables.toArray(new String[0]), syllableOf);
+    }
+
+    private static final class Table {
+        final String[] syllables;
+        final short[] syllableOf; // 拼音编号+1，0表示没有拼音
+
+        Table(String[] syllables, short[] syllableOf) {
+            this.syllables = syllables;
+            this.syllableOf = syllableOf;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.traildiary.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 插图缩略图生成
+ * 每个尺寸生成一张长边为该尺寸的JPEG（已按EXIF方向旋转），与原图放在同一目录：IMG_1.jpg -> IMG_1_256.jpg；
+ * 原图目录不可写（如相册中的图片）时放在备用目录，文件名前加原图目录的哈希以免重名。
+ * 原图只按inSampleSize解码一次，较小的尺寸由上一个尺寸的结果缩放得到。
+ */
+public final class ThumbnailUtil {
+
+    private ThumbnailUtil() {
+    }
+
+    /**
+     * 为原图生成各尺寸的缩略图（耗时操作，不可在主线程调用）
+     * @param sizes 长边尺寸（px），从小到大排列；原图长边不超过某个尺寸时，该尺寸直接使用原图路径
+     * @return 与sizes一一对应的路径；原图不存在、无法解码或缩略图无法写入时返回null
+     */
+    public static String[] createThumbnails(String sourcePath, File fallbackDir, int... sizes) {
+        File source = new File(sourcePath);
+        if (!source.isFile()) {
+            return null;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(sourcePath, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int longSide = Math.max(options.outWidth, options.outHeight);
+
+        String[] paths = new String[sizes.length];
+        Bitmap current = null;
+        int degree = ImageUtil.getImageDegree(sourcePath);
+        try {
+            // 从大到小生成，每个尺寸由上一个尺寸缩放
+            for (int i = sizes.length - 1; i >= 0; i--) {
+                if (longSide <= sizes[i]) {
+                    paths[i] = sourcePath;
+                    continue;
+                }
+                if (current == null) {
+                    current = decodeSampled(sourcePath, longSide, sizes[i]);
+                    if (current == null) {
+                        return null;
+                    }
+                }
+                Bitmap scaled = resize(current, sizes[i], degree);
+                degree = 0;
+                if (scaled != current) {
+                    current.recycle();
+                    current = scaled;
+                }
+                paths[i] = write(current, source, sizes[i], fallbackDir);
+                if (paths[i] == null) {
+                    return null;
+                }
+            }
+            return paths;
+        } finally {
+            if (current != null) {
+                current.recycle();
+            }
+        }
+    }
+
+    // 按2的幂降采样解码，解码结果的长边不小于targetSize
+    private static Bitmap decodeSampled(String path, int longSide, int targetSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (longSide / (options.inSampleSize * 2) >= targetSize) {
+            options.inSampleSize *= 2;
+        }
+        return BitmapFactory.decodeFile(path, options);
+    }
+
+    // 缩放到长边为longSide并旋转
+    private static Bitmap resize(Bitmap bitmap, int longSide, int degree) {
+        float scale = (float) longSide / Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (scale >= 1f && degree == 0) {
+            return bitmap;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postScale(Math.min(scale, 1f), Math.min(scale, 1f));
+        matrix.postRotate(degree);
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    }
+
+    // 写入原图所在目录，失败时写入备用目录；都失败时返回null
+    private static String write(Bitmap bitmap, File source, int size, File fallbackDir) {
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        name = (dot > 0 ? name.substring(0, dot) : name) + "_" + size + ".jpg";
+
+        File dir = source.getParentFile();
+        if (dir != null) {
+            File target = new File(dir, name);
+            if (writeJpeg(bitmap, target)) {
+                return target.getPath();
+            }
+        }
+        if (fallbackDir == null || (!fallbackDir.isDirectory() && !fallbackDir.mkdirs())) {
+            return null;
+        }
+        String prefix = dir == null ? "" : Integer.toHexString(dir.getPath().hashCode()) + "_";
+        File target = new File(fallbackDir, prefix + name);
+        return writeJpeg(bitmap, target) ? target.getPath() : null;
+    }
+
+    // 先写临时文件再改名，列表不会读到写了一半的缩略图
+    private static boolean writeJpeg(Bitmap bitmap, File target) {
+        File temp = new File(target.getPath() + ".tmp");
+        boolean written;
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            written = bitmap.compress(Bitmap.CompressFormat.JPEG, Constants.THUMBNAIL_QUALITY, out);
+        } catch (IOException e) {
+            written = false;
+        }
+        if (written && temp.renameTo(target)) {
+            return true;
+        }
+        temp.delete();
+        return false;
+    }
+}
@@ -3,14 +3,15 @@ package com.example.traildiary.widget;
 import android.app.Dialog;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.Window;
 import android.view.inputmethod.InputMethodManager;
+import android.widget.AutoCompleteTextView;
 import android.widget.Button;
-import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
@@ -25,12 +26,16 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.flexbox.FlexboxLayout;
 
 import com.example.traildiary.R;
-import com.example.traildiary.adapter.DiaryListAdapter;
+import com.example.traildiary.adapter.KeywordSuggestionAdapter;
+import com.example.traildiary.adapter.SearchResultAdapter;
+import com.example.traildiary.database.DatabaseProvider;
 import com.example.traildiary.database.DiaryDAO;
+import com.example.traildiary.database.KeywordSuggester;
 import com.example.traildiary.database.SearchHistoryDAO;
-import com.example.traildiary.model.Diary;
+import com.example.traildiary.model.DiarySearchHit;
 import com.example.traildiary.model.SearchHistory;
 import com.example.traildiary.utils.Constants;
+import com.example.traildiary.utils.DebouncedSearcher;
 import com.example.traildiary.utils.SharedPreferencesUtil;
 
 import java.util.ArrayList;
@@ -44,7 +49,7 @@ public class SearchDialog extends Dialog {
     private SearchHistoryDAO searchHistoryDAO;
 
     // 视图组件
-    private EditText etSearch;
+    private AutoCompleteTextView etSearch;
     private ImageView btnClear;
     private RadioGroup rgSearchType;
     private RadioButton rbAuthor, rbTitle, rbCategory;
@@ -56,17 +61,24 @@ public class SearchDialog extends Dialog {
     private LinearLayout llEmpty;
 
     // 适配器
-    private DiaryListAdapter diaryAdapter;
+    private SearchResultAdapter resultAdapter;
+
+    // 边输入边搜索（后台执行，关键词变化时取消旧查询）
+    private DebouncedSearcher<List<DiarySearchHit>> searcher;
+    private volatile int searchType = Constants.SEARCH_BY_TITLE; // 后台查询读取
+
+    // 关键词自动补全
+    private KeywordSuggester suggester;
 
     // 数据
     private List<SearchHistory> searchHistoryList;
-    private List<Diary> searchResultList;
+    private List<DiarySearchHit> searchResultList;
 
     // 回调接口
     private OnSearchResultClickListener listener;
 
     public interface OnSearchResultClickListener {
-        void onDiaryClicked(Diary diary);
+        void onDiaryClicked(DiarySearchHit hit);
     }
 
     public SearchDialog(Context context, OnSearchResultClickListener listener) {
@@ -115,14 +127,14 @@ public class SearchDialog extends Dialog {
 
         // 初始化搜索结果适配器
         searchResultList = new ArrayList<>();
-        diaryAdapter = new DiaryListAdapter(context, searchResultList);
-        diaryAdapter.setOnItemClickListener(diary -> {
+        resultAdapter = new SearchResultAdapter(context, searchResultList);
+        resultAdapter.setOnItemClickListener(hit -> {
             if (listener != null) {
-                listener.onDiaryClicked(diary);
+                listener.onDiaryClicked(hit);
                 dismiss();
             }
         });
-        rvSearchResult.setAdapter(diaryAdapter);
+        rvSearchResult.setAdapter(resultAdapter);
 
         // 初始化搜索历史数据
         searchHistoryList = new ArrayList<>();
@@ -132,6 +144,20 @@ public class SearchDialog extends Dialog {
         spUtil = SharedPreferencesUtil.getInstance(context);
         diaryDAO = new DiaryDAO(context);
         searchHistoryDAO = new SearchHistoryDAO(context);
+        searchType = getSelectedSearchType();
+        int userId = spUtil.getCurrentUserId();
+        searcher = new DebouncedSearcher<>(Looper.getMainLooper(), Constants.SEARCH_DEBOUNCE_MS,
+                (keyword, cancellationSignal) -> diaryDAO.searchByType(keyword, searchType, userId, cancellationSignal),
+                (keyword, result) -> showSearchResult(result));
+
+        // 自动补全：后台载入搜索历史，输入时从内存前缀树取建议
+        suggester = new KeywordSuggester(context, userId);
+        suggester.loadAsync();
+        etSearch.setAdapter(new KeywordSuggestionAdapter(context, suggester));
+        etSearch.setOnItemClickListener((parent, view, position, id) -> {
+            performSearch(etSearch.getText().toString().trim());
+            hideKeyboard();
+        });
         // 移除：DiaryDAO和SearchHistoryDAO没有open()方法，删除以下两行
         // diaryDAO.open();
         // searchHistoryDAO.open();
@@ -153,8 +179,12 @@ public class SearchDialog extends Dialog {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 btnClear.setVisibility(s.length() > 0 ? View.VISIBLE : View.GONE);
-                if (s.length() == 0) {
+                String keyword = s.toString().trim();
+                if (keyword.isEmpty()) {
+                    searcher.cancel();
                     showSearchHistory();
+                } else {
+                    searcher.submit(keyword);
                 }
             }
 
@@ -174,6 +204,15 @@ public class SearchDialog extends Dialog {
             hideKeyboard();
         });
 
+        // 切换搜索类型后按新类型重新搜索
+        rgSearchType.setOnCheckedChangeListener((group, checkedId) -> {
+            searchType = getSelectedSearchType();
+            String keyword = etSearch.getText().toString().trim();
+            if (!keyword.isEmpty()) {
+                searcher.submitNow(keyword);
+            }
+        });
+
         // 取消按钮
         btnCancel.setOnClickListener(v -> dismiss());
 
@@ -194,43 +233,20 @@ public class SearchDialog extends Dialog {
 
     private void performSearch(String keyword) {
         // 获取搜索类型
-        int searchType = getSelectedSearchType();
+        searchType = getSelectedSearchType();
 
-        // 执行搜索
-        searchDiaries(keyword, searchType);
+        // 立即执行搜索（取消输入过程中尚未完成的查询），结果在后台查询完成后显示
+        searcher.submitNow(keyword);
 
         // 保存搜索历史
         saveSearchHistory(keyword, searchType);
-
-        // 显示搜索结果
-        showSearchResult();
     }
 
-    private void searchDiaries(String keyword, int searchType) {
-        int userId = spUtil.getCurrentUserId();
+    private void showSearchResult(List<DiarySearchHit> result) {
         searchResultList.clear();
-
-        List<Diary> result = new ArrayList<>();
-
-        // 修改：修正DiaryDAO的方法名（原方法名是searchByAuthor/searchByTitle/searchByCategory）
-        switch (searchType) {
-            case Constants.SEARCH_BY_AUTHOR:
-                result = diaryDAO.searchByAuthor(keyword, userId); // 修正方法名
-                break;
-            case Constants.SEARCH_BY_TITLE:
-                result = diaryDAO.searchByTitle(keyword, userId); // 修正方法名
-                break;
-            case Constants.SEARCH_BY_CATEGORY:
-                result = diaryDAO.searchByCategory(keyword, userId); // 修正方法名
-                break;
-            default:
-                // 综合搜索（搜索所有字段）
-                result = diaryDAO.searchAll(keyword, userId); // 修正为searchAll
-                break;
-        }
-
         searchResultList.addAll(result);
-        diaryAdapter.notifyDataSetChanged();
+        resultAdapter.notifyDataSetChanged();
+        showSearchResult();
 
         // 修改：显示/隐藏无结果提示（适配布局里的ll_empty）
         llEmpty.setVisibility(result.isEmpty() ? View.VISIBLE : View.GONE);
@@ -254,20 +270,15 @@ public class SearchDialog extends Dialog {
     }
 
     private void saveSearchHistory(String keyword, int searchType) {
-        int userId = spUtil.getCurrentUserId();
-
-        // 检查是否已存在相同搜索记录
-        boolean exists = searchHistoryDAO.isSearchHistoryExist(userId, keyword);
-
-        if (exists) {
-            // 如果已存在，更新搜索时间（需要在DAO中添加相应方法）
-            // 这里简化为不保存重复记录
+        // 数据升级期间为只读模式，只搜索不记录
+        if (!DatabaseProvider.getInstance(context).isWritable()) {
             return;
         }
+        int userId = spUtil.getCurrentUserId();
 
-        // 添加新的搜索历史
+        // 已有相同记录时累加搜索次数并移到最前，否则新增
         SearchHistory history = new SearchHistory(userId, keyword, searchType);
-        long id = searchHistoryDAO.addSearchHistory(history);
+        long id = suggester.addSearchHistory(history);
 
         if (id > 0) {
             // 重新加载搜索历史
@@ -316,21 +327,25 @@ public class SearchDialog extends Dialog {
 
         // 点击搜索
         tag.setOnClickListener(v -> {
-            etSearch.setText(history.getKeyword());
+            etSearch.setText(history.getKeyword(), false); // 不弹出补全列表
             performSearch(history.getKeyword());
         });
 
         // 长按删除
         tag.setOnLongClickListener(v -> {
-            deleteSearchHistory(history.getId(), searchHistoryList.indexOf(history));
+            deleteSearchHistory(history);
             return true;
         });
 
         flexboxHistory.addView(tag);
     }
 
-    private void deleteSearchHistory(int historyId, int position) {
-        int result = searchHistoryDAO.deleteSearchHistory(historyId);
+    private void deleteSearchHistory(SearchHistory history) {
+        if (!DatabaseProvider.getInstance(context).isWritable()) {
+            Toast.makeText(context, "数据升级中，请稍后再试", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        int result = suggester.deleteSearchHistory(history);
         if (result > 0) {
             // 重新加载搜索历史
             loadSearchHistory();
@@ -369,6 +384,12 @@ public class SearchDialog extends Dialog {
         // if (searchHistoryDAO != null) {
         //     searchHistoryDAO.close();
         // }
+        if (searcher != null) {
+            searcher.shutdown();
+        }
+        if (suggester != null) {
+            suggester.shutdown();
+        }
         hideKeyboard();
         super.dismiss();
     }